@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -110,7 +110,9 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 
 	private transient ClassLoader pointcutClassLoader;
 
-	private transient PointcutExpression pointcutExpression;
+	private transient volatile PointcutExpression pointcutExpression;
+
+	private transient volatile ShadowMatchPreFilter shadowMatchPreFilter;
 
 	private transient Map<Method, ShadowMatch> shadowMatchCache = new ConcurrentHashMap<Method, ShadowMatch>(32);
 
@@ -190,7 +192,10 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 			this.pointcutClassLoader = (this.beanFactory instanceof ConfigurableBeanFactory ?
 					((ConfigurableBeanFactory) this.beanFactory).getBeanClassLoader() :
 					ClassUtils.getDefaultClassLoader());
-			this.pointcutExpression = buildPointcutExpression(this.pointcutClassLoader);
+			PointcutExpression pointcutExpression = buildPointcutExpression(this.pointcutClassLoader);
+			// Publish the pre-filter before the expression that readers check for
+			this.shadowMatchPreFilter = buildShadowMatchPreFilter(pointcutExpression, this.pointcutClassLoader);
+			this.pointcutExpression = pointcutExpression;
 		}
 	}
 
@@ -208,6 +213,20 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 				this.pointcutDeclarationScope, pointcutParameters);
 	}
 
+	/**
+	 * Build the pre-filter for method execution join points of the given expression.
+	 */
+	private ShadowMatchPreFilter buildShadowMatchPreFilter(PointcutExpression expression, ClassLoader classLoader) {
+		try {
+			return ShadowMatchPreFilter.forExpression(expression, classLoader);
+		}
+		catch (Throwable ex) {
+			// Unexpected AspectJ internals - let AspectJ compute every shadow match then.
+			logger.debug("Failed to build shadow match pre-filter for pointcut expression", ex);
+			return null;
+		}
+	}
+
 	/**
 	 * Initialize the underlying AspectJ pointcut parser.
 	 */
@@ -245,6 +264,14 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 	@Override
 	public boolean matches(Class<?> targetClass) {
 		checkReadyToMatch();
+		// The AspectJ world behind the expression is not thread-safe, whereas
+		// advisors sharing this pointcut may get matched concurrently.
+		synchronized (this.shadowMatchCache) {
+			return matchesClass(targetClass);
+		}
+	}
+
+	private boolean matchesClass(Class<?> targetClass) {
 		try {
 			try {
 				return this.pointcutExpression.couldMatchJoinPointsInType(targetClass);
@@ -268,6 +295,12 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 	public boolean matches(Method method, Class<?> targetClass, boolean beanHasIntroductions) {
 		checkReadyToMatch();
 		Method targetMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+		ShadowMatchPreFilter preFilter = this.shadowMatchPreFilter;
+		if (preFilter != null && !preFilter.couldMatch(targetMethod) &&
+				(targetMethod == method || !preFilter.couldMatch(method))) {
+			// Cannot match, without having to ask AspectJ for a shadow match.
+			return false;
+		}
 		ShadowMatch shadowMatch = getShadowMatch(targetMethod, method);
 
 		// Special handling for this, target, @this, @target, @annotation
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.aspectj;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.Method;
+
+import org.aspectj.weaver.Shadow;
+import org.aspectj.weaver.internal.tools.PointcutExpressionImpl;
+import org.aspectj.weaver.patterns.AndPointcut;
+import org.aspectj.weaver.patterns.AnnotationPointcut;
+import org.aspectj.weaver.patterns.EllipsisTypePattern;
+import org.aspectj.weaver.patterns.KindedPointcut;
+import org.aspectj.weaver.patterns.NamePattern;
+import org.aspectj.weaver.patterns.OrPointcut;
+import org.aspectj.weaver.patterns.Pointcut;
+import org.aspectj.weaver.patterns.SignaturePattern;
+import org.aspectj.weaver.patterns.TypePattern;
+import org.aspectj.weaver.tools.PointcutExpression;
+
+import org.springframework.util.ClassUtils;
+
+/**
+ * Cheap pre-filter for the method execution join points of an AspectJ pointcut
+ * expression, extracted from the parsed expression: the method name patterns and
+ * parameter counts of {@code execution} designators and the annotation types of
+ * {@code @annotation} designators. Methods that get rejected can never match the
+ * expression, so AspectJ only needs to compute shadow matches for the others.
+ *
+ * <p>Like {@link RuntimeTestWalker}, this class relies on AspectJ internals:
+ * any part of the expression that it does not understand is assumed to match.
+ *
+ * @since 4.3.4
+ * @see AspectJExpressionPointcut#matches(Method, Class, boolean)
+ */
+final class ShadowMatchPreFilter {
+
+	private final Discriminator discriminator;
+
+
+	private ShadowMatchPreFilter(Discriminator discriminator) {
+		this.discriminator = discriminator;
+	}
+
+
+	/**
+	 * Determine whether the given method could possibly match the expression.
+	 * @param method the method to check
+	 * @return {@code false} if the method can never match, {@code true} otherwise
+	 */
+	public boolean couldMatch(Method method) {
+		return this.discriminator.couldMatch(method);
+	}
+
+
+	/**
+	 * Build the pre-filter for the given pointcut expression.
+	 * @param expression the parsed pointcut expression
+	 * @param classLoader the ClassLoader to resolve annotation types with
+	 * @return the pre-filter, or {@code null} if the expression does not
+	 * rule out any methods upfront
+	 */
+	public static ShadowMatchPreFilter forExpression(PointcutExpression expression, ClassLoader classLoader) {
+		if (!(expression instanceof PointcutExpressionImpl)) {
+			return null;
+		}
+		Discriminator discriminator =
+				buildDiscriminator(((PointcutExpressionImpl) expression).getUnderlyingPointcut(), classLoader);
+		return (discriminator != null ? new ShadowMatchPreFilter(discriminator) : null);
+	}
+
+	private static Discriminator buildDiscriminator(Pointcut pointcut, ClassLoader classLoader) {
+		if (pointcut instanceof AndPointcut) {
+			Discriminator left = buildDiscriminator(((AndPointcut) pointcut).getLeft(), classLoader);
+			Discriminator right = buildDiscriminator(((AndPointcut) pointcut).getRight(), classLoader);
+			if (left == null || right == null) {
+				return (left != null ? left : right);
+			}
+			return new AndDiscriminator(left, right);
+		}
+		else if (pointcut instanceof OrPointcut) {
+			Discriminator left = buildDiscriminator(((OrPointcut) pointcut).getLeft(), classLoader);
+			Discriminator right = buildDiscriminator(((OrPointcut) pointcut).getRight(), classLoader);
+			if (left == null || right == null) {
+				return null;
+			}
+			return new OrDiscriminator(left, right);
+		}
+		else if (pointcut instanceof KindedPointcut) {
+			KindedPointcut kindedPointcut = (KindedPointcut) pointcut;
+			if (kindedPointcut.getKind() != Shadow.MethodExecution) {
+				return null;
+			}
+			return buildSignatureDiscriminator(kindedPointcut.getSignature());
+		}
+		else if (pointcut instanceof AnnotationPointcut) {
+			String annotationTypeName =
+					((AnnotationPointcut) pointcut).getAnnotationTypePattern().getAnnotationType().getName();
+			return buildAnnotationDiscriminator(annotationTypeName, classLoader);
+		}
+		// Anything else may match any method...
+		return null;
+	}
+
+	private static Discriminator buildSignatureDiscriminator(SignaturePattern signature) {
+		NamePattern namePattern = signature.getName();
+		int parameterCount = 0;
+		boolean ellipsis = false;
+		for (TypePattern parameterType : signature.getParameterTypes().getTypePatterns()) {
+			if (parameterType instanceof EllipsisTypePattern) {
+				ellipsis = true;
+			}
+			else {
+				parameterCount++;
+			}
+		}
+		if ((namePattern == null || namePattern.isAny()) && ellipsis && parameterCount == 0) {
+			return null;
+		}
+		return new SignatureDiscriminator(
+				(namePattern != null && !namePattern.isAny() ? namePattern : null), parameterCount, ellipsis);
+	}
+
+	private static Discriminator buildAnnotationDiscriminator(String annotationTypeName, ClassLoader classLoader) {
+		Class<?> annotationType;
+		try {
+			annotationType = ClassUtils.forName(annotationTypeName, classLoader);
+		}
+		catch (Throwable ex) {
+			return null;
+		}
+		// AspectJ may see annotations with class retention that reflection does not expose
+		Retention retention = annotationType.getAnnotation(Retention.class);
+		if (!annotationType.isAnnotation() || retention == null || retention.value() != RetentionPolicy.RUNTIME) {
+			return null;
+		}
+		return new AnnotationDiscriminator(annotationTypeName);
+	}
+
+
+	private interface Discriminator {
+
+		boolean couldMatch(Method method);
+	}
+
+
+	private static class AndDiscriminator implements Discriminator {
+
+		private final Discriminator left;
+
+		private final Discriminator right;
+
+		public AndDiscriminator(Discriminator left, Discriminator right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		public boolean couldMatch(Method method) {
+			return (this.left.couldMatch(method) && this.right.couldMatch(method));
+		}
+	}
+
+
+	private static class OrDiscriminator implements Discriminator {
+
+		private final Discriminator left;
+
+		private final Discriminator right;
+
+		public OrDiscriminator(Discriminator left, Discriminator right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		public boolean couldMatch(Method method) {
+			return (this.left.couldMatch(method) || this.right.couldMatch(method));
+		}
+	}
+
+
+	/**
+	 * Checks the name and parameter count of a method against an
+	 * {@code execution} signature pattern.
+	 */
+	private static class SignatureDiscriminator implements Discriminator {
+
+		private final NamePattern namePattern;
+
+		private final int parameterCount;
+
+		private final boolean ellipsis;
+
+		public SignatureDiscriminator(NamePattern namePattern, int parameterCount, boolean ellipsis) {
+			this.namePattern = namePattern;
+			this.parameterCount = parameterCount;
+			this.ellipsis = ellipsis;
+		}
+
+		@Override
+		public boolean couldMatch(Method method) {
+			int count = method.getParameterTypes().length;
+			if (this.ellipsis ? count < this.parameterCount : count != this.parameterCount) {
+				return false;
+			}
+			return (this.namePattern == null || this.namePattern.matches(method.getName()));
+		}
+	}
+
+
+	/**
+	 * Checks a method for an {@code @annotation} type, by name
+	 * in order to not depend on the ClassLoader of the method.
+	 */
+	private static class AnnotationDiscriminator implements Discriminator {
+
+		private final String annotationTypeName;
+
+		public AnnotationDiscriminator(String annotationTypeName) {
+			this.annotationTypeName = annotationTypeName;
+		}
+
+		@Override
+		public boolean couldMatch(Method method) {
+			for (Annotation annotation : method.getAnnotations()) {
+				if (annotation.annotationType().getName().equals(this.annotationTypeName)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+}
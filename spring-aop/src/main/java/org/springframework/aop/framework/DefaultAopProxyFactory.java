@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.io.Serializable;
 import java.lang.reflect.Proxy;
 
 import org.springframework.aop.SpringProxy;
+import org.springframework.aop.support.AopUtils;
 
 /**
  * Default {@link AopProxyFactory} implementation, creating either a CGLIB proxy
@@ -36,16 +37,45 @@ import org.springframework.aop.SpringProxy;
  * <p>In general, specify {@code proxyTargetClass} to enforce a CGLIB proxy,
  * or specify one or more interfaces to use a JDK dynamic proxy.
  *
+ * <p>Alternatively to JDK dynamic proxies, {@link #setGenerateProxyClasses generated
+ * proxy classes} can be used for frozen configurations with a static target.
+ *
  * @author Rod Johnson
  * @author Juergen Hoeller
  * @since 12.03.2004
  * @see AdvisedSupport#setOptimize
  * @see AdvisedSupport#setProxyTargetClass
  * @see AdvisedSupport#setInterfaces
+ * @see ProxyCreatorSupport#setAopProxyFactory
  */
 @SuppressWarnings("serial")
 public class DefaultAopProxyFactory implements AopProxyFactory, Serializable {
 
+	private boolean generateProxyClasses = false;
+
+
+	/**
+	 * Set whether to generate a dedicated proxy class with ASM instead of creating
+	 * a JDK dynamic proxy, for {@link ProxyConfig#isFrozen() frozen} configurations
+	 * with a {@link org.springframework.aop.TargetSource#isStatic() static} target.
+	 * <p>Default is "false". Generated proxies call the target directly for methods
+	 * without advice and walk the interception chain of advised methods without
+	 * reflection. Note that they are neither {@link Proxy} instances nor serializable.
+	 * @since 4.3.4
+	 */
+	public void setGenerateProxyClasses(boolean generateProxyClasses) {
+		this.generateProxyClasses = generateProxyClasses;
+	}
+
+	/**
+	 * Return whether to generate dedicated proxy classes for frozen configurations.
+	 * @since 4.3.4
+	 */
+	public boolean isGenerateProxyClasses() {
+		return this.generateProxyClasses;
+	}
+
+
 	@Override
 	public AopProxy createAopProxy(AdvisedSupport config) throws AopConfigException {
 		if (config.isOptimize() || config.isProxyTargetClass() || hasNoUserSuppliedProxyInterfaces(config)) {
@@ -54,14 +84,26 @@ public class DefaultAopProxyFactory implements AopProxyFactory, Serializable {
 				throw new AopConfigException("TargetSource cannot determine target class: " +
 						"Either an interface or a target is required for proxy creation.");
 			}
-			if (targetClass.isInterface() || Proxy.isProxyClass(targetClass)) {
-				return new JdkDynamicAopProxy(config);
+			if (targetClass.isInterface() || Proxy.isProxyClass(targetClass) ||
+					AopUtils.isGeneratedProxyClass(targetClass)) {
+				return createInterfaceBasedAopProxy(config);
 			}
 			return new ObjenesisCglibAopProxy(config);
 		}
 		else {
-			return new JdkDynamicAopProxy(config);
+			return createInterfaceBasedAopProxy(config);
+		}
+	}
+
+	/**
+	 * Create a generated proxy if applicable, or a JDK dynamic proxy otherwise.
+	 * @see #setGenerateProxyClasses
+	 */
+	private AopProxy createInterfaceBasedAopProxy(AdvisedSupport config) {
+		if (this.generateProxyClasses && config.isFrozen() && config.getTargetSource().isStatic()) {
+			return new GeneratedAopProxy(config);
 		}
+		return new JdkDynamicAopProxy(config);
 	}
 
 	/**
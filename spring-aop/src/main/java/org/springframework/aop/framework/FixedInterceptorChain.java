@@ -0,0 +1,203 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.cglib.reflect.FastClass;
+import org.springframework.core.DecoratingProxy;
+
+/**
+ * The interception chain for a method of a proxy with a frozen configuration
+ * and a static target, resolved once at proxy creation time, along with an
+ * invoker for the target method that is generated as bytecode if possible.
+ *
+ * <p>The CGLIB-based proxy achieves the same through its fixed chain callbacks
+ * and the {@link org.springframework.cglib.proxy.MethodProxy} of each method;
+ * this class serves {@link JdkDynamicAopProxy}.
+ *
+ * @since 4.3.4
+ * @see ProxyConfig#setFrozen
+ * @see org.springframework.aop.TargetSource#isStatic()
+ */
+final class FixedInterceptorChain {
+
+	private static final Log logger = LogFactory.getLog(FixedInterceptorChain.class);
+
+
+	private final Method method;
+
+	private final Class<?> targetClass;
+
+	private final List<Object> chain;
+
+	private final FastClass fastClass;
+
+	private final int fastMethodIndex;
+
+
+	private FixedInterceptorChain(Method method, Class<?> targetClass, List<Object> chain,
+			FastClass fastClass, int fastMethodIndex) {
+
+		this.method = method;
+		this.targetClass = targetClass;
+		this.chain = chain;
+		this.fastClass = fastClass;
+		this.fastMethodIndex = fastMethodIndex;
+	}
+
+
+	/**
+	 * Resolve the interception chains for all methods of the given proxied interfaces.
+	 * @param advised the frozen configuration
+	 * @param proxiedInterfaces the interfaces implemented by the proxy
+	 * @param target the static target (may be {@code null})
+	 * @return the chains keyed by interface method
+	 */
+	public static Map<Method, FixedInterceptorChain> resolve(
+			AdvisedSupport advised, Class<?>[] proxiedInterfaces, Object target) {
+
+		Class<?> targetClass = (target != null ? target.getClass() : null);
+		FastClass fastClass = createFastClass(targetClass);
+		Map<Method, FixedInterceptorChain> chains = new HashMap<Method, FixedInterceptorChain>();
+		for (Class<?> proxiedInterface : proxiedInterfaces) {
+			if (proxiedInterface == DecoratingProxy.class || proxiedInterface.isAssignableFrom(Advised.class)) {
+				// Dispatched to the proxy configuration without any interception.
+				continue;
+			}
+			for (Method method : proxiedInterface.getMethods()) {
+				if (!chains.containsKey(method)) {
+					List<Object> chain = advised.getInterceptorsAndDynamicInterceptionAdvice(method, targetClass);
+					chains.put(method, new FixedInterceptorChain(
+							method, targetClass, chain, fastClass, getFastMethodIndex(fastClass, method, targetClass)));
+				}
+			}
+		}
+		return chains;
+	}
+
+	private static FastClass createFastClass(Class<?> targetClass) {
+		if (targetClass == null || !Modifier.isPublic(targetClass.getModifiers()) ||
+				targetClass.getClassLoader() == null) {
+			return null;
+		}
+		try {
+			return FastClass.create(targetClass);
+		}
+		catch (Throwable ex) {
+			// Invoke the target reflectively then.
+			if (logger.isDebugEnabled()) {
+				logger.debug("Cannot generate fast invoker for target class [" + targetClass.getName() + "]", ex);
+			}
+			return null;
+		}
+	}
+
+	private static int getFastMethodIndex(FastClass fastClass, Method method, Class<?> targetClass) {
+		if (fastClass == null) {
+			return -1;
+		}
+		Method targetMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+		if (!Modifier.isPublic(targetMethod.getModifiers()) ||
+				!Modifier.isPublic(targetMethod.getDeclaringClass().getModifiers())) {
+			return -1;
+		}
+		return fastClass.getIndex(targetMethod.getName(), targetMethod.getParameterTypes());
+	}
+
+
+	/**
+	 * Determine whether this chain has been resolved for the given target class.
+	 * <p>The target source of a frozen configuration may still be replaced,
+	 * in which case the chain and the generated invoker do not apply anymore.
+	 * @param targetClass the class of the current target (may be {@code null})
+	 * @see AdvisedSupport#setTargetSource
+	 */
+	public boolean isResolvedFor(Class<?> targetClass) {
+		return (this.targetClass == targetClass);
+	}
+
+	/**
+	 * Return the interceptors (and dynamic interception advice) for the method.
+	 */
+	public List<Object> getChain() {
+		return this.chain;
+	}
+
+	/**
+	 * Invoke the target method directly, without any interception.
+	 * @param target the target object
+	 * @param args the (already adapted) arguments for the method
+	 * @return the return value of the target method
+	 * @throws Throwable exactly as thrown by the target method
+	 */
+	public Object invokeJoinpoint(Object target, Object[] args) throws Throwable {
+		if (this.fastMethodIndex >= 0) {
+			try {
+				return this.fastClass.invoke(this.fastMethodIndex, target, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+		}
+		return AopUtils.invokeJoinpointUsingReflection(target, this.method, args);
+	}
+
+	/**
+	 * Create a MethodInvocation that proceeds through the chain and eventually
+	 * invokes the target through {@link #invokeJoinpoint}.
+	 */
+	public MethodInvocation createInvocation(Object proxy, Object target, Object[] args, Class<?> targetClass) {
+		if (this.fastMethodIndex >= 0) {
+			return new FixedChainMethodInvocation(proxy, target, args, targetClass, this);
+		}
+		return new ReflectiveMethodInvocation(proxy, target, this.method, args, targetClass, this.chain);
+	}
+
+
+	/**
+	 * ReflectiveMethodInvocation variant which invokes the target through the
+	 * generated invoker of its FixedInterceptorChain.
+	 */
+	private static class FixedChainMethodInvocation extends ReflectiveMethodInvocation {
+
+		private final FixedInterceptorChain fixedChain;
+
+		public FixedChainMethodInvocation(Object proxy, Object target, Object[] arguments,
+				Class<?> targetClass, FixedInterceptorChain fixedChain) {
+
+			super(proxy, target, fixedChain.method, arguments, targetClass, fixedChain.chain);
+			this.fixedChain = fixedChain;
+		}
+
+		@Override
+		protected Object invokeJoinpoint() throws Throwable {
+			return this.fixedChain.invokeJoinpoint(this.target, this.arguments);
+		}
+	}
+
+}
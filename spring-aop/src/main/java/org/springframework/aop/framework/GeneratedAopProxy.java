@@ -0,0 +1,524 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.aop.RawTargetAccess;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.core.DecoratingProxy;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+/**
+ * {@link AopProxy} implementation that generates a dedicated proxy class for the
+ * proxied interfaces of a frozen configuration with a static target, with ASM.
+ *
+ * <p>Each generated method calls the target directly (through
+ * {@code invokeinterface}) if the method has no advice. Advised methods walk
+ * their interception chain as an array that is resolved at proxy creation time
+ * and eventually call the target through a generated {@code tableswitch} on the
+ * method index rather than through reflection. Generated classes are shared
+ * between configurations with the same interfaces and the same advised methods.
+ *
+ * <p>Falls back to a {@link JdkDynamicAopProxy} if a proxy class cannot be
+ * generated for the configuration, e.g. for non-public interfaces.
+ * In contrast to JDK dynamic proxies, generated proxies are not serializable.
+ *
+ * @since 4.3.4
+ * @see DefaultAopProxyFactory#setGenerateProxyClasses
+ * @see GeneratedProxySupport
+ */
+final class GeneratedAopProxy implements AopProxy, Opcodes {
+
+	private static final Log logger = LogFactory.getLog(GeneratedAopProxy.class);
+
+	private static final String SUPPORT_NAME = Type.getInternalName(GeneratedProxySupport.class);
+
+	private static final String CONSTRUCTOR_DESCRIPTOR = Type.getMethodDescriptor(Type.VOID_TYPE,
+			Type.getType(AdvisedSupport.class), Type.getType(Object.class), Type.getType(Method[].class));
+
+	private static final String INVOKE_DESCRIPTOR = "(I[Ljava/lang/Object;)Ljava/lang/Object;";
+
+	private static final String INVOKE_PROXY_METHOD = "invokeProxyMethod";
+
+	private static final String INVOKE_TARGET_METHOD = "invokeTargetMethod";
+
+	private static final String IS_TARGET_SOURCE_REPLACED = "isTargetSourceReplaced";
+
+	private static final String CLASS_NAME_PREFIX = "org/springframework/aop/framework/GeneratedProxy";
+
+	private static final AtomicInteger classCounter = new AtomicInteger();
+
+	private static final Map<ClassLoader, ProxyClassLoader> classLoaders =
+			new ConcurrentReferenceHashMap<ClassLoader, ProxyClassLoader>(16);
+
+	private static final Comparator<Method> methodComparator = new Comparator<Method>() {
+		@Override
+		public int compare(Method m1, Method m2) {
+			return getSignature(m1).compareTo(getSignature(m2));
+		}
+	};
+
+
+	/** Config used to configure this proxy */
+	private final AdvisedSupport advised;
+
+
+	/**
+	 * Construct a new GeneratedAopProxy for the given AOP configuration.
+	 * @param config the AOP configuration, frozen and with a static target
+	 */
+	public GeneratedAopProxy(AdvisedSupport config) throws AopConfigException {
+		Assert.notNull(config, "AdvisedSupport must not be null");
+		Assert.isTrue(config.isFrozen() && config.getTargetSource().isStatic(),
+				"Generated proxies require a frozen configuration with a static target");
+		if (config.getAdvisors().length == 0 && config.getTargetSource() == AdvisedSupport.EMPTY_TARGET_SOURCE) {
+			throw new AopConfigException("No advisors and no TargetSource specified");
+		}
+		this.advised = config;
+	}
+
+
+	@Override
+	public Object getProxy() {
+		return getProxy(ClassUtils.getDefaultClassLoader());
+	}
+
+	@Override
+	public Object getProxy(ClassLoader classLoader) {
+		Class<?>[] proxiedInterfaces = AopProxyUtils.completeProxiedInterfaces(this.advised, true);
+		Object target;
+		try {
+			target = this.advised.getTargetSource().getTarget();
+		}
+		catch (Exception ex) {
+			throw new AopConfigException("Unable to obtain static target from " + this.advised.getTargetSource(), ex);
+		}
+		Class<?> targetClass = (target != null ? target.getClass() : null);
+
+		Method[] methods = collectMethods(proxiedInterfaces);
+		ProxyClassLoader proxyClassLoader = (methods != null ? getProxyClassLoader(classLoader, proxiedInterfaces) : null);
+		if (proxyClassLoader != null) {
+			try {
+				Class<?> proxyClass = proxyClassLoader.getProxyClass(proxiedInterfaces, methods, getModes(methods, targetClass));
+				if (logger.isDebugEnabled()) {
+					logger.debug("Creating generated proxy of class [" + proxyClass.getName() +
+							"]: target source is " + this.advised.getTargetSource());
+				}
+				return proxyClass.getConstructor(AdvisedSupport.class, Object.class, Method[].class)
+						.newInstance(this.advised, target, methods);
+			}
+			catch (Throwable ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Could not generate proxy class - falling back to JDK dynamic proxy", ex);
+				}
+			}
+		}
+		return new JdkDynamicAopProxy(this.advised).getProxy(classLoader);
+	}
+
+	/**
+	 * Collect the methods to implement for the given interfaces, sorted by signature.
+	 * @return the methods, or {@code null} if no proxy class can be generated for them
+	 */
+	private static Method[] collectMethods(Class<?>[] proxiedInterfaces) {
+		Map<String, Method> methods = new LinkedHashMap<String, Method>();
+		for (Class<?> proxiedInterface : proxiedInterfaces) {
+			if (!Modifier.isPublic(proxiedInterface.getModifiers())) {
+				return null;
+			}
+			for (Method method : proxiedInterface.getMethods()) {
+				if (Modifier.isStatic(method.getModifiers())) {
+					continue;
+				}
+				String signature = getSignature(method);
+				Method existing = methods.get(signature);
+				if (existing == null) {
+					if (!isGeneratable(method)) {
+						return null;
+					}
+					methods.put(signature, method);
+				}
+				else if (existing.getReturnType() != method.getReturnType()) {
+					return null;
+				}
+			}
+		}
+		if (!methods.containsKey("toString()")) {
+			methods.put("toString()", ClassUtils.getMethod(Object.class, "toString"));
+		}
+		List<Method> result = new ArrayList<Method>(methods.values());
+		Collections.sort(result, methodComparator);
+		return result.toArray(new Method[result.size()]);
+	}
+
+	private static String getSignature(Method method) {
+		String descriptor = Type.getMethodDescriptor(method);
+		return method.getName() + descriptor.substring(0, descriptor.indexOf(')') + 1);
+	}
+
+	private static boolean isGeneratable(Method method) {
+		if (method.getName().equals(INVOKE_PROXY_METHOD) || method.getName().equals(INVOKE_TARGET_METHOD)) {
+			return false;
+		}
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			if (!isAccessible(parameterType)) {
+				return false;
+			}
+		}
+		return isAccessible(method.getReturnType());
+	}
+
+	private static boolean isAccessible(Class<?> type) {
+		while (type.isArray()) {
+			type = type.getComponentType();
+		}
+		return (type.isPrimitive() || Modifier.isPublic(type.getModifiers()));
+	}
+
+	/**
+	 * Determine how each method gets implemented: 'C' for a proxy configuration
+	 * method, 'A' for an advised method, 'D' for a direct call to the target
+	 * (as long as the TargetSource has not been replaced); followed by 'T' if
+	 * the target implements the method, 'N' otherwise.
+	 */
+	private String getModes(Method[] methods, Class<?> targetClass) {
+		StringBuilder modes = new StringBuilder(methods.length * 2);
+		for (Method method : methods) {
+			Class<?> declaringClass = method.getDeclaringClass();
+			boolean implemented = (targetClass != null && declaringClass.isAssignableFrom(targetClass));
+			if (declaringClass == DecoratingProxy.class || (!this.advised.isOpaque() &&
+					declaringClass.isInterface() && declaringClass.isAssignableFrom(Advised.class))) {
+				modes.append('C');
+			}
+			else if (this.advised.isExposeProxy() || !implemented ||
+					!this.advised.getInterceptorsAndDynamicInterceptionAdvice(method, targetClass).isEmpty()) {
+				modes.append('A');
+			}
+			else {
+				modes.append('D');
+			}
+			modes.append(implemented ? 'T' : 'N');
+		}
+		return modes.toString();
+	}
+
+	/**
+	 * Determine the ClassLoader to define the proxy class in: a child of the given
+	 * ClassLoader if it sees the interfaces as well as {@link GeneratedProxySupport}.
+	 * @return the ClassLoader, or {@code null} if no suitable one is available
+	 */
+	private static ProxyClassLoader getProxyClassLoader(ClassLoader classLoader, Class<?>[] proxiedInterfaces) {
+		ClassLoader parent = classLoader;
+		if (parent == null || !ClassUtils.isVisible(GeneratedProxySupport.class, parent)) {
+			parent = GeneratedProxySupport.class.getClassLoader();
+		}
+		if (parent == null) {
+			return null;
+		}
+		for (Class<?> proxiedInterface : proxiedInterfaces) {
+			if (!ClassUtils.isVisible(proxiedInterface, parent)) {
+				return null;
+			}
+		}
+		ProxyClassLoader proxyClassLoader = classLoaders.get(parent);
+		if (proxyClassLoader == null) {
+			synchronized (classLoaders) {
+				proxyClassLoader = classLoaders.get(parent);
+				if (proxyClassLoader == null) {
+					proxyClassLoader = new ProxyClassLoader(parent);
+					classLoaders.put(parent, proxyClassLoader);
+				}
+			}
+		}
+		return proxyClassLoader;
+	}
+
+
+	private static byte[] generate(String className, Class<?>[] proxiedInterfaces, Method[] methods, String modes) {
+		String[] interfaceNames = new String[proxiedInterfaces.length];
+		for (int i = 0; i < proxiedInterfaces.length; i++) {
+			interfaceNames[i] = Type.getInternalName(proxiedInterfaces[i]);
+		}
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(V1_5, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, className, null, SUPPORT_NAME, interfaceNames);
+
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", CONSTRUCTOR_DESCRIPTOR, null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitVarInsn(ALOAD, 2);
+		mv.visitVarInsn(ALOAD, 3);
+		mv.visitMethodInsn(INVOKESPECIAL, SUPPORT_NAME, "<init>", CONSTRUCTOR_DESCRIPTOR, false);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		for (int i = 0; i < methods.length; i++) {
+			Method method = methods[i];
+			Class<?>[] exceptionTypes = method.getExceptionTypes();
+			String[] exceptionNames = new String[exceptionTypes.length];
+			for (int j = 0; j < exceptionTypes.length; j++) {
+				exceptionNames[j] = Type.getInternalName(exceptionTypes[j]);
+			}
+			mv = cw.visitMethod(ACC_PUBLIC | ACC_FINAL, method.getName(),
+					Type.getMethodDescriptor(method), null, exceptionNames);
+			mv.visitCode();
+			if (modes.charAt(i * 2) == 'D') {
+				Label replaced = new Label();
+				mv.visitVarInsn(ALOAD, 0);
+				mv.visitMethodInsn(INVOKEVIRTUAL, SUPPORT_NAME, IS_TARGET_SOURCE_REPLACED, "()Z", false);
+				mv.visitJumpInsn(IFNE, replaced);
+				visitDirectCall(mv, method, proxiedInterfaces);
+				mv.visitLabel(replaced);
+				visitProxyMethodCall(mv, method, i);
+			}
+			else {
+				visitProxyMethodCall(mv, method, i);
+			}
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}
+
+		// Object invokeTargetMethod(int index, Object[] args)
+		mv = cw.visitMethod(ACC_PROTECTED, INVOKE_TARGET_METHOD, INVOKE_DESCRIPTOR, null,
+				new String[] {"java/lang/Throwable"});
+		mv.visitCode();
+		Label dflt = new Label();
+		Label[] labels = new Label[methods.length];
+		for (int i = 0; i < methods.length; i++) {
+			labels[i] = (modes.charAt(i * 2) != 'C' && modes.charAt(i * 2 + 1) == 'T' ? new Label() : dflt);
+		}
+		mv.visitVarInsn(ILOAD, 1);
+		mv.visitTableSwitchInsn(0, labels.length - 1, dflt, labels);
+		for (int i = 0; i < methods.length; i++) {
+			if (labels[i] != dflt) {
+				Method method = methods[i];
+				mv.visitLabel(labels[i]);
+				visitTarget(mv, method);
+				Class<?>[] parameterTypes = method.getParameterTypes();
+				for (int j = 0; j < parameterTypes.length; j++) {
+					mv.visitVarInsn(ALOAD, 2);
+					visitInt(mv, j);
+					mv.visitInsn(AALOAD);
+					visitUnboxing(mv, parameterTypes[j]);
+				}
+				visitTargetInvocation(mv, method);
+				if (method.getReturnType() == Void.TYPE) {
+					mv.visitInsn(ACONST_NULL);
+				}
+				else {
+					visitBoxing(mv, method.getReturnType());
+				}
+				mv.visitInsn(ARETURN);
+			}
+		}
+		mv.visitLabel(dflt);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ILOAD, 1);
+		mv.visitVarInsn(ALOAD, 2);
+		mv.visitMethodInsn(INVOKESPECIAL, SUPPORT_NAME, INVOKE_TARGET_METHOD, INVOKE_DESCRIPTOR, false);
+		mv.visitInsn(ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	/**
+	 * Call the target directly with the arguments of the proxy method,
+	 * returning the proxy instead if the target returns itself.
+	 */
+	private static void visitDirectCall(MethodVisitor mv, Method method, Class<?>[] proxiedInterfaces) {
+		visitTarget(mv, method);
+		int slot = 1;
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			Type type = Type.getType(parameterType);
+			mv.visitVarInsn(type.getOpcode(ILOAD), slot);
+			slot += type.getSize();
+		}
+		visitTargetInvocation(mv, method);
+		Class<?> returnType = method.getReturnType();
+		if (mayReturnProxy(method, proxiedInterfaces)) {
+			Label notTarget = new Label();
+			mv.visitInsn(DUP);
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitFieldInsn(GETFIELD, SUPPORT_NAME, "target", "Ljava/lang/Object;");
+			mv.visitJumpInsn(IF_ACMPNE, notTarget);
+			mv.visitInsn(POP);
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitLabel(notTarget);
+		}
+		mv.visitInsn(Type.getType(returnType).getOpcode(IRETURN));
+	}
+
+	/**
+	 * Delegate to {@link GeneratedProxySupport#invokeProxyMethod} with the index
+	 * of the method and its arguments as an array.
+	 */
+	private static void visitProxyMethodCall(MethodVisitor mv, Method method, int index) {
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		mv.visitVarInsn(ALOAD, 0);
+		visitInt(mv, index);
+		visitInt(mv, parameterTypes.length);
+		mv.visitTypeInsn(ANEWARRAY, "java/lang/Object");
+		int slot = 1;
+		for (int j = 0; j < parameterTypes.length; j++) {
+			Type type = Type.getType(parameterTypes[j]);
+			mv.visitInsn(DUP);
+			visitInt(mv, j);
+			mv.visitVarInsn(type.getOpcode(ILOAD), slot);
+			visitBoxing(mv, parameterTypes[j]);
+			mv.visitInsn(AASTORE);
+			slot += type.getSize();
+		}
+		mv.visitMethodInsn(INVOKEVIRTUAL, SUPPORT_NAME, INVOKE_PROXY_METHOD, INVOKE_DESCRIPTOR, false);
+		Class<?> returnType = method.getReturnType();
+		if (returnType == Void.TYPE) {
+			mv.visitInsn(POP);
+			mv.visitInsn(RETURN);
+		}
+		else {
+			visitUnboxing(mv, returnType);
+			mv.visitInsn(Type.getType(returnType).getOpcode(IRETURN));
+		}
+	}
+
+	private static void visitTarget(MethodVisitor mv, Method method) {
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, SUPPORT_NAME, "target", "Ljava/lang/Object;");
+		if (method.getDeclaringClass() != Object.class) {
+			mv.visitTypeInsn(CHECKCAST, Type.getInternalName(method.getDeclaringClass()));
+		}
+	}
+
+	private static void visitTargetInvocation(MethodVisitor mv, Method method) {
+		Class<?> declaringClass = method.getDeclaringClass();
+		mv.visitMethodInsn((declaringClass.isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL),
+				Type.getInternalName(declaringClass), method.getName(), Type.getMethodDescriptor(method),
+				declaringClass.isInterface());
+	}
+
+	/**
+	 * Determine whether the given method may return the target itself,
+	 * in which case the proxy has to be returned instead.
+	 */
+	private static boolean mayReturnProxy(Method method, Class<?>[] proxiedInterfaces) {
+		Class<?> returnType = method.getReturnType();
+		if (returnType.isPrimitive() || RawTargetAccess.class.isAssignableFrom(method.getDeclaringClass())) {
+			return false;
+		}
+		if (returnType.isAssignableFrom(GeneratedProxySupport.class)) {
+			return true;
+		}
+		for (Class<?> proxiedInterface : proxiedInterfaces) {
+			if (returnType.isAssignableFrom(proxiedInterface)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void visitInt(MethodVisitor mv, int value) {
+		if (value <= 5) {
+			mv.visitInsn(ICONST_0 + value);
+		}
+		else if (value <= Byte.MAX_VALUE) {
+			mv.visitIntInsn(BIPUSH, value);
+		}
+		else {
+			mv.visitIntInsn(SIPUSH, value);
+		}
+	}
+
+	private static void visitBoxing(MethodVisitor mv, Class<?> type) {
+		if (type.isPrimitive()) {
+			Class<?> wrapperType = ClassUtils.resolvePrimitiveIfNecessary(type);
+			mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(wrapperType), "valueOf",
+					Type.getMethodDescriptor(Type.getType(wrapperType), Type.getType(type)), false);
+		}
+	}
+
+	private static void visitUnboxing(MethodVisitor mv, Class<?> type) {
+		if (type.isPrimitive()) {
+			String wrapperName = Type.getInternalName(ClassUtils.resolvePrimitiveIfNecessary(type));
+			mv.visitTypeInsn(CHECKCAST, wrapperName);
+			mv.visitMethodInsn(INVOKEVIRTUAL, wrapperName, type.getName() + "Value",
+					Type.getMethodDescriptor(Type.getType(type)), false);
+		}
+		else if (type != Object.class) {
+			mv.visitTypeInsn(CHECKCAST, Type.getInternalName(type));
+		}
+	}
+
+
+	/**
+	 * ClassLoader that the generated proxy classes get defined in,
+	 * caching them by interfaces and method modes.
+	 */
+	private static class ProxyClassLoader extends URLClassLoader {
+
+		private static final URL[] NO_URLS = new URL[0];
+
+		private final Map<List<Object>, Class<?>> proxyClasses = new ConcurrentHashMap<List<Object>, Class<?>>();
+
+		public ProxyClassLoader(ClassLoader parent) {
+			super(NO_URLS, parent);
+		}
+
+		public Class<?> getProxyClass(Class<?>[] proxiedInterfaces, Method[] methods, String modes) {
+			List<Object> key = new ArrayList<Object>(Arrays.asList((Object[]) proxiedInterfaces));
+			key.add(modes);
+			Class<?> proxyClass = this.proxyClasses.get(key);
+			if (proxyClass == null) {
+				synchronized (this.proxyClasses) {
+					proxyClass = this.proxyClasses.get(key);
+					if (proxyClass == null) {
+						String className = CLASS_NAME_PREFIX + classCounter.incrementAndGet();
+						byte[] bytes = generate(className, proxiedInterfaces, methods, modes);
+						proxyClass = defineClass(className.replace('/', '.'), bytes, 0, bytes.length);
+						this.proxyClasses.put(key, proxyClass);
+					}
+				}
+			}
+			return proxyClass;
+		}
+	}
+
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.List;
+
+import org.aopalliance.intercept.MethodInterceptor;
+
+import org.springframework.aop.AopInvocationException;
+import org.springframework.aop.RawTargetAccess;
+import org.springframework.aop.TargetSource;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.DecoratingProxy;
+
+/**
+ * Base class for the proxy classes generated by {@link GeneratedAopProxy}.
+ * Not intended to be used directly.
+ *
+ * <p>A generated proxy class implements each method of the proxied interfaces
+ * either by calling the target directly, if the method has no advice, or by
+ * delegating to {@link #invokeProxyMethod} with the index of the method.
+ * It also implements {@link #invokeTargetMethod} through a {@code tableswitch}
+ * on the method index, calling the target directly at the end of the chain.
+ *
+ * <p>If the TargetSource of the configuration gets replaced after proxy
+ * creation, the proxy resolves the target and the interception chain
+ * per call instead, just like a JDK dynamic proxy.
+ *
+ * @since 4.3.4
+ * @see DefaultAopProxyFactory#setGenerateProxyClasses
+ */
+public abstract class GeneratedProxySupport {
+
+	private final AdvisedSupport advised;
+
+	/** The TargetSource that the static target has been obtained from */
+	private final TargetSource targetSource;
+
+	/** The static target of the proxy: for use by generated subclasses only */
+	protected final Object target;
+
+	private final Class<?> targetClass;
+
+	private final boolean exposeProxy;
+
+	private final ProxyMethod[] methods;
+
+
+	/**
+	 * Create a new proxy for the given configuration.
+	 * @param advised the frozen configuration
+	 * @param target the static target of the configuration (may be {@code null})
+	 * @param methods the proxied methods, by index
+	 */
+	protected GeneratedProxySupport(AdvisedSupport advised, Object target, Method[] methods) {
+		this.advised = advised;
+		this.targetSource = advised.getTargetSource();
+		this.target = target;
+		this.targetClass = (target != null ? target.getClass() : null);
+		this.exposeProxy = advised.isExposeProxy();
+		this.methods = new ProxyMethod[methods.length];
+		for (int i = 0; i < methods.length; i++) {
+			this.methods[i] = new ProxyMethod(methods[i], advised, this.targetClass);
+		}
+	}
+
+
+	/**
+	 * Invoke the proxied method with the given index, proceeding through its
+	 * interception chain to {@link #invokeTargetMethod}.
+	 * @param index the index of the method
+	 * @param args the arguments as passed into the proxy
+	 * @return the return value, to be returned from the proxy
+	 * @throws Throwable the exception thrown by the chain or the target, with
+	 * undeclared checked exceptions wrapped just like for JDK dynamic proxies
+	 */
+	protected final Object invokeProxyMethod(int index, Object[] args) throws Throwable {
+		ProxyMethod proxyMethod = this.methods[index];
+		Object oldProxy = null;
+		boolean setProxyContext = false;
+		try {
+			if (proxyMethod.configMethod) {
+				// Service invocations on ProxyConfig with the proxy config...
+				return AopUtils.invokeJoinpointUsingReflection(this.advised, proxyMethod.method, args);
+			}
+			else if (proxyMethod.method.getDeclaringClass() == DecoratingProxy.class) {
+				return AopProxyUtils.ultimateTargetClass(this.advised);
+			}
+
+			if (this.exposeProxy) {
+				// Make invocation available if necessary.
+				oldProxy = AopContext.setCurrentProxy(this);
+				setProxyContext = true;
+			}
+
+			if (isTargetSourceReplaced()) {
+				return invokeCurrentTarget(proxyMethod.method, args);
+			}
+
+			Object retVal;
+			if (proxyMethod.chain.length == 0) {
+				retVal = invokeTargetMethod(index, AopProxyUtils.adaptArgumentsIfNecessary(proxyMethod.method, args));
+			}
+			else {
+				retVal = new GeneratedMethodInvocation(this, index, args).proceed();
+			}
+			return massageReturnValue(proxyMethod.method, retVal, this.target);
+		}
+		catch (Throwable ex) {
+			if (ex instanceof RuntimeException || ex instanceof Error || proxyMethod.isDeclaredException(ex)) {
+				throw ex;
+			}
+			throw new UndeclaredThrowableException(ex);
+		}
+		finally {
+			if (setProxyContext) {
+				// Restore old proxy.
+				AopContext.setCurrentProxy(oldProxy);
+			}
+		}
+	}
+
+	/**
+	 * Determine whether the TargetSource of the configuration has been replaced
+	 * since proxy creation, making the static target and the interception chains
+	 * of this proxy stale.
+	 * <p>Checked by generated subclasses before calling the target directly.
+	 */
+	protected final boolean isTargetSourceReplaced() {
+		return (this.advised.getTargetSource() != this.targetSource);
+	}
+
+	/**
+	 * Invoke the given method on the current target of the configuration,
+	 * resolving the target and the interception chain for this call only.
+	 */
+	private Object invokeCurrentTarget(Method method, Object[] args) throws Throwable {
+		TargetSource targetSource = this.advised.getTargetSource();
+		Object target = targetSource.getTarget();
+		Class<?> targetClass = (target != null ? target.getClass() : null);
+		try {
+			List<Object> chain = this.advised.getInterceptorsAndDynamicInterceptionAdvice(method, targetClass);
+			Object retVal;
+			if (chain.isEmpty()) {
+				retVal = AopUtils.invokeJoinpointUsingReflection(
+						target, method, AopProxyUtils.adaptArgumentsIfNecessary(method, args));
+			}
+			else {
+				retVal = new ReflectiveMethodInvocation(this, target, method, args, targetClass, chain).proceed();
+			}
+			return massageReturnValue(method, retVal, target);
+		}
+		finally {
+			if (target != null && !targetSource.isStatic()) {
+				// Must have come from TargetSource.
+				targetSource.releaseTarget(target);
+			}
+		}
+	}
+
+	private Object massageReturnValue(Method method, Object retVal, Object target) {
+		Class<?> returnType = method.getReturnType();
+		if (retVal != null && retVal == target && returnType.isInstance(this) &&
+				!RawTargetAccess.class.isAssignableFrom(method.getDeclaringClass())) {
+			retVal = this;
+		}
+		else if (retVal == null && returnType != Void.TYPE && returnType.isPrimitive()) {
+			throw new AopInvocationException(
+					"Null return value from advice does not match primitive return type for: " + method);
+		}
+		return retVal;
+	}
+
+	/**
+	 * Invoke the target method for the proxied method with the given index.
+	 * <p>Overridden in generated subclasses for the methods that the target
+	 * implements; the default implementation uses reflection.
+	 * @param index the index of the method
+	 * @param args the arguments for the target method
+	 * @return the return value of the target method (boxed if primitive)
+	 * @throws Throwable exactly as thrown by the target method
+	 */
+	protected Object invokeTargetMethod(int index, Object[] args) throws Throwable {
+		return AopUtils.invokeJoinpointUsingReflection(this.target, this.methods[index].method, args);
+	}
+
+
+	/**
+	 * Equality means interfaces, advisors and TargetSource are equal,
+	 * just like for JDK dynamic proxies.
+	 */
+	@Override
+	public boolean equals(Object other) {
+		return (this == other || (other instanceof GeneratedProxySupport &&
+				AopProxyUtils.equalsInProxy(this.advised, ((GeneratedProxySupport) other).advised)));
+	}
+
+	/**
+	 * Proxy uses the hash code of the TargetSource.
+	 */
+	@Override
+	public int hashCode() {
+		return GeneratedProxySupport.class.hashCode() * 13 + this.advised.getTargetSource().hashCode();
+	}
+
+
+	/**
+	 * A proxied method along with its interception chain.
+	 */
+	private static class ProxyMethod {
+
+		final Method method;
+
+		final boolean configMethod;
+
+		final List<Object> chainList;
+
+		final Object[] chain;
+
+		private final Class<?>[] exceptionTypes;
+
+		public ProxyMethod(Method method, AdvisedSupport advised, Class<?> targetClass) {
+			this.method = method;
+			this.configMethod = (!advised.isOpaque() && method.getDeclaringClass().isInterface() &&
+					method.getDeclaringClass().isAssignableFrom(Advised.class));
+			this.chainList = advised.getInterceptorsAndDynamicInterceptionAdvice(method, targetClass);
+			this.chain = this.chainList.toArray();
+			this.exceptionTypes = method.getExceptionTypes();
+		}
+
+		public boolean isDeclaredException(Throwable ex) {
+			for (Class<?> exceptionType : this.exceptionTypes) {
+				if (exceptionType.isInstance(ex)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+
+	/**
+	 * ReflectiveMethodInvocation variant which walks the interception chain of
+	 * a proxied method as an array and invokes the target through the generated
+	 * {@link #invokeTargetMethod} of the proxy.
+	 */
+	private static class GeneratedMethodInvocation extends ReflectiveMethodInvocation {
+
+		private final GeneratedProxySupport proxySupport;
+
+		private final int index;
+
+		private final Object[] chain;
+
+		private int currentInterceptorIndex = -1;
+
+		public GeneratedMethodInvocation(GeneratedProxySupport proxy, int index, Object[] arguments) {
+			super(proxy, proxy.target, proxy.methods[index].method, arguments, proxy.targetClass,
+					proxy.methods[index].chainList);
+			this.proxySupport = proxy;
+			this.index = index;
+			this.chain = proxy.methods[index].chain;
+		}
+
+		@Override
+		public Object proceed() throws Throwable {
+			if (this.currentInterceptorIndex == this.chain.length - 1) {
+				return invokeJoinpoint();
+			}
+			Object interceptorOrInterceptionAdvice = this.chain[++this.currentInterceptorIndex];
+			if (interceptorOrInterceptionAdvice instanceof InterceptorAndDynamicMethodMatcher) {
+				InterceptorAndDynamicMethodMatcher dm = (InterceptorAndDynamicMethodMatcher) interceptorOrInterceptionAdvice;
+				if (dm.methodMatcher.matches(this.method, this.proxySupport.targetClass, this.arguments)) {
+					return dm.interceptor.invoke(this);
+				}
+				else {
+					// Dynamic matching failed: skip this interceptor.
+					return proceed();
+				}
+			}
+			else {
+				return ((MethodInterceptor) interceptorOrInterceptionAdvice).invoke(this);
+			}
+		}
+
+		@Override
+		protected Object invokeJoinpoint() throws Throwable {
+			return this.proxySupport.invokeTargetMethod(this.index, this.arguments);
+		}
+	}
+
+}
@@ -21,6 +21,7 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.List;
+import java.util.Map;
 
 import org.aopalliance.intercept.MethodInvocation;
 import org.apache.commons.logging.Log;
@@ -91,6 +92,12 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 	 */
 	private boolean hashCodeDefined;
 
+	/**
+	 * Interception chains per proxied method, resolved at proxy creation time
+	 * for a frozen configuration with a static target.
+	 */
+	private transient Map<Method, FixedInterceptorChain> fixedChains;
+
 
 	/**
 	 * Construct a new JdkDynamicAopProxy for the given AOP configuration.
@@ -119,6 +126,7 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 		}
 		Class<?>[] proxiedInterfaces = AopProxyUtils.completeProxiedInterfaces(this.advised, true);
 		findDefinedEqualsAndHashCodeMethods(proxiedInterfaces);
+		resolveFixedChains(proxiedInterfaces);
 		return Proxy.newProxyInstance(classLoader, proxiedInterfaces, this);
 	}
 
@@ -144,6 +152,27 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 		}
 	}
 
+	/**
+	 * Resolves the interception chains for all proxied methods upfront if the
+	 * configuration is frozen and the target is static, since neither the
+	 * advisors nor the target class can change for the lifetime of the proxy then.
+	 * @param proxiedInterfaces the interfaces implemented by the proxy
+	 */
+	private void resolveFixedChains(Class<?>[] proxiedInterfaces) {
+		TargetSource targetSource = this.advised.getTargetSource();
+		if (this.advised.isFrozen() && targetSource.isStatic()) {
+			try {
+				this.fixedChains = FixedInterceptorChain.resolve(this.advised, proxiedInterfaces, targetSource.getTarget());
+			}
+			catch (Exception ex) {
+				// Resolve the chains per invocation then.
+				if (logger.isDebugEnabled()) {
+					logger.debug("Cannot resolve fixed interception chains for frozen proxy", ex);
+				}
+			}
+		}
+	}
+
 
 	/**
 	 * Implementation of {@code InvocationHandler.invoke}.
@@ -195,7 +224,13 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 			}
 
 			// Get the interception chain for this method.
-			List<Object> chain = this.advised.getInterceptorsAndDynamicInterceptionAdvice(method, targetClass);
+			FixedInterceptorChain fixedChain = (this.fixedChains != null ? this.fixedChains.get(method) : null);
+			if (fixedChain != null && !fixedChain.isResolvedFor(targetClass)) {
+				// The target source has been replaced since the proxy was created.
+				fixedChain = null;
+			}
+			List<Object> chain = (fixedChain != null ? fixedChain.getChain() :
+					this.advised.getInterceptorsAndDynamicInterceptionAdvice(method, targetClass));
 
 			// Check whether we have any advice. If we don't, we can fallback on direct
 			// reflective invocation of the target, and avoid creating a MethodInvocation.
@@ -204,11 +239,13 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 				// Note that the final invoker must be an InvokerInterceptor so we know it does
 				// nothing but a reflective operation on the target, and no hot swapping or fancy proxying.
 				Object[] argsToUse = AopProxyUtils.adaptArgumentsIfNecessary(method, args);
-				retVal = AopUtils.invokeJoinpointUsingReflection(target, method, argsToUse);
+				retVal = (fixedChain != null ? fixedChain.invokeJoinpoint(target, argsToUse) :
+						AopUtils.invokeJoinpointUsingReflection(target, method, argsToUse));
 			}
 			else {
 				// We need to create a method invocation...
-				invocation = new ReflectiveMethodInvocation(proxy, target, method, args, targetClass, chain);
+				invocation = (fixedChain != null ? fixedChain.createInvocation(proxy, target, args, targetClass) :
+						new ReflectiveMethodInvocation(proxy, target, method, args, targetClass, chain));
 				// Proceed to the joinpoint through the interceptor chain.
 				retVal = invocation.proceed();
 			}
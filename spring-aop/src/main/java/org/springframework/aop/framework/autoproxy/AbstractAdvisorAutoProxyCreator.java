@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,17 @@
 
 package org.springframework.aop.framework.autoproxy;
 
+import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.springframework.aop.Advisor;
+import org.springframework.aop.IntroductionAdvisor;
 import org.springframework.aop.TargetSource;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.BeanFactory;
@@ -47,8 +55,42 @@ import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 @SuppressWarnings("serial")
 public abstract class AbstractAdvisorAutoProxyCreator extends AbstractAutoProxyCreator {
 
+	/**
+	 * Number of candidate Advisors to match per task with an advisor matching Executor.
+	 */
+	private static final int ADVISOR_MATCHING_BATCH_SIZE = 8;
+
+
 	private BeanFactoryAdvisorRetrievalHelper advisorRetrievalHelper;
 
+	private Executor advisorMatchingExecutor;
+
+
+	/**
+	 * Specify an {@link Executor} to match the candidate Advisors against each bean
+	 * with in parallel. Default is none, matching all candidate Advisors in the
+	 * thread that initializes the bean.
+	 * <p>With an Executor, the candidate Advisors get matched in batches, one of them
+	 * in the calling thread. Batches that the Executor has not started yet when the
+	 * calling thread is done get matched in the calling thread as well, so a busy
+	 * Executor does not hold up bean initialization. The eligible Advisors are exactly
+	 * the same as without an Executor; only worthwhile for many candidate Advisors.
+	 * <p>Note that the pointcuts of all candidate Advisors need to be thread-safe
+	 * for use with an Executor, as Spring's own pointcut implementations are.
+	 * @since 4.3.4
+	 * @see #findAdvisorsThatCanApply
+	 */
+	public void setAdvisorMatchingExecutor(Executor advisorMatchingExecutor) {
+		this.advisorMatchingExecutor = advisorMatchingExecutor;
+	}
+
+	/**
+	 * Return the Executor to match candidate Advisors with in parallel, if any.
+	 * @since 4.3.4
+	 */
+	public Executor getAdvisorMatchingExecutor() {
+		return this.advisorMatchingExecutor;
+	}
 
 	@Override
 	public void setBeanFactory(BeanFactory beanFactory) {
@@ -115,6 +157,9 @@ public abstract class AbstractAdvisorAutoProxyCreator extends AbstractAutoProxyC
 
 		ProxyCreationContext.setCurrentProxiedBeanName(beanName);
 		try {
+			if (this.advisorMatchingExecutor != null && candidateAdvisors.size() > ADVISOR_MATCHING_BATCH_SIZE) {
+				return findAdvisorsThatCanApplyInParallel(candidateAdvisors, beanClass, beanName);
+			}
 			return AopUtils.findAdvisorsThatCanApply(candidateAdvisors, beanClass);
 		}
 		finally {
@@ -122,6 +167,84 @@ public abstract class AbstractAdvisorAutoProxyCreator extends AbstractAutoProxyC
 		}
 	}
 
+	/**
+	 * Match the given candidate Advisors in batches on the advisor matching Executor,
+	 * with the same outcome as {@link AopUtils#findAdvisorsThatCanApply}.
+	 */
+	private List<Advisor> findAdvisorsThatCanApplyInParallel(
+			List<Advisor> candidateAdvisors, final Class<?> beanClass, final String beanName) {
+
+		List<Advisor> eligibleAdvisors = new LinkedList<Advisor>();
+		List<Advisor> otherAdvisors = new ArrayList<Advisor>(candidateAdvisors.size());
+		for (Advisor candidate : candidateAdvisors) {
+			if (candidate instanceof IntroductionAdvisor) {
+				if (AopUtils.canApply(candidate, beanClass)) {
+					eligibleAdvisors.add(candidate);
+				}
+			}
+			else {
+				otherAdvisors.add(candidate);
+			}
+		}
+		final boolean hasIntroductions = !eligibleAdvisors.isEmpty();
+
+		List<FutureTask<List<Advisor>>> batches = new ArrayList<FutureTask<List<Advisor>>>();
+		for (int i = 0; i < otherAdvisors.size(); i += ADVISOR_MATCHING_BATCH_SIZE) {
+			final List<Advisor> batch =
+					otherAdvisors.subList(i, Math.min(i + ADVISOR_MATCHING_BATCH_SIZE, otherAdvisors.size()));
+			batches.add(new FutureTask<List<Advisor>>(new Callable<List<Advisor>>() {
+				@Override
+				public List<Advisor> call() {
+					String currentBeanName = ProxyCreationContext.getCurrentProxiedBeanName();
+					ProxyCreationContext.setCurrentProxiedBeanName(beanName);
+					try {
+						List<Advisor> eligibleInBatch = new ArrayList<Advisor>(batch.size());
+						for (Advisor candidate : batch) {
+							if (AopUtils.canApply(candidate, beanClass, hasIntroductions)) {
+								eligibleInBatch.add(candidate);
+							}
+						}
+						return eligibleInBatch;
+					}
+					finally {
+						ProxyCreationContext.setCurrentProxiedBeanName(currentBeanName);
+					}
+				}
+			}));
+		}
+		for (int i = 1; i < batches.size(); i++) {
+			try {
+				this.advisorMatchingExecutor.execute(batches.get(i));
+			}
+			catch (RejectedExecutionException ex) {
+				// Match this batch in the calling thread then.
+			}
+		}
+
+		for (FutureTask<List<Advisor>> batch : batches) {
+			// Does nothing if the batch has been started by the Executor already...
+			batch.run();
+			try {
+				eligibleAdvisors.addAll(batch.get());
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while matching advisors for bean '" + beanName + "'");
+			}
+			catch (ExecutionException ex) {
+				Throwable cause = ex.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IllegalStateException("Failed to match advisors for bean '" + beanName + "'", cause);
+			}
+		}
+		return eligibleAdvisors;
+	}
+
 	/**
 	 * Return whether the Advisor bean with the given name is eligible
 	 * for proxying in the first place.
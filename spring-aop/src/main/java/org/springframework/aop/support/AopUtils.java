@@ -56,8 +56,13 @@ import org.springframework.util.ReflectionUtils;
  */
 public abstract class AopUtils {
 
+	private static final String GENERATED_PROXY_SUPPORT_CLASS_NAME =
+			"org.springframework.aop.framework.GeneratedProxySupport";
+
+
 	/**
-	 * Check whether the given object is a JDK dynamic proxy or a CGLIB proxy.
+	 * Check whether the given object is a JDK dynamic proxy, a CGLIB proxy
+	 * or a generated proxy.
 	 * <p>This method additionally checks if the given object is an instance
 	 * of {@link SpringProxy}.
 	 * @param object the object to check
@@ -65,8 +70,22 @@ public abstract class AopUtils {
 	 * @see #isCglibProxy
 	 */
 	public static boolean isAopProxy(Object object) {
-		return (object instanceof SpringProxy &&
-				(Proxy.isProxyClass(object.getClass()) || ClassUtils.isCglibProxyClass(object.getClass())));
+		return (object instanceof SpringProxy && (Proxy.isProxyClass(object.getClass()) ||
+				ClassUtils.isCglibProxyClass(object.getClass()) || isGeneratedProxyClass(object.getClass())));
+	}
+
+	/**
+	 * Check whether the given class has been generated by the
+	 * {@link org.springframework.aop.framework.DefaultAopProxyFactory#setGenerateProxyClasses
+	 * generated proxy} strategy, without depending on the framework package.
+	 * <p>Like JDK proxy classes, such classes are final and can only be
+	 * proxied again through their interfaces.
+	 * @param clazz the class to check
+	 * @since 4.3.4
+	 */
+	public static boolean isGeneratedProxyClass(Class<?> clazz) {
+		Class<?> superclass = clazz.getSuperclass();
+		return (superclass != null && GENERATED_PROXY_SUPPORT_CLASS_NAME.equals(superclass.getName()));
 	}
 
 	/**
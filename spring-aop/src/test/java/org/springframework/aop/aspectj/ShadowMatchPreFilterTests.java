@@ -0,0 +1,149 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.aspectj;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+import org.springframework.tests.sample.beans.TestBean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ShadowMatchPreFilter}, verifying that it never rejects
+ * a method that the AspectJ expression matches.
+ */
+public class ShadowMatchPreFilterTests {
+
+	private static final String PREFIX = "org.springframework.aop.aspectj.ShadowMatchPreFilterTests.";
+
+
+	@Test
+	public void methodNamePattern() throws Exception {
+		ShadowMatchPreFilter preFilter = assertPreFilter("execution(* set*(..))", TestBean.class);
+		assertTrue(preFilter.couldMatch(TestBean.class.getMethod("setAge", int.class)));
+		assertFalse(preFilter.couldMatch(TestBean.class.getMethod("getAge")));
+	}
+
+	@Test
+	public void parameterCount() throws Exception {
+		ShadowMatchPreFilter preFilter = assertPreFilter("execution(* *(*, ..))", TestBean.class);
+		assertTrue(preFilter.couldMatch(TestBean.class.getMethod("setAge", int.class)));
+		assertFalse(preFilter.couldMatch(TestBean.class.getMethod("getAge")));
+
+		preFilter = assertPreFilter("execution(* *())", TestBean.class);
+		assertTrue(preFilter.couldMatch(TestBean.class.getMethod("getAge")));
+		assertFalse(preFilter.couldMatch(TestBean.class.getMethod("setAge", int.class)));
+	}
+
+	@Test
+	public void annotationType() throws Exception {
+		ShadowMatchPreFilter preFilter = assertPreFilter("@annotation(" + PREFIX + "Marker)", AnnotatedBean.class);
+		assertTrue(preFilter.couldMatch(AnnotatedBean.class.getMethod("marked")));
+		assertFalse(preFilter.couldMatch(AnnotatedBean.class.getMethod("unmarked")));
+	}
+
+	@Test
+	public void composedExpressions() throws Exception {
+		ShadowMatchPreFilter preFilter = assertPreFilter(
+				"execution(* get*()) && @annotation(" + PREFIX + "Marker)", AnnotatedBean.class);
+		assertFalse(preFilter.couldMatch(AnnotatedBean.class.getMethod("marked")));
+
+		preFilter = assertPreFilter("execution(* get*()) || @annotation(" + PREFIX + "Marker)", AnnotatedBean.class);
+		assertTrue(preFilter.couldMatch(AnnotatedBean.class.getMethod("marked")));
+		assertTrue(preFilter.couldMatch(AnnotatedBean.class.getMethod("getName")));
+		assertFalse(preFilter.couldMatch(AnnotatedBean.class.getMethod("unmarked")));
+
+		preFilter = assertPreFilter("execution(* get*()) && args()", AnnotatedBean.class);
+		assertFalse(preFilter.couldMatch(AnnotatedBean.class.getMethod("unmarked")));
+	}
+
+	@Test
+	public void noPreFilterForUnknownDesignators() {
+		assertNull(getPreFilter("execution(* *(..))"));
+		assertNull(getPreFilter("within(org.springframework.tests.sample.beans.*)"));
+		assertNull(getPreFilter("execution(* get*(..)) || within(org.springframework.tests.sample.beans.*)"));
+		assertNull(getPreFilter("!execution(* get*(..))"));
+		assertNull(getPreFilter("@annotation(" + PREFIX + "ClassRetentionMarker)"));
+	}
+
+	@Test
+	public void pointcutDoesNotMatchFilteredMethods() throws Exception {
+		AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+		pointcut.setExpression("execution(* set*(..))");
+		assertTrue(pointcut.matches(TestBean.class.getMethod("setAge", int.class), TestBean.class));
+		assertFalse(pointcut.matches(TestBean.class.getMethod("getAge"), TestBean.class));
+	}
+
+
+	private ShadowMatchPreFilter getPreFilter(String expression) {
+		AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+		pointcut.setExpression(expression);
+		return ShadowMatchPreFilter.forExpression(pointcut.getPointcutExpression(), getClass().getClassLoader());
+	}
+
+	/**
+	 * Build the pre-filter for the given expression, asserting that it accepts
+	 * every method of the given class that AspectJ considers a possible match.
+	 */
+	private ShadowMatchPreFilter assertPreFilter(String expression, Class<?> clazz) {
+		AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+		pointcut.setExpression(expression);
+		ShadowMatchPreFilter preFilter =
+				ShadowMatchPreFilter.forExpression(pointcut.getPointcutExpression(), getClass().getClassLoader());
+		assertNotNull("No pre-filter for " + expression, preFilter);
+		for (Method method : clazz.getMethods()) {
+			if (!pointcut.getPointcutExpression().matchesMethodExecution(method).neverMatches()) {
+				assertTrue("Pre-filter rejects matching method " + method, preFilter.couldMatch(method));
+			}
+		}
+		return preFilter;
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.METHOD)
+	public @interface Marker {
+	}
+
+
+	@Retention(RetentionPolicy.CLASS)
+	@Target(ElementType.METHOD)
+	public @interface ClassRetentionMarker {
+	}
+
+
+	public static class AnnotatedBean {
+
+		@Marker
+		public void marked() {
+		}
+
+		public void unmarked() {
+		}
+
+		public String getName() {
+			return null;
+		}
+	}
+
+}
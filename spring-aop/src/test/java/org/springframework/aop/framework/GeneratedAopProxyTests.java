@@ -0,0 +1,244 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.junit.Test;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.DynamicMethodMatcherPointcut;
+import org.springframework.aop.support.NameMatchMethodPointcutAdvisor;
+import org.springframework.aop.target.SingletonTargetSource;
+import org.springframework.core.DecoratingProxy;
+import org.springframework.tests.aop.interceptor.NopInterceptor;
+import org.springframework.tests.sample.beans.ITestBean;
+import org.springframework.tests.sample.beans.TestBean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for proxies created through {@link GeneratedAopProxy}.
+ *
+ * @see DefaultAopProxyFactory#setGenerateProxyClasses
+ */
+public class GeneratedAopProxyTests {
+
+	@Test
+	public void proxyIsGeneratedForFrozenConfiguration() {
+		ITestBean proxy = createProxy(new ProxyFactory(new TestBean("tb", 42)));
+		assertFalse(Proxy.isProxyClass(proxy.getClass()));
+		assertTrue(proxy instanceof GeneratedProxySupport);
+		assertTrue(AopUtils.isAopProxy(proxy));
+		assertFalse(AopUtils.isJdkDynamicProxy(proxy));
+		assertEquals("tb", proxy.getName());
+		assertEquals(42, proxy.getAge());
+		assertEquals(new TestBean("tb", 42).toString(), proxy.toString());
+	}
+
+	@Test
+	public void jdkDynamicProxyForUnfrozenConfiguration() {
+		ProxyFactory pf = new ProxyFactory(new TestBean());
+		pf.setAopProxyFactory(createAopProxyFactory());
+		assertTrue(AopUtils.isJdkDynamicProxy(pf.getProxy()));
+	}
+
+	@Test
+	public void adviceIsApplied() {
+		NopInterceptor nop = new NopInterceptor();
+		ProxyFactory pf = new ProxyFactory(new TestBean("tb", 42));
+		pf.addAdvice(nop);
+		ITestBean proxy = createProxy(pf);
+		proxy.setAge(43);
+		assertEquals(43, proxy.getAge());
+		assertEquals("tb", proxy.getName());
+		assertEquals(3, nop.getCount());
+	}
+
+	@Test
+	public void adviceIsAppliedToMatchingMethodsOnly() {
+		NopInterceptor nop = new NopInterceptor();
+		ProxyFactory pf = new ProxyFactory(new TestBean("tb", 42));
+		pf.addAdvisor(new NameMatchMethodPointcutAdvisor(nop) {{
+			setMappedName("getAge");
+		}});
+		ITestBean proxy = createProxy(pf);
+		assertEquals(42, proxy.getAge());
+		assertEquals("tb", proxy.getName());
+		assertEquals(1, nop.getCount());
+	}
+
+	@Test
+	public void dynamicPointcutIsEvaluated() {
+		NopInterceptor nop = new NopInterceptor();
+		ProxyFactory pf = new ProxyFactory(new TestBean());
+		pf.addAdvisor(new DefaultPointcutAdvisor(new DynamicMethodMatcherPointcut() {
+			@Override
+			public boolean matches(Method method, Class<?> targetClass, Object... args) {
+				return (args.length == 1 && Integer.valueOf(5).equals(args[0]));
+			}
+		}, nop));
+		ITestBean proxy = createProxy(pf);
+		proxy.setAge(1);
+		proxy.setAge(5);
+		assertEquals(5, proxy.getAge());
+		assertEquals(1, nop.getCount());
+	}
+
+	@Test
+	public void proxyIsReturnedInsteadOfTarget() {
+		ITestBean proxy = createProxy(new ProxyFactory(new TestBean()));
+		assertSame(proxy, proxy.returnsThis());
+
+		ProxyFactory pf = new ProxyFactory(new TestBean());
+		pf.addAdvice(new NopInterceptor());
+		proxy = createProxy(pf);
+		assertSame(proxy, proxy.returnsThis());
+	}
+
+	@Test
+	public void declaredExceptionIsPropagated() throws Throwable {
+		ProxyFactory pf = new ProxyFactory(new TestBean());
+		pf.addAdvice(new NopInterceptor());
+		ITestBean proxy = createProxy(pf);
+		try {
+			proxy.unreliableFileOperation();
+			fail("Should have thrown IOException");
+		}
+		catch (IOException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void undeclaredExceptionIsWrapped() {
+		final Exception ex = new Exception();
+		ProxyFactory pf = new ProxyFactory(new TestBean());
+		pf.addAdvice((MethodInterceptor) invocation -> {
+			throw ex;
+		});
+		ITestBean proxy = createProxy(pf);
+		try {
+			proxy.getAge();
+			fail("Should have thrown UndeclaredThrowableException");
+		}
+		catch (UndeclaredThrowableException expected) {
+			assertSame(ex, expected.getUndeclaredThrowable());
+		}
+	}
+
+	@Test
+	public void proxyConfigurationIsExposed() {
+		NopInterceptor nop = new NopInterceptor();
+		ProxyFactory pf = new ProxyFactory(new TestBean());
+		pf.addAdvice(nop);
+		ITestBean proxy = createProxy(pf);
+		Advised advised = (Advised) proxy;
+		assertTrue(advised.isFrozen());
+		assertEquals(1, advised.getAdvisors().length);
+		assertEquals(TestBean.class, advised.getTargetClass());
+		assertEquals(TestBean.class, ((DecoratingProxy) proxy).getDecoratedClass());
+		assertEquals(0, nop.getCount());
+	}
+
+	@Test
+	public void proxyIsExposed() {
+		ProxyFactory pf = new ProxyFactory(new TestBean() {
+			@Override
+			public Object returnsThis() {
+				return AopContext.currentProxy();
+			}
+		});
+		pf.setExposeProxy(true);
+		ITestBean proxy = createProxy(pf);
+		assertSame(proxy, proxy.returnsThis());
+	}
+
+	@Test
+	public void proxyEqualsProxyForEqualConfiguration() {
+		TestBean target = new TestBean();
+		ITestBean proxy1 = createProxy(new ProxyFactory(target));
+		ITestBean proxy2 = createProxy(new ProxyFactory(target));
+		assertNotSame(proxy1, proxy2);
+		assertSame(proxy1.getClass(), proxy2.getClass());
+		assertEquals(proxy1, proxy2);
+		assertEquals(proxy1.hashCode(), proxy2.hashCode());
+	}
+
+	@Test
+	public void replacedTargetSourceIsUsedForDirectCalls() {
+		ITestBean proxy = createProxy(new ProxyFactory(new TestBean("tb", 42)));
+		assertEquals("tb", proxy.getName());
+		((Advised) proxy).setTargetSource(new SingletonTargetSource(new TestBean("other", 43)));
+		assertEquals("other", proxy.getName());
+		assertEquals(43, proxy.getAge());
+		assertSame(proxy, proxy.returnsThis());
+	}
+
+	@Test
+	public void replacedTargetSourceIsUsedForAdvisedCalls() {
+		NopInterceptor nop = new NopInterceptor();
+		ProxyFactory pf = new ProxyFactory(new TestBean("tb", 42));
+		pf.addAdvice(nop);
+		ITestBean proxy = createProxy(pf);
+		assertEquals("tb", proxy.getName());
+		((Advised) proxy).setTargetSource(new SingletonTargetSource(new TestBean("other", 43)));
+		assertEquals("other", proxy.getName());
+		assertSame(proxy, proxy.returnsThis());
+		assertEquals(3, nop.getCount());
+	}
+
+	@Test
+	public void generatedProxyIsProxiedAgainThroughItsInterfaces() {
+		ITestBean proxy = createProxy(new ProxyFactory(new TestBean("tb", 42)));
+		NopInterceptor nop = new NopInterceptor();
+
+		ProxyFactory pf = new ProxyFactory(proxy);
+		pf.setProxyTargetClass(true);
+		pf.addAdvice(nop);
+		ITestBean outer = (ITestBean) pf.getProxy();
+		assertTrue(AopUtils.isJdkDynamicProxy(outer));
+		assertEquals("tb", outer.getName());
+
+		pf = new ProxyFactory();
+		pf.setTarget(proxy);
+		pf.addAdvice(nop);
+		outer = (ITestBean) pf.getProxy();
+		assertTrue(AopUtils.isJdkDynamicProxy(outer));
+		assertEquals("tb", outer.getName());
+		assertEquals(2, nop.getCount());
+	}
+
+
+	private ITestBean createProxy(ProxyFactory pf) {
+		pf.setAopProxyFactory(createAopProxyFactory());
+		pf.setFrozen(true);
+		return (ITestBean) pf.getProxy();
+	}
+
+	private DefaultAopProxyFactory createAopProxyFactory() {
+		DefaultAopProxyFactory aopProxyFactory = new DefaultAopProxyFactory();
+		aopProxyFactory.setGenerateProxyClasses(true);
+		return aopProxyFactory;
+	}
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.aop.support.NameMatchMethodPointcutAdvisor;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.tests.aop.interceptor.NopInterceptor;
+import org.springframework.tests.sample.beans.ITestBean;
+import org.springframework.tests.sample.beans.TestBean;
+import org.springframework.util.StopWatch;
+
+/**
+ * Benchmarks for invocations on JDK dynamic proxies, CGLIB proxies and
+ * generated proxies with frozen configurations, compared to the raw target.
+ *
+ * NOTE: No assertions!
+ */
+public class ProxyInvocationBenchmarkTests {
+
+	/** Increase this if you want meaningful results! */
+	private static final int INVOCATIONS = 1000000;
+
+
+	@Before
+	public void setUp() {
+		Assume.group(TestGroup.PERFORMANCE);
+	}
+
+
+	@Test
+	public void timeUnadvisedInvocations() {
+		StopWatch sw = new StopWatch();
+		TestBean target = new TestBean();
+		for (ProxyType proxyType : ProxyType.values()) {
+			ProxyFactory pf = new ProxyFactory(target);
+			pf.addAdvisor(new NameMatchMethodPointcutAdvisor(new NopInterceptor()) {{
+				setMappedName("setName");
+			}});
+			time(sw, proxyType.name() + " proxy, unadvised", proxyType.createProxy(pf));
+		}
+		time(sw, "target", target);
+		System.out.println(sw.prettyPrint());
+	}
+
+	@Test
+	public void timeAdvisedInvocations() {
+		StopWatch sw = new StopWatch();
+		TestBean target = new TestBean();
+		for (ProxyType proxyType : ProxyType.values()) {
+			ProxyFactory pf = new ProxyFactory(target);
+			pf.addAdvice(new NopInterceptor());
+			pf.addAdvice(new NopInterceptor());
+			time(sw, proxyType.name() + " proxy, 2 interceptors", proxyType.createProxy(pf));
+		}
+		time(sw, "target", target);
+		System.out.println(sw.prettyPrint());
+	}
+
+	private void time(StopWatch sw, String description, ITestBean bean) {
+		// Warm up first
+		invoke(bean);
+		sw.start(INVOCATIONS + " invocations on " + description);
+		invoke(bean);
+		sw.stop();
+	}
+
+	private int invoke(ITestBean bean) {
+		int total = 0;
+		for (int i = 0; i < INVOCATIONS; i++) {
+			bean.setAge(i);
+			total += bean.getAge();
+		}
+		return total;
+	}
+
+
+	private enum ProxyType {
+
+		JDK {
+			@Override
+			ITestBean createProxy(ProxyFactory pf) {
+				pf.setFrozen(true);
+				return (ITestBean) pf.getProxy();
+			}
+		},
+
+		CGLIB {
+			@Override
+			ITestBean createProxy(ProxyFactory pf) {
+				pf.setProxyTargetClass(true);
+				pf.setFrozen(true);
+				return (ITestBean) pf.getProxy();
+			}
+		},
+
+		GENERATED {
+			@Override
+			ITestBean createProxy(ProxyFactory pf) {
+				DefaultAopProxyFactory aopProxyFactory = new DefaultAopProxyFactory();
+				aopProxyFactory.setGenerateProxyClasses(true);
+				pf.setAopProxyFactory(aopProxyFactory);
+				pf.setFrozen(true);
+				return (ITestBean) pf.getProxy();
+			}
+		};
+
+		abstract ITestBean createProxy(ProxyFactory pf);
+	}
+
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.core.type.ClassMetadata;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.CustomizableThreadCreator;
+
+/**
+ * Warms up the {@link CachedIntrospectionResults} cache for the classes in given
+ * packages, or for given classes, by introspecting them in parallel upfront instead
+ * of one by one on first use - e.g. during application context refresh, so that the
+ * first requests after a deployment do not pay for introspection.
+ *
+ * <p>Interfaces and annotations are skipped, as are classes that cannot be loaded
+ * or introspected: those fail again on actual use, just like without warm-up.
+ * Classes get loaded but not initialized.
+ *
+ * @since 4.3.4
+ * @see CachedIntrospectionResults#getCacheSize()
+ */
+public class BeanIntrospectionWarmer {
+
+	private static final String DEFAULT_RESOURCE_PATTERN = "**/*.class";
+
+	private static final Log logger = LogFactory.getLog(BeanIntrospectionWarmer.class);
+
+	/** Marks the threads that are currently warming up the cache */
+	private static final ThreadLocal<Boolean> warmingUp = new ThreadLocal<Boolean>();
+
+
+	private final ResourcePatternResolver resourcePatternResolver;
+
+	private final MetadataReaderFactory metadataReaderFactory;
+
+	private Executor executor;
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+
+	/**
+	 * Create a new BeanIntrospectionWarmer for the default class loader.
+	 */
+	public BeanIntrospectionWarmer() {
+		this(new PathMatchingResourcePatternResolver());
+	}
+
+	/**
+	 * Create a new BeanIntrospectionWarmer for the given resource loader.
+	 * @param resourceLoader the ResourceLoader to scan packages with
+	 * (also determines the ClassLoader to use)
+	 */
+	public BeanIntrospectionWarmer(ResourceLoader resourceLoader) {
+		this.resourcePatternResolver = ResourcePatternUtils.getResourcePatternResolver(resourceLoader);
+		this.metadataReaderFactory = new SimpleMetadataReaderFactory(resourceLoader);
+	}
+
+
+	/**
+	 * Set the {@link Executor} to introspect classes with.
+	 * <p>By default, a shared thread pool with as many daemon threads as
+	 * there are available processors is used.
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Set the number of tasks to split the introspection into. Default is the
+	 * number of available processors.
+	 */
+	public void setParallelism(int parallelism) {
+		Assert.isTrue(parallelism > 0, "'parallelism' must be greater than 0");
+		this.parallelism = parallelism;
+	}
+
+
+	/**
+	 * Introspect the classes in the given packages and their subpackages,
+	 * returning once all of them have been introspected.
+	 * @param basePackages the packages to introspect the classes of
+	 * @return the number of classes introspected
+	 */
+	public int warmUp(String... basePackages) {
+		List<Resource> resources = new ArrayList<Resource>();
+		for (String basePackage : basePackages) {
+			String pattern = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX +
+					ClassUtils.convertClassNameToResourcePath(basePackage) + '/' + DEFAULT_RESOURCE_PATTERN;
+			try {
+				resources.addAll(Arrays.asList(this.resourcePatternResolver.getResources(pattern)));
+			}
+			catch (IOException ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Failed to scan package '" + basePackage + "' for introspection warm-up", ex);
+				}
+			}
+		}
+		return warmUpItems(resources);
+	}
+
+	/**
+	 * Introspect the given classes, returning once all of them have been introspected.
+	 * @param beanClasses the classes to introspect
+	 * @return the number of classes introspected
+	 */
+	public int warmUp(Collection<Class<?>> beanClasses) {
+		return warmUpItems(new ArrayList<Object>(beanClasses));
+	}
+
+	private int warmUpItems(List<?> items) {
+		long startTime = System.currentTimeMillis();
+		AtomicInteger count = new AtomicInteger();
+		if (items.size() < 2 || this.parallelism == 1 || warmingUp.get() != null) {
+			// Nested warm-up would wait for tasks queued behind the current one
+			new WarmUpTask(items, 0, 1, count, null).run();
+		}
+		else {
+			int taskCount = Math.min(this.parallelism, items.size());
+			CountDownLatch latch = new CountDownLatch(taskCount);
+			Executor executor = (this.executor != null ? this.executor : DefaultExecutorHolder.executor);
+			for (int i = 0; i < taskCount; i++) {
+				WarmUpTask task = new WarmUpTask(items, i, taskCount, count, latch);
+				try {
+					executor.execute(task);
+				}
+				catch (RejectedExecutionException ex) {
+					task.run();
+				}
+			}
+			try {
+				latch.await();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Introspected " + count.get() + " classes in " +
+					(System.currentTimeMillis() - startTime) + " ms");
+		}
+		return count.get();
+	}
+
+	/**
+	 * Introspect the given class or ".class" file resource, if applicable.
+	 * @return whether the class has been introspected
+	 */
+	private boolean warmUpItem(Object item) {
+		try {
+			Class<?> beanClass;
+			if (item instanceof Resource) {
+				ClassMetadata metadata = this.metadataReaderFactory.getMetadataReader((Resource) item).getClassMetadata();
+				if (metadata.isInterface()) {
+					return false;
+				}
+				beanClass = ClassUtils.forName(metadata.getClassName(),
+						this.resourcePatternResolver.getClassLoader());
+			}
+			else {
+				beanClass = (Class<?>) item;
+				if (beanClass.isInterface()) {
+					return false;
+				}
+			}
+			CachedIntrospectionResults.forClass(beanClass);
+			return true;
+		}
+		catch (Throwable ex) {
+			// Raised again on actual use
+			if (logger.isTraceEnabled()) {
+				logger.trace("Skipping introspection warm-up for " + item + ": " + ex);
+			}
+			return false;
+		}
+	}
+
+
+	/**
+	 * Introspects every n-th item of the given list.
+	 */
+	private class WarmUpTask implements Runnable {
+
+		private final List<?> items;
+
+		private final int offset;
+
+		private final int stride;
+
+		private final AtomicInteger count;
+
+		private final CountDownLatch latch;
+
+		public WarmUpTask(List<?> items, int offset, int stride, AtomicInteger count, CountDownLatch latch) {
+			this.items = items;
+			this.offset = offset;
+			this.stride = stride;
+			this.count = count;
+			this.latch = latch;
+		}
+
+		@Override
+		public void run() {
+			Boolean outerWarmingUp = warmingUp.get();
+			warmingUp.set(Boolean.TRUE);
+			try {
+				for (int i = this.offset; i < this.items.size(); i += this.stride) {
+					if (warmUpItem(this.items.get(i))) {
+						this.count.incrementAndGet();
+					}
+				}
+			}
+			finally {
+				if (outerWarmingUp == null) {
+					warmingUp.remove();
+				}
+				if (this.latch != null) {
+					this.latch.countDown();
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Holder for the lazily created default thread pool, whose daemon
+	 * threads terminate once they have been idle for a minute.
+	 */
+	private static class DefaultExecutorHolder {
+
+		static final ExecutorService executor = createExecutor(Runtime.getRuntime().availableProcessors());
+
+		private static ExecutorService createExecutor(int poolSize) {
+			final CustomizableThreadCreator threadCreator = new CustomizableThreadCreator("introspection-warmer-");
+			threadCreator.setDaemon(true);
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable runnable) {
+							return threadCreator.createThread(runnable);
+						}
+					});
+			executor.allowCoreThreadTimeOut(true);
+			return executor;
+		}
+	}
+
+}
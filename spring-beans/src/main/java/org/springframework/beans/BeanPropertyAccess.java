@@ -0,0 +1,286 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.core.convert.Property;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.StringUtils;
+
+/**
+ * Per-class property metadata for {@link GeneratedPropertyAccessor}: the JavaBeans
+ * properties of a class by index, their {@link TypeDescriptor TypeDescriptors},
+ * the {@link GeneratedPropertyAccessor.PropertyInvoker} calling their read and
+ * write methods, and the nested property paths resolved against the class so far.
+ *
+ * <p>Based on the {@link CachedIntrospectionResults} for the class and cached
+ * per class as well, softly held. The generated invoker classes are cached
+ * separately by {@link PropertyInvokerGenerator}, so that they are reused
+ * when a BeanPropertyAccess gets recreated.
+ *
+ * @since 4.3.4
+ * @see PropertyInvokerGenerator
+ */
+final class BeanPropertyAccess {
+
+	/** Maximum number of nested property paths to cache per class */
+	private static final int PATH_CACHE_LIMIT = 256;
+
+	private static final Map<Class<?>, BeanPropertyAccess> accessCache =
+			new ConcurrentReferenceHashMap<Class<?>, BeanPropertyAccess>(64);
+
+
+	/**
+	 * Return the BeanPropertyAccess for the given class, creating it if necessary.
+	 * @param beanClass the bean class
+	 * @return the corresponding BeanPropertyAccess
+	 * @throws BeansException in case of introspection failure
+	 */
+	static BeanPropertyAccess forClass(Class<?> beanClass) throws BeansException {
+		BeanPropertyAccess access = accessCache.get(beanClass);
+		if (access == null) {
+			synchronized (accessCache) {
+				access = accessCache.get(beanClass);
+				if (access == null) {
+					access = new BeanPropertyAccess(beanClass);
+					accessCache.put(beanClass, access);
+				}
+			}
+		}
+		return access;
+	}
+
+	/**
+	 * Remove the BeanPropertyAccess for all classes underneath the given ClassLoader.
+	 * @see CachedIntrospectionResults#clearClassLoader
+	 */
+	static void clearClassLoader(ClassLoader classLoader) {
+		for (Iterator<Class<?>> it = accessCache.keySet().iterator(); it.hasNext();) {
+			if (CachedIntrospectionResults.isUnderneathClassLoader(it.next().getClassLoader(), classLoader)) {
+				it.remove();
+			}
+		}
+	}
+
+
+	private final Class<?> beanClass;
+
+	private final CachedIntrospectionResults introspectionResults;
+
+	private final PropertyDescriptor[] propertyDescriptors;
+
+	private final TypeDescriptor[] typeDescriptors;
+
+	/** Parameter type of the write method by property index ({@code null} if not writable) */
+	private final Class<?>[] writeTypes;
+
+	/** Property name --> property index */
+	private final Map<String, Integer> indexes;
+
+	private final GeneratedPropertyAccessor.PropertyInvoker invoker;
+
+	/** Nested property path --> PropertyPath */
+	private final Map<String, PropertyPath> pathCache = new ConcurrentHashMap<String, PropertyPath>(16);
+
+
+	private BeanPropertyAccess(Class<?> beanClass) {
+		this.beanClass = beanClass;
+		this.introspectionResults = CachedIntrospectionResults.forClass(beanClass);
+		this.propertyDescriptors = this.introspectionResults.getPropertyDescriptors();
+		this.typeDescriptors = new TypeDescriptor[this.propertyDescriptors.length];
+		this.writeTypes = new Class<?>[this.propertyDescriptors.length];
+		this.indexes = new HashMap<String, Integer>(this.propertyDescriptors.length * 2);
+		Method[] readMethods = new Method[this.propertyDescriptors.length];
+		Method[] writeMethods = new Method[this.propertyDescriptors.length];
+		for (int i = 0; i < this.propertyDescriptors.length; i++) {
+			PropertyDescriptor pd = this.propertyDescriptors[i];
+			TypeDescriptor td = this.introspectionResults.getTypeDescriptor(pd);
+			if (td == null) {
+				GenericTypeAwarePropertyDescriptor gpd = (GenericTypeAwarePropertyDescriptor) pd;
+				td = this.introspectionResults.addTypeDescriptor(pd, new TypeDescriptor(
+						new Property(gpd.getBeanClass(), gpd.getReadMethod(), gpd.getWriteMethod(), gpd.getName())));
+			}
+			this.typeDescriptors[i] = td;
+			this.indexes.put(pd.getName(), i);
+			readMethods[i] = pd.getReadMethod();
+			writeMethods[i] = pd.getWriteMethod();
+			if (writeMethods[i] != null) {
+				this.writeTypes[i] = writeMethods[i].getParameterTypes()[0];
+			}
+		}
+		this.invoker = PropertyInvokerGenerator.createInvoker(beanClass, readMethods, writeMethods);
+	}
+
+
+	public Class<?> getBeanClass() {
+		return this.beanClass;
+	}
+
+	/**
+	 * Return the index of the given property, with the same lenient
+	 * name matching as {@link CachedIntrospectionResults}.
+	 * @param propertyName the name of the property
+	 * @return the index, or {@code -1} if there is no such property
+	 */
+	public int getIndex(String propertyName) {
+		Integer index = this.indexes.get(propertyName);
+		if (index == null) {
+			PropertyDescriptor pd = this.introspectionResults.getPropertyDescriptor(propertyName);
+			if (pd != null) {
+				index = this.indexes.get(pd.getName());
+			}
+		}
+		return (index != null ? index : -1);
+	}
+
+	public boolean isReadable(int index) {
+		return (index >= 0 && this.propertyDescriptors[index].getReadMethod() != null);
+	}
+
+	public boolean isWritable(int index) {
+		return (index >= 0 && this.propertyDescriptors[index].getWriteMethod() != null);
+	}
+
+	/**
+	 * Return whether the given value can be passed to the write method of the
+	 * given property as it is. {@code null} is considered assignable, failing
+	 * on invocation for a primitive parameter just like with reflection.
+	 */
+	public boolean isAssignable(int index, Object value) {
+		return (value == null || ClassUtils.isAssignableValue(this.writeTypes[index], value));
+	}
+
+	public String getPropertyName(int index) {
+		return this.propertyDescriptors[index].getName();
+	}
+
+	public TypeDescriptor getTypeDescriptor(int index) {
+		return this.typeDescriptors[index];
+	}
+
+	/**
+	 * Return whether the properties of the class are accessed through a generated
+	 * invoker, as opposed to falling back to reflection for all of them.
+	 */
+	public boolean isGenerated() {
+		return (this.invoker.getClass() != GeneratedPropertyAccessor.PropertyInvoker.class);
+	}
+
+	public Object getValue(Object target, int index) throws Throwable {
+		return this.invoker.getValue(target, index);
+	}
+
+	public void setValue(Object target, int index, Object value) throws Throwable {
+		this.invoker.setValue(target, index, value);
+	}
+
+	/**
+	 * Return the {@link PropertyPath} for the given nested property path,
+	 * to be resolved against instances of this class.
+	 * @param propertyPath a nested property path without keys
+	 */
+	public PropertyPath getPropertyPath(String propertyPath) {
+		PropertyPath path = this.pathCache.get(propertyPath);
+		if (path == null) {
+			path = new PropertyPath(this, StringUtils.delimitedListToStringArray(
+					propertyPath, String.valueOf(PropertyAccessor.NESTED_PROPERTY_SEPARATOR_CHAR)));
+			if (this.pathCache.size() < PATH_CACHE_LIMIT) {
+				this.pathCache.put(propertyPath, path);
+			}
+		}
+		return path;
+	}
+
+
+	/**
+	 * A nested property path, remembering the class and property index resolved
+	 * for each of its elements in order to reuse them as long as the objects along
+	 * the path are of the same class.
+	 */
+	static final class PropertyPath {
+
+		private final String[] names;
+
+		private final Step[] steps;
+
+		PropertyPath(BeanPropertyAccess rootAccess, String[] names) {
+			this.names = names;
+			this.steps = new Step[names.length];
+			this.steps[0] = new Step(rootAccess, rootAccess.getIndex(names[0]));
+		}
+
+		public int getLength() {
+			return this.names.length;
+		}
+
+		public String getName(int position) {
+			return this.names[position];
+		}
+
+		/**
+		 * Return the path up to and including the given position.
+		 */
+		public String getPath(int position) {
+			StringBuilder sb = new StringBuilder(this.names[0]);
+			for (int i = 1; i <= position; i++) {
+				sb.append(PropertyAccessor.NESTED_PROPERTY_SEPARATOR_CHAR).append(this.names[i]);
+			}
+			return sb.toString();
+		}
+
+		/**
+		 * Resolve the element at the given position against the given object.
+		 * @param position the position within the path
+		 * @param object the object holding the property at that position
+		 * @return the class access and property index for the given object
+		 */
+		public Step resolve(int position, Object object) {
+			Step step = this.steps[position];
+			if (step == null || step.access.getBeanClass() != object.getClass()) {
+				BeanPropertyAccess access = forClass(object.getClass());
+				step = new Step(access, access.getIndex(this.names[position]));
+				this.steps[position] = step;
+			}
+			return step;
+		}
+	}
+
+
+	/**
+	 * A property resolved against a class.
+	 */
+	static final class Step {
+
+		final BeanPropertyAccess access;
+
+		final int index;
+
+		Step(BeanPropertyAccess access, int index) {
+			this.access = access;
+			this.index = index;
+		}
+	}
+
+}
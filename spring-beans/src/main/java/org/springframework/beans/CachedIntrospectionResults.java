@@ -28,6 +28,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -64,6 +66,13 @@ import org.springframework.util.StringUtils;
  * recreates much-requested entries every time the garbage collector removed them. In
  * such a scenario, consider the {@link #IGNORE_BEANINFO_PROPERTY_NAME} system property.
  *
+ * <p>Each class is introspected only once at a time: threads requesting a class
+ * that is being introspected by another thread already wait for that introspection
+ * to complete instead of introspecting the class themselves. The cache can be warmed
+ * up upfront through a {@link BeanIntrospectionWarmer}, and its effectiveness can be
+ * monitored through {@link #getCacheSize()}, {@link #getCacheHitCount()} and
+ * {@link #getCacheMissCount()}.
+ *
  * @author Rod Johnson
  * @author Juergen Hoeller
  * @since 05 May 2001
@@ -123,6 +132,17 @@ public class CachedIntrospectionResults {
 	static final ConcurrentMap<Class<?>, CachedIntrospectionResults> softClassCache =
 			new ConcurrentReferenceHashMap<Class<?>, CachedIntrospectionResults>(64);
 
+	/**
+	 * Map keyed by Class containing the introspections currently in progress,
+	 * for other threads requesting the same class to wait for.
+	 */
+	private static final ConcurrentMap<Class<?>, Introspection> introspectionsInProgress =
+			new ConcurrentHashMap<Class<?>, Introspection>(16);
+
+	private static final AtomicLong cacheHits = new AtomicLong();
+
+	private static final AtomicLong cacheMisses = new AtomicLong();
+
 
 	/**
 	 * Accept the given ClassLoader as cache-safe, even if its classes would
@@ -167,6 +187,38 @@ public class CachedIntrospectionResults {
 				it.remove();
 			}
 		}
+		BeanPropertyAccess.clearClassLoader(classLoader);
+		PropertyInvokerGenerator.clearClassLoader(classLoader);
+	}
+
+	/**
+	 * Return the number of classes that introspection results are cached for.
+	 * @since 4.3.4
+	 */
+	public static int getCacheSize() {
+		return strongClassCache.size() + softClassCache.size();
+	}
+
+	/**
+	 * Return the number of requests for introspection results that have been
+	 * served from the cache so far.
+	 * @since 4.3.4
+	 * @see #getCacheMissCount()
+	 */
+	public static long getCacheHitCount() {
+		return cacheHits.get();
+	}
+
+	/**
+	 * Return the number of requests for introspection results that have not been
+	 * served from the cache so far, having introspected the class or waited for
+	 * another thread introspecting it. The cache hit rate is the hit count divided
+	 * by the sum of the hit count and the miss count.
+	 * @since 4.3.4
+	 * @see #getCacheHitCount()
+	 */
+	public static long getCacheMissCount() {
+		return cacheMisses.get();
 	}
 
 	/**
@@ -175,22 +227,55 @@ public class CachedIntrospectionResults {
 	 * @return the corresponding CachedIntrospectionResults
 	 * @throws BeansException in case of introspection failure
 	 */
-	@SuppressWarnings("unchecked")
 	static CachedIntrospectionResults forClass(Class<?> beanClass) throws BeansException {
-		CachedIntrospectionResults results = strongClassCache.get(beanClass);
+		CachedIntrospectionResults results = getCachedResults(beanClass);
 		if (results != null) {
+			cacheHits.incrementAndGet();
 			return results;
 		}
-		results = softClassCache.get(beanClass);
-		if (results != null) {
+		cacheMisses.incrementAndGet();
+
+		Introspection introspection = new Introspection();
+		Introspection existingIntrospection = introspectionsInProgress.putIfAbsent(beanClass, introspection);
+		if (existingIntrospection != null) {
+			if (existingIntrospection.isOwnedByCurrentThread()) {
+				// Requested again while introspecting, e.g. by a BeanInfo: waiting would never end
+				return introspect(beanClass);
+			}
+			return existingIntrospection.awaitResults();
+		}
+		try {
+			// Possibly completed by another thread in the meantime
+			results = getCachedResults(beanClass);
+			if (results == null) {
+				results = introspect(beanClass);
+			}
+			introspection.complete(results, null);
 			return results;
 		}
+		catch (RuntimeException ex) {
+			introspection.complete(null, ex);
+			throw ex;
+		}
+		catch (Error err) {
+			introspection.complete(null, err);
+			throw err;
+		}
+		finally {
+			introspectionsInProgress.remove(beanClass, introspection);
+		}
+	}
 
-		results = new CachedIntrospectionResults(beanClass);
+	private static CachedIntrospectionResults getCachedResults(Class<?> beanClass) {
+		CachedIntrospectionResults results = strongClassCache.get(beanClass);
+		return (results != null ? results : softClassCache.get(beanClass));
+	}
+
+	private static CachedIntrospectionResults introspect(Class<?> beanClass) throws BeansException {
+		CachedIntrospectionResults results = new CachedIntrospectionResults(beanClass);
 		ConcurrentMap<Class<?>, CachedIntrospectionResults> classCacheToUse;
 
-		if (ClassUtils.isCacheSafe(beanClass, CachedIntrospectionResults.class.getClassLoader()) ||
-				isClassLoaderAccepted(beanClass.getClassLoader())) {
+		if (isCacheSafe(beanClass)) {
 			classCacheToUse = strongClassCache;
 		}
 		else {
@@ -204,6 +289,16 @@ public class CachedIntrospectionResults {
 		return (existing != null ? existing : results);
 	}
 
+	/**
+	 * Check whether the given bean class may be strongly cached: either cache-safe
+	 * in this CachedIntrospectionResults class, or from an accepted ClassLoader.
+	 * @param beanClass the bean class to check
+	 */
+	static boolean isCacheSafe(Class<?> beanClass) {
+		return (ClassUtils.isCacheSafe(beanClass, CachedIntrospectionResults.class.getClassLoader()) ||
+				isClassLoaderAccepted(beanClass.getClassLoader()));
+	}
+
 	/**
 	 * Check whether this CachedIntrospectionResults class is configured
 	 * to accept the given ClassLoader.
@@ -226,7 +321,7 @@ public class CachedIntrospectionResults {
 	 * @param candidate the candidate ClassLoader to check
 	 * @param parent the parent ClassLoader to check for
 	 */
-	private static boolean isUnderneathClassLoader(ClassLoader candidate, ClassLoader parent) {
+	static boolean isUnderneathClassLoader(ClassLoader candidate, ClassLoader parent) {
 		if (candidate == parent) {
 			return true;
 		}
@@ -379,4 +474,53 @@ public class CachedIntrospectionResults {
 		return this.typeDescriptorCache.get(pd);
 	}
 
+
+	/**
+	 * An introspection in progress, for other threads requesting the same class to wait for.
+	 */
+	private static class Introspection {
+
+		private final Thread owner = Thread.currentThread();
+
+		private final CountDownLatch latch = new CountDownLatch(1);
+
+		private volatile CachedIntrospectionResults results;
+
+		private volatile Throwable failure;
+
+		public boolean isOwnedByCurrentThread() {
+			return (this.owner == Thread.currentThread());
+		}
+
+		public void complete(CachedIntrospectionResults results, Throwable failure) {
+			this.results = results;
+			this.failure = failure;
+			this.latch.countDown();
+		}
+
+		public CachedIntrospectionResults awaitResults() {
+			boolean interrupted = false;
+			while (true) {
+				try {
+					this.latch.await();
+					break;
+				}
+				catch (InterruptedException ex) {
+					// Keep waiting, since the introspection is bound to complete.
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			if (this.failure instanceof RuntimeException) {
+				throw (RuntimeException) this.failure;
+			}
+			if (this.failure instanceof Error) {
+				throw (Error) this.failure;
+			}
+			return this.results;
+		}
+	}
+
 }
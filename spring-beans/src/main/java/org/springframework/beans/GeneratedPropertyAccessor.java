@@ -0,0 +1,412 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.beans.PropertyChangeEvent;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.ConverterNotFoundException;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * {@link ConfigurablePropertyAccessor} implementation that accesses JavaBeans
+ * properties through generated bytecode instead of reflection: for each bean class,
+ * a class calling the read and write methods of all properties directly is generated
+ * with ASM and cached, along with the property metadata and the nested property paths
+ * resolved against the class. Values that are of the property type already are set
+ * as-is, without going through type conversion.
+ *
+ * <p>An alternative to {@link BeanWrapperImpl} for hot code paths that access the
+ * properties of the same classes over and over again. Simple and nested property
+ * paths are handled by this accessor itself; indexed and mapped properties (e.g.
+ * "list[0]" or "map[key]") as well as the auto-growing of nested paths are delegated
+ * to a {@code BeanWrapperImpl} on the same target object and configuration.
+ *
+ * <p>Unlike {@code BeanWrapperImpl}, a value that is an instance of the property
+ * type already is not passed to a {@link #setConversionService ConversionService},
+ * unless a custom editor has been registered for the property or the property is a
+ * collection or map whose elements may need conversion. Properties of classes that
+ * are not public, or whose methods are not, are accessed via reflection.
+ *
+ * @since 4.3.4
+ * @see PropertyAccessorFactory#forGeneratedBeanPropertyAccess
+ * @see BeanWrapperImpl
+ */
+public class GeneratedPropertyAccessor extends AbstractPropertyAccessor {
+
+	private static final Log logger = LogFactory.getLog(GeneratedPropertyAccessor.class);
+
+	private final Object target;
+
+	private final BeanPropertyAccess rootAccess;
+
+
+	/**
+	 * Create a new GeneratedPropertyAccessor for the given object.
+	 * @param target the object wrapped by this GeneratedPropertyAccessor
+	 */
+	public GeneratedPropertyAccessor(Object target) {
+		Assert.notNull(target, "Target object must not be null");
+		this.target = target;
+		this.rootAccess = BeanPropertyAccess.forClass(target.getClass());
+		this.typeConverterDelegate = new TypeConverterDelegate(this, target);
+		registerDefaultEditors();
+	}
+
+
+	/**
+	 * Return the object wrapped by this accessor.
+	 */
+	public final Object getWrappedInstance() {
+		return this.target;
+	}
+
+	/**
+	 * Return the type of the wrapped object.
+	 */
+	public final Class<?> getWrappedClass() {
+		return this.target.getClass();
+	}
+
+	@Override
+	public boolean isReadableProperty(String propertyName) {
+		if (isKeyedPath(propertyName)) {
+			return createBeanWrapper().isReadableProperty(propertyName);
+		}
+		try {
+			Resolved resolved = resolve(propertyName);
+			return (resolved != null && resolved.step.access.isReadable(resolved.step.index));
+		}
+		catch (InvalidPropertyException ex) {
+			return false;
+		}
+	}
+
+	@Override
+	public boolean isWritableProperty(String propertyName) {
+		if (isKeyedPath(propertyName)) {
+			return createBeanWrapper().isWritableProperty(propertyName);
+		}
+		try {
+			Resolved resolved = resolve(propertyName);
+			return (resolved != null && resolved.step.access.isWritable(resolved.step.index));
+		}
+		catch (InvalidPropertyException ex) {
+			return false;
+		}
+	}
+
+	@Override
+	public Class<?> getPropertyType(String propertyName) throws BeansException {
+		if (isKeyedPath(propertyName)) {
+			return createBeanWrapper().getPropertyType(propertyName);
+		}
+		TypeDescriptor td = getPropertyTypeDescriptor(propertyName);
+		return (td != null ? td.getType() : null);
+	}
+
+	@Override
+	public TypeDescriptor getPropertyTypeDescriptor(String propertyName) throws BeansException {
+		if (isKeyedPath(propertyName)) {
+			return createBeanWrapper().getPropertyTypeDescriptor(propertyName);
+		}
+		try {
+			Resolved resolved = resolve(propertyName);
+			if (resolved != null && resolved.step.index >= 0) {
+				return resolved.step.access.getTypeDescriptor(resolved.step.index);
+			}
+		}
+		catch (InvalidPropertyException ex) {
+			// Consider as not determinable.
+		}
+		return null;
+	}
+
+	@Override
+	public Object getPropertyValue(String propertyName) throws BeansException {
+		if (isKeyedPath(propertyName)) {
+			return createBeanWrapper().getPropertyValue(propertyName);
+		}
+		Resolved resolved = resolve(propertyName);
+		if (resolved == null) {
+			// Null value in nested path, to be auto-grown
+			return createBeanWrapper().getPropertyValue(propertyName);
+		}
+		if (!resolved.step.access.isReadable(resolved.step.index)) {
+			throw new NotReadablePropertyException(getRootClass(), propertyName);
+		}
+		return getValue(resolved.object, resolved.step, propertyName);
+	}
+
+	@Override
+	public void setPropertyValue(String propertyName, Object value) throws BeansException {
+		setPropertyValue(propertyName, value, false);
+	}
+
+	@Override
+	public void setPropertyValue(PropertyValue pv) throws BeansException {
+		setPropertyValue(pv.getName(), pv.getValue(), pv.isOptional());
+	}
+
+	private void setPropertyValue(String propertyName, Object value, boolean optional) throws BeansException {
+		if (isKeyedPath(propertyName)) {
+			PropertyValue pv = new PropertyValue(propertyName, value);
+			pv.setOptional(optional);
+			createBeanWrapper().setPropertyValue(pv);
+			return;
+		}
+		Resolved resolved;
+		try {
+			resolved = resolve(propertyName);
+		}
+		catch (NotReadablePropertyException ex) {
+			throw new NotWritablePropertyException(getRootClass(), propertyName,
+					"Nested property in path '" + propertyName + "' does not exist", ex);
+		}
+		if (resolved == null) {
+			// Null value in nested path, to be auto-grown
+			createBeanWrapper().setPropertyValue(propertyName, value);
+			return;
+		}
+		BeanPropertyAccess access = resolved.step.access;
+		int index = resolved.step.index;
+		if (!access.isWritable(index)) {
+			if (optional) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Ignoring optional value for property '" + propertyName +
+							"' - property not found on bean class [" + getRootClass().getName() + "]");
+				}
+				return;
+			}
+			PropertyMatches matches = PropertyMatches.forProperty(resolved.name, access.getBeanClass());
+			throw new NotWritablePropertyException(getRootClass(), propertyName,
+					matches.buildErrorMessage(), matches.getPossibleMatches());
+		}
+
+		TypeDescriptor td = access.getTypeDescriptor(index);
+		Object oldValue = null;
+		Object valueToApply = value;
+		if (isConversionNecessary(td, value, propertyName)) {
+			if (isExtractOldValueForEditor() && access.isReadable(index)) {
+				try {
+					oldValue = access.getValue(resolved.object, index);
+				}
+				catch (Throwable ex) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Could not read previous value of property '" + propertyName + "'", ex);
+					}
+				}
+			}
+			valueToApply = convertForProperty(propertyName, oldValue, value, td);
+		}
+		if (!access.isAssignable(index, valueToApply)) {
+			// Checked upfront: a ClassCastException from the write method itself is not a type mismatch
+			PropertyChangeEvent pce = new PropertyChangeEvent(this.target, propertyName, oldValue, value);
+			throw new TypeMismatchException(pce, td.getType());
+		}
+		try {
+			access.setValue(resolved.object, index, valueToApply);
+		}
+		catch (Throwable ex) {
+			PropertyChangeEvent pce = new PropertyChangeEvent(this.target, propertyName, oldValue, value);
+			if (ex instanceof UndeclaredThrowableException) {
+				// May happen e.g. with Groovy-generated methods
+				ex = ex.getCause();
+			}
+			throw new MethodInvocationException(pce, ex);
+		}
+	}
+
+	/**
+	 * Determine whether the given value needs to go through type conversion
+	 * for the given property, i.e. unless it is an instance of the property's type
+	 * already, there is no custom editor for it, and it has no elements that may
+	 * need conversion on their own.
+	 */
+	private boolean isConversionNecessary(TypeDescriptor td, Object value, String propertyName) {
+		Class<?> type = td.getType();
+		if (value == null) {
+			return (type.isPrimitive() || findCustomEditor(type, propertyName) != null);
+		}
+		if (!ClassUtils.isAssignableValue(type, value) || findCustomEditor(type, propertyName) != null) {
+			return true;
+		}
+		if (type.isArray()) {
+			return (value.getClass() != type ||
+					hasCustomEditorForElement(type.getComponentType(), propertyName));
+		}
+		return (Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type));
+	}
+
+	private Object convertForProperty(String propertyName, Object oldValue, Object newValue, TypeDescriptor td)
+			throws TypeMismatchException {
+
+		try {
+			return this.typeConverterDelegate.convertIfNecessary(propertyName, oldValue, newValue, td.getType(), td);
+		}
+		catch (ConverterNotFoundException ex) {
+			PropertyChangeEvent pce = new PropertyChangeEvent(this.target, propertyName, oldValue, newValue);
+			throw new ConversionNotSupportedException(pce, td.getType(), ex);
+		}
+		catch (ConversionException ex) {
+			PropertyChangeEvent pce = new PropertyChangeEvent(this.target, propertyName, oldValue, newValue);
+			throw new TypeMismatchException(pce, td.getType(), ex);
+		}
+		catch (IllegalStateException ex) {
+			PropertyChangeEvent pce = new PropertyChangeEvent(this.target, propertyName, oldValue, newValue);
+			throw new ConversionNotSupportedException(pce, td.getType(), ex);
+		}
+		catch (IllegalArgumentException ex) {
+			PropertyChangeEvent pce = new PropertyChangeEvent(this.target, propertyName, oldValue, newValue);
+			throw new TypeMismatchException(pce, td.getType(), ex);
+		}
+	}
+
+	/**
+	 * Resolve the given property path down to its last element.
+	 * @param propertyPath a property path without keys
+	 * @return the last element of the path, or {@code null} if an intermediate
+	 * value is {@code null} and nested paths are to be auto-grown
+	 * @throws NotReadablePropertyException if an intermediate property is not readable
+	 * @throws NullValueInNestedPathException if an intermediate value is {@code null}
+	 */
+	private Resolved resolve(String propertyPath) {
+		BeanPropertyAccess.PropertyPath path = this.rootAccess.getPropertyPath(propertyPath);
+		Object object = this.target;
+		int last = path.getLength() - 1;
+		for (int i = 0; i < last; i++) {
+			BeanPropertyAccess.Step step = path.resolve(i, object);
+			String nestedPath = path.getPath(i);
+			if (!step.access.isReadable(step.index)) {
+				throw new NotReadablePropertyException(getRootClass(), nestedPath);
+			}
+			object = getValue(object, step, nestedPath);
+			if (object == null) {
+				if (isAutoGrowNestedPaths()) {
+					return null;
+				}
+				throw new NullValueInNestedPathException(getRootClass(), nestedPath);
+			}
+		}
+		return new Resolved(object, path.getName(last), path.resolve(last, object));
+	}
+
+	private Object getValue(Object object, BeanPropertyAccess.Step step, String propertyPath) {
+		try {
+			return step.access.getValue(object, step.index);
+		}
+		catch (Throwable ex) {
+			throw new InvalidPropertyException(getRootClass(), propertyPath,
+					"Getter for property '" + step.access.getPropertyName(step.index) + "' threw exception", ex);
+		}
+	}
+
+	private Class<?> getRootClass() {
+		return this.target.getClass();
+	}
+
+	private static boolean isKeyedPath(String propertyPath) {
+		Assert.notNull(propertyPath, "Property path must not be null");
+		return (propertyPath.indexOf(PROPERTY_KEY_PREFIX_CHAR) != -1);
+	}
+
+	/**
+	 * Create a {@link BeanWrapperImpl} on the target object with the configuration
+	 * of this accessor, for the property paths not handled by this accessor itself.
+	 */
+	private BeanWrapperImpl createBeanWrapper() {
+		BeanWrapperImpl beanWrapper = new BeanWrapperImpl(this.target);
+		beanWrapper.setConversionService(getConversionService());
+		beanWrapper.setExtractOldValueForEditor(isExtractOldValueForEditor());
+		beanWrapper.setAutoGrowNestedPaths(isAutoGrowNestedPaths());
+		copyDefaultEditorsTo(beanWrapper);
+		copyCustomEditorsTo(beanWrapper, null);
+		return beanWrapper;
+	}
+
+
+	/**
+	 * A property path resolved down to the object holding its last element.
+	 */
+	private static class Resolved {
+
+		final Object object;
+
+		final String name;
+
+		final BeanPropertyAccess.Step step;
+
+		Resolved(Object object, String name, BeanPropertyAccess.Step step) {
+			this.object = object;
+			this.name = name;
+			this.step = step;
+		}
+	}
+
+
+	/**
+	 * Invokes the read and write methods of a bean class by property index.
+	 * This base class does so via reflection; {@code GeneratedPropertyAccessor}
+	 * uses generated subclasses that call the methods directly.
+	 * <p>Public for the generated subclasses only, not meant to be used directly.
+	 */
+	public static class PropertyInvoker {
+
+		private final Method[] readMethods;
+
+		private final Method[] writeMethods;
+
+		public PropertyInvoker(Method[] readMethods, Method[] writeMethods) {
+			this.readMethods = readMethods;
+			this.writeMethods = writeMethods;
+		}
+
+		public Object getValue(Object target, int index) throws Throwable {
+			Method readMethod = this.readMethods[index];
+			ReflectionUtils.makeAccessible(readMethod);
+			try {
+				return readMethod.invoke(target);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+		}
+
+		public void setValue(Object target, int index, Object value) throws Throwable {
+			Method writeMethod = this.writeMethods[index];
+			ReflectionUtils.makeAccessible(writeMethod);
+			try {
+				writeMethod.invoke(target, value);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+		}
+	}
+
+}
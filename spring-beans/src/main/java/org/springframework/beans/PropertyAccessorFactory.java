@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2008 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -48,4 +48,16 @@ public abstract class PropertyAccessorFactory {
 		return new DirectFieldAccessor(target);
 	}
 
+	/**
+	 * Obtain a PropertyAccessor for the given target object,
+	 * accessing properties in JavaBeans style through generated bytecode.
+	 * @param target the target object to wrap
+	 * @return the property accessor
+	 * @since 4.3.4
+	 * @see GeneratedPropertyAccessor
+	 */
+	public static ConfigurablePropertyAccessor forGeneratedBeanPropertyAccess(Object target) {
+		return new GeneratedPropertyAccessor(target);
+	}
+
 }
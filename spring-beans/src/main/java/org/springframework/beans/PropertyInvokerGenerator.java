@@ -0,0 +1,344 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+/**
+ * Generates {@link GeneratedPropertyAccessor.PropertyInvoker} subclasses that
+ * call the read and write methods of a bean class directly, selected by property
+ * index through a {@code tableswitch}, instead of going through reflection.
+ *
+ * <p>Generated classes are defined in a child ClassLoader of a ClassLoader that
+ * sees both the bean class and the invoker base class, one per such ClassLoader,
+ * and cached per bean class until {@link CachedIntrospectionResults#clearClassLoader}.
+ * Properties whose methods cannot be called from generated code (e.g. on a
+ * non-public class) are left to the reflective implementation of the base class.
+ *
+ * @since 4.3.4
+ * @see BeanPropertyAccess
+ */
+abstract class PropertyInvokerGenerator implements Opcodes {
+
+	private static final Log logger = LogFactory.getLog(PropertyInvokerGenerator.class);
+
+	private static final String INVOKER_NAME = Type.getInternalName(GeneratedPropertyAccessor.PropertyInvoker.class);
+
+	private static final String INVOKER_CONSTRUCTOR_DESCRIPTOR =
+			Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(Method[].class), Type.getType(Method[].class));
+
+	private static final String GET_VALUE_DESCRIPTOR = "(Ljava/lang/Object;I)Ljava/lang/Object;";
+
+	private static final String SET_VALUE_DESCRIPTOR = "(Ljava/lang/Object;ILjava/lang/Object;)V";
+
+	private static final String CLASS_NAME_PREFIX = "org/springframework/beans/PropertyInvoker$$";
+
+	private static final AtomicInteger classCounter = new AtomicInteger();
+
+	private static final Map<ClassLoader, InvokerClassLoader> classLoaders =
+			new ConcurrentReferenceHashMap<ClassLoader, InvokerClassLoader>(16);
+
+	/**
+	 * Map keyed by bean class containing the invoker class, strongly held.
+	 * This variant is being used for cache-safe bean classes.
+	 */
+	private static final Map<Class<?>, Class<?>> strongInvokerClassCache =
+			new ConcurrentHashMap<Class<?>, Class<?>>(64);
+
+	/**
+	 * Map keyed by bean class containing the invoker class, softly held.
+	 * This variant is being used for non-cache-safe bean classes.
+	 */
+	private static final Map<Class<?>, Class<?>> softInvokerClassCache =
+			new ConcurrentReferenceHashMap<Class<?>, Class<?>>(64);
+
+
+	/**
+	 * Create an invoker for the given properties of the given bean class.
+	 * <p>The invoker class is generated once per bean class and cached,
+	 * the given methods being the same for every call with that class.
+	 * @param beanClass the bean class
+	 * @param readMethods the read methods by property index ({@code null} if not readable)
+	 * @param writeMethods the write methods by property index ({@code null} if not writable)
+	 * @return a generated invoker, or a reflective one if the bean class does
+	 * not allow for generated access
+	 */
+	public static GeneratedPropertyAccessor.PropertyInvoker createInvoker(
+			Class<?> beanClass, Method[] readMethods, Method[] writeMethods) {
+
+		Class<?> invokerClass = strongInvokerClassCache.get(beanClass);
+		if (invokerClass == null) {
+			invokerClass = softInvokerClassCache.get(beanClass);
+		}
+		if (invokerClass == null) {
+			invokerClass = generateInvokerClass(beanClass, readMethods, writeMethods);
+			if (CachedIntrospectionResults.isCacheSafe(beanClass)) {
+				strongInvokerClassCache.put(beanClass, invokerClass);
+			}
+			else {
+				softInvokerClassCache.put(beanClass, invokerClass);
+			}
+		}
+		if (invokerClass != GeneratedPropertyAccessor.PropertyInvoker.class) {
+			try {
+				return (GeneratedPropertyAccessor.PropertyInvoker) invokerClass
+						.getConstructor(Method[].class, Method[].class).newInstance(readMethods, writeMethods);
+			}
+			catch (Throwable ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Could not instantiate property invoker for class [" + beanClass.getName() +
+							"] - falling back to reflection", ex);
+				}
+			}
+		}
+		return new GeneratedPropertyAccessor.PropertyInvoker(readMethods, writeMethods);
+	}
+
+	/**
+	 * Remove the invoker classes for all bean classes underneath the given
+	 * ClassLoader, along with the ClassLoaders they have been defined in.
+	 * @see CachedIntrospectionResults#clearClassLoader
+	 */
+	static void clearClassLoader(ClassLoader classLoader) {
+		for (Iterator<Class<?>> it = strongInvokerClassCache.keySet().iterator(); it.hasNext();) {
+			if (CachedIntrospectionResults.isUnderneathClassLoader(it.next().getClassLoader(), classLoader)) {
+				it.remove();
+			}
+		}
+		for (Iterator<Class<?>> it = softInvokerClassCache.keySet().iterator(); it.hasNext();) {
+			if (CachedIntrospectionResults.isUnderneathClassLoader(it.next().getClassLoader(), classLoader)) {
+				it.remove();
+			}
+		}
+		for (Iterator<ClassLoader> it = classLoaders.keySet().iterator(); it.hasNext();) {
+			if (CachedIntrospectionResults.isUnderneathClassLoader(it.next(), classLoader)) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Generate the invoker class for the given bean class.
+	 * @return the generated class, or the reflective base class if the bean
+	 * class does not allow for generated access
+	 */
+	private static Class<?> generateInvokerClass(Class<?> beanClass, Method[] readMethods, Method[] writeMethods) {
+		InvokerClassLoader classLoader = getInvokerClassLoader(beanClass);
+		if (classLoader != null) {
+			String className = CLASS_NAME_PREFIX +
+					ClassUtils.getShortName(beanClass).replace('.', '$') + "$$" + classCounter.incrementAndGet();
+			try {
+				byte[] bytes = generate(className, beanClass, readMethods, writeMethods);
+				return classLoader.defineClass(className.replace('/', '.'), bytes);
+			}
+			catch (Throwable ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Could not generate property invoker for class [" + beanClass.getName() +
+							"] - falling back to reflection", ex);
+				}
+			}
+		}
+		return GeneratedPropertyAccessor.PropertyInvoker.class;
+	}
+
+	/**
+	 * Determine the ClassLoader to define the invoker for the given bean class in.
+	 * @return the ClassLoader, or {@code null} if the bean class does not allow
+	 * for generated access
+	 */
+	private static InvokerClassLoader getInvokerClassLoader(Class<?> beanClass) {
+		if (!Modifier.isPublic(beanClass.getModifiers())) {
+			return null;
+		}
+		ClassLoader parent = beanClass.getClassLoader();
+		if (parent == null || !ClassUtils.isVisible(GeneratedPropertyAccessor.PropertyInvoker.class, parent)) {
+			parent = GeneratedPropertyAccessor.PropertyInvoker.class.getClassLoader();
+			if (parent == null || !ClassUtils.isVisible(beanClass, parent)) {
+				return null;
+			}
+		}
+		InvokerClassLoader classLoader = classLoaders.get(parent);
+		if (classLoader == null) {
+			synchronized (classLoaders) {
+				classLoader = classLoaders.get(parent);
+				if (classLoader == null) {
+					classLoader = new InvokerClassLoader(parent);
+					classLoaders.put(parent, classLoader);
+				}
+			}
+		}
+		return classLoader;
+	}
+
+	private static boolean isGeneratable(Method method) {
+		return (method != null && Modifier.isPublic(method.getModifiers()) &&
+				Modifier.isPublic(method.getDeclaringClass().getModifiers()) && !Modifier.isStatic(method.getModifiers()));
+	}
+
+	private static byte[] generate(String className, Class<?> beanClass, Method[] readMethods, Method[] writeMethods) {
+		String beanClassName = Type.getInternalName(beanClass);
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(V1_5, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, className, null, INVOKER_NAME, null);
+
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", INVOKER_CONSTRUCTOR_DESCRIPTOR, null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitVarInsn(ALOAD, 2);
+		mv.visitMethodInsn(INVOKESPECIAL, INVOKER_NAME, "<init>", INVOKER_CONSTRUCTOR_DESCRIPTOR, false);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		// Object getValue(Object target, int index)
+		mv = cw.visitMethod(ACC_PUBLIC, "getValue", GET_VALUE_DESCRIPTOR, null, new String[] {"java/lang/Throwable"});
+		mv.visitCode();
+		Label dflt = new Label();
+		Label[] labels = visitSwitch(mv, readMethods, dflt);
+		for (int i = 0; i < readMethods.length; i++) {
+			if (labels[i] != dflt) {
+				Method readMethod = readMethods[i];
+				mv.visitLabel(labels[i]);
+				mv.visitVarInsn(ALOAD, 1);
+				mv.visitTypeInsn(CHECKCAST, beanClassName);
+				mv.visitMethodInsn(INVOKEVIRTUAL, beanClassName, readMethod.getName(),
+						Type.getMethodDescriptor(readMethod), false);
+				visitBoxing(mv, readMethod.getReturnType());
+				mv.visitInsn(ARETURN);
+			}
+		}
+		mv.visitLabel(dflt);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitVarInsn(ILOAD, 2);
+		mv.visitMethodInsn(INVOKESPECIAL, INVOKER_NAME, "getValue", GET_VALUE_DESCRIPTOR, false);
+		mv.visitInsn(ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		// void setValue(Object target, int index, Object value)
+		mv = cw.visitMethod(ACC_PUBLIC, "setValue", SET_VALUE_DESCRIPTOR, null, new String[] {"java/lang/Throwable"});
+		mv.visitCode();
+		dflt = new Label();
+		labels = visitSwitch(mv, writeMethods, dflt);
+		for (int i = 0; i < writeMethods.length; i++) {
+			if (labels[i] != dflt) {
+				Method writeMethod = writeMethods[i];
+				mv.visitLabel(labels[i]);
+				mv.visitVarInsn(ALOAD, 1);
+				mv.visitTypeInsn(CHECKCAST, beanClassName);
+				mv.visitVarInsn(ALOAD, 3);
+				visitUnboxing(mv, writeMethod.getParameterTypes()[0]);
+				mv.visitMethodInsn(INVOKEVIRTUAL, beanClassName, writeMethod.getName(),
+						Type.getMethodDescriptor(writeMethod), false);
+				Type returnType = Type.getReturnType(writeMethod);
+				if (returnType.getSize() == 1) {
+					mv.visitInsn(POP);
+				}
+				else if (returnType.getSize() == 2) {
+					mv.visitInsn(POP2);
+				}
+				mv.visitInsn(RETURN);
+			}
+		}
+		mv.visitLabel(dflt);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitVarInsn(ILOAD, 2);
+		mv.visitVarInsn(ALOAD, 3);
+		mv.visitMethodInsn(INVOKESPECIAL, INVOKER_NAME, "setValue", SET_VALUE_DESCRIPTOR, false);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	/**
+	 * Switch on the property index argument, jumping to the default label for
+	 * the properties whose method cannot be called directly.
+	 * @return the label for each property index
+	 */
+	private static Label[] visitSwitch(MethodVisitor mv, Method[] methods, Label dflt) {
+		Label[] labels = new Label[methods.length];
+		for (int i = 0; i < methods.length; i++) {
+			labels[i] = (isGeneratable(methods[i]) ? new Label() : dflt);
+		}
+		if (labels.length > 0) {
+			mv.visitVarInsn(ILOAD, 2);
+			mv.visitTableSwitchInsn(0, labels.length - 1, dflt, labels);
+		}
+		return labels;
+	}
+
+	private static void visitBoxing(MethodVisitor mv, Class<?> type) {
+		if (type.isPrimitive()) {
+			Class<?> wrapperType = ClassUtils.resolvePrimitiveIfNecessary(type);
+			mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(wrapperType), "valueOf",
+					Type.getMethodDescriptor(Type.getType(wrapperType), Type.getType(type)), false);
+		}
+	}
+
+	private static void visitUnboxing(MethodVisitor mv, Class<?> type) {
+		if (type.isPrimitive()) {
+			String wrapperName = Type.getInternalName(ClassUtils.resolvePrimitiveIfNecessary(type));
+			mv.visitTypeInsn(CHECKCAST, wrapperName);
+			mv.visitMethodInsn(INVOKEVIRTUAL, wrapperName, type.getName() + "Value",
+					Type.getMethodDescriptor(Type.getType(type)), false);
+		}
+		else if (type != Object.class) {
+			mv.visitTypeInsn(CHECKCAST, Type.getInternalName(type));
+		}
+	}
+
+
+	/**
+	 * ClassLoader that the generated invokers get defined in.
+	 */
+	private static class InvokerClassLoader extends URLClassLoader {
+
+		private static final URL[] NO_URLS = new URL[0];
+
+		public InvokerClassLoader(ClassLoader parent) {
+			super(NO_URLS, parent);
+		}
+
+		public Class<?> defineClass(String name, byte[] bytes) {
+			return super.defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+
+}
@@ -0,0 +1,756 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanNameReference;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.core.AttributeAccessor;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Serializable copy of the bean definitions and aliases in a
+ * {@link BeanDefinitionRegistry}, to be restored into a fresh registry later on,
+ * typically in another JVM, without re-running the readers and registry
+ * post-processors that produced them in the first place.
+ *
+ * <p>Covers everything that bean definition readers express in the
+ * {@link AbstractBeanDefinition} model: property values and constructor arguments
+ * with bean references, typed String values, inner beans and managed collections,
+ * method overrides, qualifiers and attributes, as well as plain serializable values.
+ * Sources are not retained, and resources only by description. Restored bean
+ * definitions are {@link RootBeanDefinition RootBeanDefinitions} or, for child bean
+ * definitions, {@link GenericBeanDefinition GenericBeanDefinitions}, referring to
+ * their bean classes by name.
+ *
+ * @since 4.3.4
+ * @see #capture(BeanDefinitionRegistry)
+ * @see #restore(BeanDefinitionRegistry)
+ */
+public final class BeanDefinitionSnapshot implements Serializable {
+
+	private final List<Entry> entries;
+
+
+	private BeanDefinitionSnapshot(List<Entry> entries) {
+		this.entries = entries;
+	}
+
+
+	/**
+	 * Capture the bean definitions and aliases in the given registry,
+	 * in registration order.
+	 * @param registry the registry to capture
+	 * @return the snapshot
+	 * @throws BeanDefinitionStoreException if a bean definition cannot be captured,
+	 * e.g. because it contains a value that is not serializable
+	 */
+	public static BeanDefinitionSnapshot capture(BeanDefinitionRegistry registry) throws BeanDefinitionStoreException {
+		String[] beanNames = registry.getBeanDefinitionNames();
+		List<Entry> entries = new ArrayList<Entry>(beanNames.length);
+		for (String beanName : beanNames) {
+			BeanDefinition bd = registry.getBeanDefinition(beanName);
+			entries.add(new Entry(beanName, new DefinitionState(bd, beanName), registry.getAliases(beanName)));
+		}
+		return new BeanDefinitionSnapshot(entries);
+	}
+
+
+	/**
+	 * Return the number of bean definitions in this snapshot.
+	 */
+	public int getBeanDefinitionCount() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Register the bean definitions and aliases of this snapshot with the given
+	 * registry, replacing any existing bean definitions of the same name.
+	 * @param registry the registry to restore the bean definitions into
+	 * @throws BeanDefinitionStoreException if a bean definition cannot be registered
+	 */
+	public void restore(BeanDefinitionRegistry registry) throws BeanDefinitionStoreException {
+		for (Entry entry : this.entries) {
+			if (registry.containsBeanDefinition(entry.beanName)) {
+				registry.removeBeanDefinition(entry.beanName);
+			}
+			registry.registerBeanDefinition(entry.beanName, entry.definition.toBeanDefinition());
+			for (String alias : entry.aliases) {
+				registry.registerAlias(entry.beanName, alias);
+			}
+		}
+	}
+
+
+	private static Object captureValue(Object value, String beanName) {
+		if (value == null || value instanceof String) {
+			return value;
+		}
+		if (value instanceof BeanDefinitionHolder) {
+			BeanDefinitionHolder holder = (BeanDefinitionHolder) value;
+			return new HolderState(new DefinitionState(holder.getBeanDefinition(), holder.getBeanName()),
+					holder.getBeanName(), holder.getAliases());
+		}
+		if (value instanceof BeanDefinition) {
+			return new DefinitionState((BeanDefinition) value, beanName);
+		}
+		if (value instanceof RuntimeBeanReference) {
+			RuntimeBeanReference ref = (RuntimeBeanReference) value;
+			return new ReferenceState(ref.getBeanName(), ref.isToParent(), false);
+		}
+		if (value instanceof RuntimeBeanNameReference) {
+			return new ReferenceState(((RuntimeBeanNameReference) value).getBeanName(), false, true);
+		}
+		if (value instanceof TypedStringValue) {
+			return new TypedStringValueState((TypedStringValue) value);
+		}
+		if (value instanceof ManagedArray || value instanceof ManagedList || value instanceof ManagedSet ||
+				value instanceof ManagedMap || value instanceof ManagedProperties) {
+			return new CollectionState(value, beanName);
+		}
+		if (value instanceof Serializable && isPlainValue(value, beanName)) {
+			return value;
+		}
+		throw new BeanDefinitionStoreException(null, beanName,
+				"Value of type [" + value.getClass().getName() + "] cannot be captured in a snapshot");
+	}
+
+	/**
+	 * Check that the given serializable value does not contain any bean metadata
+	 * elements that would need to be captured themselves.
+	 */
+	private static boolean isPlainValue(Object value, String beanName) {
+		if (value instanceof Object[]) {
+			for (Object element : (Object[]) value) {
+				if (captureValue(element, beanName) != element) {
+					return false;
+				}
+			}
+		}
+		else if (value instanceof Collection) {
+			for (Object element : (Collection<?>) value) {
+				if (captureValue(element, beanName) != element) {
+					return false;
+				}
+			}
+		}
+		else if (value instanceof Map) {
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				if (captureValue(entry.getKey(), beanName) != entry.getKey() ||
+						captureValue(entry.getValue(), beanName) != entry.getValue()) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static Object restoreValue(Object state) {
+		if (state instanceof ValueState) {
+			return ((ValueState) state).toValue();
+		}
+		return state;
+	}
+
+	private static Map<String, Object> captureAttributes(AttributeAccessor accessor, String beanName) {
+		String[] names = accessor.attributeNames();
+		Map<String, Object> attributes = new LinkedHashMap<String, Object>(names.length);
+		for (String name : names) {
+			Object value = accessor.getAttribute(name);
+			if (value != null && !(value instanceof Serializable)) {
+				throw new BeanDefinitionStoreException(null, beanName, "Attribute '" + name + "' of type [" +
+						value.getClass().getName() + "] cannot be captured in a snapshot");
+			}
+			attributes.put(name, value);
+		}
+		return attributes;
+	}
+
+	private static void restoreAttributes(Map<String, Object> attributes, AttributeAccessor accessor) {
+		for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+			accessor.setAttribute(attribute.getKey(), attribute.getValue());
+		}
+	}
+
+
+	/**
+	 * A named bean definition with its aliases.
+	 */
+	private static class Entry implements Serializable {
+
+		final String beanName;
+
+		final DefinitionState definition;
+
+		final String[] aliases;
+
+		Entry(String beanName, DefinitionState definition, String[] aliases) {
+			this.beanName = beanName;
+			this.definition = definition;
+			this.aliases = aliases;
+		}
+	}
+
+
+	/**
+	 * Captured value that needs to be turned back into bean metadata on restore.
+	 */
+	private interface ValueState extends Serializable {
+
+		Object toValue();
+	}
+
+
+	/**
+	 * Captured state of an {@link AbstractBeanDefinition}.
+	 */
+	private static class DefinitionState implements ValueState {
+
+		private final boolean root;
+
+		private final String parentName;
+
+		private final String beanClassName;
+
+		private final String scope;
+
+		private final boolean abstractFlag;
+
+		private final boolean lazyInit;
+
+		private final int autowireMode;
+
+		private final int dependencyCheck;
+
+		private final String[] dependsOn;
+
+		private final boolean autowireCandidate;
+
+		private final boolean primary;
+
+		private final List<QualifierState> qualifiers = new ArrayList<QualifierState>();
+
+		private final boolean nonPublicAccessAllowed;
+
+		private final boolean lenientConstructorResolution;
+
+		private final Map<Integer, ArgumentState> indexedArguments = new LinkedHashMap<Integer, ArgumentState>();
+
+		private final List<ArgumentState> genericArguments = new ArrayList<ArgumentState>();
+
+		private final List<PropertyState> propertyValues = new ArrayList<PropertyState>();
+
+		private final List<OverrideState> methodOverrides = new ArrayList<OverrideState>();
+
+		private final String factoryBeanName;
+
+		private final String factoryMethodName;
+
+		private final boolean factoryMethodUnique;
+
+		private final String initMethodName;
+
+		private final String destroyMethodName;
+
+		private final boolean enforceInitMethod;
+
+		private final boolean enforceDestroyMethod;
+
+		private final boolean synthetic;
+
+		private final int role;
+
+		private final String description;
+
+		private final String resourceDescription;
+
+		private final String targetTypeName;
+
+		private final HolderState decoratedDefinition;
+
+		private final Map<String, Object> attributes;
+
+		DefinitionState(BeanDefinition original, String beanName) {
+			if (!(original instanceof AbstractBeanDefinition)) {
+				throw new BeanDefinitionStoreException(original.getResourceDescription(), beanName,
+						"Bean definition of type [" + original.getClass().getName() + "] cannot be captured in a snapshot");
+			}
+			AbstractBeanDefinition bd = (AbstractBeanDefinition) original;
+			this.root = (bd instanceof RootBeanDefinition);
+			this.parentName = bd.getParentName();
+			this.beanClassName = bd.getBeanClassName();
+			this.scope = bd.getScope();
+			this.abstractFlag = bd.isAbstract();
+			this.lazyInit = bd.isLazyInit();
+			this.autowireMode = bd.getAutowireMode();
+			this.dependencyCheck = bd.getDependencyCheck();
+			this.dependsOn = bd.getDependsOn();
+			this.autowireCandidate = bd.isAutowireCandidate();
+			this.primary = bd.isPrimary();
+			for (AutowireCandidateQualifier qualifier : bd.getQualifiers()) {
+				this.qualifiers.add(new QualifierState(qualifier.getTypeName(), captureAttributes(qualifier, beanName)));
+			}
+			this.nonPublicAccessAllowed = bd.isNonPublicAccessAllowed();
+			this.lenientConstructorResolution = bd.isLenientConstructorResolution();
+			ConstructorArgumentValues cargs = bd.getConstructorArgumentValues();
+			for (Map.Entry<Integer, ConstructorArgumentValues.ValueHolder> entry : cargs.getIndexedArgumentValues().entrySet()) {
+				this.indexedArguments.put(entry.getKey(), new ArgumentState(entry.getValue(), beanName));
+			}
+			for (ConstructorArgumentValues.ValueHolder valueHolder : cargs.getGenericArgumentValues()) {
+				this.genericArguments.add(new ArgumentState(valueHolder, beanName));
+			}
+			for (PropertyValue pv : bd.getPropertyValues().getPropertyValues()) {
+				this.propertyValues.add(new PropertyState(pv, beanName));
+			}
+			for (MethodOverride override : bd.getMethodOverrides().getOverrides()) {
+				this.methodOverrides.add(new OverrideState(override));
+			}
+			this.factoryBeanName = bd.getFactoryBeanName();
+			this.factoryMethodName = bd.getFactoryMethodName();
+			this.initMethodName = bd.getInitMethodName();
+			this.destroyMethodName = bd.getDestroyMethodName();
+			this.enforceInitMethod = bd.isEnforceInitMethod();
+			this.enforceDestroyMethod = bd.isEnforceDestroyMethod();
+			this.synthetic = bd.isSynthetic();
+			this.role = bd.getRole();
+			this.description = bd.getDescription();
+			this.resourceDescription = bd.getResourceDescription();
+			if (bd instanceof RootBeanDefinition) {
+				RootBeanDefinition rbd = (RootBeanDefinition) bd;
+				if (rbd.getQualifiedElement() != null) {
+					throw new BeanDefinitionStoreException(this.resourceDescription, beanName,
+							"Qualified element cannot be captured in a snapshot");
+				}
+				if (rbd.targetType != null && rbd.targetType.hasGenerics()) {
+					throw new BeanDefinitionStoreException(this.resourceDescription, beanName,
+							"Generic target type cannot be captured in a snapshot");
+				}
+				this.factoryMethodUnique = rbd.isFactoryMethodUnique;
+				this.targetTypeName = (rbd.getTargetType() != null ? rbd.getTargetType().getName() : null);
+				BeanDefinitionHolder holder = rbd.getDecoratedDefinition();
+				this.decoratedDefinition = (holder != null ? (HolderState) captureValue(holder, beanName) : null);
+			}
+			else {
+				this.factoryMethodUnique = false;
+				this.targetTypeName = null;
+				this.decoratedDefinition = null;
+			}
+			this.attributes = captureAttributes(bd, beanName);
+		}
+
+		@Override
+		public Object toValue() {
+			return toBeanDefinition();
+		}
+
+		AbstractBeanDefinition toBeanDefinition() {
+			AbstractBeanDefinition bd;
+			if (this.root) {
+				RootBeanDefinition rbd = new RootBeanDefinition();
+				if (this.targetTypeName != null) {
+					try {
+						rbd.setTargetType(ClassUtils.forName(this.targetTypeName, null));
+					}
+					catch (ClassNotFoundException ex) {
+						throw new BeanDefinitionStoreException(this.resourceDescription, null,
+								"Target type [" + this.targetTypeName + "] not found", ex);
+					}
+				}
+				if (this.decoratedDefinition != null) {
+					rbd.setDecoratedDefinition(this.decoratedDefinition.toValue());
+				}
+				bd = rbd;
+			}
+			else {
+				GenericBeanDefinition gbd = new GenericBeanDefinition();
+				gbd.setParentName(this.parentName);
+				bd = gbd;
+			}
+			bd.setBeanClassName(this.beanClassName);
+			bd.setScope(this.scope);
+			bd.setAbstract(this.abstractFlag);
+			bd.setLazyInit(this.lazyInit);
+			bd.setAutowireMode(this.autowireMode);
+			bd.setDependencyCheck(this.dependencyCheck);
+			bd.setDependsOn(this.dependsOn);
+			bd.setAutowireCandidate(this.autowireCandidate);
+			bd.setPrimary(this.primary);
+			for (QualifierState qualifier : this.qualifiers) {
+				bd.addQualifier(qualifier.toQualifier());
+			}
+			bd.setNonPublicAccessAllowed(this.nonPublicAccessAllowed);
+			bd.setLenientConstructorResolution(this.lenientConstructorResolution);
+			ConstructorArgumentValues cargs = bd.getConstructorArgumentValues();
+			for (Map.Entry<Integer, ArgumentState> entry : this.indexedArguments.entrySet()) {
+				cargs.addIndexedArgumentValue(entry.getKey(), entry.getValue().toValueHolder());
+			}
+			for (ArgumentState argument : this.genericArguments) {
+				cargs.addGenericArgumentValue(argument.toValueHolder());
+			}
+			MutablePropertyValues pvs = bd.getPropertyValues();
+			for (PropertyState property : this.propertyValues) {
+				pvs.addPropertyValue(property.toPropertyValue());
+			}
+			for (OverrideState override : this.methodOverrides) {
+				bd.getMethodOverrides().addOverride(override.toMethodOverride());
+			}
+			bd.setFactoryBeanName(this.factoryBeanName);
+			if (this.factoryMethodUnique) {
+				((RootBeanDefinition) bd).setUniqueFactoryMethodName(this.factoryMethodName);
+			}
+			else {
+				bd.setFactoryMethodName(this.factoryMethodName);
+			}
+			bd.setInitMethodName(this.initMethodName);
+			bd.setDestroyMethodName(this.destroyMethodName);
+			bd.setEnforceInitMethod(this.enforceInitMethod);
+			bd.setEnforceDestroyMethod(this.enforceDestroyMethod);
+			bd.setSynthetic(this.synthetic);
+			bd.setRole(this.role);
+			bd.setDescription(this.description);
+			if (this.resourceDescription != null) {
+				bd.setResourceDescription(this.resourceDescription);
+			}
+			restoreAttributes(this.attributes, bd);
+			return bd;
+		}
+	}
+
+
+	/**
+	 * Captured state of a {@link BeanDefinitionHolder}.
+	 */
+	private static class HolderState implements ValueState {
+
+		private final DefinitionState definition;
+
+		private final String beanName;
+
+		private final String[] aliases;
+
+		HolderState(DefinitionState definition, String beanName, String[] aliases) {
+			this.definition = definition;
+			this.beanName = beanName;
+			this.aliases = aliases;
+		}
+
+		@Override
+		public BeanDefinitionHolder toValue() {
+			return new BeanDefinitionHolder(this.definition.toBeanDefinition(), this.beanName, this.aliases);
+		}
+	}
+
+
+	/**
+	 * Captured state of a {@link RuntimeBeanReference} or {@link RuntimeBeanNameReference}.
+	 */
+	private static class ReferenceState implements ValueState {
+
+		private final String beanName;
+
+		private final boolean toParent;
+
+		private final boolean nameOnly;
+
+		ReferenceState(String beanName, boolean toParent, boolean nameOnly) {
+			this.beanName = beanName;
+			this.toParent = toParent;
+			this.nameOnly = nameOnly;
+		}
+
+		@Override
+		public Object toValue() {
+			return (this.nameOnly ? new RuntimeBeanNameReference(this.beanName) :
+					new RuntimeBeanReference(this.beanName, this.toParent));
+		}
+	}
+
+
+	/**
+	 * Captured state of a {@link TypedStringValue}.
+	 */
+	private static class TypedStringValueState implements ValueState {
+
+		private final String value;
+
+		private final String targetTypeName;
+
+		private final boolean dynamic;
+
+		TypedStringValueState(TypedStringValue original) {
+			this.value = original.getValue();
+			this.targetTypeName = original.getTargetTypeName();
+			this.dynamic = original.isDynamic();
+		}
+
+		@Override
+		public Object toValue() {
+			TypedStringValue typedStringValue = new TypedStringValue(this.value);
+			if (this.targetTypeName != null) {
+				typedStringValue.setTargetTypeName(this.targetTypeName);
+			}
+			if (this.dynamic) {
+				typedStringValue.setDynamic();
+			}
+			return typedStringValue;
+		}
+	}
+
+
+	/**
+	 * Captured state of a managed array, List, Set, Map or Properties instance.
+	 * Map entries are kept as alternating keys and values.
+	 */
+	private static class CollectionState implements ValueState {
+
+		private final Class<?> collectionType;
+
+		private final String elementTypeName;
+
+		private final String valueTypeName;
+
+		private final boolean mergeEnabled;
+
+		private final Object[] elements;
+
+		CollectionState(Object collection, String beanName) {
+			this.collectionType = collection.getClass();
+			List<Object> elements = new ArrayList<Object>();
+			if (collection instanceof ManagedMap) {
+				ManagedMap<?, ?> map = (ManagedMap<?, ?>) collection;
+				this.elementTypeName = map.getKeyTypeName();
+				this.valueTypeName = map.getValueTypeName();
+				this.mergeEnabled = map.isMergeEnabled();
+				addEntries(map, elements, beanName);
+			}
+			else if (collection instanceof ManagedProperties) {
+				ManagedProperties props = (ManagedProperties) collection;
+				this.elementTypeName = null;
+				this.valueTypeName = null;
+				this.mergeEnabled = props.isMergeEnabled();
+				addEntries(props, elements, beanName);
+			}
+			else if (collection instanceof ManagedSet) {
+				ManagedSet<?> set = (ManagedSet<?>) collection;
+				this.elementTypeName = set.getElementTypeName();
+				this.valueTypeName = null;
+				this.mergeEnabled = set.isMergeEnabled();
+				for (Object element : set) {
+					elements.add(captureValue(element, beanName));
+				}
+			}
+			else {
+				ManagedList<?> list = (ManagedList<?>) collection;
+				this.elementTypeName = list.getElementTypeName();
+				this.valueTypeName = null;
+				this.mergeEnabled = list.isMergeEnabled();
+				for (Object element : list) {
+					elements.add(captureValue(element, beanName));
+				}
+			}
+			this.elements = elements.toArray();
+		}
+
+		private static void addEntries(Map<?, ?> map, List<Object> elements, String beanName) {
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				elements.add(captureValue(entry.getKey(), beanName));
+				elements.add(captureValue(entry.getValue(), beanName));
+			}
+		}
+
+		@Override
+		public Object toValue() {
+			if (ManagedMap.class.isAssignableFrom(this.collectionType)) {
+				ManagedMap<Object, Object> map = new ManagedMap<Object, Object>(this.elements.length / 2);
+				map.setKeyTypeName(this.elementTypeName);
+				map.setValueTypeName(this.valueTypeName);
+				map.setMergeEnabled(this.mergeEnabled);
+				for (int i = 0; i < this.elements.length; i += 2) {
+					map.put(restoreValue(this.elements[i]), restoreValue(this.elements[i + 1]));
+				}
+				return map;
+			}
+			if (ManagedProperties.class.isAssignableFrom(this.collectionType)) {
+				ManagedProperties props = new ManagedProperties();
+				props.setMergeEnabled(this.mergeEnabled);
+				for (int i = 0; i < this.elements.length; i += 2) {
+					props.put(restoreValue(this.elements[i]), restoreValue(this.elements[i + 1]));
+				}
+				return props;
+			}
+			if (ManagedSet.class.isAssignableFrom(this.collectionType)) {
+				ManagedSet<Object> set = new ManagedSet<Object>(this.elements.length);
+				set.setElementTypeName(this.elementTypeName);
+				set.setMergeEnabled(this.mergeEnabled);
+				for (Object element : this.elements) {
+					set.add(restoreValue(element));
+				}
+				return set;
+			}
+			ManagedList<Object> list = (ManagedArray.class.isAssignableFrom(this.collectionType) ?
+					new ManagedArray(this.elementTypeName, this.elements.length) :
+					new ManagedList<Object>(this.elements.length));
+			list.setElementTypeName(this.elementTypeName);
+			list.setMergeEnabled(this.mergeEnabled);
+			for (Object element : this.elements) {
+				list.add(restoreValue(element));
+			}
+			return list;
+		}
+	}
+
+
+	/**
+	 * Captured state of a constructor argument.
+	 */
+	private static class ArgumentState implements Serializable {
+
+		private final Object value;
+
+		private final String type;
+
+		private final String name;
+
+		ArgumentState(ConstructorArgumentValues.ValueHolder valueHolder, String beanName) {
+			this.value = captureValue(valueHolder.getValue(), beanName);
+			this.type = valueHolder.getType();
+			this.name = valueHolder.getName();
+		}
+
+		ConstructorArgumentValues.ValueHolder toValueHolder() {
+			return new ConstructorArgumentValues.ValueHolder(restoreValue(this.value), this.type, this.name);
+		}
+	}
+
+
+	/**
+	 * Captured state of a property value.
+	 */
+	private static class PropertyState implements Serializable {
+
+		private final String name;
+
+		private final Object value;
+
+		private final boolean optional;
+
+		private final Map<String, Object> attributes;
+
+		PropertyState(PropertyValue pv, String beanName) {
+			this.name = pv.getName();
+			this.value = captureValue(pv.getValue(), beanName);
+			this.optional = pv.isOptional();
+			this.attributes = captureAttributes(pv, beanName);
+		}
+
+		PropertyValue toPropertyValue() {
+			PropertyValue pv = new PropertyValue(this.name, restoreValue(this.value));
+			pv.setOptional(this.optional);
+			restoreAttributes(this.attributes, pv);
+			return pv;
+		}
+	}
+
+
+	/**
+	 * Captured state of an {@link AutowireCandidateQualifier}.
+	 */
+	private static class QualifierState implements Serializable {
+
+		private final String typeName;
+
+		private final Map<String, Object> attributes;
+
+		QualifierState(String typeName, Map<String, Object> attributes) {
+			this.typeName = typeName;
+			this.attributes = attributes;
+		}
+
+		AutowireCandidateQualifier toQualifier() {
+			AutowireCandidateQualifier qualifier = new AutowireCandidateQualifier(this.typeName);
+			restoreAttributes(this.attributes, qualifier);
+			return qualifier;
+		}
+	}
+
+
+	/**
+	 * Captured state of a {@link LookupOverride} or {@link ReplaceOverride}.
+	 */
+	private static class OverrideState implements Serializable {
+
+		private final String methodName;
+
+		private final String beanName;
+
+		private final boolean lookup;
+
+		private final String[] typeIdentifiers;
+
+		private final boolean overloaded;
+
+		OverrideState(MethodOverride override) {
+			this.methodName = override.getMethodName();
+			this.overloaded = override.isOverloaded();
+			if (override instanceof LookupOverride) {
+				this.beanName = ((LookupOverride) override).getBeanName();
+				this.lookup = true;
+				this.typeIdentifiers = null;
+			}
+			else if (override instanceof ReplaceOverride) {
+				ReplaceOverride replaceOverride = (ReplaceOverride) override;
+				this.beanName = replaceOverride.getMethodReplacerBeanName();
+				this.lookup = false;
+				this.typeIdentifiers = replaceOverride.getTypeIdentifiers().toArray(new String[0]);
+			}
+			else {
+				throw new BeanDefinitionStoreException("Method override of type [" +
+						override.getClass().getName() + "] cannot be captured in a snapshot");
+			}
+		}
+
+		MethodOverride toMethodOverride() {
+			MethodOverride override;
+			if (this.lookup) {
+				override = new LookupOverride(this.methodName, this.beanName);
+			}
+			else {
+				ReplaceOverride replaceOverride = new ReplaceOverride(this.methodName, this.beanName);
+				for (String typeIdentifier : this.typeIdentifiers) {
+					replaceOverride.addTypeIdentifier(typeIdentifier);
+				}
+				override = replaceOverride;
+			}
+			override.setOverloaded(this.overloaded);
+			return override;
+		}
+	}
+
+}
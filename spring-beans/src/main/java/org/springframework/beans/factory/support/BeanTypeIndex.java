@@ -0,0 +1,283 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Index from types to the names of the beans in a {@link DefaultListableBeanFactory}
+ * that may match them, built from the predicted types of all bean definitions once
+ * the factory's configuration has been frozen.
+ *
+ * <p>Every class and interface in the hierarchy of a bean's predicted type maps to
+ * the name of that bean. By-type lookups then only need to check the candidates for
+ * the raw type to match, with any generic refinement applied to those candidates only.
+ * Beans whose type cannot be reliably predicted upfront - FactoryBeans, decorated
+ * definitions, beans without predictable type, singletons whose actual instance
+ * turns out to be of a different class than predicted (e.g. a proxy), and
+ * non-singletons whose predicted type may be changed by a post-processor - are
+ * candidates for every type.
+ *
+ * <p>The index never excludes a bean that a full scan would match; it just narrows
+ * down the bean definitions to check.
+ *
+ * @since 4.3.4
+ * @see DefaultListableBeanFactory#freezeConfiguration()
+ */
+class BeanTypeIndex {
+
+	private static final Log logger = LogFactory.getLog(BeanTypeIndex.class);
+
+	private static final int[] NO_POSITIONS = new int[0];
+
+
+	private final String[] beanNames;
+
+	private final ClassLoader beanClassLoader;
+
+	/** Bean name --> position in the registration order */
+	private final Map<String, Integer> positions;
+
+	/** Bean name --> predicted type, for the beans indexed by type */
+	private final Map<String, Class<?>> indexedTypes;
+
+	/** Type --> positions of the beans of that type, in registration order */
+	private final Map<Class<?>, int[]> positionsByType;
+
+	/** Positions of the beans that are candidates for every type */
+	private final int[] untypedPositions;
+
+	/** Positions of singletons turned out to be of a different type than indexed, guarded by the cache */
+	private int[] retypedPositions = NO_POSITIONS;
+
+	/** Type --> candidate bean names */
+	private final Map<Class<?>, String[]> candidateNamesByType = new ConcurrentHashMap<Class<?>, String[]>(64);
+
+
+	/**
+	 * Build the index for the given bean definitions.
+	 * @param beanFactory the bean factory that the bean definitions belong to
+	 * @param beanNames the names of all bean definitions, in registration order
+	 */
+	public BeanTypeIndex(DefaultListableBeanFactory beanFactory, String[] beanNames) {
+		this.beanNames = beanNames;
+		this.beanClassLoader = beanFactory.getBeanClassLoader();
+		this.positions = new HashMap<String, Integer>(beanNames.length * 2);
+		this.indexedTypes = new HashMap<String, Class<?>>(beanNames.length * 2);
+		Map<Class<?>, List<Integer>> positionLists = new HashMap<Class<?>, List<Integer>>(beanNames.length * 2);
+		List<Integer> untyped = new ArrayList<Integer>();
+		Map<Class<?>, Set<Class<?>>> hierarchies = new HashMap<Class<?>, Set<Class<?>>>();
+
+		for (int i = 0; i < beanNames.length; i++) {
+			String beanName = beanNames[i];
+			this.positions.put(beanName, i);
+			Class<?> beanType;
+			try {
+				RootBeanDefinition mbd = beanFactory.getMergedLocalBeanDefinition(beanName);
+				if (mbd.isAbstract()) {
+					// Never a candidate
+					continue;
+				}
+				beanType = predictIndexableType(beanFactory, beanName, mbd);
+			}
+			catch (Throwable ex) {
+				// Left to the checks on lookup, just like without index.
+				if (logger.isDebugEnabled()) {
+					logger.debug("Cannot predict type of bean '" + beanName + "' for type index: " + ex);
+				}
+				beanType = null;
+			}
+			if (beanType == null) {
+				untyped.add(i);
+				continue;
+			}
+			this.indexedTypes.put(beanName, beanType);
+			Set<Class<?>> hierarchy = hierarchies.get(beanType);
+			if (hierarchy == null) {
+				hierarchy = new LinkedHashSet<Class<?>>();
+				collectHierarchy(beanType, hierarchy);
+				hierarchies.put(beanType, hierarchy);
+			}
+			for (Class<?> type : hierarchy) {
+				List<Integer> positionList = positionLists.get(type);
+				if (positionList == null) {
+					positionList = new ArrayList<Integer>();
+					positionLists.put(type, positionList);
+				}
+				positionList.add(i);
+			}
+		}
+
+		this.positionsByType = new HashMap<Class<?>, int[]>(positionLists.size() * 2);
+		for (Map.Entry<Class<?>, List<Integer>> entry : positionLists.entrySet()) {
+			this.positionsByType.put(entry.getKey(), toArray(entry.getValue()));
+		}
+		this.untypedPositions = toArray(untyped);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Indexed " + this.indexedTypes.size() + " of " + beanNames.length + " bean definitions by " +
+					this.positionsByType.size() + " types");
+		}
+	}
+
+	/**
+	 * Predict the type of the given bean for indexing purposes, without initializing
+	 * anything.
+	 * @return the type, or {@code null} if the bean has to be checked for every type
+	 */
+	private static Class<?> predictIndexableType(
+			DefaultListableBeanFactory beanFactory, String beanName, RootBeanDefinition mbd) {
+
+		if (mbd.getDecoratedDefinition() != null ||
+				(!mbd.hasBeanClass() && mbd.isLazyInit() && !beanFactory.isAllowEagerClassLoading()) ||
+				(mbd.getFactoryBeanName() != null && beanFactory.isFactoryBean(mbd.getFactoryBeanName()) &&
+						!beanFactory.containsSingleton(mbd.getFactoryBeanName()))) {
+			return null;
+		}
+		if (!mbd.isSingleton() && beanFactory.hasInstantiationAwareBeanPostProcessors()) {
+			// A SmartInstantiationAwareBeanPostProcessor may predict another type
+			// once an instance has been created, e.g. an auto-proxy creator
+			return null;
+		}
+		Class<?> beanType = beanFactory.predictBeanType(beanName, mbd);
+		if (beanType == null || beanType.isArray() || beanType.isPrimitive() ||
+				FactoryBean.class.isAssignableFrom(beanType)) {
+			return null;
+		}
+		Object singletonObject = beanFactory.getSingleton(beanName, false);
+		if (singletonObject != null && singletonObject.getClass() != beanType) {
+			// Instance registered or created already, possibly a proxy
+			return null;
+		}
+		return beanType;
+	}
+
+	private static void collectHierarchy(Class<?> type, Set<Class<?>> hierarchy) {
+		if (type == null || !hierarchy.add(type)) {
+			return;
+		}
+		collectHierarchy(type.getSuperclass(), hierarchy);
+		for (Class<?> ifc : type.getInterfaces()) {
+			collectHierarchy(ifc, hierarchy);
+		}
+	}
+
+
+	/**
+	 * Return the names of the beans that may match the given type, in registration order.
+	 * @param type the raw type to match
+	 * @return the candidate names, or {@code null} if the index does not apply to the
+	 * given type and all bean definitions need to be checked
+	 */
+	public String[] getCandidateNames(Class<?> type) {
+		if (type == null || type == Object.class || type.isArray() || type.isPrimitive()) {
+			return null;
+		}
+		String[] candidateNames = this.candidateNamesByType.get(type);
+		if (candidateNames != null) {
+			return candidateNames;
+		}
+		synchronized (this.candidateNamesByType) {
+			int[] typedPositions = this.positionsByType.get(type);
+			int[] candidatePositions = merge(merge(
+					(typedPositions != null ? typedPositions : NO_POSITIONS), this.untypedPositions), this.retypedPositions);
+			candidateNames = new String[candidatePositions.length];
+			for (int i = 0; i < candidatePositions.length; i++) {
+				candidateNames[i] = this.beanNames[candidatePositions[i]];
+			}
+			if (ClassUtils.isCacheSafe(type, this.beanClassLoader)) {
+				this.candidateNamesByType.put(type, candidateNames);
+			}
+			return candidateNames;
+		}
+	}
+
+	/**
+	 * Take note of the given singleton instance, turning its bean into a candidate
+	 * for every type if the instance is not of the type that it has been indexed by.
+	 * @param beanName the name of the bean
+	 * @param singletonObject the singleton instance
+	 * @return {@code true} if the bean has been turned into a candidate for every type,
+	 * or {@code false} if its index entries remain valid
+	 */
+	public boolean registerSingleton(String beanName, Object singletonObject) {
+		Class<?> indexedType = this.indexedTypes.get(beanName);
+		if (indexedType == null || singletonObject.getClass() == indexedType) {
+			return false;
+		}
+		synchronized (this.candidateNamesByType) {
+			int position = this.positions.get(beanName);
+			if (Arrays.binarySearch(this.retypedPositions, position) >= 0) {
+				return false;
+			}
+			this.retypedPositions = merge(this.retypedPositions, new int[] {position});
+			this.candidateNamesByType.clear();
+			return true;
+		}
+	}
+
+
+	private static int[] toArray(List<Integer> list) {
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+
+	/**
+	 * Merge the given ascending position arrays into one, without duplicates.
+	 */
+	private static int[] merge(int[] a, int[] b) {
+		if (b.length == 0) {
+			return a;
+		}
+		if (a.length == 0) {
+			return b;
+		}
+		int[] result = new int[a.length + b.length];
+		int i = 0;
+		int j = 0;
+		int k = 0;
+		while (i < a.length || j < b.length) {
+			if (j == b.length || (i < a.length && a[i] < b[j])) {
+				result[k++] = a[i++];
+			}
+			else if (i == a.length || b[j] < a[i]) {
+				result[k++] = b[j++];
+			}
+			else {
+				result[k++] = a[i++];
+				j++;
+			}
+		}
+		return (k < result.length ? Arrays.copyOf(result, k) : result);
+	}
+
+}
@@ -40,6 +40,7 @@ import org.springframework.beans.TypeConverter;
 import org.springframework.beans.TypeMismatchException;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.InjectionPoint;
 import org.springframework.beans.factory.UnsatisfiedDependencyException;
 import org.springframework.beans.factory.config.ConstructorArgumentValues;
@@ -737,11 +738,14 @@ class ConstructorResolver {
 							"] - did you specify the correct bean references as arguments?");
 				}
 				try {
+					Set<String> argumentBeanNames = new LinkedHashSet<String>(2);
 					Object autowiredArgument =
-							resolveAutowiredArgument(methodParam, beanName, autowiredBeanNames, converter);
+							resolveAutowiredArgument(methodParam, beanName, argumentBeanNames, converter);
+					autowiredBeanNames.addAll(argumentBeanNames);
 					args.rawArguments[paramIndex] = autowiredArgument;
 					args.arguments[paramIndex] = autowiredArgument;
-					args.preparedArguments[paramIndex] = new AutowiredArgumentMarker();
+					args.preparedArguments[paramIndex] = new AutowiredArgumentMarker(
+							determineShortcut(autowiredArgument, argumentBeanNames, paramType));
 					args.resolveNecessary = true;
 				}
 				catch (BeansException ex) {
@@ -763,6 +767,21 @@ class ConstructorResolver {
 		return args;
 	}
 
+	/**
+	 * Determine the name of the bean that an autowired argument has been resolved to,
+	 * if it can be obtained by that name directly when re-creating the same bean.
+	 */
+	private String determineShortcut(Object autowiredArgument, Set<String> argumentBeanNames, Class<?> paramType) {
+		if (autowiredArgument != null && argumentBeanNames.size() == 1) {
+			String argumentBeanName = argumentBeanNames.iterator().next();
+			if (this.beanFactory.containsBean(argumentBeanName) &&
+					this.beanFactory.isTypeMatch(argumentBeanName, paramType)) {
+				return argumentBeanName;
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Resolve the prepared arguments stored in the given bean definition.
 	 */
@@ -782,7 +801,15 @@ class ConstructorResolver {
 			MethodParameter methodParam = MethodParameter.forMethodOrConstructor(methodOrCtor, argIndex);
 			GenericTypeResolver.resolveParameterType(methodParam, methodOrCtor.getDeclaringClass());
 			if (argValue instanceof AutowiredArgumentMarker) {
-				argValue = resolveAutowiredArgument(methodParam, beanName, null, converter);
+				String shortcut = ((AutowiredArgumentMarker) argValue).shortcut;
+				if (shortcut != null) {
+					argValue = this.beanFactory.resolveDependency(
+							new ShortcutDependencyDescriptor(methodParam, shortcut, paramTypes[argIndex]),
+							beanName, null, converter);
+				}
+				else {
+					argValue = resolveAutowiredArgument(methodParam, beanName, null, converter);
+				}
 			}
 			else if (argValue instanceof BeanMetadataElement) {
 				argValue = valueResolver.resolveValueIfNecessary("constructor argument", argValue);
@@ -915,9 +942,41 @@ class ConstructorResolver {
 
 
 	/**
-	 * Marker for autowired arguments in a cached argument array.
+	 * Marker for autowired arguments in a cached argument array,
+	 * along with the name of the bean to obtain directly, if any.
  	 */
 	private static class AutowiredArgumentMarker {
+
+		public final String shortcut;
+
+		public AutowiredArgumentMarker(String shortcut) {
+			this.shortcut = shortcut;
+		}
+	}
+
+
+	/**
+	 * DependencyDescriptor variant with a pre-resolved target bean name.
+	 */
+	@SuppressWarnings("serial")
+	private static class ShortcutDependencyDescriptor extends DependencyDescriptor {
+
+		private final String shortcut;
+
+		private final Class<?> requiredType;
+
+		public ShortcutDependencyDescriptor(MethodParameter methodParameter, String shortcut, Class<?> requiredType) {
+			super(methodParameter, true);
+			this.shortcut = shortcut;
+			this.requiredType = requiredType;
+		}
+
+		@Override
+		public Object resolveShortcut(BeanFactory beanFactory) {
+			// Fall back to regular resolution if the bean has been removed in the meantime
+			return (beanFactory.containsBean(this.shortcut) ?
+					resolveCandidate(this.shortcut, this.requiredType, beanFactory) : null);
+		}
 	}
 
 
@@ -41,6 +41,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import javax.inject.Provider;
 
 import org.springframework.beans.BeansException;
@@ -151,9 +152,15 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/** Whether to allow eager class loading even for lazy-init beans */
 	private boolean allowEagerClassLoading = true;
 
+	/** Whether to allow singletons to be created concurrently by different threads */
+	private boolean allowConcurrentSingletonCreation = false;
+
 	/** Optional OrderComparator for dependency Lists and arrays */
 	private Comparator<Object> dependencyComparator;
 
+	/** Optional Executor for creating independent singletons in parallel on pre-instantiation */
+	private Executor preInstantiationExecutor;
+
 	/** Resolver to use for checking if a bean definition is an autowire candidate */
 	private AutowireCandidateResolver autowireCandidateResolver = new SimpleAutowireCandidateResolver();
 
@@ -178,6 +185,9 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/** Cached array of bean definition names in case of frozen configuration */
 	private volatile String[] frozenBeanDefinitionNames;
 
+	/** Index of candidate bean names by type in case of frozen configuration */
+	private volatile BeanTypeIndex beanTypeIndex;
+
 	/** Whether bean definition metadata may be cached for all beans */
 	private volatile boolean configurationFrozen = false;
 
@@ -264,6 +274,34 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return this.allowEagerClassLoading;
 	}
 
+	/**
+	 * Set whether singletons may be created concurrently by different threads.
+	 * <p>Default is "false": The creation of a singleton holds the
+	 * {@link #getSingletonMutex() singleton mutex}, so a slow singleton that gets
+	 * lazily initialized at runtime blocks every other thread that requests a
+	 * singleton not created yet. Switch this flag to "true" for a per-bean lock
+	 * instead: Threads requesting the same singleton wait for its creation to finish
+	 * while unrelated singletons (as well as the objects of singleton FactoryBeans)
+	 * may be created in parallel. A circular reference between singletons created
+	 * in different threads is detected and resolved through an early reference,
+	 * if possible, instead of deadlocking.
+	 * <p>Completed singletons are always obtained without any locking.
+	 * This flag is meant to be set before any singletons get created.
+	 * @since 4.3.4
+	 * @see #setPreInstantiationExecutor
+	 */
+	public void setAllowConcurrentSingletonCreation(boolean allowConcurrentSingletonCreation) {
+		this.allowConcurrentSingletonCreation = allowConcurrentSingletonCreation;
+	}
+
+	/**
+	 * Return whether singletons may be created concurrently by different threads.
+	 * @since 4.3.4
+	 */
+	public boolean isAllowConcurrentSingletonCreation() {
+		return this.allowConcurrentSingletonCreation;
+	}
+
 	/**
 	 * Set a {@link java.util.Comparator} for dependency Lists and arrays.
 	 * @see org.springframework.core.OrderComparator
@@ -280,6 +318,42 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return this.dependencyComparator;
 	}
 
+	/**
+	 * Set an {@link Executor} for pre-instantiating singletons in parallel.
+	 * <p>Default is none, creating all non-lazy singletons one after another
+	 * on the thread calling {@link #preInstantiateSingletons()}, in registration
+	 * order. With an Executor specified, singletons that do not depend on each
+	 * other get created concurrently on the Executor's threads, each of them as
+	 * soon as the singletons that it is known to depend on have been created.
+	 * This may significantly speed up the startup of an application with several
+	 * singletons that spend time in their initialization, e.g. for establishing
+	 * connections to external resources.
+	 * <p>Dependencies are derived from "depends-on" declarations, factory beans
+	 * and bean references in constructor arguments and property values, as well as
+	 * from the dependencies registered for beans created before. Dependencies that
+	 * are only determined on creation, e.g. autowired fields, are resolved by the
+	 * creating thread, waiting for the creation of the dependency in another thread
+	 * if necessary. Singletons involved in circular references get created serially
+	 * after all other singletons, just like without an Executor.
+	 * <p>Note that specifying an Executor makes this factory allow concurrent
+	 * creation of singletons in general, just like
+	 * {@link #setAllowConcurrentSingletonCreation "allowConcurrentSingletonCreation"}.
+	 * @since 4.3.4
+	 * @see #preInstantiateSingletons()
+	 * @see #isConcurrentSingletonCreation()
+	 */
+	public void setPreInstantiationExecutor(Executor preInstantiationExecutor) {
+		this.preInstantiationExecutor = preInstantiationExecutor;
+	}
+
+	/**
+	 * Return the Executor for pre-instantiating singletons in parallel, if any.
+	 * @since 4.3.4
+	 */
+	public Executor getPreInstantiationExecutor() {
+		return this.preInstantiationExecutor;
+	}
+
 	/**
 	 * Set a custom autowire candidate resolver for this BeanFactory to use
 	 * when deciding whether a bean definition should be considered as a
@@ -320,6 +394,8 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			DefaultListableBeanFactory otherListableFactory = (DefaultListableBeanFactory) otherFactory;
 			this.allowBeanDefinitionOverriding = otherListableFactory.allowBeanDefinitionOverriding;
 			this.allowEagerClassLoading = otherListableFactory.allowEagerClassLoading;
+			this.allowConcurrentSingletonCreation = otherListableFactory.allowConcurrentSingletonCreation;
+			this.preInstantiationExecutor = otherListableFactory.preInstantiationExecutor;
 			this.autowireCandidateResolver = otherListableFactory.autowireCandidateResolver;
 			this.resolvableDependencies.putAll(otherListableFactory.resolvableDependencies);
 		}
@@ -405,8 +481,10 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	private String[] doGetBeanNamesForType(ResolvableType type, boolean includeNonSingletons, boolean allowEagerInit) {
 		List<String> result = new ArrayList<String>();
 
-		// Check all bean definitions.
-		for (String beanName : this.beanDefinitionNames) {
+		// Check all bean definitions, or just the candidates for the raw type if indexed.
+		BeanTypeIndex index = this.beanTypeIndex;
+		String[] candidateNames = (index != null ? index.getCandidateNames(type.resolve()) : null);
+		for (String beanName : (candidateNames != null ? Arrays.asList(candidateNames) : this.beanDefinitionNames)) {
 			// Only consider bean as eligible if the bean name
 			// is not defined as alias for some other bean.
 			if (!isAlias(beanName)) {
@@ -690,13 +768,20 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	@Override
 	public void clearMetadataCache() {
 		super.clearMetadataCache();
+		this.beanTypeIndex = null;
 		clearByTypeCache();
 	}
 
+	/**
+	 * Also indexes all bean definitions by the types in their predicted type's
+	 * hierarchy, narrowing down the bean definitions to check on by-type lookups,
+	 * including those for generic types.
+	 */
 	@Override
 	public void freezeConfiguration() {
 		this.configurationFrozen = true;
 		this.frozenBeanDefinitionNames = StringUtils.toStringArray(this.beanDefinitionNames);
+		this.beanTypeIndex = new BeanTypeIndex(this, this.frozenBeanDefinitionNames);
 	}
 
 	@Override
@@ -724,33 +809,14 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		// While this may not be part of the regular factory bootstrap, it does otherwise work fine.
 		List<String> beanNames = new ArrayList<String>(this.beanDefinitionNames);
 
-		// Trigger initialization of all non-lazy singleton beans...
+		// Create independent singletons in parallel, if demanded...
+		if (this.preInstantiationExecutor != null) {
+			new ParallelSingletonInstantiator(this, this.preInstantiationExecutor).instantiate(beanNames);
+		}
+
+		// Trigger initialization of all (remaining) non-lazy singleton beans...
 		for (String beanName : beanNames) {
-			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
-			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
-				if (isFactoryBean(beanName)) {
-					final FactoryBean<?> factory = (FactoryBean<?>) getBean(FACTORY_BEAN_PREFIX + beanName);
-					boolean isEagerInit;
-					if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
-						isEagerInit = AccessController.doPrivileged(new PrivilegedAction<Boolean>() {
-							@Override
-							public Boolean run() {
-								return ((SmartFactoryBean<?>) factory).isEagerInit();
-							}
-						}, getAccessControlContext());
-					}
-					else {
-						isEagerInit = (factory instanceof SmartFactoryBean &&
-								((SmartFactoryBean<?>) factory).isEagerInit());
-					}
-					if (isEagerInit) {
-						getBean(beanName);
-					}
-				}
-				else {
-					getBean(beanName);
-				}
-			}
+			preInstantiateSingleton(beanName);
 		}
 
 		// Trigger post-initialization callback for all applicable beans...
@@ -775,6 +841,50 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	}
 
 
+	/**
+	 * Trigger the initialization of the specified bean if it is a non-lazy singleton.
+	 * @param beanName the name of the bean
+	 * @see #preInstantiateSingletons()
+	 */
+	void preInstantiateSingleton(String beanName) {
+		RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+		if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
+			if (isFactoryBean(beanName)) {
+				final FactoryBean<?> factory = (FactoryBean<?>) getBean(FACTORY_BEAN_PREFIX + beanName);
+				boolean isEagerInit;
+				if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
+					isEagerInit = AccessController.doPrivileged(new PrivilegedAction<Boolean>() {
+						@Override
+						public Boolean run() {
+							return ((SmartFactoryBean<?>) factory).isEagerInit();
+						}
+					}, getAccessControlContext());
+				}
+				else {
+					isEagerInit = (factory instanceof SmartFactoryBean &&
+							((SmartFactoryBean<?>) factory).isEagerInit());
+				}
+				if (isEagerInit) {
+					getBean(beanName);
+				}
+			}
+			else {
+				getBean(beanName);
+			}
+		}
+	}
+
+	/**
+	 * This implementation returns {@code true} if concurrent singleton creation
+	 * has been {@link #setAllowConcurrentSingletonCreation allowed} or if a
+	 * {@link #setPreInstantiationExecutor pre-instantiation Executor} has been set.
+	 */
+	@Override
+	protected boolean isConcurrentSingletonCreation() {
+		return (this.allowConcurrentSingletonCreation || this.preInstantiationExecutor != null);
+	}
+
+
 	//---------------------------------------------------------------------
 	// Implementation of BeanDefinitionRegistry interface
 	//---------------------------------------------------------------------
@@ -862,6 +972,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 				this.manualSingletonNames.remove(beanName);
 			}
 			this.frozenBeanDefinitionNames = null;
+			this.beanTypeIndex = null;
 		}
 
 		if (oldBeanDefinition != null || containsSingleton(beanName)) {
@@ -907,6 +1018,9 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		// Remove the merged bean definition for the given bean, if already created.
 		clearMergedBeanDefinition(beanName);
 
+		// Drop the by-type index, which might not reflect the bean's type anymore.
+		this.beanTypeIndex = null;
+
 		// Remove corresponding bean from singleton cache, if any. Shouldn't usually
 		// be necessary, rather just meant for overriding a context's default beans
 		// (e.g. the default StaticMessageSource in a StaticApplicationContext).
@@ -956,6 +1070,17 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		clearByTypeCache();
 	}
 
+	@Override
+	protected void addSingleton(String beanName, Object singletonObject) {
+		super.addSingleton(beanName, singletonObject);
+		BeanTypeIndex index = this.beanTypeIndex;
+		if (index != null && singletonObject != null && singletonObject != NULL_OBJECT &&
+				index.registerSingleton(beanName, singletonObject)) {
+			// Instance of a different type than predicted, e.g. a proxy
+			clearByTypeCache();
+		}
+	}
+
 	@Override
 	public void destroySingleton(String beanName) {
 		super.destroySingleton(beanName);
@@ -98,6 +98,15 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	private final Set<String> singletonsCurrentlyInCreation =
 			Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>(16));
 
+	/** Per-bean locks of singletons in creation, in case of concurrent singleton creation: bean name --> lock */
+	private final Map<String, SingletonLock> singletonLocks = new ConcurrentHashMap<String, SingletonLock>(16);
+
+	/** Singletons that threads are waiting for, in case of concurrent singleton creation: thread --> bean name */
+	private final Map<Thread, String> singletonWaiters = new HashMap<Thread, String>(16);
+
+	/** Number of threads waiting for a singleton lock while holding the singleton mutex */
+	private int singletonMutexWaiters = 0;
+
 	/** Names of beans currently excluded from in creation checks */
 	private final Set<String> inCreationCheckExclusions =
 			Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>(16));
@@ -184,6 +193,10 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	protected Object getSingleton(String beanName, boolean allowEarlyReference) {
 		Object singletonObject = this.singletonObjects.get(beanName);
 		if (singletonObject == null && isSingletonCurrentlyInCreation(beanName)) {
+			if (isConcurrentSingletonCreation() && !isSingletonLockedByCurrentThread(beanName)) {
+				// Currently in creation in another thread: not to be exposed early to this thread.
+				return null;
+			}
 			synchronized (this.singletonObjects) {
 				singletonObject = this.earlySingletonObjects.get(beanName);
 				if (singletonObject == null && allowEarlyReference) {
@@ -209,6 +222,9 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 */
 	public Object getSingleton(String beanName, ObjectFactory<?> singletonFactory) {
 		Assert.notNull(beanName, "'beanName' must not be null");
+		if (isConcurrentSingletonCreation()) {
+			return getSingletonConcurrently(beanName, singletonFactory);
+		}
 		synchronized (this.singletonObjects) {
 			Object singletonObject = this.singletonObjects.get(beanName);
 			if (singletonObject == null) {
@@ -260,6 +276,226 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		}
 	}
 
+	/**
+	 * Variant of {@link #getSingleton(String, ObjectFactory)} for concurrent singleton
+	 * creation: holds a per-bean lock while creating the singleton, and the singleton
+	 * mutex only for registering the singleton as currently in creation and for
+	 * registering the created singleton. Threads requesting the same singleton wait
+	 * for its creation to finish, while other singletons may be created in parallel.
+	 * <p>A circular reference between singletons that are being created in different
+	 * threads is resolved through an early singleton reference, if available.
+	 * Otherwise, a BeanCurrentlyInCreationException is thrown, just like for an
+	 * unresolvable circular reference within a single thread.
+	 * @param beanName the name of the bean
+	 * @param singletonFactory the ObjectFactory to lazily create the singleton
+	 * with, if necessary
+	 * @return the registered singleton object
+	 * @see #isConcurrentSingletonCreation()
+	 */
+	private Object getSingletonConcurrently(String beanName, ObjectFactory<?> singletonFactory) {
+		Object singletonObject = this.singletonObjects.get(beanName);
+		if (singletonObject != null) {
+			return (singletonObject != NULL_OBJECT ? singletonObject : null);
+		}
+		if (!acquireSingletonLock(beanName)) {
+			synchronized (this.singletonObjects) {
+				singletonObject = getEarlySingleton(beanName);
+			}
+			if (singletonObject == null) {
+				throw new BeanCurrentlyInCreationException(beanName, "Requested bean is currently in creation " +
+						"in another thread which in turn waits for a bean in creation in the current thread: " +
+						"Is there an unresolvable circular reference?");
+			}
+			return (singletonObject != NULL_OBJECT ? singletonObject : null);
+		}
+		try {
+			synchronized (this.singletonObjects) {
+				singletonObject = this.singletonObjects.get(beanName);
+				if (singletonObject != null) {
+					// Created by another thread while we were waiting for the lock
+					return (singletonObject != NULL_OBJECT ? singletonObject : null);
+				}
+				if (this.singletonsCurrentlyInDestruction) {
+					throw new BeanCreationNotAllowedException(beanName,
+							"Singleton bean creation not allowed while the singletons of this factory are in destruction " +
+							"(Do not request a bean from a BeanFactory in a destroy method implementation!)");
+				}
+				if (logger.isDebugEnabled()) {
+					logger.debug("Creating shared instance of singleton bean '" + beanName + "' in thread [" +
+							Thread.currentThread().getName() + "]");
+				}
+				beforeSingletonCreation(beanName);
+			}
+			boolean newSingleton = false;
+			try {
+				singletonObject = singletonFactory.getObject();
+				newSingleton = true;
+			}
+			catch (IllegalStateException ex) {
+				// Has the singleton object implicitly appeared in the meantime ->
+				// if yes, proceed with it since the exception indicates that state.
+				singletonObject = this.singletonObjects.get(beanName);
+				if (singletonObject == null) {
+					throw ex;
+				}
+			}
+			finally {
+				synchronized (this.singletonObjects) {
+					// Register the singleton before releasing it to threads waiting for it.
+					if (newSingleton) {
+						addSingleton(beanName, singletonObject);
+					}
+					afterSingletonCreation(beanName);
+				}
+			}
+			return (singletonObject != NULL_OBJECT ? singletonObject : null);
+		}
+		finally {
+			releaseSingletonLock(beanName);
+		}
+	}
+
+	/**
+	 * Acquire the per-bean lock for creating the specified singleton (or the object
+	 * exposed by a singleton FactoryBean), in case of concurrent singleton creation.
+	 * Waits for another thread holding the lock to release it, unless that thread is,
+	 * directly or through other threads, waiting for a lock held by the current thread.
+	 * <p>The lock is reentrant: The current thread may acquire a lock that it holds
+	 * already, having to release it as many times then.
+	 * @param beanName the name of the bean
+	 * @return {@code true} if the lock has been acquired, or {@code false} if waiting
+	 * for it would deadlock, i.e. if there is a circular reference between threads
+	 * @throws BeanCreationException if interrupted while waiting for the lock
+	 * @since 4.3.4
+	 * @see #releaseSingletonLock
+	 * @see #isConcurrentSingletonCreation()
+	 */
+	protected boolean acquireSingletonLock(String beanName) {
+		Thread currentThread = Thread.currentThread();
+		boolean holdsSingletonMutex = Thread.holdsLock(this.singletonObjects);
+		while (true) {
+			SingletonLock lock;
+			synchronized (this.singletonObjects) {
+				lock = this.singletonLocks.get(beanName);
+				if (lock == null) {
+					this.singletonLocks.put(beanName, new SingletonLock(currentThread));
+					return true;
+				}
+				if (lock.owner == currentThread) {
+					lock.holdCount++;
+					return true;
+				}
+				if (isWaitingForCurrentThread(lock.owner)) {
+					return false;
+				}
+				this.singletonWaiters.put(currentThread, beanName);
+			}
+			try {
+				if (holdsSingletonMutex) {
+					// Waiting on the singleton lock itself would keep the singleton mutex
+					// from every other thread, including the one holding the lock.
+					synchronized (this.singletonObjects) {
+						this.singletonMutexWaiters++;
+						try {
+							while (this.singletonLocks.get(beanName) == lock) {
+								this.singletonObjects.wait();
+							}
+						}
+						finally {
+							this.singletonMutexWaiters--;
+						}
+					}
+				}
+				else {
+					lock.awaitRelease();
+				}
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new BeanCreationException(beanName,
+						"Interrupted while waiting for the creation of the singleton in another thread");
+			}
+			finally {
+				synchronized (this.singletonObjects) {
+					this.singletonWaiters.remove(currentThread);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Release the per-bean lock for creating the specified singleton, as acquired
+	 * through {@link #acquireSingletonLock}, waking up threads waiting for it.
+	 * @param beanName the name of the bean
+	 * @throws IllegalStateException if the lock is not held by the current thread
+	 * @since 4.3.4
+	 */
+	protected void releaseSingletonLock(String beanName) {
+		SingletonLock lock;
+		synchronized (this.singletonObjects) {
+			lock = this.singletonLocks.get(beanName);
+			if (lock == null || lock.owner != Thread.currentThread()) {
+				throw new IllegalStateException("Lock for singleton '" + beanName + "' isn't held by current thread");
+			}
+			if (--lock.holdCount > 0) {
+				return;
+			}
+			this.singletonLocks.remove(beanName);
+			if (this.singletonMutexWaiters > 0) {
+				this.singletonObjects.notifyAll();
+			}
+		}
+		lock.release();
+	}
+
+	/**
+	 * Determine whether the current thread holds the per-bean lock for creating
+	 * the specified singleton, in case of concurrent singleton creation.
+	 */
+	private boolean isSingletonLockedByCurrentThread(String beanName) {
+		SingletonLock lock = this.singletonLocks.get(beanName);
+		return (lock != null && lock.owner == Thread.currentThread());
+	}
+
+	/**
+	 * Determine whether the given thread is, directly or through other threads,
+	 * waiting for a singleton lock that the current thread holds.
+	 * <p>To be called with the singleton mutex held.
+	 */
+	private boolean isWaitingForCurrentThread(Thread thread) {
+		Set<Thread> visited = new HashSet<Thread>();
+		while (thread != null && visited.add(thread)) {
+			String awaitedBeanName = this.singletonWaiters.get(thread);
+			if (awaitedBeanName == null) {
+				return false;
+			}
+			SingletonLock lock = this.singletonLocks.get(awaitedBeanName);
+			thread = (lock != null ? lock.owner : null);
+			if (thread == Thread.currentThread()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Obtain an early reference to the specified singleton, if it has been
+	 * exposed for resolving circular references already.
+	 * <p>To be called with the singleton mutex held.
+	 */
+	private Object getEarlySingleton(String beanName) {
+		Object singletonObject = this.earlySingletonObjects.get(beanName);
+		if (singletonObject == null) {
+			ObjectFactory<?> singletonFactory = this.singletonFactories.get(beanName);
+			if (singletonFactory != null) {
+				singletonObject = singletonFactory.getObject();
+				this.earlySingletonObjects.put(beanName, singletonObject);
+				this.singletonFactories.remove(beanName);
+			}
+		}
+		return singletonObject;
+	}
+
 	/**
 	 * Register an Exception that happened to get suppressed during the creation of a
 	 * singleton bean instance, e.g. a temporary circular reference resolution problem.
@@ -308,6 +544,22 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	}
 
 
+	/**
+	 * Return whether singletons may be created concurrently by different threads.
+	 * <p>By default, the creation of a singleton holds the {@link #getSingletonMutex()
+	 * singleton mutex}, so singletons are effectively created one at a time. If this
+	 * method returns {@code true}, a per-bean lock is held instead, with the mutex only
+	 * held for registering a singleton as currently in creation; other threads requesting
+	 * the same singleton wait for its creation to finish, while other singletons may be
+	 * created in parallel. Early references to singletons in creation are only exposed to the
+	 * creating thread then, unless needed to resolve a circular reference between threads.
+	 * <p>The default implementation returns {@code false}.
+	 * @since 4.3.4
+	 */
+	protected boolean isConcurrentSingletonCreation() {
+		return false;
+	}
+
 	public void setCurrentlyInCreation(String beanName, boolean inCreation) {
 		Assert.notNull(beanName, "Bean name must not be null");
 		if (!inCreation) {
@@ -617,4 +869,33 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		return this.singletonObjects;
 	}
 
+
+	/**
+	 * Per-bean lock for the creation of a singleton, held by a single thread.
+	 */
+	private static class SingletonLock {
+
+		final Thread owner;
+
+		/** Number of times the owner has acquired the lock, guarded by the singleton mutex */
+		int holdCount = 1;
+
+		private boolean released = false;
+
+		SingletonLock(Thread owner) {
+			this.owner = owner;
+		}
+
+		synchronized void awaitRelease() throws InterruptedException {
+			while (!this.released) {
+				wait();
+			}
+		}
+
+		synchronized void release() {
+			this.released = true;
+			notifyAll();
+		}
+	}
+
 }
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.BeanCurrentlyInCreationException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+
+/**
+ * Helper class for pre-instantiating the non-lazy singletons of a
+ * {@link DefaultListableBeanFactory} in parallel on a given {@link Executor}.
+ *
+ * <p>Builds a dependency graph between the singletons from their bean definitions
+ * ("depends-on", factory bean, bean references in constructor arguments and property
+ * values, including those in inner beans and collections) and from the dependencies
+ * registered in the factory so far. Each singleton is submitted to the Executor as
+ * soon as all singletons that it depends on have been created. Singletons on a
+ * dependency cycle are never submitted; they are left to the serial pass that
+ * {@link DefaultListableBeanFactory#preInstantiateSingletons()} performs afterwards,
+ * as are singletons whose creation failed due to a circular reference that only
+ * turned up at creation time.
+ *
+ * @since 4.3.4
+ * @see DefaultListableBeanFactory#setPreInstantiationExecutor
+ */
+class ParallelSingletonInstantiator {
+
+	private static final Log logger = LogFactory.getLog(ParallelSingletonInstantiator.class);
+
+	private final DefaultListableBeanFactory beanFactory;
+
+	private final Executor executor;
+
+	private final Map<String, Node> nodes = new LinkedHashMap<String, Node>();
+
+	/** Number of submitted singletons not completed yet, guarded by this instance */
+	private int running = 0;
+
+	/** First failure of a singleton's creation, guarded by this instance */
+	private Throwable failure;
+
+
+	public ParallelSingletonInstantiator(DefaultListableBeanFactory beanFactory, Executor executor) {
+		this.beanFactory = beanFactory;
+		this.executor = executor;
+	}
+
+
+	/**
+	 * Pre-instantiate the given singletons, returning once all singletons
+	 * submitted to the Executor have been created.
+	 * @param beanNames the names of all beans in the factory
+	 * @throws org.springframework.beans.BeansException if a singleton could not be created
+	 */
+	public void instantiate(List<String> beanNames) {
+		for (String beanName : beanNames) {
+			RootBeanDefinition bd = this.beanFactory.getMergedLocalBeanDefinition(beanName);
+			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit() && !this.beanFactory.containsSingleton(beanName)) {
+				this.nodes.put(beanName, new Node(beanName));
+			}
+		}
+		List<Node> independentNodes = new ArrayList<Node>();
+		for (Node node : this.nodes.values()) {
+			for (String dependency : determineDependencies(node.beanName)) {
+				Node dependencyNode = this.nodes.get(dependency);
+				if (dependencyNode != null && dependencyNode != node) {
+					dependencyNode.dependents.add(node);
+					node.pendingDependencies++;
+				}
+			}
+			if (node.pendingDependencies == 0) {
+				independentNodes.add(node);
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Pre-instantiating " + this.nodes.size() + " singletons in parallel, starting with " +
+					independentNodes.size() + " independent ones");
+		}
+
+		boolean interrupted = false;
+		synchronized (this) {
+			for (Node node : independentNodes) {
+				submit(node);
+			}
+			while (this.running > 0) {
+				try {
+					wait();
+				}
+				catch (InterruptedException ex) {
+					// Keep waiting for the singletons in creation, not to leave them behind.
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (this.failure instanceof RuntimeException) {
+			throw (RuntimeException) this.failure;
+		}
+		if (this.failure instanceof Error) {
+			throw (Error) this.failure;
+		}
+	}
+
+	/**
+	 * Determine the names of the beans that the given bean is known to depend on.
+	 */
+	private Set<String> determineDependencies(String beanName) {
+		RootBeanDefinition mbd = this.beanFactory.getMergedLocalBeanDefinition(beanName);
+		Set<String> references = new LinkedHashSet<String>();
+		if (mbd.getDependsOn() != null) {
+			for (String dependsOnBean : mbd.getDependsOn()) {
+				references.add(dependsOnBean);
+			}
+		}
+		addReferences(mbd, references);
+		for (String dependency : this.beanFactory.getDependenciesForBean(beanName)) {
+			references.add(dependency);
+		}
+		Set<String> dependencies = new LinkedHashSet<String>(references.size());
+		for (String reference : references) {
+			dependencies.add(this.beanFactory.transformedBeanName(reference));
+		}
+		return dependencies;
+	}
+
+	private void addReferences(BeanDefinition bd, Set<String> references) {
+		if (bd.getFactoryBeanName() != null) {
+			references.add(bd.getFactoryBeanName());
+		}
+		ConstructorArgumentValues cav = bd.getConstructorArgumentValues();
+		for (ConstructorArgumentValues.ValueHolder valueHolder : cav.getIndexedArgumentValues().values()) {
+			addReferences(valueHolder.getValue(), references);
+		}
+		for (ConstructorArgumentValues.ValueHolder valueHolder : cav.getGenericArgumentValues()) {
+			addReferences(valueHolder.getValue(), references);
+		}
+		for (PropertyValue pv : bd.getPropertyValues().getPropertyValues()) {
+			addReferences(pv.getValue(), references);
+		}
+	}
+
+	private void addReferences(Object value, Set<String> references) {
+		if (value instanceof RuntimeBeanReference) {
+			references.add(((RuntimeBeanReference) value).getBeanName());
+		}
+		else if (value instanceof BeanDefinitionHolder) {
+			addInnerBeanReferences(((BeanDefinitionHolder) value).getBeanDefinition(), references);
+		}
+		else if (value instanceof BeanDefinition) {
+			addInnerBeanReferences((BeanDefinition) value, references);
+		}
+		else if (value instanceof Collection) {
+			for (Object element : (Collection<?>) value) {
+				addReferences(element, references);
+			}
+		}
+		else if (value instanceof Map) {
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				addReferences(entry.getKey(), references);
+				addReferences(entry.getValue(), references);
+			}
+		}
+	}
+
+	private void addInnerBeanReferences(BeanDefinition innerBd, Set<String> references) {
+		if (innerBd.getDependsOn() != null) {
+			for (String dependsOnBean : innerBd.getDependsOn()) {
+				references.add(dependsOnBean);
+			}
+		}
+		addReferences(innerBd, references);
+	}
+
+	/**
+	 * Submit the given singleton for creation. To be called with this instance's lock held.
+	 */
+	private void submit(Node node) {
+		this.running++;
+		try {
+			this.executor.execute(new SingletonCreationTask(node));
+		}
+		catch (RejectedExecutionException ex) {
+			// Left to serial pre-instantiation, along with the singletons that depend on it.
+			this.running--;
+			if (logger.isDebugEnabled()) {
+				logger.debug("Executor rejected creation of singleton '" + node.beanName + "': " + ex);
+			}
+		}
+	}
+
+	private synchronized void completed(Node node, Throwable ex) {
+		this.running--;
+		if (ex != null && this.failure == null) {
+			this.failure = ex;
+		}
+		if (this.failure == null) {
+			for (Node dependent : node.dependents) {
+				dependent.pendingDependencies--;
+				if (dependent.pendingDependencies == 0) {
+					submit(dependent);
+				}
+			}
+		}
+		if (this.running == 0) {
+			notifyAll();
+		}
+	}
+
+
+	/**
+	 * A singleton in the dependency graph.
+	 */
+	private static class Node {
+
+		final String beanName;
+
+		final List<Node> dependents = new ArrayList<Node>();
+
+		/** Number of singletons this one depends on that have not been created yet */
+		int pendingDependencies = 0;
+
+		Node(String beanName) {
+			this.beanName = beanName;
+		}
+	}
+
+
+	/**
+	 * Creates a singleton on a thread of the Executor.
+	 */
+	private class SingletonCreationTask implements Runnable {
+
+		private final Node node;
+
+		public SingletonCreationTask(Node node) {
+			this.node = node;
+		}
+
+		@Override
+		public void run() {
+			Throwable failure = null;
+			try {
+				beanFactory.preInstantiateSingleton(this.node.beanName);
+			}
+			catch (BeanCreationException ex) {
+				if (ex instanceof BeanCurrentlyInCreationException || ex.contains(BeanCurrentlyInCreationException.class)) {
+					// A circular reference to a singleton in creation in another thread:
+					// to be retried on serial pre-instantiation.
+					if (logger.isDebugEnabled()) {
+						logger.debug("Deferring creation of singleton '" + this.node.beanName +
+								"' to serial pre-instantiation: " + ex);
+					}
+				}
+				else {
+					failure = ex;
+				}
+			}
+			catch (Throwable ex) {
+				failure = ex;
+			}
+			finally {
+				completed(this.node, failure);
+			}
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,11 +18,25 @@ package org.springframework.beans.factory.xml;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.ErrorHandler;
 import org.xml.sax.InputSource;
@@ -45,7 +59,11 @@ import org.springframework.core.io.DescriptiveResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
 import org.springframework.util.Assert;
+import org.springframework.util.ResourceUtils;
+import org.springframework.util.StringUtils;
 import org.springframework.util.xml.SimpleSaxErrorHandler;
 import org.springframework.util.xml.XmlValidationModeDetector;
 
@@ -125,6 +143,11 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 	private final ThreadLocal<Set<EncodedResource>> resourcesCurrentlyBeingLoaded =
 			new NamedThreadLocal<Set<EncodedResource>>("XML bean definition resources currently being loaded");
 
+	private Executor documentLoadingExecutor;
+
+	private final ThreadLocal<DocumentPrefetch> currentDocumentPrefetch =
+			new NamedThreadLocal<DocumentPrefetch>("XML bean definition documents currently being prefetched");
+
 
 	/**
 	 * Create new XmlBeanDefinitionReader for the given bean factory.
@@ -292,6 +315,66 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 		this.documentReaderClass = documentReaderClass;
 	}
 
+	/**
+	 * Specify an {@link Executor} to load XML documents with in parallel.
+	 * <p>By default, each document gets loaded right before its bean definitions
+	 * are registered. With an Executor, the documents passed into a single
+	 * {@code loadBeanDefinitions} call as well as the documents they import
+	 * (through top-level {@code <import>} elements) get loaded ahead of time,
+	 * each in a task of its own. Bean definitions are still registered in the
+	 * calling thread, in the very same order as without an Executor, so that
+	 * bean definition overriding behaves the same either way.
+	 * <p>Any problem with loading a document ahead of time leads to the document
+	 * being loaded again when its bean definitions are about to be registered,
+	 * reporting the problem just like without an Executor.
+	 * Note that a custom {@link DocumentLoader}, {@link EntityResolver} and
+	 * {@link ErrorHandler} need to be thread-safe for use with an Executor.
+	 * @since 4.3.4
+	 */
+	public void setDocumentLoadingExecutor(Executor documentLoadingExecutor) {
+		this.documentLoadingExecutor = documentLoadingExecutor;
+	}
+
+	/**
+	 * Return the Executor to load XML documents with in parallel, if any.
+	 * @since 4.3.4
+	 */
+	public Executor getDocumentLoadingExecutor() {
+		return this.documentLoadingExecutor;
+	}
+
+
+	@Override
+	public int loadBeanDefinitions(Resource... resources) throws BeanDefinitionStoreException {
+		DocumentPrefetch prefetch = beginDocumentPrefetch();
+		try {
+			if (prefetch != null) {
+				for (Resource resource : resources) {
+					prefetch.submit(resource);
+				}
+			}
+			return super.loadBeanDefinitions(resources);
+		}
+		finally {
+			endDocumentPrefetch(prefetch);
+		}
+	}
+
+	@Override
+	public int loadBeanDefinitions(String... locations) throws BeanDefinitionStoreException {
+		DocumentPrefetch prefetch = beginDocumentPrefetch();
+		try {
+			if (prefetch != null) {
+				for (String location : locations) {
+					prefetch.submit(location, null);
+				}
+			}
+			return super.loadBeanDefinitions(locations);
+		}
+		finally {
+			endDocumentPrefetch(prefetch);
+		}
+	}
 
 	/**
 	 * Load bean definitions from the specified XML file.
@@ -327,7 +410,14 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 			throw new BeanDefinitionStoreException(
 					"Detected cyclic loading of " + encodedResource + " - check your import definitions!");
 		}
+		DocumentPrefetch prefetch = beginDocumentPrefetch();
 		try {
+			if (encodedResource.getEncoding() == null) {
+				Document doc = takePrefetchedDocument(encodedResource.getResource());
+				if (doc != null) {
+					return registerPrefetchedDocument(doc, encodedResource.getResource());
+				}
+			}
 
 			// FIXME: 2017/11/6  //获取 resource 的输入流，也就是配置文件xml的输入流
 			InputStream inputStream = encodedResource.getResource().getInputStream();
@@ -349,6 +439,7 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 					"IOException parsing XML document from " + encodedResource.getResource(), ex);
 		}
 		finally {
+			endDocumentPrefetch(prefetch);
 			currentResources.remove(encodedResource);
 			if (currentResources.isEmpty()) {
 				this.resourcesCurrentlyBeingLoaded.remove();
@@ -395,6 +486,10 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 		try {
 			// FIXME: 2017/11/6  xml 解析的  Document 对象，applicationContext.xml 就是 Document 查看 doLoadDocument方法
 			Document doc = doLoadDocument(inputSource, resource);
+			DocumentPrefetch prefetch = this.currentDocumentPrefetch.get();
+			if (prefetch != null) {
+				prefetch.submitImports(doc, resource);
+			}
 
 			// FIXME: 2017/11/6 分析该方法 查看  registerBeanDefinitions 方法
 			return registerBeanDefinitions(doc, resource);
@@ -424,6 +519,23 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 		}
 	}
 
+	/**
+	 * Register the bean definitions contained in the given document loaded ahead
+	 * of time, translating exceptions just like {@link #doLoadBeanDefinitions}.
+	 */
+	private int registerPrefetchedDocument(Document doc, Resource resource) throws BeanDefinitionStoreException {
+		try {
+			return registerBeanDefinitions(doc, resource);
+		}
+		catch (BeanDefinitionStoreException ex) {
+			throw ex;
+		}
+		catch (Throwable ex) {
+			throw new BeanDefinitionStoreException(resource.getDescription(),
+					"Unexpected exception parsing XML document from " + resource, ex);
+		}
+	}
+
 	/**
 	 * Actually load the specified document using the configured DocumentLoader.
 	 * @param inputSource the SAX InputSource to read from
@@ -490,7 +602,10 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 		}
 
 		try {
-			return this.validationModeDetector.detectValidationMode(inputStream);
+			// The detector keeps state while reading: documents may get loaded in parallel.
+			synchronized (this.validationModeDetector) {
+				return this.validationModeDetector.detectValidationMode(inputStream);
+			}
 		}
 		catch (IOException ex) {
 			throw new BeanDefinitionStoreException("Unable to determine validation mode for [" +
@@ -557,4 +672,198 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 		return new DefaultNamespaceHandlerResolver(getResourceLoader().getClassLoader());
 	}
 
+
+
+	/**
+	 * Start loading documents ahead of time in the current thread, if an Executor
+	 * has been specified and no outer {@code loadBeanDefinitions} call did so already.
+	 * @return the new DocumentPrefetch, or {@code null} if none has been started
+	 */
+	private DocumentPrefetch beginDocumentPrefetch() {
+		if (this.documentLoadingExecutor == null || this.currentDocumentPrefetch.get() != null) {
+			return null;
+		}
+		// Initialize the default EntityResolver before any document gets loaded in parallel.
+		getEntityResolver();
+		DocumentPrefetch prefetch = new DocumentPrefetch(this.documentLoadingExecutor);
+		this.currentDocumentPrefetch.set(prefetch);
+		return prefetch;
+	}
+
+	private void endDocumentPrefetch(DocumentPrefetch prefetch) {
+		if (prefetch != null) {
+			this.currentDocumentPrefetch.remove();
+			prefetch.cancel();
+		}
+	}
+
+	/**
+	 * Obtain the given resource's document if it has been loaded ahead of time.
+	 * @return the document, or {@code null} if the resource needs to be loaded
+	 * (again) in order to register its bean definitions
+	 */
+	private Document takePrefetchedDocument(Resource resource) {
+		DocumentPrefetch prefetch = this.currentDocumentPrefetch.get();
+		Future<Document> future = (prefetch != null ? prefetch.take(resource) : null);
+		if (future == null) {
+			return null;
+		}
+		try {
+			return future.get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		catch (ExecutionException ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Could not load XML document from " + resource + " ahead of time", ex.getCause());
+			}
+			return null;
+		}
+		catch (CancellationException ex) {
+			return null;
+		}
+	}
+
+
+	/**
+	 * The documents loaded ahead of time within an outermost {@code loadBeanDefinitions}
+	 * call. Every resource gets submitted for loading at most once; its document is
+	 * handed out for registering its bean definitions at most once as well.
+	 */
+	private class DocumentPrefetch {
+
+		private final Executor executor;
+
+		private final Set<Resource> submittedResources =
+				Collections.newSetFromMap(new ConcurrentHashMap<Resource, Boolean>());
+
+		private final ConcurrentMap<Resource, Future<Document>> documents =
+				new ConcurrentHashMap<Resource, Future<Document>>();
+
+		private volatile boolean cancelled;
+
+		public DocumentPrefetch(Executor executor) {
+			this.executor = executor;
+		}
+
+		public void submit(final Resource resource) {
+			if (this.cancelled || resource.isOpen() || !this.submittedResources.add(resource)) {
+				return;
+			}
+			FutureTask<Document> future = new FutureTask<Document>(new Callable<Document>() {
+				@Override
+				public Document call() throws Exception {
+					Document doc;
+					InputStream inputStream = resource.getInputStream();
+					try {
+						doc = doLoadDocument(new InputSource(inputStream), resource);
+					}
+					finally {
+						inputStream.close();
+					}
+					submitImports(doc, resource);
+					return doc;
+				}
+			});
+			this.documents.put(resource, future);
+			try {
+				this.executor.execute(future);
+			}
+			catch (RejectedExecutionException ex) {
+				this.documents.remove(resource);
+			}
+		}
+
+		/**
+		 * Submit the resources at the given location, resolved like
+		 * {@link #loadBeanDefinitions(String, Set)} does.
+		 */
+		public void submit(String location, Resource relativeTo) {
+			ResourceLoader resourceLoader = getResourceLoader();
+			if (resourceLoader == null) {
+				return;
+			}
+			try {
+				if (relativeTo != null) {
+					boolean absoluteLocation = false;
+					try {
+						absoluteLocation = ResourcePatternUtils.isUrl(location) || ResourceUtils.toURI(location).isAbsolute();
+					}
+					catch (URISyntaxException ex) {
+						// considering the location relative, just like DefaultBeanDefinitionDocumentReader
+					}
+					if (!absoluteLocation) {
+						Resource relativeResource = relativeTo.createRelative(location);
+						if (relativeResource.exists()) {
+							submit(relativeResource);
+							return;
+						}
+						location = StringUtils.applyRelativePath(relativeTo.getURL().toString(), location);
+					}
+				}
+				if (resourceLoader instanceof ResourcePatternResolver) {
+					for (Resource resource : ((ResourcePatternResolver) resourceLoader).getResources(location)) {
+						submit(resource);
+					}
+				}
+				else {
+					submit(resourceLoader.getResource(location));
+				}
+			}
+			catch (Exception ex) {
+				// Left to the registration of the bean definitions to report.
+				if (logger.isDebugEnabled()) {
+					logger.debug("Could not resolve XML bean definition location [" + location + "] ahead of time", ex);
+				}
+			}
+		}
+
+		/**
+		 * Submit the resources that the given document imports at its top level.
+		 * Imports within nested {@code <beans>} elements are left to be loaded
+		 * once their profiles have been evaluated.
+		 */
+		public void submitImports(Document doc, Resource resource) {
+			Element root = doc.getDocumentElement();
+			if (root == null) {
+				return;
+			}
+			NodeList nodes = root.getChildNodes();
+			for (int i = 0; i < nodes.getLength(); i++) {
+				Node node = nodes.item(i);
+				if (node instanceof Element && isDefaultNamespace(node) &&
+						DefaultBeanDefinitionDocumentReader.IMPORT_ELEMENT.equals(getLocalName(node))) {
+					String location = ((Element) node).getAttribute(DefaultBeanDefinitionDocumentReader.RESOURCE_ATTRIBUTE);
+					if (StringUtils.hasText(location)) {
+						submit(getEnvironment().resolvePlaceholders(location), resource);
+					}
+				}
+			}
+		}
+
+		private boolean isDefaultNamespace(Node node) {
+			String namespaceUri = node.getNamespaceURI();
+			return (!StringUtils.hasLength(namespaceUri) ||
+					BeanDefinitionParserDelegate.BEANS_NAMESPACE_URI.equals(namespaceUri));
+		}
+
+		private String getLocalName(Node node) {
+			return (node.getLocalName() != null ? node.getLocalName() : node.getNodeName());
+		}
+
+		public Future<Document> take(Resource resource) {
+			return this.documents.remove(resource);
+		}
+
+		public void cancel() {
+			this.cancelled = true;
+			for (Future<Document> future : this.documents.values()) {
+				future.cancel(true);
+			}
+			this.documents.clear();
+		}
+	}
+
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.beans.SimpleBeanInfo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.tests.sample.beans.ITestBean;
+import org.springframework.tests.sample.beans.IndexedTestBean;
+import org.springframework.tests.sample.beans.TestBean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link BeanIntrospectionWarmer}.
+ */
+public class BeanIntrospectionWarmerTests {
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+
+	@Before
+	public void clearCache() {
+		CachedIntrospectionResults.clearClassLoader(getClass().getClassLoader());
+	}
+
+	@After
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+
+	@Test
+	public void warmUpPackage() {
+		BeanIntrospectionWarmer warmer = new BeanIntrospectionWarmer();
+		warmer.setExecutor(this.executor);
+		int count = warmer.warmUp("org.springframework.tests.sample.beans");
+
+		assertTrue(count > 2);
+		assertTrue(CachedIntrospectionResults.strongClassCache.containsKey(TestBean.class));
+		assertTrue(CachedIntrospectionResults.strongClassCache.containsKey(IndexedTestBean.class));
+		assertFalse(CachedIntrospectionResults.strongClassCache.containsKey(ITestBean.class));
+	}
+
+	@Test
+	public void warmUpClasses() {
+		BeanIntrospectionWarmer warmer = new BeanIntrospectionWarmer();
+		warmer.setExecutor(this.executor);
+		warmer.setParallelism(2);
+		int count = warmer.warmUp(Arrays.<Class<?>>asList(TestBean.class, ITestBean.class, IndexedTestBean.class));
+
+		assertEquals(2, count);
+		assertTrue(CachedIntrospectionResults.strongClassCache.containsKey(TestBean.class));
+		assertTrue(CachedIntrospectionResults.strongClassCache.containsKey(IndexedTestBean.class));
+		assertFalse(CachedIntrospectionResults.strongClassCache.containsKey(ITestBean.class));
+	}
+
+	@Test
+	public void warmUpWithDefaultExecutor() {
+		WarmUpThreadBean.threads.clear();
+		BeanIntrospectionWarmer warmer = new BeanIntrospectionWarmer();
+		warmer.setParallelism(2);
+		int count = warmer.warmUp(Arrays.<Class<?>>asList(TestBean.class, WarmUpThreadBean.class));
+
+		assertEquals(2, count);
+		assertFalse(WarmUpThreadBean.threads.isEmpty());
+		for (Thread thread : WarmUpThreadBean.threads) {
+			assertTrue(thread.isDaemon());
+			assertTrue(thread.getName().startsWith("introspection-warmer-"));
+		}
+	}
+
+	@Test
+	public void warmUpNonExistingPackage() {
+		assertEquals(0, new BeanIntrospectionWarmer().warmUp("org.springframework.does.not.exist"));
+	}
+
+
+	public static class WarmUpThreadBean {
+
+		static final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+
+		public String getName() {
+			return null;
+		}
+	}
+
+
+	public static class WarmUpThreadBeanBeanInfo extends SimpleBeanInfo {
+
+		public WarmUpThreadBeanBeanInfo() {
+			WarmUpThreadBean.threads.add(Thread.currentThread());
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,7 +18,17 @@ package org.springframework.beans;
 
 import java.beans.BeanInfo;
 import java.beans.PropertyDescriptor;
+import java.beans.SimpleBeanInfo;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
@@ -93,4 +103,109 @@ public class CachedIntrospectionResultsTests {
 				pd.getWriteMethod(), equalTo(C.class.getMethod("setFoo", String.class)));
 	}
 
+	@Test
+	public void concurrentRequestsIntrospectClassOnce() throws Exception {
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<CachedIntrospectionResults>> futures = new ArrayList<Future<CachedIntrospectionResults>>();
+			for (int i = 0; i < 4; i++) {
+				futures.add(executor.submit(new Callable<CachedIntrospectionResults>() {
+					@Override
+					public CachedIntrospectionResults call() throws Exception {
+						start.await();
+						return CachedIntrospectionResults.forClass(SlowBean.class);
+					}
+				}));
+			}
+			start.countDown();
+			CachedIntrospectionResults results = futures.get(0).get();
+			for (Future<CachedIntrospectionResults> future : futures) {
+				assertSame(results, future.get());
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, SlowBeanBeanInfo.instances.get());
+	}
+
+	@Test
+	public void reentrantRequestIntrospectsInline() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<CachedIntrospectionResults> future = executor.submit(new Callable<CachedIntrospectionResults>() {
+				@Override
+				public CachedIntrospectionResults call() {
+					return CachedIntrospectionResults.forClass(ReentrantBean.class);
+				}
+			});
+			assertNotNull(future.get(10, TimeUnit.SECONDS));
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertNotNull(ReentrantBeanBeanInfo.nestedResults);
+	}
+
+	@Test
+	public void cacheStatistics() {
+		CachedIntrospectionResults.forClass(TestBean.class);
+		long hits = CachedIntrospectionResults.getCacheHitCount();
+		long misses = CachedIntrospectionResults.getCacheMissCount();
+		CachedIntrospectionResults.forClass(TestBean.class);
+		assertEquals(hits + 1, CachedIntrospectionResults.getCacheHitCount());
+		assertEquals(misses, CachedIntrospectionResults.getCacheMissCount());
+
+		int size = CachedIntrospectionResults.getCacheSize();
+		CachedIntrospectionResults.forClass(StatisticsBean.class);
+		assertEquals(misses + 1, CachedIntrospectionResults.getCacheMissCount());
+		assertEquals(size + 1, CachedIntrospectionResults.getCacheSize());
+	}
+
+
+	public static class SlowBean {
+
+		public String getName() {
+			return null;
+		}
+	}
+
+
+	public static class SlowBeanBeanInfo extends SimpleBeanInfo {
+
+		static final AtomicInteger instances = new AtomicInteger();
+
+		public SlowBeanBeanInfo() throws InterruptedException {
+			instances.incrementAndGet();
+			Thread.sleep(200);
+		}
+	}
+
+
+	public static class StatisticsBean {
+	}
+
+
+	public static class ReentrantBean {
+
+		public String getName() {
+			return null;
+		}
+	}
+
+
+	public static class ReentrantBeanBeanInfo extends SimpleBeanInfo {
+
+		static final AtomicBoolean reentered = new AtomicBoolean();
+
+		static volatile CachedIntrospectionResults nestedResults;
+
+		public ReentrantBeanBeanInfo() {
+			if (reentered.compareAndSet(false, true)) {
+				nestedResults = CachedIntrospectionResults.forClass(ReentrantBean.class);
+			}
+		}
+	}
+
 }
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.tests.sample.beans.NestedTestBean;
+import org.springframework.tests.sample.beans.TestBean;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Specific {@link GeneratedPropertyAccessor} tests.
+ */
+public class GeneratedPropertyAccessorTests extends AbstractPropertyAccessorTests {
+
+	@Override
+	protected GeneratedPropertyAccessor createAccessor(Object target) {
+		return new GeneratedPropertyAccessor(target);
+	}
+
+
+	@Test
+	public void propertiesOfPublicClassAreAccessedThroughGeneratedCode() {
+		assertTrue(BeanPropertyAccess.forClass(TestBean.class).isGenerated());
+		assertTrue(BeanPropertyAccess.forClass(PrimitiveBean.class).isGenerated());
+		assertFalse(BeanPropertyAccess.forClass(NonPublicBean.class).isGenerated());
+		assertSame(BeanPropertyAccess.forClass(TestBean.class), BeanPropertyAccess.forClass(TestBean.class));
+	}
+
+	@Test
+	public void primitiveAndArrayProperties() {
+		PrimitiveBean target = new PrimitiveBean();
+		GeneratedPropertyAccessor accessor = createAccessor(target);
+		accessor.setPropertyValue("longValue", 5L);
+		accessor.setPropertyValue("doubleValue", "2.5");
+		accessor.setPropertyValue("flag", true);
+		accessor.setPropertyValue("character", 'x');
+		accessor.setPropertyValue("names", new String[] {"a", "b"});
+		accessor.setPropertyValue("fluent", "value");
+
+		assertEquals(5L, accessor.getPropertyValue("longValue"));
+		assertEquals(2.5, accessor.getPropertyValue("doubleValue"));
+		assertEquals(Boolean.TRUE, accessor.getPropertyValue("flag"));
+		assertEquals('x', accessor.getPropertyValue("character"));
+		assertArrayEquals(new String[] {"a", "b"}, (String[]) accessor.getPropertyValue("names"));
+		assertEquals("value", target.fluent);
+		assertEquals(long.class, accessor.getPropertyType("longValue"));
+	}
+
+	@Test
+	public void propertiesOfNonPublicClass() {
+		NonPublicBean target = new NonPublicBean();
+		GeneratedPropertyAccessor accessor = createAccessor(target);
+		accessor.setPropertyValue("count", "3");
+		assertEquals(3, accessor.getPropertyValue("count"));
+	}
+
+	@Test
+	public void nestedPathWithObjectsOfDifferentClasses() {
+		TestBean target = new TestBean();
+		target.setSpouse(new TestBean("kerry"));
+		GeneratedPropertyAccessor accessor = createAccessor(target);
+		assertEquals("kerry", accessor.getPropertyValue("spouse.name"));
+
+		target.setSpouse(new DerivedTestBean("other"));
+		assertEquals("other", accessor.getPropertyValue("spouse.name"));
+		accessor.setPropertyValue("spouse.nickName", "nick");
+		assertEquals("nick", ((DerivedTestBean) target.getSpouse()).getNickName());
+		assertEquals("nick", createAccessor(target).getPropertyValue("spouse.nickName"));
+
+		target.setSpouse(new TestBean("kerry"));
+		assertFalse(accessor.isReadableProperty("spouse.nickName"));
+		assertEquals("kerry", accessor.getPropertyValue("spouse.name"));
+	}
+
+	@Test
+	public void valueOfPropertyTypeIsNotConverted() {
+		final AtomicInteger conversions = new AtomicInteger();
+		TestBean target = new TestBean();
+		GeneratedPropertyAccessor accessor = createAccessor(target);
+		accessor.setConversionService(new DefaultConversionService() {
+			@Override
+			public Object convert(Object source, TypeDescriptor sourceType, TypeDescriptor targetType) {
+				conversions.incrementAndGet();
+				return super.convert(source, sourceType, targetType);
+			}
+		});
+		NestedTestBean doctor = new NestedTestBean("doctor");
+		accessor.setPropertyValue("name", "tom");
+		accessor.setPropertyValue("age", 10);
+		accessor.setPropertyValue("doctor", doctor);
+		assertEquals(0, conversions.get());
+
+		accessor.setPropertyValue("age", "11");
+		assertEquals(1, conversions.get());
+		assertEquals("tom", target.getName());
+		assertEquals(11, target.getAge());
+		assertSame(doctor, target.getDoctor());
+	}
+
+	@Test
+	public void nullValueInNestedPath() {
+		GeneratedPropertyAccessor accessor = createAccessor(new TestBean());
+		try {
+			accessor.getPropertyValue("spouse.name");
+			fail("Should have thrown NullValueInNestedPathException");
+		}
+		catch (NullValueInNestedPathException ex) {
+			assertEquals("spouse", ex.getPropertyName());
+		}
+	}
+
+	@Test
+	public void exceptionThrownBySetter() {
+		GeneratedPropertyAccessor accessor = createAccessor(new TestBean());
+		try {
+			accessor.setPropertyValue("touchy", "a.b");
+			fail("Should have thrown MethodInvocationException");
+		}
+		catch (MethodInvocationException ex) {
+			assertEquals("touchy", ex.getPropertyName());
+			assertEquals("Can't contain a .", ex.getCause().getMessage());
+		}
+	}
+
+	@Test
+	public void classCastExceptionThrownBySetter() {
+		GeneratedPropertyAccessor accessor = createAccessor(new CastingBean());
+		try {
+			accessor.setPropertyValue("value", 1);
+			fail("Should have thrown MethodInvocationException");
+		}
+		catch (MethodInvocationException ex) {
+			assertEquals("value", ex.getPropertyName());
+			assertTrue(ex.getCause() instanceof ClassCastException);
+		}
+	}
+
+	@Test
+	public void invokerClassIsReusedUntilClassLoaderIsCleared() {
+		Method[] readMethods = new Method[] {ReflectionUtils.findMethod(CastingBean.class, "getValue")};
+		Method[] writeMethods = new Method[] {ReflectionUtils.findMethod(CastingBean.class, "setValue", Object.class)};
+		Class<?> invokerClass = PropertyInvokerGenerator.createInvoker(
+				CastingBean.class, readMethods, writeMethods).getClass();
+		assertNotSame(GeneratedPropertyAccessor.PropertyInvoker.class, invokerClass);
+		assertSame(invokerClass, PropertyInvokerGenerator.createInvoker(
+				CastingBean.class, readMethods, writeMethods).getClass());
+
+		CachedIntrospectionResults.clearClassLoader(CastingBean.class.getClassLoader());
+		assertNotSame(invokerClass, PropertyInvokerGenerator.createInvoker(
+				CastingBean.class, readMethods, writeMethods).getClass());
+		CachedIntrospectionResults.clearClassLoader(CastingBean.class.getClassLoader());
+	}
+
+	@Test
+	public void accessIsFasterThanWithReflection() {
+		Assume.group(TestGroup.PERFORMANCE);
+		TestBean target = new TestBean();
+		target.setSpouse(new TestBean());
+		StopWatch sw = new StopWatch();
+		sw.start("BeanWrapperImpl");
+		accessProperties(new BeanWrapperImpl(target));
+		sw.stop();
+		long beanWrapperTime = sw.getLastTaskTimeMillis();
+		sw.start("DirectFieldAccessor");
+		accessProperties(new DirectFieldAccessor(target));
+		sw.stop();
+		sw.start("GeneratedPropertyAccessor");
+		accessProperties(createAccessor(target));
+		sw.stop();
+		// System.out.println(sw.prettyPrint());
+		assertTrue("Generated access took longer than reflective access: " + sw.prettyPrint(),
+				sw.getLastTaskTimeMillis() < beanWrapperTime);
+	}
+
+	private static void accessProperties(ConfigurablePropertyAccessor accessor) {
+		for (int i = 0; i < 200000; i++) {
+			accessor.setPropertyValue("name", "name" + (i % 10));
+			accessor.setPropertyValue("age", i);
+			accessor.setPropertyValue("spouse.name", "spouse");
+			assertEquals(i, accessor.getPropertyValue("age"));
+			assertEquals("spouse", accessor.getPropertyValue("spouse.name"));
+		}
+	}
+
+
+	@SuppressWarnings("serial")
+	public static class DerivedTestBean extends TestBean {
+
+		private String nickName;
+
+		public DerivedTestBean(String name) {
+			super(name);
+		}
+
+		public String getNickName() {
+			return this.nickName;
+		}
+
+		public void setNickName(String nickName) {
+			this.nickName = nickName;
+		}
+	}
+
+
+	public static class PrimitiveBean {
+
+		private long longValue;
+
+		private double doubleValue;
+
+		private boolean flag;
+
+		private char character;
+
+		private String[] names;
+
+		private String fluent;
+
+		public long getLongValue() {
+			return this.longValue;
+		}
+
+		public void setLongValue(long longValue) {
+			this.longValue = longValue;
+		}
+
+		public double getDoubleValue() {
+			return this.doubleValue;
+		}
+
+		public void setDoubleValue(double doubleValue) {
+			this.doubleValue = doubleValue;
+		}
+
+		public boolean isFlag() {
+			return this.flag;
+		}
+
+		public void setFlag(boolean flag) {
+			this.flag = flag;
+		}
+
+		public char getCharacter() {
+			return this.character;
+		}
+
+		public void setCharacter(char character) {
+			this.character = character;
+		}
+
+		public String[] getNames() {
+			return this.names;
+		}
+
+		public void setNames(String[] names) {
+			this.names = names;
+		}
+
+		public PrimitiveBean setFluent(String fluent) {
+			this.fluent = fluent;
+			return this;
+		}
+	}
+
+
+	public static class CastingBean {
+
+		private String value;
+
+		public Object getValue() {
+			return this.value;
+		}
+
+		public void setValue(Object value) {
+			this.value = (String) value;
+		}
+	}
+
+
+	static class NonPublicBean {
+
+		private int count;
+
+		public int getCount() {
+			return this.count;
+		}
+
+		public void setCount(int count) {
+			this.count = count;
+		}
+	}
+
+}
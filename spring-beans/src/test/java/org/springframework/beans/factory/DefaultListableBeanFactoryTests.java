@@ -35,6 +35,7 @@ import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Priority;
 import javax.security.auth.Subject;
 
@@ -1215,6 +1216,64 @@ public class DefaultListableBeanFactoryTests {
 		assertNull(ab.getResourceArray());
 	}
 
+	@Test
+	public void testPrototypeWithAutowiredConstructorReusesResolvedBeanName() {
+		final AtomicInteger lookups = new AtomicInteger();
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory() {
+			@Override
+			public String[] getBeanNamesForType(Class<?> type, boolean includeNonSingletons, boolean allowEagerInit) {
+				lookups.incrementAndGet();
+				return super.getBeanNamesForType(type, includeNonSingletons, allowEagerInit);
+			}
+		};
+		RootBeanDefinition rbd = new RootBeanDefinition(ConstructorDependency.class);
+		rbd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		rbd.setAutowireMode(RootBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+		lbf.registerBeanDefinition("test", rbd);
+		lbf.registerBeanDefinition("spouse", new RootBeanDefinition(TestBean.class));
+
+		ConstructorDependency bean1 = (ConstructorDependency) lbf.getBean("test");
+		int lookupCount = lookups.get();
+		ConstructorDependency bean2 = (ConstructorDependency) lbf.getBean("test");
+		assertNotSame(bean1, bean2);
+		assertSame(lbf.getBean("spouse"), bean1.spouse);
+		assertSame(bean1.spouse, bean2.spouse);
+		assertEquals(lookupCount, lookups.get());
+	}
+
+	@Test
+	public void testPrototypeWithAutowiredConstructorAndRemovedDependency() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		RootBeanDefinition rbd = new RootBeanDefinition(ConstructorDependency.class);
+		rbd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		rbd.setAutowireMode(RootBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+		lbf.registerBeanDefinition("test", rbd);
+		lbf.registerBeanDefinition("spouse", new RootBeanDefinition(TestBean.class));
+		assertSame(lbf.getBean("spouse"), ((ConstructorDependency) lbf.getBean("test")).spouse);
+
+		lbf.removeBeanDefinition("spouse");
+		lbf.registerBeanDefinition("otherSpouse", new RootBeanDefinition(TestBean.class));
+		assertSame(lbf.getBean("otherSpouse"), ((ConstructorDependency) lbf.getBean("test")).spouse);
+	}
+
+	@Test
+	public void testPrototypeWithAutowiredConstructorAndPrototypeDependency() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		RootBeanDefinition rbd = new RootBeanDefinition(ConstructorDependency.class);
+		rbd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		rbd.setAutowireMode(RootBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+		lbf.registerBeanDefinition("test", rbd);
+		RootBeanDefinition spouse = new RootBeanDefinition(TestBean.class);
+		spouse.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		lbf.registerBeanDefinition("spouse", spouse);
+
+		ConstructorDependency bean1 = (ConstructorDependency) lbf.getBean("test");
+		ConstructorDependency bean2 = (ConstructorDependency) lbf.getBean("test");
+		assertNotNull(bean1.spouse);
+		assertNotNull(bean2.spouse);
+		assertNotSame(bean1.spouse, bean2.spouse);
+	}
+
 	@Test
 	public void testExpressionInStringArray() {
 		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
@@ -2342,6 +2401,28 @@ public class DefaultListableBeanFactoryTests {
 		assertTrue("Prototype creation took too long: " + sw.getTotalTimeMillis(), sw.getTotalTimeMillis() < 4000);
 	}
 
+	@Test
+	public void testPrototypeCreationWithAutowiredConstructorIsFastEnough() {
+		Assume.group(TestGroup.PERFORMANCE);
+		Assume.notLogging(factoryLog);
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		RootBeanDefinition rbd = new RootBeanDefinition(ConstructorDependency.class);
+		rbd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		rbd.setAutowireMode(RootBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+		lbf.registerBeanDefinition("test", rbd);
+		lbf.registerBeanDefinition("spouse", new RootBeanDefinition(TestBean.class));
+		TestBean spouse = (TestBean) lbf.getBean("spouse");
+		StopWatch sw = new StopWatch();
+		sw.start("prototype");
+		for (int i = 0; i < 100000; i++) {
+			ConstructorDependency bean = (ConstructorDependency) lbf.getBean("test");
+			assertSame(spouse, bean.spouse);
+		}
+		sw.stop();
+		// System.out.println(sw.getTotalTimeMillis());
+		assertTrue("Prototype creation took too long: " + sw.getTotalTimeMillis(), sw.getTotalTimeMillis() < 4000);
+	}
+
 	@Test
 	public void testPrototypeCreationWithPropertiesIsFastEnough() {
 		Assume.group(TestGroup.PERFORMANCE);
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import org.junit.Test;
+
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.tests.sample.beans.DerivedTestBean;
+import org.springframework.tests.sample.beans.ITestBean;
+import org.springframework.tests.sample.beans.TestBean;
+import org.springframework.util.SerializationTestUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for capturing and restoring bean definitions through a {@link BeanDefinitionSnapshot}.
+ */
+public class BeanDefinitionSnapshotTests {
+
+	@Test
+	public void captureAndRestore() throws Exception {
+		DefaultListableBeanFactory original = new DefaultListableBeanFactory();
+
+		RootBeanDefinition spouse = new RootBeanDefinition(TestBean.class);
+		spouse.getPropertyValues().add("name", new TypedStringValue("31", Integer.class));
+		spouse.setAttribute("myAttribute", 42);
+		spouse.addQualifier(new AutowireCandidateQualifier(Qualified.class, "myQualifier"));
+		original.registerBeanDefinition("spouse", spouse);
+		original.registerAlias("spouse", "wife");
+
+		RootBeanDefinition parent = new RootBeanDefinition(TestBean.class);
+		parent.setAbstract(true);
+		parent.getPropertyValues().add("age", "30");
+		original.registerBeanDefinition("parent", parent);
+
+		GenericBeanDefinition child = new GenericBeanDefinition();
+		child.setParentName("parent");
+		child.setBeanClass(DerivedTestBean.class);
+		child.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		child.getConstructorArgumentValues().addIndexedArgumentValue(0, new String[] {"a", "b"});
+		child.getPropertyValues().add("spouse", new RuntimeBeanReference("wife"));
+		ManagedList<Object> friends = new ManagedList<Object>();
+		friends.add(new RuntimeBeanReference("spouse"));
+		friends.add(new BeanDefinitionHolder(new RootBeanDefinition(TestBean.class), "inner"));
+		child.getPropertyValues().add("friends", friends);
+		ManagedMap<Object, Object> someMap = new ManagedMap<Object, Object>();
+		someMap.put(new TypedStringValue("key"), new TypedStringValue("value"));
+		child.getPropertyValues().add("someMap", someMap);
+		child.getMethodOverrides().addOverride(new LookupOverride("getSpouse", "spouse"));
+		original.registerBeanDefinition("child", child);
+
+		BeanDefinitionSnapshot snapshot = (BeanDefinitionSnapshot)
+				SerializationTestUtils.serializeAndDeserialize(BeanDefinitionSnapshot.capture(original));
+		assertEquals(3, snapshot.getBeanDefinitionCount());
+		DefaultListableBeanFactory restored = new DefaultListableBeanFactory();
+		snapshot.restore(restored);
+
+		assertArrayEquals(original.getBeanDefinitionNames(), restored.getBeanDefinitionNames());
+		assertArrayEquals(new String[] {"wife"}, restored.getAliases("spouse"));
+		for (String beanName : original.getBeanDefinitionNames()) {
+			BeanDefinition originalBd = original.getBeanDefinition(beanName);
+			BeanDefinition restoredBd = restored.getBeanDefinition(beanName);
+			assertEquals(originalBd.getBeanClassName(), restoredBd.getBeanClassName());
+			assertEquals(originalBd.getParentName(), restoredBd.getParentName());
+			assertEquals(originalBd.getScope(), restoredBd.getScope());
+			assertEquals(originalBd.isAbstract(), restoredBd.isAbstract());
+		}
+		AbstractBeanDefinition restoredSpouse = (AbstractBeanDefinition) restored.getBeanDefinition("spouse");
+		assertEquals(42, restoredSpouse.getAttribute("myAttribute"));
+		assertEquals("myQualifier", restoredSpouse.getQualifier(Qualified.class.getName()).getAttribute("value"));
+		AbstractBeanDefinition restoredChild = (AbstractBeanDefinition) restored.getBeanDefinition("child");
+		assertEquals(child.getMethodOverrides(), restoredChild.getMethodOverrides());
+
+		TestBean restoredSpouseBean = restored.getBean("spouse", TestBean.class);
+		assertEquals("31", restoredSpouseBean.getName());
+		DerivedTestBean restoredChildBean = restored.getBean("child", DerivedTestBean.class);
+		assertEquals(30, restoredChildBean.getAge());
+		assertSame(restoredSpouseBean, restoredChildBean.getSpouse());
+		assertEquals(2, restoredChildBean.getFriends().size());
+		assertSame(restoredSpouseBean, restoredChildBean.getFriends().iterator().next());
+		assertEquals("value", restoredChildBean.getSomeMap().get("key"));
+		assertEquals("a", restoredChildBean.getName());
+		assertEquals("b", restoredChildBean.getBeanName());
+	}
+
+	@Test
+	public void restoreReplacesExistingBeanDefinitions() {
+		DefaultListableBeanFactory original = new DefaultListableBeanFactory();
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.getPropertyValues().add("name", "captured");
+		original.registerBeanDefinition("testBean", bd);
+		BeanDefinitionSnapshot snapshot = BeanDefinitionSnapshot.capture(original);
+
+		DefaultListableBeanFactory restored = new DefaultListableBeanFactory();
+		restored.setAllowBeanDefinitionOverriding(false);
+		restored.registerBeanDefinition("testBean", new RootBeanDefinition(TestBean.class));
+		snapshot.restore(restored);
+
+		assertEquals("captured", restored.getBean("testBean", ITestBean.class).getName());
+	}
+
+	@Test(expected = BeanDefinitionStoreException.class)
+	public void nonSerializableValueCannotBeCaptured() {
+		DefaultListableBeanFactory original = new DefaultListableBeanFactory();
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.getPropertyValues().add("spouse", new TestBean());
+		original.registerBeanDefinition("testBean", bd);
+
+		BeanDefinitionSnapshot.capture(original);
+	}
+
+
+	public @interface Qualified {
+	}
+
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
+import org.springframework.core.ResolvableType;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for by-type lookups through the {@link BeanTypeIndex} of a
+ * {@link DefaultListableBeanFactory} with frozen configuration.
+ */
+public class BeanTypeIndexTests {
+
+	@Test
+	public void lookupsMatchFullScan() {
+		DefaultListableBeanFactory frozen = createBeanFactory();
+		frozen.freezeConfiguration();
+		DefaultListableBeanFactory notFrozen = createBeanFactory();
+
+		for (ResolvableType type : new ResolvableType[] {
+				ResolvableType.forClass(Repository.class),
+				ResolvableType.forClassWithGenerics(Repository.class, User.class),
+				ResolvableType.forClassWithGenerics(Repository.class, Order.class),
+				ResolvableType.forClass(BaseRepository.class),
+				ResolvableType.forClass(Marker.class),
+				ResolvableType.forClass(Serializable.class),
+				ResolvableType.forClass(Object.class),
+				ResolvableType.forClass(String.class),
+				ResolvableType.forClass(FactoryBean.class),
+				ResolvableType.forClass(Runnable.class)}) {
+			assertArrayEquals(type.toString(), notFrozen.getBeanNamesForType(type), frozen.getBeanNamesForType(type));
+		}
+		assertArrayEquals(new String[] {"userRepository", "userRepository2"},
+				frozen.getBeanNamesForType(ResolvableType.forClassWithGenerics(Repository.class, User.class)));
+		assertArrayEquals(new String[] {"orderRepository", "userRepository", "userRepository2"},
+				frozen.getBeanNamesForType(Marker.class, true, false));
+		assertArrayEquals(new String[] {"orderRepository", "&runnableFactory", "string"},
+				frozen.getBeanNamesForType(Serializable.class, true, false));
+		assertArrayEquals(new String[] {"runnableFactory"}, frozen.getBeanNamesForType(Runnable.class));
+		assertEquals(3, frozen.getBeansOfType(Repository.class).size());
+	}
+
+	@Test
+	public void lookupChecksCandidatesOnly() {
+		final AtomicInteger typeMatches = new AtomicInteger();
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory() {
+			@Override
+			public boolean isTypeMatch(String name, ResolvableType typeToMatch) {
+				typeMatches.incrementAndGet();
+				return super.isTypeMatch(name, typeToMatch);
+			}
+		};
+		for (int i = 0; i < 100; i++) {
+			bf.registerBeanDefinition("other" + i, new RootBeanDefinition(Other.class));
+		}
+		bf.registerBeanDefinition("userRepository", new RootBeanDefinition(UserRepository.class));
+		bf.registerBeanDefinition("orderRepository", new RootBeanDefinition(OrderRepository.class));
+		bf.freezeConfiguration();
+
+		typeMatches.set(0);
+		assertArrayEquals(new String[] {"userRepository"},
+				bf.getBeanNamesForType(ResolvableType.forClassWithGenerics(Repository.class, User.class)));
+		assertEquals(2, typeMatches.get());
+	}
+
+	@Test
+	public void singletonOfOtherTypeThanPredicted() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		RootBeanDefinition bd = new RootBeanDefinition(BeanTypeIndexTests.class);
+		bd.setFactoryMethodName("createRunnable");
+		bf.registerBeanDefinition("runnable", bd);
+		bf.freezeConfiguration();
+
+		assertEquals(0, bf.getBeanNamesForType(Serializable.class).length);
+		bf.getBean("runnable");
+		assertArrayEquals(new String[] {"runnable"}, bf.getBeanNamesForType(Serializable.class));
+		assertArrayEquals(new String[] {"runnable"}, bf.getBeanNamesForType(ResolvableType.forClass(Serializable.class)));
+	}
+
+	@Test
+	public void prototypeWithTypePredictionChangedByPostProcessor() {
+		DefaultListableBeanFactory frozen = createPrototypeBeanFactory();
+		frozen.freezeConfiguration();
+		DefaultListableBeanFactory notFrozen = createPrototypeBeanFactory();
+
+		frozen.getBean("other");
+		notFrozen.getBean("other");
+		assertArrayEquals(new String[] {"other"}, notFrozen.getBeanNamesForType(Marker.class));
+		assertArrayEquals(new String[] {"other"}, frozen.getBeanNamesForType(Marker.class));
+	}
+
+	@Test
+	public void indexResetOnRegistration() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		bf.registerBeanDefinition("userRepository", new RootBeanDefinition(UserRepository.class));
+		bf.freezeConfiguration();
+		assertEquals(0, bf.getBeanNamesForType(ResolvableType.forClass(Other.class)).length);
+
+		bf.registerBeanDefinition("other", new RootBeanDefinition(Other.class));
+		assertArrayEquals(new String[] {"other"}, bf.getBeanNamesForType(ResolvableType.forClass(Other.class)));
+		bf.freezeConfiguration();
+		assertArrayEquals(new String[] {"other"}, bf.getBeanNamesForType(ResolvableType.forClass(Other.class)));
+
+		bf.setAllowBeanDefinitionOverriding(true);
+		bf.registerBeanDefinition("other", new RootBeanDefinition(OrderRepository.class));
+		assertEquals(0, bf.getBeanNamesForType(ResolvableType.forClass(Other.class)).length);
+		assertArrayEquals(new String[] {"other"}, bf.getBeanNamesForType(ResolvableType.forClass(OrderRepository.class)));
+	}
+
+	@Test
+	public void genericLookupsAmongManyBeansAreFastEnough() {
+		Assume.group(TestGroup.PERFORMANCE);
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		for (int i = 0; i < 6000; i++) {
+			bf.registerBeanDefinition("other" + i, new RootBeanDefinition(i % 100 == 0 ? OrderRepository.class : Other.class));
+		}
+		bf.registerBeanDefinition("userRepository", new RootBeanDefinition(UserRepository.class));
+		bf.freezeConfiguration();
+		ResolvableType type = ResolvableType.forClassWithGenerics(Repository.class, User.class);
+		StopWatch sw = new StopWatch();
+		sw.start("lookup");
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(1, bf.getBeanNamesForType(type).length);
+		}
+		sw.stop();
+		// System.out.println(sw.getTotalTimeMillis());
+		assertTrue("Lookups took too long: " + sw.getTotalTimeMillis(), sw.getTotalTimeMillis() < 3000);
+	}
+
+
+	private static DefaultListableBeanFactory createBeanFactory() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		RootBeanDefinition abstractBd = new RootBeanDefinition(UserRepository.class);
+		abstractBd.setAbstract(true);
+		bf.registerBeanDefinition("abstractRepository", abstractBd);
+		bf.registerBeanDefinition("orderRepository", new RootBeanDefinition(OrderRepository.class));
+		bf.registerBeanDefinition("runnableFactory", new RootBeanDefinition(RunnableFactoryBean.class));
+		bf.registerBeanDefinition("userRepository", new RootBeanDefinition(UserRepository.class));
+		bf.registerBeanDefinition("string", new RootBeanDefinition(String.class));
+		bf.registerBeanDefinition("userRepository2", new RootBeanDefinition(UserRepository.class));
+		bf.registerSingleton("manualUserRepository", new Object());
+		return bf;
+	}
+
+	private static DefaultListableBeanFactory createPrototypeBeanFactory() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		bf.addBeanPostProcessor(new InstantiationAwareBeanPostProcessorAdapter() {
+			private volatile boolean created;
+			@Override
+			public Class<?> predictBeanType(Class<?> beanClass, String beanName) {
+				// Like an auto-proxy creator that knows its proxy type once created
+				return (this.created ? MarkedOther.class : null);
+			}
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				this.created = true;
+				return new MarkedOther();
+			}
+		});
+		RootBeanDefinition bd = new RootBeanDefinition(Other.class);
+		bd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		bf.registerBeanDefinition("other", bd);
+		return bf;
+	}
+
+	public static Runnable createRunnable() {
+		return new SerializableRunnable();
+	}
+
+
+	public static class User {
+	}
+
+
+	public static class Order {
+	}
+
+
+	public interface Marker {
+	}
+
+
+	public interface Repository<T> extends Marker {
+	}
+
+
+	public static class BaseRepository<T> implements Repository<T> {
+	}
+
+
+	public static class UserRepository implements Repository<User> {
+	}
+
+
+	@SuppressWarnings("serial")
+	public static class OrderRepository extends BaseRepository<Order> implements Serializable {
+	}
+
+
+	public static class Other {
+	}
+
+
+	public static class MarkedOther extends Other implements Marker {
+	}
+
+
+	@SuppressWarnings("serial")
+	public static class SerializableRunnable implements Runnable, Serializable {
+
+		@Override
+		public void run() {
+		}
+	}
+
+
+	@SuppressWarnings("serial")
+	public static class RunnableFactoryBean implements FactoryBean<Runnable>, Serializable {
+
+		@Override
+		public Runnable getObject() {
+			return new SerializableRunnable();
+		}
+
+		@Override
+		public Class<?> getObjectType() {
+			return Runnable.class;
+		}
+
+		@Override
+		public boolean isSingleton() {
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for concurrent creation of lazily initialized singletons in a
+ * {@link DefaultListableBeanFactory}.
+ */
+public class ConcurrentSingletonCreationTests {
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+	private final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+
+
+	@Before
+	public void setup() {
+		this.beanFactory.setAllowConcurrentSingletonCreation(true);
+	}
+
+	@After
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+
+	@Test
+	public void lazySingletonsAreCreatedConcurrently() throws Exception {
+		this.beanFactory.registerSingleton("latch", new CountDownLatch(2));
+		for (int i = 0; i < 2; i++) {
+			RootBeanDefinition bd = new RootBeanDefinition(AwaitingBean.class);
+			bd.getConstructorArgumentValues().addGenericArgumentValue(new RuntimeBeanReference("latch"));
+			bd.setLazyInit(true);
+			this.beanFactory.registerBeanDefinition("awaiting" + i, bd);
+		}
+
+		for (AwaitingBean bean : getConcurrently(AwaitingBean.class, "awaiting0", "awaiting1")) {
+			assertTrue(bean.released);
+		}
+	}
+
+	@Test
+	public void factoryBeanObjectsAreCreatedConcurrently() throws Exception {
+		this.beanFactory.registerSingleton("latch", new CountDownLatch(2));
+		for (int i = 0; i < 2; i++) {
+			RootBeanDefinition bd = new RootBeanDefinition(AwaitingFactoryBean.class);
+			bd.getConstructorArgumentValues().addGenericArgumentValue(new RuntimeBeanReference("latch"));
+			this.beanFactory.registerBeanDefinition("awaiting" + i, bd);
+		}
+		// FactoryBean instances are there already, just their objects are to be created
+		this.beanFactory.getBean("&awaiting0");
+		this.beanFactory.getBean("&awaiting1");
+
+		List<AwaitingBean> beans = getConcurrently(AwaitingBean.class, "awaiting0", "awaiting1");
+		for (AwaitingBean bean : beans) {
+			assertTrue(bean.released);
+		}
+		assertSame(beans.get(0), this.beanFactory.getBean("awaiting0"));
+		assertSame(beans.get(1), this.beanFactory.getBean("awaiting1"));
+	}
+
+	@Test
+	public void singletonRequestedConcurrentlyIsCreatedOnce() throws Exception {
+		this.beanFactory.registerBeanDefinition("counting", new RootBeanDefinition(CountingBean.class));
+		CountingBean.count.set(0);
+
+		List<CountingBean> beans = getConcurrently(CountingBean.class, "counting", "counting", "counting", "counting");
+		for (CountingBean bean : beans) {
+			assertSame(beans.get(0), bean);
+		}
+		assertEquals(1, CountingBean.count.get());
+	}
+
+
+	private <T> List<T> getConcurrently(final Class<T> requiredType, String... beanNames) throws Exception {
+		List<Future<T>> futures = new ArrayList<Future<T>>();
+		for (final String beanName : beanNames) {
+			futures.add(this.executor.submit(new Callable<T>() {
+				@Override
+				public T call() {
+					return beanFactory.getBean(beanName, requiredType);
+				}
+			}));
+		}
+		List<T> beans = new ArrayList<T>();
+		for (Future<T> future : futures) {
+			beans.add(future.get(30, TimeUnit.SECONDS));
+		}
+		return beans;
+	}
+
+
+	public static class AwaitingBean {
+
+		final boolean released;
+
+		public AwaitingBean(CountDownLatch latch) throws InterruptedException {
+			latch.countDown();
+			this.released = latch.await(10, TimeUnit.SECONDS);
+		}
+	}
+
+
+	public static class AwaitingFactoryBean implements FactoryBean<AwaitingBean> {
+
+		private final CountDownLatch latch;
+
+		public AwaitingFactoryBean(CountDownLatch latch) {
+			this.latch = latch;
+		}
+
+		@Override
+		public AwaitingBean getObject() throws Exception {
+			return new AwaitingBean(this.latch);
+		}
+
+		@Override
+		public Class<?> getObjectType() {
+			return AwaitingBean.class;
+		}
+
+		@Override
+		public boolean isSingleton() {
+			return true;
+		}
+	}
+
+
+	public static class CountingBean {
+
+		static final AtomicInteger count = new AtomicInteger();
+
+		public CountingBean() throws InterruptedException {
+			count.incrementAndGet();
+			Thread.sleep(100);
+		}
+	}
+
+}
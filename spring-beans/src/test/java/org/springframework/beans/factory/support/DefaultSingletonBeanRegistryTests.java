@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,16 @@
 
 package org.springframework.beans.factory.support;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.junit.Test;
 
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanCurrentlyInCreationException;
 import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.tests.sample.beans.DerivedTestBean;
 import org.springframework.tests.sample.beans.TestBean;
@@ -101,4 +108,210 @@ public class DefaultSingletonBeanRegistryTests {
 		assertTrue(beanRegistry.isDependent("c", "c"));
 	}
 
+	@Test
+	public void testConcurrentSingletonCreation() throws Exception {
+		final ConcurrentSingletonBeanRegistry beanRegistry = new ConcurrentSingletonBeanRegistry();
+		final CountDownLatch inCreation = new CountDownLatch(1);
+		final AtomicInteger creationCount = new AtomicInteger();
+		final ObjectFactory<Object> slowFactory = new ObjectFactory<Object>() {
+			@Override
+			public Object getObject() throws BeansException {
+				creationCount.incrementAndGet();
+				inCreation.countDown();
+				sleep(200);
+				return new TestBean();
+			}
+		};
+		final AtomicReference<Object> created = new AtomicReference<Object>();
+		Thread creator = new Thread() {
+			@Override
+			public void run() {
+				created.set(beanRegistry.getSingleton("slow", slowFactory));
+			}
+		};
+		creator.start();
+		assertTrue(inCreation.await(10, TimeUnit.SECONDS));
+
+		// Not exposed early, but awaited
+		assertNull(beanRegistry.getSingleton("slow"));
+		Object awaited = beanRegistry.getSingleton("slow", slowFactory);
+		// Other singletons not blocked meanwhile
+		assertNotNull(beanRegistry.getSingleton("other", new ObjectFactory<Object>() {
+			@Override
+			public Object getObject() throws BeansException {
+				return new TestBean();
+			}
+		}));
+		creator.join();
+		assertSame(created.get(), awaited);
+		assertEquals(1, creationCount.get());
+	}
+
+	@Test
+	public void testCircularReferenceBetweenThreads() throws Exception {
+		doTestCircularReferenceBetweenThreads(true);
+	}
+
+	@Test
+	public void testUnresolvableCircularReferenceBetweenThreads() throws Exception {
+		doTestCircularReferenceBetweenThreads(false);
+	}
+
+	private void doTestCircularReferenceBetweenThreads(final boolean exposeEarly) throws Exception {
+		final ConcurrentSingletonBeanRegistry beanRegistry = new ConcurrentSingletonBeanRegistry();
+		final TestBean early = new TestBean();
+		final CountDownLatch aInCreation = new CountDownLatch(1);
+		final AtomicBoolean bInCreation = new AtomicBoolean();
+		final AtomicReference<Object> bFromOtherThread = new AtomicReference<Object>();
+		final ObjectFactory<Object> bFactory = new ObjectFactory<Object>() {
+			@Override
+			public Object getObject() throws BeansException {
+				return new TestBean("b");
+			}
+		};
+		final Thread thread = new Thread() {
+			@Override
+			public void run() {
+				beanRegistry.getSingleton("a", new ObjectFactory<Object>() {
+					@Override
+					public Object getObject() throws BeansException {
+						if (exposeEarly) {
+							beanRegistry.addSingletonFactory("a", new ObjectFactory<Object>() {
+								@Override
+								public Object getObject() throws BeansException {
+									return early;
+								}
+							});
+						}
+						aInCreation.countDown();
+						// Busy waiting, so that the thread only ends up WAITING for b's creation
+						while (!bInCreation.get()) {
+							Thread.yield();
+						}
+						bFromOtherThread.set(beanRegistry.getSingleton("b", bFactory));
+						return early;
+					}
+				});
+			}
+		};
+		thread.start();
+		assertTrue(aInCreation.await(10, TimeUnit.SECONDS));
+
+		final AtomicReference<Object> aFromThisThread = new AtomicReference<Object>();
+		try {
+			Object b = beanRegistry.getSingleton("b", new ObjectFactory<Object>() {
+				@Override
+				public Object getObject() throws BeansException {
+					bInCreation.set(true);
+					while (thread.getState() != Thread.State.WAITING) {
+						sleep(10);
+					}
+					aFromThisThread.set(beanRegistry.getSingleton("a", bFactory));
+					return new TestBean("b");
+				}
+			});
+			assertTrue(exposeEarly);
+			assertSame(early, aFromThisThread.get());
+			thread.join();
+			assertSame(b, bFromOtherThread.get());
+		}
+		catch (BeanCurrentlyInCreationException ex) {
+			assertFalse(exposeEarly);
+			assertEquals("a", ex.getBeanName());
+			// The other thread proceeds with creating b on its own
+			thread.join();
+			assertEquals("b", ((TestBean) bFromOtherThread.get()).getName());
+		}
+		assertSame(early, beanRegistry.getSingleton("a"));
+	}
+
+	@Test
+	public void testSingletonAwaitedWhileHoldingSingletonMutex() throws Exception {
+		final ConcurrentSingletonBeanRegistry beanRegistry = new ConcurrentSingletonBeanRegistry();
+		final CountDownLatch inCreation = new CountDownLatch(1);
+		final ObjectFactory<Object> slowFactory = new ObjectFactory<Object>() {
+			@Override
+			public Object getObject() throws BeansException {
+				inCreation.countDown();
+				sleep(200);
+				// Requires the singleton mutex
+				beanRegistry.registerSingleton("registered", new TestBean());
+				return new TestBean();
+			}
+		};
+		Thread creator = new Thread() {
+			@Override
+			public void run() {
+				beanRegistry.getSingleton("slow", slowFactory);
+			}
+		};
+		creator.start();
+		assertTrue(inCreation.await(10, TimeUnit.SECONDS));
+
+		Object awaited;
+		synchronized (beanRegistry.getSingletonMutex()) {
+			awaited = beanRegistry.getSingleton("slow", slowFactory);
+		}
+		creator.join();
+		assertSame(beanRegistry.getSingleton("slow"), awaited);
+		assertNotNull(beanRegistry.getSingleton("registered"));
+	}
+
+	@Test
+	public void testCompletedSingletonObtainedWithoutLocking() throws Exception {
+		final ConcurrentSingletonBeanRegistry beanRegistry = new ConcurrentSingletonBeanRegistry();
+		final TestBean tb = new TestBean();
+		beanRegistry.registerSingleton("tb", tb);
+		final CountDownLatch mutexHeld = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(1);
+		Thread mutexHolder = new Thread() {
+			@Override
+			public void run() {
+				synchronized (beanRegistry.getSingletonMutex()) {
+					mutexHeld.countDown();
+					try {
+						done.await(10, TimeUnit.SECONDS);
+					}
+					catch (InterruptedException ex) {
+						// finish
+					}
+				}
+			}
+		};
+		mutexHolder.start();
+		assertTrue(mutexHeld.await(10, TimeUnit.SECONDS));
+		try {
+			assertSame(tb, beanRegistry.getSingleton("tb"));
+			assertSame(tb, beanRegistry.getSingleton("tb", new ObjectFactory<Object>() {
+				@Override
+				public Object getObject() throws BeansException {
+					throw new IllegalStateException("Should not be created");
+				}
+			}));
+		}
+		finally {
+			done.countDown();
+		}
+		mutexHolder.join();
+	}
+
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+
+	private static class ConcurrentSingletonBeanRegistry extends DefaultSingletonBeanRegistry {
+
+		@Override
+		protected boolean isConcurrentSingletonCreation() {
+			return true;
+		}
+	}
+
 }
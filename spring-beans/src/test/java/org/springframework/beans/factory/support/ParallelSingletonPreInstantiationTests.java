@@ -0,0 +1,191 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for parallel singleton pre-instantiation in {@link DefaultListableBeanFactory}.
+ */
+public class ParallelSingletonPreInstantiationTests {
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+	private final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+
+	private final List<String> creationOrder = Collections.synchronizedList(new ArrayList<String>());
+
+
+	@Before
+	public void setup() {
+		this.beanFactory.setPreInstantiationExecutor(this.executor);
+		this.beanFactory.registerSingleton("creationOrder", this.creationOrder);
+	}
+
+	@After
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+
+	@Test
+	public void independentSingletonsAreCreatedConcurrently() {
+		this.beanFactory.registerSingleton("latch", new CountDownLatch(3));
+		for (int i = 0; i < 3; i++) {
+			RootBeanDefinition bd = new RootBeanDefinition(AwaitingBean.class);
+			bd.getConstructorArgumentValues().addGenericArgumentValue(new RuntimeBeanReference("latch"));
+			this.beanFactory.registerBeanDefinition("awaiting" + i, bd);
+		}
+		this.beanFactory.preInstantiateSingletons();
+
+		for (int i = 0; i < 3; i++) {
+			assertTrue(this.beanFactory.getBean("awaiting" + i, AwaitingBean.class).released);
+		}
+	}
+
+	@Test
+	public void dependenciesAreCreatedFirst() {
+		RootBeanDefinition c = orderedBean("c");
+		c.setDependsOn("b");
+		this.beanFactory.registerBeanDefinition("c", c);
+		RootBeanDefinition b = orderedBean("b");
+		b.getPropertyValues().add("dependency", new RuntimeBeanReference("a"));
+		this.beanFactory.registerBeanDefinition("b", b);
+		this.beanFactory.registerBeanDefinition("a", orderedBean("a"));
+		this.beanFactory.preInstantiateSingletons();
+
+		assertEquals(3, this.creationOrder.size());
+		assertTrue(this.creationOrder.indexOf("a") < this.creationOrder.indexOf("b"));
+		assertTrue(this.creationOrder.indexOf("b") < this.creationOrder.indexOf("c"));
+		assertSame(this.beanFactory.getBean("a"), this.beanFactory.getBean("b", OrderedBean.class).getDependency());
+	}
+
+	@Test
+	public void undeclaredDependencyIsAwaited() {
+		RootBeanDefinition consumer = new RootBeanDefinition(OrderedBean.class);
+		consumer.getConstructorArgumentValues().addGenericArgumentValue("consumer");
+		consumer.getConstructorArgumentValues().addGenericArgumentValue(new RuntimeBeanReference("creationOrder"));
+		consumer.setAutowireMode(RootBeanDefinition.AUTOWIRE_BY_NAME);
+		this.beanFactory.registerBeanDefinition("consumer", consumer);
+		RootBeanDefinition dependency = orderedBean("dependency");
+		dependency.setInitMethodName("slowInit");
+		this.beanFactory.registerBeanDefinition("dependency", dependency);
+		this.beanFactory.preInstantiateSingletons();
+
+		OrderedBean autowired = (OrderedBean) this.beanFactory.getBean("consumer", OrderedBean.class).getDependency();
+		assertSame(this.beanFactory.getBean("dependency"), autowired);
+		assertTrue(autowired.initialized);
+	}
+
+	@Test
+	public void circularReferencesAreCreatedSerially() {
+		RootBeanDefinition x = orderedBean("x");
+		x.getPropertyValues().add("dependency", new RuntimeBeanReference("y"));
+		this.beanFactory.registerBeanDefinition("x", x);
+		RootBeanDefinition y = orderedBean("y");
+		y.getPropertyValues().add("dependency", new RuntimeBeanReference("x"));
+		this.beanFactory.registerBeanDefinition("y", y);
+		this.beanFactory.registerBeanDefinition("z", orderedBean("z"));
+		this.beanFactory.preInstantiateSingletons();
+
+		assertEquals(3, this.creationOrder.size());
+		assertSame(this.beanFactory.getBean("y"), this.beanFactory.getBean("x", OrderedBean.class).getDependency());
+		assertSame(this.beanFactory.getBean("x"), this.beanFactory.getBean("y", OrderedBean.class).getDependency());
+	}
+
+	@Test
+	public void creationFailureIsPropagated() {
+		this.beanFactory.registerBeanDefinition("a", orderedBean("a"));
+		RootBeanDefinition failing = orderedBean("failing");
+		failing.setInitMethodName("fail");
+		this.beanFactory.registerBeanDefinition("failing", failing);
+		try {
+			this.beanFactory.preInstantiateSingletons();
+			fail("Should have thrown BeanCreationException");
+		}
+		catch (BeanCreationException ex) {
+			assertEquals("failing", ex.getBeanName());
+		}
+	}
+
+
+	private static RootBeanDefinition orderedBean(String name) {
+		RootBeanDefinition bd = new RootBeanDefinition(OrderedBean.class);
+		bd.getConstructorArgumentValues().addGenericArgumentValue(name);
+		bd.getConstructorArgumentValues().addGenericArgumentValue(new RuntimeBeanReference("creationOrder"));
+		return bd;
+	}
+
+
+	public static class AwaitingBean {
+
+		final boolean released;
+
+		public AwaitingBean(CountDownLatch latch) throws InterruptedException {
+			latch.countDown();
+			this.released = latch.await(10, TimeUnit.SECONDS);
+		}
+	}
+
+
+	public static class OrderedBean {
+
+		private final String name;
+
+		private Object dependency;
+
+		volatile boolean initialized;
+
+		public OrderedBean(String name, List<String> creationOrder) {
+			this.name = name;
+			creationOrder.add(name);
+		}
+
+		public void setDependency(Object dependency) {
+			this.dependency = dependency;
+		}
+
+		public Object getDependency() {
+			return this.dependency;
+		}
+
+		public void slowInit() throws InterruptedException {
+			Thread.sleep(200);
+			this.initialized = true;
+		}
+
+		public void fail() {
+			throw new IllegalStateException("Initialization of " + this.name + " failed");
+		}
+	}
+
+}
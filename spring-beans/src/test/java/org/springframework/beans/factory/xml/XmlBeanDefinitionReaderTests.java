@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,12 @@
 
 package org.springframework.beans.factory.xml;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
 
@@ -30,6 +35,9 @@ import org.springframework.core.io.Resource;
 import org.springframework.tests.sample.beans.TestBean;
 import org.springframework.util.ObjectUtils;
 
+import org.w3c.dom.Document;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.ErrorHandler;
 import org.xml.sax.InputSource;
 
 import static org.junit.Assert.*;
@@ -118,6 +126,68 @@ public class XmlBeanDefinitionReaderTests {
 		testBeanDefinitions(registry);
 	}
 
+	@Test
+	public void withDocumentLoadingExecutor() {
+		DefaultListableBeanFactory factory = new DefaultListableBeanFactory();
+		ThreadRecordingDocumentLoader documentLoader = new ThreadRecordingDocumentLoader();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(factory);
+			reader.setDocumentLoader(documentLoader);
+			reader.setDocumentLoadingExecutor(executor);
+			assertEquals(3, reader.loadBeanDefinitions(new ClassPathResource("parallelLoading.xml", getClass())));
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(Arrays.asList("first", "shared", "second"), Arrays.asList(factory.getBeanDefinitionNames()));
+		assertEquals("second", factory.getBean("shared", TestBean.class).getName());
+		assertEquals(3, documentLoader.threadNames.size());
+		assertEquals(Thread.currentThread().getName(), documentLoader.threadNames.get(0));
+		assertFalse(documentLoader.threadNames.subList(1, 3).contains(Thread.currentThread().getName()));
+	}
+
+	@Test
+	public void withDocumentLoadingExecutorForMultipleResources() {
+		DefaultListableBeanFactory factory = new DefaultListableBeanFactory();
+		ThreadRecordingDocumentLoader documentLoader = new ThreadRecordingDocumentLoader();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(factory);
+			reader.setDocumentLoader(documentLoader);
+			reader.setDocumentLoadingExecutor(executor);
+			reader.loadBeanDefinitions(new ClassPathResource("parallelLoading-second.xml", getClass()),
+					new ClassPathResource("parallelLoading-first.xml", getClass()));
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(Arrays.asList("second", "shared", "first"), Arrays.asList(factory.getBeanDefinitionNames()));
+		assertEquals("first", factory.getBean("shared", TestBean.class).getName());
+		assertEquals(2, documentLoader.threadNames.size());
+		assertFalse(documentLoader.threadNames.contains(Thread.currentThread().getName()));
+	}
+
+	@Test
+	public void withDocumentLoadingExecutorAndInvalidImport() {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(new SimpleBeanDefinitionRegistry());
+			reader.setDocumentLoadingExecutor(executor);
+			reader.loadBeanDefinitions(new ClassPathResource("invalidPerSchema.xml", getClass()),
+					new ClassPathResource("test.xml", getClass()));
+			fail("Should have thrown BeanDefinitionStoreException");
+		}
+		catch (XmlBeanDefinitionStoreException ex) {
+			assertTrue(ex.getResourceDescription().contains("invalidPerSchema.xml"));
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
 	private void testBeanDefinitions(BeanDefinitionRegistry registry) {
 		assertEquals(24, registry.getBeanDefinitionCount());
 		assertEquals(24, registry.getBeanDefinitionNames().length);
@@ -152,4 +222,19 @@ public class XmlBeanDefinitionReaderTests {
 		assertNotNull(bean);
 	}
 
+
+
+	private static class ThreadRecordingDocumentLoader extends DefaultDocumentLoader {
+
+		final List<String> threadNames = Collections.synchronizedList(new ArrayList<String>());
+
+		@Override
+		public Document loadDocument(InputSource inputSource, EntityResolver entityResolver,
+				ErrorHandler errorHandler, int validationMode, boolean namespaceAware) throws Exception {
+
+			this.threadNames.add(Thread.currentThread().getName());
+			return super.loadDocument(inputSource, entityResolver, errorHandler, validationMode, namespaceAware);
+		}
+	}
+
 }
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation {@link javax.annotation.processing.Processor Processor} that writes
+ * the candidate components found in the sources being compiled to
+ * {@code META-INF/spring.components}, so that component scanning at runtime can
+ * look them up rather than reading every class in the base packages.
+ *
+ * <p>Each class is recorded with its stereotypes: {@code @Component}, every
+ * annotation in its annotation hierarchy that is itself (meta-)annotated with
+ * {@code @Component}, and the {@code javax.annotation.ManagedBean} and
+ * {@code javax.inject.Named} annotations. Entries from a previous compilation
+ * are kept as long as their type still exists, to support incremental builds.
+ *
+ * @since 4.3.4
+ */
+public class CandidateComponentsIndexer extends AbstractProcessor {
+
+	static final String COMPONENTS_RESOURCE_LOCATION = "META-INF/spring.components";
+
+	private static final String COMPONENT_ANNOTATION = "org.springframework.stereotype.Component";
+
+	private static final Set<String> JAVAX_ANNOTATIONS = new HashSet<String>(Arrays.asList(
+			"javax.annotation.ManagedBean", "javax.inject.Named"));
+
+
+	private final Map<String, Set<String>> components = new TreeMap<String, Set<String>>();
+
+	private final Set<String> processedTypes = new HashSet<String>();
+
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		return Collections.singleton("*");
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (Element element : roundEnv.getRootElements()) {
+			processElement(element);
+		}
+		if (roundEnv.processingOver()) {
+			writeIndex();
+		}
+		return false;
+	}
+
+	private void processElement(Element element) {
+		if (element.getKind() == ElementKind.CLASS) {
+			String typeName = this.processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString();
+			this.processedTypes.add(typeName);
+			Set<String> stereotypes = new TreeSet<String>();
+			collectStereotypes(element.getAnnotationMirrors(), stereotypes, new HashSet<String>());
+			if (!stereotypes.isEmpty()) {
+				this.components.put(typeName, stereotypes);
+			}
+		}
+		for (Element enclosed : element.getEnclosedElements()) {
+			if (enclosed.getKind() == ElementKind.CLASS) {
+				processElement(enclosed);
+			}
+		}
+	}
+
+	private void collectStereotypes(List<? extends AnnotationMirror> annotations,
+			Set<String> stereotypes, Set<String> visited) {
+
+		for (AnnotationMirror mirror : annotations) {
+			TypeElement annotation = (TypeElement) mirror.getAnnotationType().asElement();
+			String name = annotation.getQualifiedName().toString();
+			if (name.startsWith("java.lang.annotation.") || !visited.add(name)) {
+				continue;
+			}
+			if (JAVAX_ANNOTATIONS.contains(name) || isComponentStereotype(annotation, new HashSet<String>())) {
+				stereotypes.add(name);
+			}
+			collectStereotypes(annotation.getAnnotationMirrors(), stereotypes, visited);
+		}
+	}
+
+	private boolean isComponentStereotype(TypeElement annotation, Set<String> visited) {
+		String name = annotation.getQualifiedName().toString();
+		if (COMPONENT_ANNOTATION.equals(name)) {
+			return true;
+		}
+		if (name.startsWith("java.lang.annotation.") || !visited.add(name)) {
+			return false;
+		}
+		for (AnnotationMirror mirror : annotation.getAnnotationMirrors()) {
+			if (isComponentStereotype((TypeElement) mirror.getAnnotationType().asElement(), visited)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void writeIndex() {
+		Map<String, Set<String>> index = new TreeMap<String, Set<String>>(readPreviousIndex());
+		index.putAll(this.components);
+		if (index.isEmpty()) {
+			return;
+		}
+		try {
+			FileObject resource = this.processingEnv.getFiler().createResource(
+					StandardLocation.CLASS_OUTPUT, "", COMPONENTS_RESOURCE_LOCATION);
+			Writer writer = new OutputStreamWriter(resource.openOutputStream(), "ISO-8859-1");
+			try {
+				for (Map.Entry<String, Set<String>> entry : index.entrySet()) {
+					writer.write(entry.getKey());
+					writer.write('=');
+					writer.write(join(entry.getValue()));
+					writer.write('\n');
+				}
+			}
+			finally {
+				writer.close();
+			}
+		}
+		catch (IOException ex) {
+			this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"Failed to write candidate components index: " + ex);
+		}
+	}
+
+	/**
+	 * Read the index from a previous compilation, if any, keeping only the
+	 * entries whose type still exists and was not compiled again.
+	 */
+	private Map<String, Set<String>> readPreviousIndex() {
+		Map<String, Set<String>> index = new TreeMap<String, Set<String>>();
+		try {
+			FileObject resource = this.processingEnv.getFiler().getResource(
+					StandardLocation.CLASS_OUTPUT, "", COMPONENTS_RESOURCE_LOCATION);
+			Reader reader = new InputStreamReader(resource.openInputStream(), "ISO-8859-1");
+			try {
+				BufferedReader lines = new BufferedReader(reader);
+				String line;
+				while ((line = lines.readLine()) != null) {
+					int separator = line.indexOf('=');
+					if (separator > 0) {
+						String type = line.substring(0, separator).trim();
+						if (!this.processedTypes.contains(type) &&
+								this.processingEnv.getElementUtils().getTypeElement(type.replace('$', '.')) != null) {
+							Set<String> stereotypes = new TreeSet<String>();
+							for (String stereotype : line.substring(separator + 1).split(",")) {
+								stereotypes.add(stereotype.trim());
+							}
+							index.put(type, stereotypes);
+						}
+					}
+				}
+			}
+			finally {
+				reader.close();
+			}
+		}
+		catch (IOException ex) {
+			// No previous index
+		}
+		catch (IllegalArgumentException ex) {
+			// Resource lookup not supported by this Filer
+		}
+		return index;
+	}
+
+	private static String join(Set<String> values) {
+		StringBuilder sb = new StringBuilder();
+		for (String value : values) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			sb.append(value);
+		}
+		return sb.toString();
+	}
+
+}
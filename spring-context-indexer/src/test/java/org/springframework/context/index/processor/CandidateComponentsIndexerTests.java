@@ -0,0 +1,166 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index.processor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.context.index.sample.SampleComponent;
+import org.springframework.context.index.sample.SampleMetaService;
+import org.springframework.context.index.sample.SampleNamed;
+import org.springframework.context.index.sample.SampleNone;
+import org.springframework.context.index.sample.SampleOuter;
+import org.springframework.context.index.sample.SampleService;
+import org.springframework.context.index.sample.SampleStereotype;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CandidateComponentsIndexer}.
+ */
+public class CandidateComponentsIndexerTests {
+
+	private static final String COMPONENT = "org.springframework.stereotype.Component";
+
+	private static final String SERVICE = "org.springframework.stereotype.Service";
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File outputLocation;
+
+
+	@Before
+	public void setup() throws IOException {
+		this.outputLocation = this.temporaryFolder.newFolder();
+	}
+
+
+	@Test
+	public void indexStereotypes() throws IOException {
+		Properties index = compile(SampleComponent.class, SampleService.class, SampleStereotype.class,
+				SampleMetaService.class, SampleNamed.class, SampleNone.class, SampleOuter.class);
+
+		assertEquals(COMPONENT, index.getProperty(SampleComponent.class.getName()));
+		assertEquals(COMPONENT + "," + SERVICE, index.getProperty(SampleService.class.getName()));
+		assertEquals(SampleStereotype.class.getName() + "," + COMPONENT + "," + SERVICE,
+				index.getProperty(SampleMetaService.class.getName()));
+		assertEquals("javax.inject.Named", index.getProperty(SampleNamed.class.getName()));
+		assertEquals(COMPONENT, index.getProperty(SampleOuter.Inner.class.getName()));
+		assertNull(index.getProperty(SampleNone.class.getName()));
+		assertNull(index.getProperty(SampleOuter.class.getName()));
+		assertNull(index.getProperty(SampleStereotype.class.getName()));
+		assertEquals(5, index.size());
+	}
+
+	@Test
+	public void noIndexWithoutCandidates() throws IOException {
+		compile(SampleNone.class);
+		assertFalse(indexFile().exists());
+	}
+
+	@Test
+	public void incrementalCompilationKeepsExistingEntries() throws IOException {
+		compile(SampleComponent.class, SampleService.class);
+		Properties previous = readIndex();
+		previous.setProperty("org.springframework.context.index.sample.Removed", COMPONENT);
+		writeIndex(previous);
+
+		Properties index = compile(SampleNamed.class);
+		assertEquals(COMPONENT, index.getProperty(SampleComponent.class.getName()));
+		assertEquals(COMPONENT + "," + SERVICE, index.getProperty(SampleService.class.getName()));
+		assertEquals("javax.inject.Named", index.getProperty(SampleNamed.class.getName()));
+		assertNull(index.getProperty("org.springframework.context.index.sample.Removed"));
+		assertEquals(3, index.size());
+	}
+
+
+	private Properties compile(Class<?>... types) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+		try {
+			fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(this.outputLocation));
+			List<File> classPath = new ArrayList<File>();
+			classPath.add(this.outputLocation);
+			for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+				classPath.add(new File(entry));
+			}
+			fileManager.setLocation(StandardLocation.CLASS_PATH, classPath);
+			List<File> sources = new ArrayList<File>();
+			for (Class<?> type : types) {
+				sources.add(new File("src/test/java/" + type.getName().replace('.', '/') + ".java"));
+			}
+			Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjectsFromFiles(sources);
+			JavaCompiler.CompilationTask task = compiler.getTask(
+					null, fileManager, null, Arrays.asList("-proc:only"), null, compilationUnits);
+			task.setProcessors(Collections.singletonList(new CandidateComponentsIndexer()));
+			assertTrue("Compilation failed", task.call());
+		}
+		finally {
+			fileManager.close();
+		}
+		return readIndex();
+	}
+
+	private File indexFile() {
+		return new File(this.outputLocation, CandidateComponentsIndexer.COMPONENTS_RESOURCE_LOCATION);
+	}
+
+	private Properties readIndex() throws IOException {
+		Properties properties = new Properties();
+		if (indexFile().exists()) {
+			InputStream in = new FileInputStream(indexFile());
+			try {
+				properties.load(in);
+			}
+			finally {
+				in.close();
+			}
+		}
+		return properties;
+	}
+
+	private void writeIndex(Properties properties) throws IOException {
+		OutputStream out = new FileOutputStream(indexFile());
+		try {
+			properties.store(out, null);
+		}
+		finally {
+			out.close();
+		}
+	}
+
+}
@@ -38,10 +38,13 @@ import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.NoUniqueBeanDefinitionException;
 import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
+import org.springframework.beans.factory.config.BeanExpressionResolver;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.expression.AnnotatedElementKey;
+import org.springframework.context.expression.StandardBeanExpressionResolver;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.lang.UsesJava8;
 import org.springframework.util.Assert;
@@ -178,11 +181,19 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 	/**
 	 * Set the containing {@link BeanFactory} for {@link CacheManager} and other
 	 * service lookups.
+	 * <p>Cache operation expressions get parsed through the expression cache
+	 * of the factory's {@link StandardBeanExpressionResolver}, if any.
 	 * @since 4.3
 	 */
 	@Override
 	public void setBeanFactory(BeanFactory beanFactory) {
 		this.beanFactory = beanFactory;
+		if (beanFactory instanceof ConfigurableBeanFactory) {
+			BeanExpressionResolver resolver = ((ConfigurableBeanFactory) beanFactory).getBeanExpressionResolver();
+			if (resolver instanceof StandardBeanExpressionResolver) {
+				this.evaluator.setExpressionCache(((StandardBeanExpressionResolver) resolver).getExpressionCache());
+			}
+		}
 	}
 
 	/**
@@ -133,6 +133,7 @@ class CacheOperationExpressionEvaluator extends CachedExpressionEvaluator {
 		this.conditionCache.clear();
 		this.unlessCache.clear();
 		this.targetMethodCache.clear();
+		clearExpressionCache();
 	}
 
 	private Method getTargetMethod(Class<?> targetClass, Method method) {
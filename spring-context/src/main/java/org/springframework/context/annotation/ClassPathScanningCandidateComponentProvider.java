@@ -23,6 +23,9 @@ import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.context.ResourceLoaderAware;
+import org.springframework.context.index.CandidateComponentsIndex;
+import org.springframework.context.index.CandidateComponentsIndexLoader;
+import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.EnvironmentCapable;
 import org.springframework.core.env.StandardEnvironment;
@@ -32,6 +35,7 @@ import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternUtils;
 import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
+import org.springframework.core.type.classreading.ConcurrentMetadataReaderFactory;
 import org.springframework.core.type.classreading.MetadataReader;
 import org.springframework.core.type.classreading.MetadataReaderFactory;
 import org.springframework.core.type.filter.AnnotationTypeFilter;
@@ -45,6 +49,9 @@ import org.springframework.util.ClassUtils;
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.lang.annotation.Inherited;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -57,6 +64,13 @@ import java.util.Set;
  * <p>This implementation is based on Spring's
  * {@link org.springframework.core.type.classreading.MetadataReader MetadataReader}
  * facility, backed by an ASM {@link org.springframework.asm.ClassReader ClassReader}.
+ * <p>If a {@link CandidateComponentsIndex} is available on the classpath, i.e.
+ * {@code META-INF/spring.components} files generated by the
+ * {@code spring-context-indexer} annotation processor, candidates are looked up
+ * from the index rather than by reading every class in the base package. The
+ * index is only used if it covers every classpath location of the base package
+ * and if all include filters can be answered from it; otherwise the classpath
+ * is scanned as usual.
  *
  * @author Mark Fisher
  * @author Juergen Hoeller
@@ -71,6 +85,13 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 
     static final String DEFAULT_RESOURCE_PATTERN = "**/*.class";
 
+    /**
+     * The {@code javax.*} annotations that the candidate components indexer
+     * records next to the {@link Component @Component} stereotypes.
+     */
+    private static final Set<String> INDEXED_JAVAX_ANNOTATIONS = new HashSet<String>(Arrays.asList(
+            "javax.annotation.ManagedBean", "javax.inject.Named"));
+
     protected final Log logger = LogFactory.getLog(getClass());
 
     private Environment environment;
@@ -78,7 +99,7 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
     private ResourcePatternResolver resourcePatternResolver = new PathMatchingResourcePatternResolver();
 
     private MetadataReaderFactory metadataReaderFactory =
-            new CachingMetadataReaderFactory(this.resourcePatternResolver);
+            ConfigurationClassUtils.createMetadataReaderFactory(this.resourcePatternResolver);
 
     private String resourcePattern = DEFAULT_RESOURCE_PATTERN;
 
@@ -88,6 +109,8 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 
     private ConditionEvaluator conditionEvaluator;
 
+    private CandidateComponentsIndex componentsIndex;
+
 
     /**
      * Create a ClassPathScanningCandidateComponentProvider with a {@link StandardEnvironment}.
@@ -134,7 +157,8 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
     @Override
     public void setResourceLoader(ResourceLoader resourceLoader) {
         this.resourcePatternResolver = ResourcePatternUtils.getResourcePatternResolver(resourceLoader);
-        this.metadataReaderFactory = new CachingMetadataReaderFactory(resourceLoader);
+        this.metadataReaderFactory = ConfigurationClassUtils.createMetadataReaderFactory(resourceLoader);
+        this.componentsIndex = CandidateComponentsIndexLoader.loadIndex(this.resourcePatternResolver.getClassLoader());
     }
 
     /**
@@ -148,6 +172,9 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
      * Set the {@link MetadataReaderFactory} to use.
      * <p>Default is a {@link CachingMetadataReaderFactory} for the specified
      * {@linkplain #setResourceLoader resource loader}.
+     * If the {@code "spring.metadata.concurrent"} property is set, it is a
+     * {@link org.springframework.core.type.classreading.ConcurrentMetadataReaderFactory
+     * ConcurrentMetadataReaderFactory} with a cache shared per ClassLoader instead.
      * <p>Call this setter method <i>after</i> {@link #setResourceLoader} in order
      * for the given MetadataReaderFactory to override the default factory.
      */
@@ -279,6 +306,128 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
      * @return a corresponding Set of autodetected bean definitions
      */
     public Set<BeanDefinition> findCandidateComponents(String basePackage) {
+        if (this.componentsIndex != null && indexSupportsIncludeFilters() && isIndexComplete(basePackage)) {
+            return addCandidateComponentsFromIndex(basePackage);
+        } else {
+            return scanCandidateComponents(basePackage);
+        }
+    }
+
+    /**
+     * Determine if the index can be used by this instance, i.e. if every
+     * include filter matches on a stereotype that the indexer records.
+     *
+     * @return {@code true} if the index is available and the configuration of this
+     * instance is supported by it, {@code false} otherwise
+     */
+    private boolean indexSupportsIncludeFilters() {
+        for (TypeFilter includeFilter : this.includeFilters) {
+            if (!indexSupportsIncludeFilter(includeFilter)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determine if the specified include {@link TypeFilter} is supported by the index.
+     * <p>Only {@link AnnotationTypeFilter AnnotationTypeFilters} on non-inherited
+     * {@link Component @Component} stereotypes and on the {@code javax.*}
+     * annotations recorded by the indexer ({@code @ManagedBean} and
+     * {@code @Named}) are supported.
+     *
+     * @param filter the filter to check
+     * @return whether the index supports this include filter
+     */
+    private boolean indexSupportsIncludeFilter(TypeFilter filter) {
+        if (filter instanceof AnnotationTypeFilter) {
+            Class<? extends Annotation> annotation = ((AnnotationTypeFilter) filter).getAnnotationType();
+            if (annotation.isAnnotationPresent(Inherited.class)) {
+                return false;
+            }
+            return (annotation == Component.class ||
+                    AnnotationUtils.isAnnotationMetaPresent(annotation, Component.class) ||
+                    INDEXED_JAVAX_ANNOTATIONS.contains(annotation.getName()));
+        }
+        return false;
+    }
+
+    /**
+     * Determine whether every classpath location that contains the given base
+     * package also contributed a {@code META-INF/spring.components} index, so
+     * that classes from non-indexed locations are not silently missed.
+     *
+     * @param basePackage the package to check
+     * @return whether the index covers the given base package
+     */
+    private boolean isIndexComplete(String basePackage) {
+        String packagePath = resolveBasePackage(basePackage);
+        if (packagePath.isEmpty() || packagePath.contains("*") || packagePath.contains("?")) {
+            return false;
+        }
+        String packageSuffix = packagePath + "/";
+        try {
+            Resource[] roots = this.resourcePatternResolver.getResources(
+                    ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX + packageSuffix);
+            for (Resource root : roots) {
+                String url = root.getURL().toString();
+                if (!url.endsWith(packageSuffix) ||
+                        !this.componentsIndex.getLocations().contains(url.substring(0, url.length() - packageSuffix.length()))) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("No candidate components index for " + root + " - scanning classpath instead");
+                    }
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException ex) {
+            throw new BeanDefinitionStoreException("I/O failure while checking candidate components index", ex);
+        }
+    }
+
+    private Set<BeanDefinition> addCandidateComponentsFromIndex(String basePackage) {
+        Set<BeanDefinition> candidates = new LinkedHashSet<BeanDefinition>();
+        try {
+            String resolvedPackage = this.environment.resolveRequiredPlaceholders(basePackage);
+            Set<String> types = new LinkedHashSet<String>();
+            for (TypeFilter filter : this.includeFilters) {
+                String stereotype = ((AnnotationTypeFilter) filter).getAnnotationType().getName();
+                types.addAll(this.componentsIndex.getCandidateTypes(resolvedPackage, stereotype));
+            }
+            if (this.metadataReaderFactory instanceof ConcurrentMetadataReaderFactory) {
+                ((ConcurrentMetadataReaderFactory) this.metadataReaderFactory).preloadMetadataReadersForClassNames(types);
+            }
+            boolean traceEnabled = logger.isTraceEnabled();
+            boolean debugEnabled = logger.isDebugEnabled();
+            for (String type : types) {
+                MetadataReader metadataReader = this.metadataReaderFactory.getMetadataReader(type);
+                if (isCandidateComponent(metadataReader)) {
+                    ScannedGenericBeanDefinition sbd = new ScannedGenericBeanDefinition(metadataReader);
+                    sbd.setResource(metadataReader.getResource());
+                    sbd.setSource(metadataReader.getResource());
+                    if (isCandidateComponent(sbd)) {
+                        if (debugEnabled) {
+                            logger.debug("Using candidate component class from index: " + type);
+                        }
+                        candidates.add(sbd);
+                    } else {
+                        if (debugEnabled) {
+                            logger.debug("Ignored because not a concrete top-level class: " + type);
+                        }
+                    }
+                } else {
+                    if (traceEnabled) {
+                        logger.trace("Ignored because not matching any filter: " + type);
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            throw new BeanDefinitionStoreException("I/O failure during candidate components index lookup", ex);
+        }
+        return candidates;
+    }
+
+    private Set<BeanDefinition> scanCandidateComponents(String basePackage) {
         Set<BeanDefinition> candidates = new LinkedHashSet<BeanDefinition>();
         try {
             // FIXME: 2017/11/9 //将包中的 点　改为　/
@@ -291,6 +440,11 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
              * // 通过 getResources 方法 进入 PathMatchingResourcePatternResolver 类 中的 getResources 方法
              */
             Resource[] resources = this.resourcePatternResolver.getResources(packageSearchPath);
+            if (this.metadataReaderFactory instanceof ConcurrentMetadataReaderFactory) {
+                // Read all class files in parallel upfront; candidates are still processed in order below
+                ((ConcurrentMetadataReaderFactory) this.metadataReaderFactory).preloadMetadataReaders(
+                        Arrays.asList(resources));
+            }
             boolean traceEnabled = logger.isTraceEnabled();
             boolean debugEnabled = logger.isDebugEnabled();
 
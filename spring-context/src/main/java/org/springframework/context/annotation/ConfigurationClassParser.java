@@ -73,6 +73,7 @@ import org.springframework.core.io.support.ResourcePropertySource;
 import org.springframework.core.type.AnnotationMetadata;
 import org.springframework.core.type.MethodMetadata;
 import org.springframework.core.type.StandardAnnotationMetadata;
+import org.springframework.core.type.classreading.ConcurrentMetadataReaderFactory;
 import org.springframework.core.type.classreading.MetadataReader;
 import org.springframework.core.type.classreading.MetadataReaderFactory;
 import org.springframework.core.type.filter.AssignableTypeFilter;
@@ -617,6 +618,7 @@ class ConfigurationClassParser {
 	 * Factory method to obtain {@link SourceClass}s from class names.
 	 */
 	public Collection<SourceClass> asSourceClasses(String[] classNames) throws IOException {
+		preloadMetadata(classNames);
 		List<SourceClass> annotatedClasses = new ArrayList<SourceClass>();
 		for (String className : classNames) {
 			annotatedClasses.add(asSourceClass(className));
@@ -640,6 +642,22 @@ class ConfigurationClassParser {
 		return new SourceClass(this.metadataReaderFactory.getMetadataReader(className));
 	}
 
+	/**
+	 * Read the class files for the given class names in parallel upfront if the
+	 * {@link MetadataReaderFactory} supports it; they are still processed in order.
+	 */
+	private void preloadMetadata(String[] classNames) {
+		if (classNames.length > 1 && this.metadataReaderFactory instanceof ConcurrentMetadataReaderFactory) {
+			List<String> toPreload = new ArrayList<String>(classNames.length);
+			for (String className : classNames) {
+				if (!className.startsWith("java")) {
+					toPreload.add(className);
+				}
+			}
+			((ConcurrentMetadataReaderFactory) this.metadataReaderFactory).preloadMetadataReadersForClassNames(toPreload);
+		}
+	}
+
 
 	@SuppressWarnings("serial")
 	private static class ImportStack extends ArrayDeque<ConfigurationClass> implements ImportRegistry {
@@ -780,6 +798,7 @@ class ConfigurationClassParser {
 			// ASM-based resolution - safe for non-resolvable classes as well
 			MetadataReader sourceReader = (MetadataReader) sourceToProcess;
 			String[] memberClassNames = sourceReader.getClassMetadata().getMemberClassNames();
+			preloadMetadata(memberClassNames);
 			List<SourceClass> members = new ArrayList<SourceClass>(memberClassNames.length);
 			for (String memberClassName : memberClassNames) {
 				try {
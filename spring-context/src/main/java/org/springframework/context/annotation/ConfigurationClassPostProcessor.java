@@ -37,6 +37,7 @@ import org.springframework.beans.factory.BeanClassLoaderAware;
 import org.springframework.beans.factory.BeanDefinitionStoreException;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.BeanInitializationException;
 import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinitionHolder;
@@ -57,12 +58,14 @@ import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.context.EnvironmentAware;
 import org.springframework.context.ResourceLoaderAware;
 import org.springframework.context.annotation.ConfigurationClassEnhancer.EnhancedConfiguration;
+import org.springframework.core.Conventions;
 import org.springframework.core.Ordered;
 import org.springframework.core.PriorityOrdered;
 import org.springframework.core.env.Environment;
 import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.StandardAnnotationMetadata;
 import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
 import org.springframework.core.type.classreading.MetadataReaderFactory;
 import org.springframework.util.Assert;
@@ -100,6 +103,9 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 	private static final String ENHANCED_CONFIGURATION_PROCESSOR_BEAN_NAME =
 			ConfigurationClassPostProcessor.class.getName() + ".enhancedConfigurationProcessor";
 
+	private static final String IMPORTING_CLASS_ATTRIBUTE =
+			Conventions.getQualifiedAttributeName(ConfigurationClassPostProcessor.class, "importingClass");
+
 
 	private final Log logger = LogFactory.getLog(getClass());
 
@@ -113,7 +119,8 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 
 	private ClassLoader beanClassLoader = ClassUtils.getDefaultClassLoader();
 
-	private MetadataReaderFactory metadataReaderFactory = new CachingMetadataReaderFactory();
+	private MetadataReaderFactory metadataReaderFactory =
+			ConfigurationClassUtils.createMetadataReaderFactory((ClassLoader) null);
 
 	private boolean setMetadataReaderFactoryCalled = false;
 
@@ -164,6 +171,9 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 	 * Set the {@link MetadataReaderFactory} to use.
 	 * <p>Default is a {@link CachingMetadataReaderFactory} for the specified
 	 * {@linkplain #setBeanClassLoader bean class loader}.
+	 * If the {@code "spring.metadata.concurrent"} property is set, it is a
+	 * {@link org.springframework.core.type.classreading.ConcurrentMetadataReaderFactory
+	 * ConcurrentMetadataReaderFactory} with a cache shared per ClassLoader instead.
 	 */
 	public void setMetadataReaderFactory(MetadataReaderFactory metadataReaderFactory) {
 		Assert.notNull(metadataReaderFactory, "MetadataReaderFactory must not be null");
@@ -206,7 +216,7 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 		Assert.notNull(resourceLoader, "ResourceLoader must not be null");
 		this.resourceLoader = resourceLoader;
 		if (!this.setMetadataReaderFactoryCalled) {
-			this.metadataReaderFactory = new CachingMetadataReaderFactory(resourceLoader);
+			this.metadataReaderFactory = ConfigurationClassUtils.createMetadataReaderFactory(resourceLoader);
 		}
 	}
 
@@ -214,7 +224,7 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 	public void setBeanClassLoader(ClassLoader beanClassLoader) {
 		this.beanClassLoader = beanClassLoader;
 		if (!this.setMetadataReaderFactoryCalled) {
-			this.metadataReaderFactory = new CachingMetadataReaderFactory(beanClassLoader);
+			this.metadataReaderFactory = ConfigurationClassUtils.createMetadataReaderFactory(beanClassLoader);
 		}
 	}
 
@@ -273,6 +283,8 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 	public void processConfigBeanDefinitions(BeanDefinitionRegistry registry) {
 		List<BeanDefinitionHolder> configCandidates = new ArrayList<BeanDefinitionHolder>();
 		String[] candidateNames = registry.getBeanDefinitionNames();
+		ConfigurationClassUtils.preloadConfigurationClassCandidates(
+				registry, Arrays.asList(candidateNames), this.metadataReaderFactory);
 
 		for (String beanName : candidateNames) {
 			BeanDefinition beanDef = registry.getBeanDefinition(beanName);
@@ -344,6 +356,10 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 				for (ConfigurationClass configurationClass : alreadyParsed) {
 					alreadyParsedClasses.add(configurationClass.getMetadata().getClassName());
 				}
+				List<String> addedCandidateNames = new ArrayList<String>(Arrays.asList(newCandidateNames));
+				addedCandidateNames.removeAll(oldCandidateNames);
+				ConfigurationClassUtils.preloadConfigurationClassCandidates(
+						registry, addedCandidateNames, this.metadataReaderFactory);
 				for (String candidateName : newCandidateNames) {
 					if (!oldCandidateNames.contains(candidateName)) {
 						BeanDefinition beanDef = registry.getBeanDefinition(candidateName);
@@ -358,6 +374,21 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 		}
 		while (!candidates.isEmpty());
 
+		// Remember the importing classes on the bean definitions as well, for ImportAware
+		// beans whose bean definitions get restored without parsing (e.g. from a snapshot)
+		ImportRegistry importRegistry = parser.getImportRegistry();
+		for (ConfigurationClass configClass : alreadyParsed) {
+			String beanName = configClass.getBeanName();
+			if (configClass.isImported() && beanName != null && registry.containsBeanDefinition(beanName)) {
+				AnnotationMetadata importingClass =
+						importRegistry.getImportingClassFor(configClass.getMetadata().getClassName());
+				if (importingClass != null) {
+					registry.getBeanDefinition(beanName).setAttribute(
+							IMPORTING_CLASS_ATTRIBUTE, importingClass.getClassName());
+				}
+			}
+		}
+
 		// Register the ImportRegistry as a bean in order to support ImportAware @Configuration classes
 		if (singletonRegistry != null) {
 			if (!singletonRegistry.containsSingleton(IMPORT_REGISTRY_BEAN_NAME)) {
@@ -439,8 +470,7 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 		@Override
 		public Object postProcessBeforeInitialization(Object bean, String beanName)  {
 			if (bean instanceof ImportAware) {
-				ImportRegistry importRegistry = this.beanFactory.getBean(IMPORT_REGISTRY_BEAN_NAME, ImportRegistry.class);
-				AnnotationMetadata importingClass = importRegistry.getImportingClassFor(bean.getClass().getSuperclass().getName());
+				AnnotationMetadata importingClass = getImportingClass(bean, beanName);
 				if (importingClass != null) {
 					((ImportAware) bean).setImportMetadata(importingClass);
 				}
@@ -448,6 +478,34 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 			return bean;
 		}
 
+		private AnnotationMetadata getImportingClass(Object bean, String beanName) {
+			if (this.beanFactory.containsBean(IMPORT_REGISTRY_BEAN_NAME)) {
+				ImportRegistry importRegistry = this.beanFactory.getBean(IMPORT_REGISTRY_BEAN_NAME, ImportRegistry.class);
+				AnnotationMetadata importingClass = importRegistry.getImportingClassFor(bean.getClass().getSuperclass().getName());
+				if (importingClass != null) {
+					return importingClass;
+				}
+			}
+			// Configuration classes not parsed in this bean factory: check the bean definition
+			if (this.beanFactory instanceof ConfigurableListableBeanFactory) {
+				ConfigurableListableBeanFactory clbf = (ConfigurableListableBeanFactory) this.beanFactory;
+				if (clbf.containsBeanDefinition(beanName)) {
+					Object importingClassName = clbf.getBeanDefinition(beanName).getAttribute(IMPORTING_CLASS_ATTRIBUTE);
+					if (importingClassName instanceof String) {
+						try {
+							return new StandardAnnotationMetadata(
+									ClassUtils.forName((String) importingClassName, clbf.getBeanClassLoader()), true);
+						}
+						catch (ClassNotFoundException ex) {
+							throw new BeanInitializationException("Could not load importing class [" +
+									importingClassName + "] for bean '" + beanName + "'", ex);
+						}
+					}
+				}
+			}
+			return null;
+		}
+
 		@Override
 		public Object postProcessAfterInitialization(Object bean, String beanName) {
 			return bean;
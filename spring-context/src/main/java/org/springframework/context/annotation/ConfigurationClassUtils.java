@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,7 +17,10 @@
 package org.springframework.context.annotation;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -27,12 +30,16 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.core.Conventions;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.annotation.Order;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.type.AnnotationMetadata;
 import org.springframework.core.type.StandardAnnotationMetadata;
+import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
+import org.springframework.core.type.classreading.ConcurrentMetadataReaderFactory;
 import org.springframework.core.type.classreading.MetadataReader;
 import org.springframework.core.type.classreading.MetadataReaderFactory;
 import org.springframework.stereotype.Component;
@@ -69,6 +76,33 @@ abstract class ConfigurationClassUtils {
 	}
 
 
+	/**
+	 * Read the class files of the given bean definitions in parallel upfront if the
+	 * given factory is a {@link ConcurrentMetadataReaderFactory}, for a subsequent
+	 * {@link #checkConfigurationClassCandidate} call per bean definition.
+	 * @param registry the registry that holds the bean definitions
+	 * @param beanNames the names of the bean definitions to check
+	 * @param metadataReaderFactory the current factory in use by the caller
+	 * @since 4.3.4
+	 */
+	public static void preloadConfigurationClassCandidates(BeanDefinitionRegistry registry,
+			Collection<String> beanNames, MetadataReaderFactory metadataReaderFactory) {
+
+		if (!(metadataReaderFactory instanceof ConcurrentMetadataReaderFactory)) {
+			return;
+		}
+		List<String> classNames = new ArrayList<String>();
+		for (String beanName : beanNames) {
+			BeanDefinition beanDef = registry.getBeanDefinition(beanName);
+			String className = beanDef.getBeanClassName();
+			if (className != null && !(beanDef instanceof AnnotatedBeanDefinition) &&
+					!(beanDef instanceof AbstractBeanDefinition && ((AbstractBeanDefinition) beanDef).hasBeanClass())) {
+				classNames.add(className);
+			}
+		}
+		((ConcurrentMetadataReaderFactory) metadataReaderFactory).preloadMetadataReadersForClassNames(classNames);
+	}
+
 	/**
 	 * Check whether the given bean definition is a candidate for a configuration class
 	 * (or a nested component class declared within a configuration/component class,
@@ -211,4 +245,30 @@ abstract class ConfigurationClassUtils {
 		return (order != null ? order : Ordered.LOWEST_PRECEDENCE);
 	}
 
+	/**
+	 * Create the default {@link MetadataReaderFactory} for configuration class
+	 * parsing and component scanning: a {@link ConcurrentMetadataReaderFactory}
+	 * with a shared cache if {@link ConcurrentMetadataReaderFactory#isDefault()},
+	 * or a {@link CachingMetadataReaderFactory} otherwise.
+	 * @param resourceLoader the ResourceLoader to use (may be {@code null})
+	 * @since 4.3.4
+	 */
+	public static MetadataReaderFactory createMetadataReaderFactory(ResourceLoader resourceLoader) {
+		return (ConcurrentMetadataReaderFactory.isDefault() ?
+				new ConcurrentMetadataReaderFactory(resourceLoader, true) :
+				new CachingMetadataReaderFactory(resourceLoader));
+	}
+
+	/**
+	 * Create the default {@link MetadataReaderFactory} for the given ClassLoader.
+	 * @param classLoader the ClassLoader to use (may be {@code null})
+	 * @since 4.3.4
+	 * @see #createMetadataReaderFactory(ResourceLoader)
+	 */
+	public static MetadataReaderFactory createMetadataReaderFactory(ClassLoader classLoader) {
+		return (ConcurrentMetadataReaderFactory.isDefault() ?
+				new ConcurrentMetadataReaderFactory(classLoader, true) :
+				new CachingMetadataReaderFactory(classLoader));
+	}
+
 }
@@ -34,10 +34,12 @@ import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanInitializationException;
 import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanExpressionResolver;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.expression.StandardBeanExpressionResolver;
 import org.springframework.core.MethodIntrospector;
 import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.core.annotation.AnnotationAwareOrderComparator;
@@ -69,6 +71,11 @@ public class EventListenerMethodProcessor implements SmartInitializingSingleton,
 		Assert.isTrue(applicationContext instanceof ConfigurableApplicationContext,
 				"ApplicationContext does not implement ConfigurableApplicationContext");
 		this.applicationContext = (ConfigurableApplicationContext) applicationContext;
+		// Share parsed condition expressions with the other evaluators of the context
+		BeanExpressionResolver resolver = this.applicationContext.getBeanFactory().getBeanExpressionResolver();
+		if (resolver instanceof StandardBeanExpressionResolver) {
+			this.evaluator.setExpressionCache(((StandardBeanExpressionResolver) resolver).getExpressionCache());
+		}
 	}
 
 	@Override
@@ -21,6 +21,7 @@ import java.util.Map;
 import org.springframework.core.DefaultParameterNameDiscoverer;
 import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionCache;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
@@ -39,6 +40,8 @@ public abstract class CachedExpressionEvaluator {
 
 	private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
 
+	private volatile SpelExpressionCache expressionCache;
+
 
 	/**
 	 * Create a new instance with the specified {@link SpelExpressionParser}.
@@ -72,17 +75,68 @@ public abstract class CachedExpressionEvaluator {
 	}
 
 
+	/**
+	 * Specify a shared {@link SpelExpressionCache} to delegate to, instead of
+	 * the caches held by this evaluator. The shared cache is bounded, exposes
+	 * statistics and may compile frequently evaluated expressions.
+	 * <p>Expressions are parsed by the shared cache then, rather than by the
+	 * {@linkplain #getParser() parser} of this evaluator.
+	 * <p>Subclasses are expected to call {@link #clearExpressionCache()} when
+	 * clearing their own caches, so that the expressions added to the shared
+	 * cache for this type of evaluator are removed as well.
+	 * @since 4.3.4
+	 * @see StandardBeanExpressionResolver#getExpressionCache()
+	 */
+	public void setExpressionCache(SpelExpressionCache expressionCache) {
+		this.expressionCache = expressionCache;
+	}
+
+	/**
+	 * Return the shared {@link SpelExpressionCache} to delegate to, if any.
+	 * @since 4.3.4
+	 */
+	public SpelExpressionCache getExpressionCache() {
+		return this.expressionCache;
+	}
+
+	/**
+	 * Remove the expressions that this type of evaluator has added to the shared
+	 * {@link SpelExpressionCache}, if any. Other entries are left untouched.
+	 * @since 4.3.4
+	 * @see #setExpressionCache
+	 */
+	protected void clearExpressionCache() {
+		SpelExpressionCache sharedCache = this.expressionCache;
+		if (sharedCache != null) {
+			final Class<?> evaluatorType = getClass();
+			sharedCache.removeMatching(new SpelExpressionCache.KeyFilter() {
+				@Override
+				public boolean matches(Object key) {
+					return (key instanceof SharedExpressionKey &&
+							((SharedExpressionKey) key).evaluatorType == evaluatorType);
+				}
+			});
+		}
+	}
+
+
 	/**
 	 * Return the {@link Expression} for the specified SpEL value
 	 * <p>Parse the expression if it hasn't been already.
-	 * @param cache the cache to use
+	 * @param cache the cache to use, unless a shared expression cache has been specified
 	 * @param elementKey the element on which the expression is defined
 	 * @param expression the expression to parse
+	 * @see #setExpressionCache
 	 */
 	protected Expression getExpression(Map<ExpressionKey, Expression> cache,
 			AnnotatedElementKey elementKey, String expression) {
 
 		ExpressionKey expressionKey = createKey(elementKey, expression);
+		SpelExpressionCache sharedCache = this.expressionCache;
+		if (sharedCache != null) {
+			// Other evaluators may use the same expression on the same element with different root objects
+			return sharedCache.getExpression(new SharedExpressionKey(getClass(), expressionKey), expression);
+		}
 		Expression expr = cache.get(expressionKey);
 		if (expr == null) {
 			expr = getParser().parseExpression(expression);
@@ -96,6 +150,45 @@ public abstract class CachedExpressionEvaluator {
 	}
 
 
+	/**
+	 * Key for an expression in a shared {@link SpelExpressionCache},
+	 * qualified with the type of evaluator that uses the expression.
+	 */
+	private static final class SharedExpressionKey {
+
+		private final Class<?> evaluatorType;
+
+		private final ExpressionKey expressionKey;
+
+		public SharedExpressionKey(Class<?> evaluatorType, ExpressionKey expressionKey) {
+			this.evaluatorType = evaluatorType;
+			this.expressionKey = expressionKey;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof SharedExpressionKey)) {
+				return false;
+			}
+			SharedExpressionKey otherKey = (SharedExpressionKey) other;
+			return (this.evaluatorType == otherKey.evaluatorType && this.expressionKey.equals(otherKey.expressionKey));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.evaluatorType.hashCode() * 29 + this.expressionKey.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return this.expressionKey + " for " + this.evaluatorType.getName();
+		}
+	}
+
+
 	protected static class ExpressionKey implements Comparable<ExpressionKey> {
 
 		private final AnnotatedElementKey element;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,6 +28,7 @@ import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
 import org.springframework.expression.ParserContext;
 import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionCache;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.expression.spel.support.StandardTypeConverter;
@@ -59,9 +60,7 @@ public class StandardBeanExpressionResolver implements BeanExpressionResolver {
 
 	private String expressionSuffix = DEFAULT_EXPRESSION_SUFFIX;
 
-	private ExpressionParser expressionParser;
-
-	private final Map<String, Expression> expressionCache = new ConcurrentHashMap<String, Expression>(256);
+	private final SpelExpressionCache expressionCache;
 
 	private final Map<BeanExpressionContext, StandardEvaluationContext> evaluationCache =
 			new ConcurrentHashMap<BeanExpressionContext, StandardEvaluationContext>(8);
@@ -86,7 +85,7 @@ public class StandardBeanExpressionResolver implements BeanExpressionResolver {
 	 * Create a new {@code StandardBeanExpressionResolver} with default settings.
 	 */
 	public StandardBeanExpressionResolver() {
-		this.expressionParser = new SpelExpressionParser();
+		this.expressionCache = new SpelExpressionCache(new SpelExpressionParser());
 	}
 
 	/**
@@ -95,7 +94,8 @@ public class StandardBeanExpressionResolver implements BeanExpressionResolver {
 	 * @param beanClassLoader the factory's bean class loader
 	 */
 	public StandardBeanExpressionResolver(ClassLoader beanClassLoader) {
-		this.expressionParser = new SpelExpressionParser(new SpelParserConfiguration(null, beanClassLoader));
+		this.expressionCache = new SpelExpressionCache(
+				new SpelExpressionParser(new SpelParserConfiguration(null, beanClassLoader)));
 	}
 
 
@@ -123,10 +123,23 @@ public class StandardBeanExpressionResolver implements BeanExpressionResolver {
 	 * Specify the EL parser to use for expression parsing.
 	 * <p>Default is a {@link org.springframework.expression.spel.standard.SpelExpressionParser},
 	 * compatible with standard Unified EL style expression syntax.
+	 * <p>The {@linkplain #getExpressionCache() expression cache} keeps its
+	 * settings and remains shared, but drops the expressions parsed so far.
 	 */
 	public void setExpressionParser(ExpressionParser expressionParser) {
-		Assert.notNull(expressionParser, "ExpressionParser must not be null");
-		this.expressionParser = expressionParser;
+		this.expressionCache.setExpressionParser(expressionParser);
+	}
+
+	/**
+	 * Return the cache of parsed expressions, which other components evaluating
+	 * expressions within the same bean factory may share.
+	 * <p>The cache may be customized, e.g. with a compilation threshold for
+	 * frequently evaluated expressions, and exposes statistics about its usage.
+	 * @since 4.3.4
+	 * @see CachedExpressionEvaluator#setExpressionCache
+	 */
+	public SpelExpressionCache getExpressionCache() {
+		return this.expressionCache;
 	}
 
 
@@ -136,11 +149,7 @@ public class StandardBeanExpressionResolver implements BeanExpressionResolver {
 			return value;
 		}
 		try {
-			Expression expr = this.expressionCache.get(value);
-			if (expr == null) {
-				expr = this.expressionParser.parseExpression(value, this.beanExpressionParserContext);
-				this.expressionCache.put(value, expr);
-			}
+			Expression expr = this.expressionCache.getExpression(value, value, this.beanExpressionParserContext);
 			StandardEvaluationContext sec = this.evaluationCache.get(evalContext);
 			if (sec == null) {
 				sec = new StandardEvaluationContext();
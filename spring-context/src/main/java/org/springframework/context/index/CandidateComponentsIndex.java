@@ -0,0 +1,109 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+
+/**
+ * Provide access to the candidates that are defined in {@code META-INF/spring.components}.
+ *
+ * <p>An arbitrary number of stereotypes can be registered (and queried) on the index:
+ * a typical example is the fully qualified name of an annotation that flags the
+ * class for a certain use case. The following call returns all the
+ * {@code @Component} candidate types for the {@code com.example} package (and its
+ * sub-packages):
+ * <pre class="code">
+ * Set&lt;String&gt; candidates = index.getCandidateTypes(
+ *         "com.example", "org.springframework.stereotype.Component");
+ * </pre>
+ *
+ * <p>The index also keeps track of the classpath locations it was loaded from,
+ * so that callers can check whether all the locations of a given package are
+ * actually indexed before relying on it.
+ *
+ * @since 4.3.4
+ * @see CandidateComponentsIndexLoader
+ */
+public class CandidateComponentsIndex {
+
+	private final MultiValueMap<String, String> index;
+
+	private final Set<String> locations;
+
+
+	CandidateComponentsIndex(List<Properties> content, List<String> locations) {
+		this.index = parseIndex(content);
+		this.locations = Collections.unmodifiableSet(new HashSet<String>(locations));
+	}
+
+
+	/**
+	 * Return the candidate types that are associated with the specified stereotype.
+	 * @param basePackage the package to check for candidates
+	 * @param stereotype the stereotype to use
+	 * @return the candidate types associated with the specified {@code stereotype}
+	 * or an empty set if none has been found for the specified {@code basePackage}
+	 */
+	public Set<String> getCandidateTypes(String basePackage, String stereotype) {
+		List<String> candidates = this.index.get(stereotype);
+		if (candidates == null) {
+			return Collections.emptySet();
+		}
+		String packagePrefix = basePackage + ".";
+		Set<String> result = new LinkedHashSet<String>();
+		for (String candidate : candidates) {
+			if (candidate.startsWith(packagePrefix)) {
+				result.add(candidate);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the classpath locations that this index was loaded from, as the
+	 * URL of the root of each location (e.g. {@code jar:file:/app.jar!/}).
+	 */
+	public Set<String> getLocations() {
+		return this.locations;
+	}
+
+
+	private static MultiValueMap<String, String> parseIndex(List<Properties> content) {
+		MultiValueMap<String, String> index = new LinkedMultiValueMap<String, String>();
+		for (Properties entry : content) {
+			for (Map.Entry<Object, Object> entries : entry.entrySet()) {
+				String type = (String) entries.getKey();
+				String[] stereotypes = StringUtils.commaDelimitedListToStringArray((String) entries.getValue());
+				for (String stereotype : stereotypes) {
+					index.add(stereotype.trim(), type);
+				}
+			}
+		}
+		return index;
+	}
+
+}
@@ -16,11 +16,15 @@
 
 package org.springframework.context.support;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InvalidClassException;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -31,6 +35,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.beans.BeanIntrospectionWarmer;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.CachedIntrospectionResults;
 import org.springframework.beans.factory.BeanFactory;
@@ -39,6 +44,8 @@ import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
 import org.springframework.beans.support.ResourceEditorRegistrar;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
@@ -69,15 +76,18 @@ import org.springframework.core.ResolvableType;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.env.Environment;
+import org.springframework.core.env.PropertySource;
 import org.springframework.core.env.StandardEnvironment;
 import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.type.classreading.ConcurrentMetadataReaderFactory;
 import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
 import org.springframework.util.StringValueResolver;
 
 /**
@@ -208,6 +218,21 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	/** ApplicationEvents published early */
 	private Set<ApplicationEvent> earlyApplicationEvents;
 
+	/** Packages whose classes to introspect upfront on refresh */
+	private String[] introspectionWarmUpPackages;
+
+	/** File to restore the bean definitions from, or to record them in */
+	private File beanDefinitionSnapshotFile;
+
+	/** Fingerprint for the bean definition snapshot to record on this refresh */
+	private String beanDefinitionSnapshotFingerprint;
+
+	/** Names of the Environment's property sources before bean definition post-processing */
+	private Set<String> initialPropertySourceNames;
+
+	/** Names of the properties looked up while loading and post-processing bean definitions */
+	private Set<String> recordedPropertyNames;
+
 
 	/**
 	 * Create a new AbstractApplicationContext with no parent.
@@ -477,6 +502,49 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		return this.beanFactoryPostProcessors;
 	}
 
+	/**
+	 * Specify packages whose classes to introspect as JavaBeans in parallel on
+	 * refresh, right before the singletons get instantiated, instead of one by one
+	 * on first use of each class - e.g. on data binding for the first requests.
+	 * <p>Package names may contain placeholders, resolved against this context's
+	 * {@link #getEnvironment() Environment}.
+	 * <p>The {@link CachedIntrospectionResults} cache is not cleared at the end
+	 * of refresh then, so that the warmed-up results survive startup.
+	 * @param basePackages the packages to warm up the introspection cache for
+	 * @since 4.3.4
+	 * @see org.springframework.beans.BeanIntrospectionWarmer
+	 */
+	public void setIntrospectionWarmUpPackages(String... basePackages) {
+		this.introspectionWarmUpPackages = basePackages;
+	}
+
+	/**
+	 * Specify a file to record this context's bean definitions in on refresh, right
+	 * after all {@link BeanDefinitionRegistryPostProcessor BeanDefinitionRegistryPostProcessors}
+	 * have run, and to restore them from on subsequent refreshes - e.g. on the next
+	 * start of the same application - instead of reading bean definition resources,
+	 * parsing configuration classes, scanning for components and evaluating conditions.
+	 * <p>The snapshot is only used as long as its fingerprint matches, covering the
+	 * class path, the active and default profiles, the names of the Environment's
+	 * property sources and the bean definitions registered before refresh; see
+	 * {@link #getBeanDefinitionSnapshotKey}. The resources that bean definitions have
+	 * been loaded from, e.g. XML files, need to have the same content as well, and
+	 * the properties looked up in the Environment while loading and post-processing
+	 * bean definitions need to have the same values. Otherwise, the snapshot is
+	 * recorded anew.
+	 * <p>Bean definitions that cannot be captured, e.g. because of values
+	 * that are not serializable or not of common value types, and property sources
+	 * added while processing bean definitions (e.g. through {@code @PropertySource})
+	 * prevent a snapshot from being recorded. Any other external state that bean
+	 * definition registry post-processors or conditions consult is not covered.
+	 * @param snapshotFile the file to use for the bean definition snapshot
+	 * @since 4.3.4
+	 * @see org.springframework.beans.factory.support.BeanDefinitionSnapshot
+	 */
+	public void setBeanDefinitionSnapshotFile(File snapshotFile) {
+		this.beanDefinitionSnapshotFile = snapshotFile;
+	}
+
 	@Override
 	public void addApplicationListener(ApplicationListener<?> listener) {
 		Assert.notNull(listener, "ApplicationListener must not be null");
@@ -518,6 +586,7 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 			// Prepare the bean factory for use in this context.
 			prepareBeanFactory(beanFactory);
 
+			boolean refreshed = false;
 			try {
 				// Allows post-processing of the bean factory in context subclasses.
 				postProcessBeanFactory(beanFactory);
@@ -551,6 +620,7 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 
 				// Last step: publish corresponding event.
 				finishRefresh();
+				refreshed = true;
 			}
 
 			catch (BeansException ex) {
@@ -573,6 +643,10 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 				// Reset common introspection caches in Spring's core, since we
 				// might not ever need metadata for singleton beans anymore...
 				resetCommonCaches();
+				if (!refreshed && this.introspectionWarmUpPackages != null) {
+					// Warmed-up introspection results are only worth keeping for a running context
+					CachedIntrospectionResults.clearClassLoader(getClassLoader());
+				}
 			}
 		}
 	}
@@ -688,8 +762,13 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	 * <p>Must be called before singleton instantiation.
 	 */
 	protected void invokeBeanFactoryPostProcessors(ConfigurableListableBeanFactory beanFactory) {
+		List<BeanFactoryPostProcessor> postProcessors = getBeanFactoryPostProcessors();
+		if (this.beanDefinitionSnapshotFingerprint != null) {
+			postProcessors = new ArrayList<BeanFactoryPostProcessor>(postProcessors);
+			postProcessors.add(0, new BeanDefinitionSnapshotRecorder());
+		}
 		// FIXME: 2017/12/4 查看该方法 invokeBeanFactoryPostProcessors
-		PostProcessorRegistrationDelegate.invokeBeanFactoryPostProcessors(beanFactory, getBeanFactoryPostProcessors());
+		PostProcessorRegistrationDelegate.invokeBeanFactoryPostProcessors(beanFactory, postProcessors);
 
 		// Detect a LoadTimeWeaver and prepare for weaving, if found in the meantime
 		// (e.g. through an @Bean method registered by ConfigurationClassPostProcessor)
@@ -699,6 +778,138 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		}
 	}
 
+	/**
+	 * Restore the bean definitions recorded in the
+	 * {@link #setBeanDefinitionSnapshotFile bean definition snapshot file}, if any,
+	 * into the given bean factory. To be called by subclasses instead of loading
+	 * bean definitions themselves, if possible.
+	 * <p>If there is no up-to-date snapshot, prepares for recording a new one.
+	 * @param beanFactory the bean factory to restore the bean definitions into
+	 * @return whether the bean definitions have been restored
+	 * @since 4.3.4
+	 */
+	protected boolean restoreBeanDefinitionSnapshot(ConfigurableListableBeanFactory beanFactory) {
+		this.beanDefinitionSnapshotFingerprint = null;
+		this.initialPropertySourceNames = null;
+		stopRecordingPropertyNames();
+		File snapshotFile = this.beanDefinitionSnapshotFile;
+		if (snapshotFile == null || !(beanFactory instanceof BeanDefinitionRegistry)) {
+			return false;
+		}
+		String fingerprint;
+		try {
+			fingerprint = ApplicationContextSnapshot.fingerprint(getBeanDefinitionSnapshotKey(beanFactory));
+		}
+		catch (IllegalStateException ex) {
+			logger.info("Not using bean definition snapshot: " + ex.getMessage());
+			return false;
+		}
+		if (snapshotFile.isFile()) {
+			try {
+				ApplicationContextSnapshot snapshot = ApplicationContextSnapshot.read(snapshotFile, getClassLoader());
+				if (fingerprint.equals(snapshot.getFingerprint()) &&
+						snapshot.isUpToDate(this, getEnvironment().getPropertySources())) {
+					snapshot.restore((BeanDefinitionRegistry) beanFactory);
+					if (logger.isInfoEnabled()) {
+						logger.info("Restored " + snapshot.getBeanDefinitionCount() +
+								" bean definitions from snapshot [" + snapshotFile + "]");
+					}
+					return true;
+				}
+				if (logger.isInfoEnabled()) {
+					logger.info("Bean definition snapshot [" + snapshotFile + "] is outdated - recording a new one");
+				}
+			}
+			catch (Exception ex) {
+				logger.warn("Could not restore bean definitions from snapshot [" + snapshotFile + "]", ex);
+			}
+		}
+		this.beanDefinitionSnapshotFingerprint = fingerprint;
+		this.initialPropertySourceNames = new HashSet<String>();
+		for (PropertySource<?> propertySource : getEnvironment().getPropertySources()) {
+			this.initialPropertySourceNames.add(propertySource.getName());
+		}
+		this.recordedPropertyNames = Collections.synchronizedSet(new LinkedHashSet<String>());
+		ApplicationContextSnapshot.recordPropertyNames(getEnvironment().getPropertySources(), this.recordedPropertyNames);
+		return false;
+	}
+
+	/**
+	 * Return the key that a bean definition snapshot is valid for, to be hashed into
+	 * the snapshot's fingerprint. Subclasses may append further state that affects
+	 * the bean definitions, e.g. configuration locations.
+	 * <p>The default implementation covers this context's class, the active and default
+	 * profiles, the names of the Environment's property sources, the names and classes
+	 * of the bean definitions registered so far, and the class path. The values of the
+	 * properties that bean definition processing looks up are checked separately.
+	 * @param beanFactory the bean factory to restore the bean definitions into
+	 * @return the key (never {@code null})
+	 * @throws IllegalStateException if the state cannot be covered by a key, in which
+	 * case no snapshot is used
+	 * @since 4.3.4
+	 * @see #setBeanDefinitionSnapshotFile
+	 */
+	protected String getBeanDefinitionSnapshotKey(ConfigurableListableBeanFactory beanFactory) {
+		StringBuilder key = new StringBuilder(getClass().getName());
+		ConfigurableEnvironment environment = getEnvironment();
+		key.append("\nactiveProfiles=").append(StringUtils.arrayToCommaDelimitedString(environment.getActiveProfiles()));
+		key.append("\ndefaultProfiles=").append(StringUtils.arrayToCommaDelimitedString(environment.getDefaultProfiles()));
+		ApplicationContextSnapshot.appendPropertySources(key, environment.getPropertySources());
+		for (String beanName : beanFactory.getBeanDefinitionNames()) {
+			key.append("\nbean=").append(beanName).append(':')
+					.append(beanFactory.getBeanDefinition(beanName).getBeanClassName());
+		}
+		ApplicationContextSnapshot.appendClassPath(key, getClassLoader());
+		return key.toString();
+	}
+
+	/**
+	 * Record the bean definitions of the given bean factory in the
+	 * {@link #setBeanDefinitionSnapshotFile bean definition snapshot file}.
+	 */
+	private void recordBeanDefinitionSnapshot(ConfigurableListableBeanFactory beanFactory) {
+		File snapshotFile = this.beanDefinitionSnapshotFile;
+		Set<String> propertyNames = stopRecordingPropertyNames();
+		try {
+			ApplicationContextSnapshot snapshot = ApplicationContextSnapshot.capture(this.beanDefinitionSnapshotFingerprint,
+					(BeanDefinitionRegistry) beanFactory, getEnvironment(), this.initialPropertySourceNames, propertyNames);
+			snapshot.write(snapshotFile);
+			if (logger.isInfoEnabled()) {
+				logger.info("Recorded " + snapshot.getBeanDefinitionCount() +
+						" bean definitions in snapshot [" + snapshotFile + "]");
+			}
+		}
+		catch (BeansException ex) {
+			logger.info("Not recording bean definition snapshot: " + ex.getMessage());
+		}
+		catch (IllegalStateException ex) {
+			logger.info("Not recording bean definition snapshot: " + ex.getMessage());
+		}
+		catch (InvalidClassException ex) {
+			logger.info("Not recording bean definition snapshot: " + ex.getMessage());
+		}
+		catch (IOException ex) {
+			logger.warn("Could not write bean definition snapshot [" + snapshotFile + "]", ex);
+		}
+		finally {
+			this.beanDefinitionSnapshotFingerprint = null;
+			this.initialPropertySourceNames = null;
+		}
+	}
+
+	/**
+	 * Stop recording the names of the properties looked up in the Environment.
+	 * @return the names recorded so far, or {@code null} if not recording
+	 */
+	private Set<String> stopRecordingPropertyNames() {
+		Set<String> propertyNames = this.recordedPropertyNames;
+		if (propertyNames != null) {
+			this.recordedPropertyNames = null;
+			ApplicationContextSnapshot.stopRecordingPropertyNames(getEnvironment().getPropertySources());
+		}
+		return propertyNames;
+	}
+
 	/**
 	 * Instantiate and invoke all registered BeanPostProcessor beans,
 	 * respecting explicit order if given.
@@ -874,10 +1085,31 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		// Allow for caching all bean definition metadata, not expecting further changes.
 		beanFactory.freezeConfiguration();
 
+		// Introspect the classes of the specified packages in parallel upfront.
+		if (this.introspectionWarmUpPackages != null) {
+			warmUpIntrospection(this.introspectionWarmUpPackages);
+		}
+
 		// Instantiate all remaining (non-lazy-init) singletons.
 		beanFactory.preInstantiateSingletons();
 	}
 
+	/**
+	 * Introspect the classes in the given packages as JavaBeans.
+	 * @param basePackages the packages to introspect the classes of
+	 * @see #setIntrospectionWarmUpPackages
+	 */
+	protected void warmUpIntrospection(String[] basePackages) {
+		String[] resolvedPackages = new String[basePackages.length];
+		for (int i = 0; i < basePackages.length; i++) {
+			resolvedPackages[i] = getEnvironment().resolveRequiredPlaceholders(basePackages[i]);
+		}
+		int count = new BeanIntrospectionWarmer(this).warmUp(resolvedPackages);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Introspected " + count + " classes upfront for " + getDisplayName());
+		}
+	}
+
 	/**
 	 * Finish the refresh of this context, invoking the LifecycleProcessor's
 	 * onRefresh() method and publishing the
@@ -903,12 +1135,16 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	 * @param ex the exception that led to the cancellation
 	 */
 	protected void cancelRefresh(BeansException ex) {
+		stopRecordingPropertyNames();
 		this.active.set(false);
 	}
 
 	/**
 	 * Reset Spring's common core caches, in particular the {@link ReflectionUtils},
 	 * {@link ResolvableType} and {@link CachedIntrospectionResults} caches.
+	 * <p>The CachedIntrospectionResults cache is kept if it has been
+	 * {@link #setIntrospectionWarmUpPackages warmed up}; {@link #refresh()}
+	 * still clears it if the refresh fails.
 	 * @since 4.2
 	 * @see ReflectionUtils#clearCache()
 	 * @see ResolvableType#clearCache()
@@ -917,7 +1153,9 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	protected void resetCommonCaches() {
 		ReflectionUtils.clearCache();
 		ResolvableType.clearCache();
-		CachedIntrospectionResults.clearClassLoader(getClassLoader());
+		if (this.introspectionWarmUpPackages == null) {
+			CachedIntrospectionResults.clearClassLoader(getClassLoader());
+		}
 	}
 
 
@@ -1023,6 +1261,9 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 			// Close the state of this context itself.
 			closeBeanFactory();
 
+			// Drop class metadata shared with other contexts for the same ClassLoader.
+			ConcurrentMetadataReaderFactory.clearClassLoader(getClassLoader());
+
 			// Let subclasses do some final clean-up if they wish...
 			onClose();
 
@@ -1389,4 +1630,21 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		return sb.toString();
 	}
 
+
+	/**
+	 * Records a bean definition snapshot once all BeanDefinitionRegistryPostProcessors
+	 * have run, being the first one to receive the bean factory post-processing callback.
+	 */
+	private class BeanDefinitionSnapshotRecorder implements BeanDefinitionRegistryPostProcessor {
+
+		@Override
+		public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
+		}
+
+		@Override
+		public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+			recordBeanDefinitionSnapshot(beanFactory);
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -129,7 +129,9 @@ public abstract class AbstractRefreshableApplicationContext extends AbstractAppl
 			customizeBeanFactory(beanFactory);
 
 			// FIXME: 2017/11/6 xml 的解析 ,查看 AbstractXmlApplicationContext 中 loadBeanDefinitions方法
-			loadBeanDefinitions(beanFactory);
+			if (!restoreBeanDefinitionSnapshot(beanFactory)) {
+				loadBeanDefinitions(beanFactory);
+			}
 			synchronized (this.beanFactoryMonitor) {
 				this.beanFactory = beanFactory;
 			}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,13 @@
 
 package org.springframework.context.support;
 
+import java.io.IOException;
+
 import org.springframework.beans.factory.BeanNameAware;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.context.ApplicationContext;
+import org.springframework.core.io.Resource;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
@@ -123,6 +127,32 @@ public abstract class AbstractRefreshableConfigApplicationContext extends Abstra
 	}
 
 
+	/**
+	 * This implementation adds the config locations and the last-modified
+	 * timestamps of the resources they resolve to.
+	 */
+	@Override
+	protected String getBeanDefinitionSnapshotKey(ConfigurableListableBeanFactory beanFactory) {
+		StringBuilder key = new StringBuilder(super.getBeanDefinitionSnapshotKey(beanFactory));
+		String[] configLocations = getConfigLocations();
+		if (configLocations != null) {
+			for (String location : configLocations) {
+				key.append("\nconfigLocation=").append(location);
+				try {
+					for (Resource resource : getResources(location)) {
+						key.append("\nconfigResource=").append(resource.getDescription())
+								.append(':').append(resource.lastModified());
+					}
+				}
+				catch (IOException ex) {
+					// Not resolvable yet: fails again on loading the bean definitions
+				}
+			}
+		}
+		return key.toString();
+	}
+
+
 	@Override
 	public void setId(String id) {
 		super.setId(id);
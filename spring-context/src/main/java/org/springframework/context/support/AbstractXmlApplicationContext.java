@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.springframework.context.support;
 
 import java.io.IOException;
+import java.util.concurrent.Executor;
 
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
@@ -46,6 +47,8 @@ public abstract class AbstractXmlApplicationContext extends AbstractRefreshableC
 
 	private boolean validating = true;
 
+	private Executor documentLoadingExecutor;
+
 
 	/**
 	 * Create a new AbstractXmlApplicationContext with no parent.
@@ -69,6 +72,16 @@ public abstract class AbstractXmlApplicationContext extends AbstractRefreshableC
 		this.validating = validating;
 	}
 
+	/**
+	 * Set an Executor to load the XML documents of this context with in parallel,
+	 * for a context made up of many (imported) files.
+	 * @since 4.3.4
+	 * @see XmlBeanDefinitionReader#setDocumentLoadingExecutor
+	 */
+	public void setDocumentLoadingExecutor(Executor documentLoadingExecutor) {
+		this.documentLoadingExecutor = documentLoadingExecutor;
+	}
+
 
 	/**
 	 * Loads the bean definitions via an XmlBeanDefinitionReader.
@@ -111,6 +124,7 @@ public abstract class AbstractXmlApplicationContext extends AbstractRefreshableC
 	 */
 	protected void initBeanDefinitionReader(XmlBeanDefinitionReader reader) {
 		reader.setValidating(this.validating);
+		reader.setDocumentLoadingExecutor(this.documentLoadingExecutor);
 	}
 
 	/**
@@ -0,0 +1,459 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.support;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionSnapshot;
+import org.springframework.beans.factory.support.ManagedArray;
+import org.springframework.beans.factory.support.ManagedList;
+import org.springframework.beans.factory.support.ManagedMap;
+import org.springframework.beans.factory.support.ManagedProperties;
+import org.springframework.beans.factory.support.ManagedSet;
+import org.springframework.core.ConfigurableObjectInputStream;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.PropertySources;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.ResourceUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * The bean definitions of an application context as of the end of bean definition
+ * registry post-processing, along with the fingerprint of the state they have been
+ * derived from, the digests of the resources they have been loaded from and the
+ * values of the properties looked up while processing them.
+ *
+ * <p>Snapshot files are read back with a class filter, accepting only the snapshot
+ * classes themselves and common value types from {@code java.lang}, {@code java.math}
+ * and {@code java.util}, plus enums. Bean definitions with other values cannot be
+ * recorded.
+ *
+ * @since 4.3.4
+ * @see AbstractApplicationContext#setBeanDefinitionSnapshotFile
+ */
+final class ApplicationContextSnapshot implements Serializable {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/** Classes that may occur in a snapshot, apart from snapshot classes, arrays and enums */
+	private static final Set<Class<?>> VALUE_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+			Boolean.class, Byte.class, Character.class, Short.class, Integer.class, Long.class, Float.class,
+			Double.class, Number.class, String.class, Class.class, Enum.class, BigInteger.class, BigDecimal.class,
+			ArrayList.class, LinkedList.class, HashSet.class, LinkedHashSet.class, TreeSet.class,
+			HashMap.class, LinkedHashMap.class, TreeMap.class, Hashtable.class, Properties.class,
+			ManagedArray.class, ManagedList.class, ManagedSet.class, ManagedMap.class, ManagedProperties.class));
+
+
+	private final String fingerprint;
+
+	private final BeanDefinitionSnapshot beanDefinitions;
+
+	/** Resource URL --> digest of the content, for the resources that bean definitions came from */
+	private final Map<String, String> resourceDigests;
+
+	/** Property name --> value (or {@code null} if not present), for the properties looked up */
+	private final Map<String, String> propertyValues;
+
+
+	private ApplicationContextSnapshot(String fingerprint, BeanDefinitionSnapshot beanDefinitions,
+			Map<String, String> resourceDigests, Map<String, String> propertyValues) {
+
+		this.fingerprint = fingerprint;
+		this.beanDefinitions = beanDefinitions;
+		this.resourceDigests = resourceDigests;
+		this.propertyValues = propertyValues;
+	}
+
+
+	/**
+	 * Capture the bean definitions in the given registry, provided that the given
+	 * Environment still has the given initial property sources only, along with the
+	 * current values of the given properties.
+	 * @throws org.springframework.beans.factory.BeanDefinitionStoreException if a
+	 * bean definition cannot be captured
+	 * @throws IllegalStateException if a property source has been added, or if a
+	 * resource that bean definitions came from cannot be read
+	 */
+	public static ApplicationContextSnapshot capture(String fingerprint, BeanDefinitionRegistry registry,
+			ConfigurableEnvironment environment, Set<String> initialPropertySourceNames, Set<String> propertyNames) {
+
+		for (PropertySource<?> propertySource : environment.getPropertySources()) {
+			if (!initialPropertySourceNames.contains(propertySource.getName())) {
+				// Its content would have to be restored as recorded, even if its resource changes...
+				throw new IllegalStateException("Property source '" + propertySource.getName() +
+						"' has been added while processing bean definitions");
+			}
+		}
+		BeanDefinitionSnapshot beanDefinitions = BeanDefinitionSnapshot.capture(registry);
+		Map<String, String> resourceDigests = new LinkedHashMap<String, String>();
+		for (String beanName : registry.getBeanDefinitionNames()) {
+			BeanDefinition bd = registry.getBeanDefinition(beanName);
+			Resource resource = (bd instanceof AbstractBeanDefinition ? ((AbstractBeanDefinition) bd).getResource() : null);
+			// Class files are covered by the class path part of the fingerprint,
+			// descriptive resources for registered classes do not exist
+			if (resource != null && resource.exists() && (resource.getFilename() == null ||
+					!resource.getFilename().endsWith(ClassUtils.CLASS_FILE_SUFFIX))) {
+				try {
+					String url = resource.getURL().toString();
+					if (!resourceDigests.containsKey(url)) {
+						resourceDigests.put(url, digest(resource));
+					}
+				}
+				catch (IOException ex) {
+					throw new IllegalStateException("Cannot capture " + resource.getDescription() + ": " + ex);
+				}
+			}
+		}
+		Map<String, String> propertyValues = new LinkedHashMap<String, String>();
+		for (String propertyName : propertyNames) {
+			propertyValues.put(propertyName, getPropertyValue(environment.getPropertySources(), propertyName));
+		}
+		return new ApplicationContextSnapshot(fingerprint, beanDefinitions, resourceDigests, propertyValues);
+	}
+
+	/**
+	 * Read a snapshot from the given file, accepting snapshot classes and
+	 * common value types only.
+	 */
+	public static ApplicationContextSnapshot read(File file, ClassLoader classLoader)
+			throws IOException, ClassNotFoundException {
+
+		ObjectInputStream in = new SnapshotObjectInputStream(
+				new BufferedInputStream(new FileInputStream(file)), classLoader);
+		try {
+			return (ApplicationContextSnapshot) in.readObject();
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Compute the fingerprint for the given key, as built by
+	 * {@link AbstractApplicationContext#getBeanDefinitionSnapshotKey}.
+	 */
+	public static String fingerprint(String key) {
+		return DigestUtils.md5DigestAsHex(key.getBytes(UTF_8));
+	}
+
+	/**
+	 * Append the names of the given property sources to the given key. The values
+	 * of their properties are only covered for the properties actually looked up;
+	 * see {@link #recordPropertyNames}.
+	 */
+	public static void appendPropertySources(StringBuilder key, PropertySources propertySources) {
+		for (PropertySource<?> propertySource : propertySources) {
+			key.append("\npropertySource=").append(propertySource.getName());
+		}
+	}
+
+	/**
+	 * Start recording the names of the properties looked up in the given property
+	 * sources, replacing each of them with a recording one of the same name.
+	 * @param propertySources the property sources of the Environment
+	 * @param propertyNames the set to add the names of the looked-up properties to
+	 * @see #stopRecordingPropertyNames
+	 */
+	public static void recordPropertyNames(MutablePropertySources propertySources, Set<String> propertyNames) {
+		for (PropertySource<?> propertySource : propertySources) {
+			if (!(propertySource instanceof RecordingPropertySource)) {
+				propertySources.replace(propertySource.getName(),
+						new RecordingPropertySource(propertySource, propertyNames));
+			}
+		}
+	}
+
+	/**
+	 * Stop recording property names, putting the original property sources back.
+	 * @param propertySources the property sources of the Environment
+	 * @see #recordPropertyNames
+	 */
+	public static void stopRecordingPropertyNames(MutablePropertySources propertySources) {
+		for (PropertySource<?> propertySource : propertySources) {
+			if (propertySource instanceof RecordingPropertySource) {
+				propertySources.replace(propertySource.getName(), ((RecordingPropertySource) propertySource).delegate);
+			}
+		}
+	}
+
+	/**
+	 * Append the entries of the class path that the given ClassLoader sees to the
+	 * given key, along with the number, total size and latest modification time of
+	 * the files in each entry.
+	 */
+	public static void appendClassPath(StringBuilder key, ClassLoader classLoader) {
+		Set<String> paths = new LinkedHashSet<String>();
+		for (ClassLoader cl = classLoader; cl != null; cl = cl.getParent()) {
+			if (cl instanceof URLClassLoader) {
+				for (URL url : ((URLClassLoader) cl).getURLs()) {
+					paths.add(ResourceUtils.isFileURL(url) ? StringUtils.cleanPath(url.getPath()) : url.toString());
+				}
+			}
+		}
+		String classPath = System.getProperty("java.class.path");
+		if (classPath != null) {
+			for (String path : StringUtils.delimitedListToStringArray(classPath, File.pathSeparator)) {
+				paths.add(StringUtils.cleanPath(path));
+			}
+		}
+		for (String path : paths) {
+			long[] stats = new long[3];
+			addFileStats(new File(path), stats);
+			key.append("\nclassPath=").append(path).append(':').append(stats[0]).append(':')
+					.append(stats[1]).append(':').append(stats[2]);
+		}
+	}
+
+	/**
+	 * Determine the raw value of the given property, as found in the first property
+	 * source that contains it.
+	 */
+	private static String getPropertyValue(PropertySources propertySources, String propertyName) {
+		for (PropertySource<?> propertySource : propertySources) {
+			Object value = propertySource.getProperty(propertyName);
+			if (value != null) {
+				return value.toString();
+			}
+		}
+		return null;
+	}
+
+	private static String digest(Resource resource) throws IOException {
+		InputStream in = resource.getInputStream();
+		try {
+			return DigestUtils.md5DigestAsHex(in);
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Determine whether the given class may occur in a snapshot file.
+	 */
+	private static boolean isSnapshotType(Class<?> clazz) {
+		if (clazz.isArray()) {
+			return isSnapshotType(clazz.getComponentType());
+		}
+		return (clazz.isPrimitive() || VALUE_TYPES.contains(clazz) || Enum.class.isAssignableFrom(clazz) ||
+				clazz.getName().startsWith(BeanDefinitionSnapshot.class.getName()) ||
+				clazz.getName().startsWith(ApplicationContextSnapshot.class.getName()));
+	}
+
+	private static void addFileStats(File file, long[] stats) {
+		if (file.isDirectory()) {
+			File[] files = file.listFiles();
+			if (files != null) {
+				for (File child : files) {
+					addFileStats(child, stats);
+				}
+			}
+		}
+		else if (file.isFile()) {
+			stats[0]++;
+			stats[1] += file.length();
+			stats[2] = Math.max(stats[2], file.lastModified());
+		}
+	}
+
+
+	public String getFingerprint() {
+		return this.fingerprint;
+	}
+
+	public int getBeanDefinitionCount() {
+		return this.beanDefinitions.getBeanDefinitionCount();
+	}
+
+	/**
+	 * Check that the resources that the bean definitions came from still have
+	 * the same content, and that the properties looked up while processing them
+	 * still have the same values.
+	 * @param resourceLoader the ResourceLoader to obtain the resources from
+	 * @param propertySources the property sources to look up the properties in
+	 */
+	public boolean isUpToDate(ResourceLoader resourceLoader, PropertySources propertySources) {
+		for (Map.Entry<String, String> entry : this.propertyValues.entrySet()) {
+			if (!ObjectUtils.nullSafeEquals(entry.getValue(), getPropertyValue(propertySources, entry.getKey()))) {
+				return false;
+			}
+		}
+		for (Map.Entry<String, String> entry : this.resourceDigests.entrySet()) {
+			Resource resource = resourceLoader.getResource(entry.getKey());
+			try {
+				if (!resource.exists() || !entry.getValue().equals(digest(resource))) {
+					return false;
+				}
+			}
+			catch (IOException ex) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Restore the bean definitions into the given registry.
+	 */
+	public void restore(BeanDefinitionRegistry registry) {
+		this.beanDefinitions.restore(registry);
+	}
+
+	/**
+	 * Write this snapshot to the given file, replacing it as a whole.
+	 * @throws InvalidClassException if the snapshot contains a value
+	 * of a type that it would not be read back with
+	 */
+	public void write(File file) throws IOException {
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (!parent.isDirectory() && !parent.mkdirs()) {
+			throw new IOException("Could not create directory [" + parent + "]");
+		}
+		File tempFile = File.createTempFile(file.getName(), ".tmp", parent);
+		try {
+			SnapshotObjectOutputStream out =
+					new SnapshotObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+			try {
+				out.writeObject(this);
+				if (out.rejectedClass != null) {
+					throw new InvalidClassException(out.rejectedClass.getName(), "Type cannot be captured in a snapshot");
+				}
+			}
+			finally {
+				out.close();
+			}
+			if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))) {
+				throw new IOException("Could not move [" + tempFile + "] to [" + file + "]");
+			}
+		}
+		finally {
+			if (tempFile.exists()) {
+				tempFile.delete();
+			}
+		}
+	}
+
+
+	/**
+	 * PropertySource that records the names of the properties looked up in it,
+	 * delegating to the original property source.
+	 */
+	private static class RecordingPropertySource extends PropertySource<Object> {
+
+		private final PropertySource<?> delegate;
+
+		private final Set<String> propertyNames;
+
+		public RecordingPropertySource(PropertySource<?> delegate, Set<String> propertyNames) {
+			super(delegate.getName(), delegate.getSource());
+			this.delegate = delegate;
+			this.propertyNames = propertyNames;
+		}
+
+		@Override
+		public boolean containsProperty(String name) {
+			this.propertyNames.add(name);
+			return this.delegate.containsProperty(name);
+		}
+
+		@Override
+		public Object getProperty(String name) {
+			this.propertyNames.add(name);
+			return this.delegate.getProperty(name);
+		}
+	}
+
+
+	/**
+	 * ObjectOutputStream that takes note of the first class not accepted on reading.
+	 */
+	private static class SnapshotObjectOutputStream extends ObjectOutputStream {
+
+		private Class<?> rejectedClass;
+
+		public SnapshotObjectOutputStream(OutputStream out) throws IOException {
+			super(out);
+		}
+
+		@Override
+		protected void annotateClass(Class<?> clazz) {
+			if (this.rejectedClass == null && !isSnapshotType(clazz)) {
+				this.rejectedClass = clazz;
+			}
+		}
+	}
+
+
+	/**
+	 * ObjectInputStream that only resolves snapshot classes and common value types.
+	 */
+	private static class SnapshotObjectInputStream extends ConfigurableObjectInputStream {
+
+		public SnapshotObjectInputStream(InputStream in, ClassLoader classLoader) throws IOException {
+			super(in, classLoader);
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass classDesc) throws IOException, ClassNotFoundException {
+			Class<?> clazz = super.resolveClass(classDesc);
+			if (!isSnapshotType(clazz)) {
+				throw new InvalidClassException(classDesc.getName(), "Unexpected type in snapshot");
+			}
+			return clazz;
+		}
+	}
+
+}
@@ -177,6 +177,17 @@ public class GenericApplicationContext extends AbstractApplicationContext implem
 		this.beanFactory.setAllowCircularReferences(allowCircularReferences);
 	}
 
+	/**
+	 * Set whether singletons may be created concurrently by different threads,
+	 * e.g. lazily initialized singletons requested at runtime.
+	 * <p>Default is "false", creating one singleton at a time.
+	 * @since 4.3.4
+	 * @see org.springframework.beans.factory.support.DefaultListableBeanFactory#setAllowConcurrentSingletonCreation
+	 */
+	public void setAllowConcurrentSingletonCreation(boolean allowConcurrentSingletonCreation) {
+		this.beanFactory.setAllowConcurrentSingletonCreation(allowConcurrentSingletonCreation);
+	}
+
 	/**
 	 * Set a ResourceLoader to use for this context. If set, the context will
 	 * delegate all {@code getResource} calls to the given ResourceLoader.
@@ -262,6 +273,7 @@ public class GenericApplicationContext extends AbstractApplicationContext implem
 					"GenericApplicationContext does not support multiple refresh attempts: just call 'refresh' once");
 		}
 		this.beanFactory.setSerializationId(getId());
+		restoreBeanDefinitionSnapshot(this.beanFactory);
 	}
 
 	@Override
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,8 @@
 
 package org.springframework.context.support;
 
+import java.util.concurrent.Executor;
+
 import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.io.ClassPathResource;
@@ -98,6 +100,16 @@ public class GenericXmlApplicationContext extends GenericApplicationContext {
 		this.reader.setValidating(validating);
 	}
 
+	/**
+	 * Set an Executor to load the XML documents of this context with in parallel,
+	 * for a context made up of many (imported) files.
+	 * @since 4.3.4
+	 * @see XmlBeanDefinitionReader#setDocumentLoadingExecutor
+	 */
+	public void setDocumentLoadingExecutor(Executor documentLoadingExecutor) {
+		this.reader.setDocumentLoadingExecutor(documentLoadingExecutor);
+	}
+
 	/**
 	 * Delegates the given environment to underlying {@link XmlBeanDefinitionReader}.
 	 * Should be called before any call to {@code #load}.
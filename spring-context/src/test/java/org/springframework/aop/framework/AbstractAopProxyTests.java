@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -1071,6 +1071,50 @@ public abstract class AbstractAopProxyTests {
 		assertEquals(dp.count, 2);
 	}
 
+	@Test
+	public void testDynamicMethodPointcutWhenFrozen() throws Throwable {
+		TestBean tb = new TestBean();
+		ProxyFactory pc = new ProxyFactory();
+		pc.addInterface(ITestBean.class);
+		TestDynamicPointcutAdvice dp = new TestDynamicPointcutAdvice(new NopInterceptor(), "getAge");
+		pc.addAdvisor(dp);
+		pc.setTarget(tb);
+		pc.setFrozen(true);
+		ITestBean it = (ITestBean) createProxy(pc);
+		assertEquals(dp.count, 0);
+		it.getAge();
+		assertEquals(dp.count, 1);
+		it.setAge(11);
+		assertEquals(it.getAge(), 11);
+		assertEquals(dp.count, 2);
+		assertSame(it, it.returnsThis());
+		IOException expected = new IOException();
+		try {
+			it.exceptional(expected);
+			fail("Should have thrown IOException");
+		}
+		catch (IOException ex) {
+			assertSame(expected, ex);
+		}
+	}
+
+	@Test
+	public void testTargetCanGetProxyWhenFrozen() {
+		NopInterceptor di = new NopInterceptor();
+		INeedsToSeeProxy target = new TargetChecker();
+		ProxyFactory proxyFactory = new ProxyFactory(target);
+		proxyFactory.setExposeProxy(true);
+		proxyFactory.addAdvice(0, di);
+		proxyFactory.setFrozen(true);
+		INeedsToSeeProxy proxied = (INeedsToSeeProxy) createProxy(proxyFactory);
+		proxied.incrementViaThis();
+		assertEquals("Increment happened", 1, target.getCount());
+		assertEquals("Only one invocation via AOP as use of this wasn't proxied", 1, di.getCount());
+		proxied.incrementViaProxy();
+		assertEquals("Increment happened", 2, target.getCount());
+		assertEquals("2 more invocations via AOP as the first call was reentrant through the proxy", 3, di.getCount());
+	}
+
 	@Test
 	public void testDynamicMethodPointcutThatAppliesStaticallyOnlyToSetters() throws Throwable {
 		TestBean tb = new TestBean();
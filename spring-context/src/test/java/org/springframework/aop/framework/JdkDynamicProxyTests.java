@@ -25,6 +25,8 @@ import org.junit.Test;
 
 import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
 import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.target.SingletonTargetSource;
+import org.springframework.tests.aop.interceptor.NopInterceptor;
 import org.springframework.tests.sample.beans.IOther;
 import org.springframework.tests.sample.beans.ITestBean;
 import org.springframework.tests.sample.beans.TestBean;
@@ -145,6 +147,32 @@ public class JdkDynamicProxyTests extends AbstractAopProxyTests implements Seria
 		assertTrue(proxy.doWithVarargs(MyEnum.A, MyOtherEnum.C));
 	}
 
+	@Test
+	public void testTargetSourceReplacedWhenFrozen() {
+		NopInterceptor nop = new NopInterceptor();
+		ProxyFactory proxyFactory = new ProxyFactory(new Person());
+		proxyFactory.setFrozen(true);
+		Named unadvised = (Named) createProxy(proxyFactory);
+		proxyFactory = new ProxyFactory(new Person());
+		proxyFactory.addAdvice(nop);
+		proxyFactory.setFrozen(true);
+		Named advised = (Named) createProxy(proxyFactory);
+		assertEquals("Rob Harrop", unadvised.getName());
+		assertEquals("Rob Harrop", advised.getName());
+
+		Named other = new Named() {
+			@Override
+			public String getName() {
+				return "Juergen Hoeller";
+			}
+		};
+		((Advised) unadvised).setTargetSource(new SingletonTargetSource(other));
+		((Advised) advised).setTargetSource(new SingletonTargetSource(other));
+		assertEquals("Juergen Hoeller", unadvised.getName());
+		assertEquals("Juergen Hoeller", advised.getName());
+		assertEquals(2, nop.getCount());
+	}
+
 
 	public interface Foo {
 
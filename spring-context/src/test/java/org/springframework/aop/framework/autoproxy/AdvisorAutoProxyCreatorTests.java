@@ -17,11 +17,16 @@
 package org.springframework.aop.framework.autoproxy;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
+import test.mixin.LockMixinAdvisor;
 import test.mixin.Lockable;
 
 import org.springframework.aop.Advisor;
+import org.springframework.aop.aspectj.AspectJExpressionPointcutAdvisor;
 import org.springframework.aop.framework.Advised;
 import org.springframework.aop.framework.autoproxy.target.AbstractBeanFactoryBasedTargetSourceCreator;
 import org.springframework.aop.support.AopUtils;
@@ -31,6 +36,7 @@ import org.springframework.aop.target.LazyInitTargetSource;
 import org.springframework.aop.target.PrototypeTargetSource;
 import org.springframework.aop.target.ThreadLocalTargetSource;
 import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 import org.springframework.tests.aop.advice.CountingBeforeAdvice;
 import org.springframework.tests.aop.interceptor.NopInterceptor;
@@ -217,6 +223,35 @@ public class AdvisorAutoProxyCreatorTests {
 		assertEquals("Incorrect number of calls to proxy", 2, beforeAdvice.getCalls());
 	}
 
+	@Test
+	public void testParallelAdvisorMatching() throws Exception {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		bf.registerSingleton("lockMixinAdvisor", new LockMixinAdvisor());
+		for (int i = 0; i < 30; i++) {
+			AspectJExpressionPointcutAdvisor advisor = new AspectJExpressionPointcutAdvisor();
+			advisor.setExpression(i % 3 == 0 ? "execution(* set*(..))" :
+					(i % 3 == 1 ? "bean(otherBean" + i + ")" : "bean(testBean) && execution(* get*())"));
+			advisor.setAdvice(new NopInterceptor());
+			bf.registerSingleton("advisor" + i, advisor);
+		}
+		DefaultAdvisorAutoProxyCreator creator = new DefaultAdvisorAutoProxyCreator();
+		creator.setBeanFactory(bf);
+		List<Advisor> expected = creator.findEligibleAdvisors(CountingTestBean.class, "testBean");
+		assertEquals(21, expected.size());
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			creator.setAdvisorMatchingExecutor(executor);
+			for (int i = 0; i < 10; i++) {
+				assertEquals(expected, creator.findEligibleAdvisors(CountingTestBean.class, "testBean"));
+			}
+			assertNull(ProxyCreationContext.getCurrentProxiedBeanName());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
 }
 
 
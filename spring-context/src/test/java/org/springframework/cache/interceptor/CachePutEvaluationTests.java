@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -34,6 +34,8 @@ import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.expression.StandardBeanExpressionResolver;
+import org.springframework.expression.spel.standard.SpelExpressionCache;
 
 import static org.junit.Assert.*;
 
@@ -103,6 +105,23 @@ public class CachePutEvaluationTests {
 		assertEquals("Wrong value for @CachePut key", anotherValue, cache.get(anotherValue + 100).get());
 	}
 
+	@Test
+	public void expressionsParsedThroughBeanFactoryExpressionCache() {
+		SpelExpressionCache expressionCache = ((StandardBeanExpressionResolver)
+				this.context.getBeanFactory().getBeanExpressionResolver()).getExpressionCache();
+		int initialSize = expressionCache.size();
+
+		service.getOrPut("1", true);
+		int size = expressionCache.size();
+		assertTrue("Cache operation expressions should be in the shared cache", size > initialSize);
+		service.getOrPut("1", true);
+		assertEquals(size, expressionCache.size());
+
+		this.context.getBean(CacheInterceptor.class).clearMetadataCache();
+		assertEquals("Cache operation expressions should have been removed",
+				initialSize, expressionCache.size());
+	}
+
 	@Configuration
 	@EnableCaching
 	static class Config extends CachingConfigurerSupport {
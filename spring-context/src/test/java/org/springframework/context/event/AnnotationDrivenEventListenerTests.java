@@ -53,9 +53,11 @@ import org.springframework.context.event.test.EventCollector;
 import org.springframework.context.event.test.GenericEventPojo;
 import org.springframework.context.event.test.Identifiable;
 import org.springframework.context.event.test.TestEvent;
+import org.springframework.context.expression.StandardBeanExpressionResolver;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 import org.springframework.core.annotation.AliasFor;
 import org.springframework.core.annotation.Order;
+import org.springframework.expression.spel.standard.SpelExpressionCache;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.stereotype.Component;
@@ -536,6 +538,21 @@ public class AnnotationDrivenEventListenerTests {
 		this.eventCollector.assertTotalEventsCount(0);
 	}
 
+	@Test
+	public void conditionParsedThroughBeanFactoryExpressionCache() {
+		load(ConditionalEventListener.class);
+		SpelExpressionCache expressionCache = ((StandardBeanExpressionResolver)
+				this.context.getBeanFactory().getBeanExpressionResolver()).getExpressionCache();
+		int initialSize = expressionCache.size();
+		long initialHitCount = expressionCache.getHitCount();
+
+		this.context.publishEvent("OK");
+		assertEquals(initialSize + 1, expressionCache.size());
+		this.context.publishEvent("KO");
+		assertEquals(initialSize + 1, expressionCache.size());
+		assertEquals(initialHitCount + 1, expressionCache.getHitCount());
+	}
+
 	@Test
 	public void orderedListeners() {
 		load(OrderedTestListener.class);
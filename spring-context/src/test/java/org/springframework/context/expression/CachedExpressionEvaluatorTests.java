@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,6 +23,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.junit.Test;
 
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionCache;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.util.ReflectionUtils;
 
@@ -64,6 +65,26 @@ public class CachedExpressionEvaluatorTests {
 		assertEquals("Cached expression should be based on type", 2, expressionEvaluator.testCache.size());
 	}
 
+	@Test
+	public void sharedExpressionCache() {
+		SpelExpressionCache sharedCache = new SpelExpressionCache();
+		sharedCache.getExpression("unrelated");
+		expressionEvaluator.setExpressionCache(sharedCache);
+		Method method = ReflectionUtils.findMethod(getClass(), "toString");
+
+		Expression expression = expressionEvaluator.getTestExpression("true", method, getClass());
+		assertSame(expression, expressionEvaluator.getTestExpression("true", method, getClass()));
+		assertEquals(true, expression.getValue());
+		assertEquals("Expression should be in shared cache", 2, sharedCache.size());
+		assertEquals("Expression should not be in local cache", 0, expressionEvaluator.testCache.size());
+		verify(expressionEvaluator.getParser(), never()).parseExpression("true");
+
+		expressionEvaluator.clearExpressionCache();
+		assertEquals("Only the evaluator's expression should be removed", 1, sharedCache.size());
+		expressionEvaluator.getTestExpression("true", method, getClass());
+		assertEquals("Expression should have been parsed again", 3, sharedCache.getMissCount());
+	}
+
 	private void hasParsedExpression(String expression) {
 		verify(expressionEvaluator.getParser(), times(1)).parseExpression(expression);
 	}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares component scanning of a synthetic classpath with thousands of
+ * classes against a lookup in the candidate components index.
+ */
+public class CandidateComponentsIndexPerformanceTests {
+
+	private static final String BASE_PACKAGE = "example.generated";
+
+	private static final int CLASS_COUNT = 5000;
+
+	private static final int COMPONENT_INTERVAL = 20;
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+	@Before
+	public void commonAssumptions() {
+		Assume.group(TestGroup.PERFORMANCE);
+	}
+
+
+	@Test
+	public void indexLookupIsFasterThanScanning() throws IOException {
+		SyntheticClassPath scanned = new SyntheticClassPath(this.temporaryFolder.newFolder());
+		SyntheticClassPath indexed = new SyntheticClassPath(this.temporaryFolder.newFolder());
+		for (int i = 0; i < 10; i++) {
+			String packageName = BASE_PACKAGE + ".p" + i;
+			scanned.addClasses(packageName, CLASS_COUNT / 10, COMPONENT_INTERVAL);
+			indexed.addClasses(packageName, CLASS_COUNT / 10, COMPONENT_INTERVAL);
+		}
+		indexed.writeIndex(indexed.getComponents());
+		int expected = CLASS_COUNT / COMPONENT_INTERVAL;
+
+		// Warm up, each run then uses a fresh ClassLoader and thus reloads the index
+		createProvider(indexed.createClassLoader()).findCandidateComponents(BASE_PACKAGE);
+		createProvider(scanned.createClassLoader()).findCandidateComponents(BASE_PACKAGE);
+
+		StopWatch sw = new StopWatch("Candidate components among " + CLASS_COUNT + " classes");
+		sw.start("index");
+		assertEquals(expected, createProvider(indexed.createClassLoader()).findCandidateComponents(BASE_PACKAGE).size());
+		sw.stop();
+		sw.start("scan");
+		assertEquals(expected, createProvider(scanned.createClassLoader()).findCandidateComponents(BASE_PACKAGE).size());
+		sw.stop();
+		System.out.println(sw.prettyPrint());
+
+		long indexTime = sw.getTaskInfo()[0].getTimeMillis();
+		long scanTime = sw.getTaskInfo()[1].getTimeMillis();
+		assertTrue("Index lookup took " + indexTime + " ms vs. " + scanTime + " ms for scanning",
+				indexTime < scanTime);
+	}
+
+
+	private static ClassPathScanningCandidateComponentProvider createProvider(ClassLoader classLoader) {
+		ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(true);
+		provider.setResourceLoader(new DefaultResourceLoader(classLoader));
+		return provider;
+	}
+
+}
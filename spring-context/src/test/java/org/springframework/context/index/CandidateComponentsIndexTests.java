@@ -0,0 +1,191 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.Resource;
+import javax.inject.Named;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.SpringProperties;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.stereotype.Component;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CandidateComponentsIndexLoader}, {@link CandidateComponentsIndex}
+ * and their use by {@link ClassPathScanningCandidateComponentProvider}.
+ */
+public class CandidateComponentsIndexTests {
+
+	private static final String COMPONENT = Component.class.getName();
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+	@After
+	public void resetIgnoreFlag() {
+		SpringProperties.setProperty(CandidateComponentsIndexLoader.IGNORE_INDEX, null);
+	}
+
+
+	@Test
+	public void loadIndexWithNoIndex() throws IOException {
+		ClassLoader classLoader = new URLClassLoader(
+				new URL[] {this.temporaryFolder.newFolder().toURI().toURL()}, null);
+		assertNull(CandidateComponentsIndexLoader.loadIndex(classLoader));
+	}
+
+	@Test
+	public void loadIndexWithCandidates() throws IOException {
+		SyntheticClassPath classPath = new SyntheticClassPath(this.temporaryFolder.newFolder());
+		classPath.writeIndex(Arrays.asList("example.indexed.A", "example.indexed.sub.B", "example.other.C"));
+		CandidateComponentsIndex index = CandidateComponentsIndexLoader.loadIndex(classPath.createClassLoader());
+
+		assertNotNull(index);
+		assertEquals(new TreeSet<String>(Arrays.asList("example.indexed.A", "example.indexed.sub.B")),
+				new TreeSet<String>(index.getCandidateTypes("example.indexed", COMPONENT)));
+		assertEquals(3, index.getCandidateTypes("example", COMPONENT).size());
+		assertTrue(index.getCandidateTypes("example.index", COMPONENT).isEmpty());
+		assertTrue(index.getCandidateTypes("example.indexed", "com.example.Unknown").isEmpty());
+		assertEquals(1, index.getLocations().size());
+	}
+
+	@Test
+	public void loadIndexIsCachedPerClassLoader() throws IOException {
+		SyntheticClassPath classPath = new SyntheticClassPath(this.temporaryFolder.newFolder());
+		classPath.writeIndex(Collections.singletonList("example.indexed.A"));
+		ClassLoader classLoader = classPath.createClassLoader();
+		assertSame(CandidateComponentsIndexLoader.loadIndex(classLoader),
+				CandidateComponentsIndexLoader.loadIndex(classLoader));
+	}
+
+	@Test
+	public void loadIndexWithIgnoreFlag() throws IOException {
+		SyntheticClassPath classPath = new SyntheticClassPath(this.temporaryFolder.newFolder());
+		classPath.writeIndex(Collections.singletonList("example.indexed.A"));
+		SpringProperties.setFlag(CandidateComponentsIndexLoader.IGNORE_INDEX);
+		assertNull(CandidateComponentsIndexLoader.loadIndex(classPath.createClassLoader()));
+	}
+
+	@Test
+	public void scanUsesIndex() throws IOException {
+		SyntheticClassPath classPath = new SyntheticClassPath(this.temporaryFolder.newFolder());
+		classPath.addClasses("example.indexed", 10, 2);
+		assertEquals(5, classPath.getComponents().size());
+		// Index only a subset in order to tell apart an index lookup from a scan
+		classPath.writeIndex(classPath.getComponents().subList(0, 2));
+
+		ClassPathScanningCandidateComponentProvider provider = createProvider(classPath.createClassLoader());
+		assertEquals(classPath.getComponents().subList(0, 2), beanClassNames(provider, "example.indexed"));
+	}
+
+	@Test
+	public void scanWithIgnoreFlag() throws IOException {
+		SyntheticClassPath classPath = new SyntheticClassPath(this.temporaryFolder.newFolder());
+		classPath.addClasses("example.indexed", 10, 2);
+		classPath.writeIndex(classPath.getComponents().subList(0, 2));
+		SpringProperties.setFlag(CandidateComponentsIndexLoader.IGNORE_INDEX);
+
+		ClassPathScanningCandidateComponentProvider provider = createProvider(classPath.createClassLoader());
+		assertEquals(classPath.getComponents(), beanClassNames(provider, "example.indexed"));
+	}
+
+	@Test
+	public void scanWhenIndexIsIncomplete() throws IOException {
+		SyntheticClassPath indexed = new SyntheticClassPath(this.temporaryFolder.newFolder());
+		indexed.addClasses("example.indexed", 4, 2);
+		indexed.writeIndex(indexed.getComponents().subList(0, 1));
+		SyntheticClassPath notIndexed = new SyntheticClassPath(this.temporaryFolder.newFolder());
+		notIndexed.addClasses("example.indexed.more", 4, 2);
+		ClassLoader classLoader = new URLClassLoader(new URL[] {
+				indexed.getRoot().toURI().toURL(), notIndexed.getRoot().toURI().toURL()}, getClass().getClassLoader());
+
+		ClassPathScanningCandidateComponentProvider provider = createProvider(classLoader);
+		assertEquals(4, beanClassNames(provider, "example.indexed").size());
+		// The sub-package is only present in the location without an index
+		assertEquals(notIndexed.getComponents(), beanClassNames(provider, "example.indexed.more"));
+	}
+
+	@Test
+	public void scanWithFilterNotSupportedByIndex() throws IOException {
+		SyntheticClassPath classPath = new SyntheticClassPath(this.temporaryFolder.newFolder());
+		classPath.addClasses("example.indexed", 4, 2);
+		classPath.writeIndex(classPath.getComponents().subList(0, 1));
+
+		ClassPathScanningCandidateComponentProvider provider = createProvider(classPath.createClassLoader());
+		provider.addIncludeFilter(new AssignableTypeFilter(Object.class));
+		assertEquals(4, beanClassNames(provider, "example.indexed").size());
+	}
+
+	@Test
+	public void scanWithJavaxFilterNotRecordedByIndex() throws IOException {
+		SyntheticClassPath classPath = new SyntheticClassPath(this.temporaryFolder.newFolder());
+		classPath.addClasses("example.indexed", 4, 2);
+		classPath.addAnnotatedClass("example.indexed.Resource", Resource.class);
+		classPath.writeIndex(classPath.getComponents().subList(0, 1));
+
+		ClassPathScanningCandidateComponentProvider provider = createProvider(classPath.createClassLoader());
+		provider.addIncludeFilter(new AnnotationTypeFilter(Resource.class));
+		assertEquals(Arrays.asList("example.indexed.Generated0", "example.indexed.Generated2",
+				"example.indexed.Resource"), beanClassNames(provider, "example.indexed"));
+	}
+
+	@Test
+	public void scanWithJavaxFilterRecordedByIndex() throws IOException {
+		SyntheticClassPath classPath = new SyntheticClassPath(this.temporaryFolder.newFolder());
+		classPath.addClasses("example.indexed", 4, 2);
+		classPath.writeIndex(classPath.getComponents().subList(0, 1));
+
+		ClassPathScanningCandidateComponentProvider provider = createProvider(classPath.createClassLoader());
+		provider.addIncludeFilter(new AnnotationTypeFilter(Named.class));
+		assertEquals(classPath.getComponents().subList(0, 1), beanClassNames(provider, "example.indexed"));
+	}
+
+
+	private static ClassPathScanningCandidateComponentProvider createProvider(ClassLoader classLoader) {
+		ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(true);
+		provider.setResourceLoader(new DefaultResourceLoader(classLoader));
+		return provider;
+	}
+
+	private static List<String> beanClassNames(ClassPathScanningCandidateComponentProvider provider, String basePackage) {
+		Set<String> names = new TreeSet<String>();
+		for (BeanDefinition candidate : provider.findCandidateComponents(basePackage)) {
+			names.add(candidate.getBeanClassName());
+		}
+		return Arrays.asList(names.toArray(new String[names.size()]));
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Generates a classpath location with synthetic classes, every n-th of them
+ * annotated with {@link Component @Component}, optionally along with a
+ * {@code META-INF/spring.components} index of those candidates.
+ */
+class SyntheticClassPath {
+
+	private final File root;
+
+	private final List<String> components = new ArrayList<String>();
+
+
+	SyntheticClassPath(File root) {
+		this.root = root;
+	}
+
+
+	/**
+	 * Generate {@code count} classes in the given package.
+	 * @param componentInterval every how many classes one is a component
+	 */
+	public SyntheticClassPath addClasses(String packageName, int count, int componentInterval) throws IOException {
+		for (int i = 0; i < count; i++) {
+			String className = packageName + ".Generated" + i;
+			boolean component = (i % componentInterval == 0);
+			writeClass(className, (component ? Type.getDescriptor(Component.class) : null));
+			if (component) {
+				this.components.add(className);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Generate a class annotated with the given annotation, without
+	 * registering it as a component.
+	 */
+	public SyntheticClassPath addAnnotatedClass(String className, Class<? extends Annotation> annotationType)
+			throws IOException {
+
+		writeClass(className, Type.getDescriptor(annotationType));
+		return this;
+	}
+
+	public File getRoot() {
+		return this.root;
+	}
+
+	public List<String> getComponents() {
+		return this.components;
+	}
+
+	/**
+	 * Write an index for the given components.
+	 */
+	public SyntheticClassPath writeIndex(List<String> components) throws IOException {
+		Properties index = new Properties();
+		for (String component : components) {
+			index.setProperty(component, Component.class.getName());
+		}
+		File file = new File(this.root, CandidateComponentsIndexLoader.COMPONENTS_RESOURCE_LOCATION);
+		file.getParentFile().mkdirs();
+		OutputStream out = new FileOutputStream(file);
+		try {
+			index.store(out, null);
+		}
+		finally {
+			out.close();
+		}
+		return this;
+	}
+
+	public ClassLoader createClassLoader() throws IOException {
+		return new URLClassLoader(new URL[] {this.root.toURI().toURL()}, getClass().getClassLoader());
+	}
+
+	private void writeClass(String className, String annotationDescriptor) throws IOException {
+		String internalName = ClassUtils.convertClassNameToResourcePath(className);
+		ClassWriter cw = new ClassWriter(0);
+		cw.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, internalName, null, "java/lang/Object", null);
+		if (annotationDescriptor != null) {
+			cw.visitAnnotation(annotationDescriptor, true).visitEnd();
+		}
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(1, 1);
+		mv.visitEnd();
+		cw.visitEnd();
+		File file = new File(this.root, internalName + ".class");
+		file.getParentFile().mkdirs();
+		FileCopyUtils.copy(cw.toByteArray(), file);
+	}
+
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.support;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportAware;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.tests.sample.beans.TestBean;
+import org.springframework.util.FileCopyUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for restoring the bean definitions of application contexts from a
+ * {@link AbstractApplicationContext#setBeanDefinitionSnapshotFile snapshot}.
+ */
+public class BeanDefinitionSnapshotTests {
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+	@Test
+	public void xmlBeanDefinitionsRestoredFromSnapshot() throws IOException {
+		File snapshotFile = new File(this.temporaryFolder.getRoot(), "snapshot.ser");
+
+		CountingXmlApplicationContext ac = new CountingXmlApplicationContext(snapshotFile, null);
+		assertEquals(1, ac.loadCount);
+		assertTrue(snapshotFile.isFile());
+		ac.close();
+
+		ac = new CountingXmlApplicationContext(snapshotFile, null);
+		assertEquals(0, ac.loadCount);
+		assertTrue(ac.getBean("someMessageSource") instanceof StaticMessageSource);
+		assertSame(ac.getBean("someMessageSource"), ac.getBean("yourMessageSource"));
+		ac.close();
+	}
+
+	@Test
+	public void outdatedSnapshotRecordedAnew() throws IOException {
+		File snapshotFile = new File(this.temporaryFolder.getRoot(), "snapshot.ser");
+		new CountingXmlApplicationContext(snapshotFile, null).close();
+		long length = snapshotFile.length();
+
+		CountingXmlApplicationContext ac = new CountingXmlApplicationContext(snapshotFile, "other");
+		assertEquals(1, ac.loadCount);
+		ac.close();
+
+		ac = new CountingXmlApplicationContext(snapshotFile, "other");
+		assertEquals(0, ac.loadCount);
+		assertEquals(length, snapshotFile.length());
+		ac.close();
+	}
+
+	@Test
+	public void snapshotWithUnexpectedTypeNotRead() throws IOException {
+		File snapshotFile = new File(this.temporaryFolder.getRoot(), "snapshot.ser");
+		ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(snapshotFile));
+		out.writeObject(new CustomValue());
+		out.close();
+
+		CountingXmlApplicationContext ac = new CountingXmlApplicationContext(snapshotFile, null);
+		assertEquals(1, ac.loadCount);
+		ac.close();
+		ac = new CountingXmlApplicationContext(snapshotFile, null);
+		assertEquals(0, ac.loadCount);
+		ac.close();
+	}
+
+	@Test
+	public void annotatedBeanDefinitionsRestoredFromSnapshot() throws IOException {
+		File snapshotFile = new File(this.temporaryFolder.getRoot(), "snapshot.ser");
+		CountingCondition.count.set(0);
+
+		AnnotationConfigApplicationContext ac = createAnnotationConfigContext(snapshotFile, "tb", SnapshotConfig.class);
+		assertEquals(1, CountingCondition.count.get());
+		assertEquals("tb", ac.getBean("testBean", TestBean.class).getName());
+		ac.close();
+
+		ac = createAnnotationConfigContext(snapshotFile, "tb", SnapshotConfig.class);
+		assertEquals(1, CountingCondition.count.get());
+		assertEquals("tb", ac.getBean("testBean", TestBean.class).getName());
+		AnnotationMetadata importMetadata = ac.getBean(ImportedConfig.class).importMetadata;
+		assertNotNull(importMetadata);
+		assertEquals(SnapshotConfig.class.getName(), importMetadata.getClassName());
+		ac.close();
+	}
+
+	@Test
+	public void changedPropertyValueOutdatesSnapshot() throws IOException {
+		File snapshotFile = new File(this.temporaryFolder.getRoot(), "snapshot.ser");
+		CountingCondition.count.set(0);
+
+		createAnnotationConfigContext(snapshotFile, "tb", SnapshotConfig.class).close();
+		assertEquals(1, CountingCondition.count.get());
+
+		AnnotationConfigApplicationContext ac = createAnnotationConfigContext(snapshotFile, "other", SnapshotConfig.class);
+		assertEquals(2, CountingCondition.count.get());
+		assertEquals("other", ac.getBean("testBean", TestBean.class).getName());
+		ac.close();
+	}
+
+	@Test
+	public void unrelatedPropertyValueKeepsSnapshot() throws IOException {
+		File snapshotFile = new File(this.temporaryFolder.getRoot(), "snapshot.ser");
+		CountingCondition.count.set(0);
+		Map<String, Object> properties = new HashMap<String, Object>();
+		properties.put("testbean.name", "tb");
+		properties.put("host.name", "host1");
+
+		AnnotationConfigApplicationContext ac = createAnnotationConfigContext(snapshotFile, properties, SnapshotConfig.class);
+		assertEquals(1, CountingCondition.count.get());
+		assertTrue(ac.getEnvironment().getPropertySources().get("test") instanceof MapPropertySource);
+		ac.close();
+
+		properties.put("host.name", "host2");
+		ac = createAnnotationConfigContext(snapshotFile, properties, SnapshotConfig.class);
+		assertEquals(1, CountingCondition.count.get());
+		assertEquals("tb", ac.getBean("testBean", TestBean.class).getName());
+		ac.close();
+	}
+
+	@Test
+	public void propertySourceAddedWhileProcessingPreventsSnapshot() throws IOException {
+		File snapshotFile = new File(this.temporaryFolder.getRoot(), "snapshot.ser");
+		CountingCondition.count.set(0);
+
+		createAnnotationConfigContext(snapshotFile, "tb", PropertySourceConfig.class).close();
+		assertFalse(snapshotFile.exists());
+
+		AnnotationConfigApplicationContext ac = createAnnotationConfigContext(snapshotFile, "tb", PropertySourceConfig.class);
+		assertEquals(2, CountingCondition.count.get());
+		assertEquals("p2Value", ac.getBean("testBean", TestBean.class).getName());
+		ac.close();
+	}
+
+	@Test
+	public void changedImportedResourceOutdatesSnapshot() throws IOException {
+		File snapshotFile = new File(this.temporaryFolder.getRoot(), "snapshot.ser");
+		File configFile = this.temporaryFolder.newFile("context.xml");
+		File importedFile = this.temporaryFolder.newFile("imported.xml");
+		FileCopyUtils.copy(beansXml("<import resource=\"imported.xml\"/>"), configFile);
+		FileCopyUtils.copy(beansXml(testBeanXml("tb")), importedFile);
+
+		createFileSystemXmlContext(snapshotFile, configFile).close();
+		assertTrue(snapshotFile.isFile());
+		FileSystemXmlApplicationContext ac = createFileSystemXmlContext(snapshotFile, configFile);
+		assertEquals("tb", ac.getBean("testBean", TestBean.class).getName());
+		ac.close();
+
+		long lastModified = importedFile.lastModified();
+		FileCopyUtils.copy(beansXml(testBeanXml("xy")), importedFile);
+		importedFile.setLastModified(lastModified);
+		ac = createFileSystemXmlContext(snapshotFile, configFile);
+		assertEquals("xy", ac.getBean("testBean", TestBean.class).getName());
+		ac.close();
+	}
+
+	@Test
+	public void unexpectedValueTypePreventsSnapshot() {
+		File snapshotFile = new File(this.temporaryFolder.getRoot(), "snapshot.ser");
+		AnnotationConfigApplicationContext ac = new AnnotationConfigApplicationContext();
+		ac.setBeanDefinitionSnapshotFile(snapshotFile);
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.getPropertyValues().add("touchy", new CustomValue());
+		bd.setLazyInit(true);
+		ac.registerBeanDefinition("testBean", bd);
+		ac.refresh();
+		ac.close();
+		assertFalse(snapshotFile.exists());
+	}
+
+
+	private AnnotationConfigApplicationContext createAnnotationConfigContext(
+			File snapshotFile, String testBeanName, Class<?> configClass) {
+
+		return createAnnotationConfigContext(snapshotFile,
+				Collections.<String, Object>singletonMap("testbean.name", testBeanName), configClass);
+	}
+
+	private AnnotationConfigApplicationContext createAnnotationConfigContext(
+			File snapshotFile, Map<String, Object> properties, Class<?> configClass) {
+
+		AnnotationConfigApplicationContext ac = new AnnotationConfigApplicationContext();
+		ac.setBeanDefinitionSnapshotFile(snapshotFile);
+		ac.getEnvironment().getPropertySources().addFirst(
+				new MapPropertySource("test", new HashMap<String, Object>(properties)));
+		ac.register(configClass);
+		ac.refresh();
+		return ac;
+	}
+
+	private FileSystemXmlApplicationContext createFileSystemXmlContext(File snapshotFile, File configFile) {
+		FileSystemXmlApplicationContext ac = new FileSystemXmlApplicationContext();
+		ac.setConfigLocation(configFile.toURI().toString());
+		ac.setBeanDefinitionSnapshotFile(snapshotFile);
+		ac.refresh();
+		return ac;
+	}
+
+	private static byte[] beansXml(String content) {
+		return ("<beans xmlns=\"http://www.springframework.org/schema/beans\" " +
+				"xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" " +
+				"xsi:schemaLocation=\"http://www.springframework.org/schema/beans " +
+				"http://www.springframework.org/schema/beans/spring-beans.xsd\">" + content + "</beans>").getBytes();
+	}
+
+	private static String testBeanXml(String name) {
+		return "<bean id=\"testBean\" class=\"" + TestBean.class.getName() + "\">" +
+				"<property name=\"name\" value=\"" + name + "\"/></bean>";
+	}
+
+
+	private static class CountingXmlApplicationContext extends ClassPathXmlApplicationContext {
+
+		int loadCount;
+
+		public CountingXmlApplicationContext(File snapshotFile, String profile) {
+			setConfigLocation("org/springframework/context/support/simpleContext.xml");
+			setBeanDefinitionSnapshotFile(snapshotFile);
+			if (profile != null) {
+				getEnvironment().setActiveProfiles(profile);
+			}
+			refresh();
+		}
+
+		@Override
+		protected void loadBeanDefinitions(DefaultListableBeanFactory beanFactory) throws IOException {
+			this.loadCount++;
+			super.loadBeanDefinitions(beanFactory);
+		}
+	}
+
+
+	@Configuration
+	@Import(ImportedConfig.class)
+	static class SnapshotConfig {
+
+		@Bean
+		@Conditional(CountingCondition.class)
+		public TestBean testBean(@Value("${testbean.name}") String name) {
+			return new TestBean(name);
+		}
+	}
+
+
+	@Configuration
+	@PropertySource("classpath:org/springframework/context/annotation/p2.properties")
+	static class PropertySourceConfig {
+
+		@Bean
+		@Conditional(CountingCondition.class)
+		public TestBean testBean(@Value("${from.p2}") String name) {
+			return new TestBean(name);
+		}
+	}
+
+
+	@Configuration
+	static class ImportedConfig implements ImportAware {
+
+		AnnotationMetadata importMetadata;
+
+		@Override
+		public void setImportMetadata(AnnotationMetadata importMetadata) {
+			this.importMetadata = importMetadata;
+		}
+	}
+
+
+	@SuppressWarnings("serial")
+	static class CustomValue implements Serializable {
+	}
+
+
+	static class CountingCondition implements Condition {
+
+		static final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+			count.incrementAndGet();
+			return context.getEnvironment().containsProperty("testbean.name");
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,11 +16,17 @@
 
 package org.springframework.context.support;
 
+import java.util.Collections;
+
 import org.junit.Test;
 
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.CachedIntrospectionResults;
+import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.NoUniqueBeanDefinitionException;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.core.env.MapPropertySource;
 
 import static org.junit.Assert.*;
 
@@ -85,4 +91,40 @@ public class GenericApplicationContextTests {
 		}
 	}
 
+	@Test
+	public void introspectionWarmUpOnRefresh() {
+		CachedIntrospectionResults.clearClassLoader(getClass().getClassLoader());
+		GenericApplicationContext ac = new GenericApplicationContext();
+		ac.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test",
+				Collections.<String, Object>singletonMap("warmUpPackage", "org.springframework.context.support")));
+		ac.setIntrospectionWarmUpPackages("${warmUpPackage}");
+		ac.refresh();
+
+		long misses = CachedIntrospectionResults.getCacheMissCount();
+		BeanUtils.getPropertyDescriptors(LifecycleTestBean.class);
+		assertEquals(misses, CachedIntrospectionResults.getCacheMissCount());
+		ac.close();
+	}
+
+	@Test
+	public void introspectionWarmUpDiscardedOnFailedRefresh() {
+		CachedIntrospectionResults.clearClassLoader(getClass().getClassLoader());
+		GenericApplicationContext ac = new GenericApplicationContext();
+		ac.setIntrospectionWarmUpPackages("org.springframework.context.support");
+		RootBeanDefinition bd = new RootBeanDefinition(LifecycleTestBean.class);
+		bd.setInitMethodName("nonExistingInitMethod");
+		ac.registerBeanDefinition("testBean", bd);
+		try {
+			ac.refresh();
+			fail("Should have thrown BeanCreationException");
+		}
+		catch (BeanCreationException ex) {
+			// expected
+		}
+
+		long misses = CachedIntrospectionResults.getCacheMissCount();
+		BeanUtils.getPropertyDescriptors(LifecycleTestBean.class);
+		assertEquals(misses + 1, CachedIntrospectionResults.getCacheMissCount());
+	}
+
 }
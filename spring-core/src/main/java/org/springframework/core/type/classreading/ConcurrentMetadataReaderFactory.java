@@ -0,0 +1,415 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.core.SpringProperties;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.CustomizableThreadCreator;
+
+/**
+ * Concurrent implementation of the {@link MetadataReaderFactory} interface,
+ * caching {@link MetadataReader} per Spring {@link Resource} handle and per
+ * class name in soft-referenced concurrent maps.
+ *
+ * <p>Callers that know upfront which classes they are going to read, such as
+ * component scanning and configuration class parsing, can {@linkplain
+ * #preloadMetadataReaders(Collection) preload} them: the class files are then
+ * read and parsed in parallel on a shared thread pool (or on a given
+ * {@link Executor}), and the subsequent {@code getMetadataReader} calls in the
+ * caller's own order are served from the cache. The order in which candidates
+ * are processed is therefore not affected.
+ *
+ * <p>With a shared cache, readers are cached per {@link ClassLoader} across all
+ * factories in the JVM that use the same ClassLoader, e.g. parent and child web
+ * application contexts or the application contexts of a test suite. Component
+ * scanning and configuration class parsing use such a factory by default if the
+ * {@value #DEFAULT_PROPERTY} property is set to "true". Shared readers are kept
+ * until {@link #clearCache()} or {@link #clearClassLoader(ClassLoader)} is called,
+ * which application contexts do when they are closed, or, for ClassLoaders other than the one of this class and its parents, until
+ * the garbage collector reclaims them under memory pressure.
+ *
+ * @since 4.3.4
+ * @see #preloadMetadataReaders(Collection)
+ */
+public class ConcurrentMetadataReaderFactory extends SimpleMetadataReaderFactory {
+
+	/**
+	 * System property that switches the default {@link MetadataReaderFactory}
+	 * of component scanning and configuration class parsing to a
+	 * ConcurrentMetadataReaderFactory with a shared cache: "spring.metadata.concurrent".
+	 * @see #isDefault()
+	 */
+	public static final String DEFAULT_PROPERTY = "spring.metadata.concurrent";
+
+	/** Default number of uncached resources below which preloading is skipped: 16 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 16;
+
+
+	/**
+	 * Shared caches for the ClassLoader of this class and its parents,
+	 * which live at least as long as this class anyway.
+	 */
+	private static final ConcurrentMap<ClassLoader, Caches> strongSharedCaches =
+			new ConcurrentHashMap<ClassLoader, Caches>(16);
+
+	/**
+	 * Shared caches for other ClassLoaders, softly referenced so that they
+	 * can be reclaimed once such a ClassLoader has been discarded.
+	 */
+	private static final ConcurrentMap<ClassLoader, Caches> softSharedCaches =
+			new ConcurrentReferenceHashMap<ClassLoader, Caches>(16);
+
+	/** Marks the threads that are currently preloading readers */
+	private static final ThreadLocal<Boolean> preloading = new ThreadLocal<Boolean>();
+
+
+	private final Caches caches;
+
+	private Executor executor;
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+
+	/**
+	 * Create a new ConcurrentMetadataReaderFactory for the default class loader,
+	 * with a cache of its own.
+	 */
+	public ConcurrentMetadataReaderFactory() {
+		super();
+		this.caches = new Caches();
+	}
+
+	/**
+	 * Create a new ConcurrentMetadataReaderFactory for the given resource loader.
+	 * @param resourceLoader the Spring ResourceLoader to use
+	 * (also determines the ClassLoader to use)
+	 * @param shareCache whether to share cached readers with all other factories
+	 * for the same ClassLoader
+	 */
+	public ConcurrentMetadataReaderFactory(ResourceLoader resourceLoader, boolean shareCache) {
+		super(resourceLoader);
+		this.caches = (shareCache ? getSharedCaches(getResourceLoader().getClassLoader()) : new Caches());
+	}
+
+	/**
+	 * Create a new ConcurrentMetadataReaderFactory for the given class loader.
+	 * @param classLoader the ClassLoader to use
+	 * @param shareCache whether to share cached readers with all other factories
+	 * for the same ClassLoader
+	 */
+	public ConcurrentMetadataReaderFactory(ClassLoader classLoader, boolean shareCache) {
+		super(classLoader);
+		this.caches = (shareCache ? getSharedCaches(getResourceLoader().getClassLoader()) : new Caches());
+	}
+
+
+	/**
+	 * Set the {@link Executor} to read class files with when preloading.
+	 * <p>By default, a shared thread pool with as many daemon threads as
+	 * there are available processors is used.
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Set the number of tasks to split preloading into. Default is the
+	 * number of available processors.
+	 */
+	public void setParallelism(int parallelism) {
+		Assert.isTrue(parallelism > 0, "'parallelism' must be greater than 0");
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Set the number of uncached resources below which preloading is skipped
+	 * and resources are simply read on demand. Default is 16.
+	 */
+	public void setParallelThreshold(int parallelThreshold) {
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	/**
+	 * Return the number of uncached resources below which preloading is skipped.
+	 */
+	public int getParallelThreshold() {
+		return this.parallelThreshold;
+	}
+
+
+	@Override
+	public MetadataReader getMetadataReader(String className) throws IOException {
+		MetadataReader metadataReader = this.caches.byClassName.get(className);
+		if (metadataReader == null) {
+			metadataReader = super.getMetadataReader(className);
+			MetadataReader existing = this.caches.byClassName.putIfAbsent(className, metadataReader);
+			if (existing != null) {
+				metadataReader = existing;
+			}
+		}
+		return metadataReader;
+	}
+
+	@Override
+	public MetadataReader getMetadataReader(Resource resource) throws IOException {
+		MetadataReader metadataReader = this.caches.byResource.get(resource);
+		if (metadataReader == null) {
+			metadataReader = super.getMetadataReader(resource);
+			MetadataReader existing = this.caches.byResource.putIfAbsent(resource, metadataReader);
+			if (existing != null) {
+				metadataReader = existing;
+			}
+		}
+		return metadataReader;
+	}
+
+	/**
+	 * Read and cache the metadata for the given resources in parallel, returning
+	 * once all of them have been read. Resources that cannot be read are skipped
+	 * here: the exception is raised again when they are requested individually.
+	 * @param resources the ".class" file resources to preload
+	 */
+	public void preloadMetadataReaders(Collection<Resource> resources) {
+		List<Resource> uncached = new ArrayList<Resource>(resources.size());
+		for (Resource resource : resources) {
+			if (!this.caches.byResource.containsKey(resource)) {
+				uncached.add(resource);
+			}
+		}
+		preload(uncached);
+	}
+
+	/**
+	 * Read and cache the metadata for the given class names in parallel.
+	 * @param classNames the names of the classes to preload
+	 * @see #preloadMetadataReaders(Collection)
+	 */
+	public void preloadMetadataReadersForClassNames(Collection<String> classNames) {
+		List<String> uncached = new ArrayList<String>(classNames.size());
+		for (String className : classNames) {
+			if (!this.caches.byClassName.containsKey(className)) {
+				uncached.add(className);
+			}
+		}
+		preload(uncached);
+	}
+
+	/**
+	 * Clear the MetadataReader cache of this factory, which is shared with
+	 * other factories for the same ClassLoader if {@code shareCache} was set.
+	 */
+	public void clearCache() {
+		this.caches.byResource.clear();
+		this.caches.byClassName.clear();
+	}
+
+	private void preload(List<?> items) {
+		if (items.size() < this.parallelThreshold || items.size() < 2 || preloading.get() != null) {
+			// Nested preloading would wait for tasks queued behind the current one
+			return;
+		}
+		int taskCount = Math.min(this.parallelism, items.size());
+		CountDownLatch latch = new CountDownLatch(taskCount);
+		Executor executor = (this.executor != null ? this.executor : DefaultExecutorHolder.executor);
+		for (int i = 0; i < taskCount; i++) {
+			PreloadTask task = new PreloadTask(items, i, taskCount, latch);
+			try {
+				executor.execute(task);
+			}
+			catch (RejectedExecutionException ex) {
+				task.run();
+			}
+		}
+		try {
+			latch.await();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void preloadItem(Object item) {
+		try {
+			if (item instanceof Resource) {
+				getMetadataReader((Resource) item);
+			}
+			else {
+				getMetadataReader((String) item);
+			}
+		}
+		catch (Throwable ex) {
+			// Raised again on individual access
+		}
+	}
+
+
+	/**
+	 * Return whether the {@value #DEFAULT_PROPERTY} property is set, i.e. whether
+	 * component scanning and configuration class parsing should use a
+	 * ConcurrentMetadataReaderFactory with a shared cache by default.
+	 */
+	public static boolean isDefault() {
+		return SpringProperties.getFlag(DEFAULT_PROPERTY);
+	}
+
+	/**
+	 * Clear the shared caches for the given ClassLoader and any ClassLoader
+	 * underneath it, e.g. when the application that used it is shut down.
+	 * @param classLoader the ClassLoader to clear the shared caches for
+	 */
+	public static void clearClassLoader(ClassLoader classLoader) {
+		clearClassLoader(strongSharedCaches, classLoader);
+		clearClassLoader(softSharedCaches, classLoader);
+	}
+
+	private static void clearClassLoader(ConcurrentMap<ClassLoader, Caches> sharedCaches, ClassLoader classLoader) {
+		for (Iterator<ClassLoader> it = sharedCaches.keySet().iterator(); it.hasNext();) {
+			if (isUnderneathClassLoader(it.next(), classLoader)) {
+				it.remove();
+			}
+		}
+	}
+
+	private static Caches getSharedCaches(ClassLoader classLoader) {
+		ClassLoader classLoaderToUse = (classLoader != null ? classLoader : ClassUtils.getDefaultClassLoader());
+		ConcurrentMap<ClassLoader, Caches> sharedCaches =
+				(isUnderneathClassLoader(ConcurrentMetadataReaderFactory.class.getClassLoader(), classLoaderToUse) ?
+						strongSharedCaches : softSharedCaches);
+		Caches caches = sharedCaches.get(classLoaderToUse);
+		if (caches == null) {
+			caches = new Caches();
+			Caches existing = sharedCaches.putIfAbsent(classLoaderToUse, caches);
+			if (existing != null) {
+				caches = existing;
+			}
+		}
+		return caches;
+	}
+
+	private static boolean isUnderneathClassLoader(ClassLoader candidate, ClassLoader parent) {
+		if (candidate == parent) {
+			return true;
+		}
+		if (candidate == null) {
+			return false;
+		}
+		ClassLoader classLoaderToCheck = candidate;
+		while (classLoaderToCheck != null) {
+			classLoaderToCheck = classLoaderToCheck.getParent();
+			if (classLoaderToCheck == parent) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Reads every n-th item of the given list.
+	 */
+	private class PreloadTask implements Runnable {
+
+		private final List<?> items;
+
+		private final int offset;
+
+		private final int stride;
+
+		private final CountDownLatch latch;
+
+		public PreloadTask(List<?> items, int offset, int stride, CountDownLatch latch) {
+			this.items = items;
+			this.offset = offset;
+			this.stride = stride;
+			this.latch = latch;
+		}
+
+		@Override
+		public void run() {
+			Boolean outerPreloading = preloading.get();
+			preloading.set(Boolean.TRUE);
+			try {
+				for (int i = this.offset; i < this.items.size(); i += this.stride) {
+					preloadItem(this.items.get(i));
+				}
+			}
+			finally {
+				if (outerPreloading == null) {
+					preloading.remove();
+				}
+				this.latch.countDown();
+			}
+		}
+	}
+
+
+	private static class Caches {
+
+		final ConcurrentMap<Resource, MetadataReader> byResource =
+				new ConcurrentReferenceHashMap<Resource, MetadataReader>(256);
+
+		final ConcurrentMap<String, MetadataReader> byClassName =
+				new ConcurrentReferenceHashMap<String, MetadataReader>(256);
+	}
+
+
+	/**
+	 * Holder for the lazily created default thread pool, whose daemon
+	 * threads terminate once they have been idle for a minute.
+	 */
+	private static class DefaultExecutorHolder {
+
+		static final ExecutorService executor = createExecutor(Runtime.getRuntime().availableProcessors());
+
+		private static ExecutorService createExecutor(int poolSize) {
+			final CustomizableThreadCreator threadCreator = new CustomizableThreadCreator("metadata-reader-");
+			threadCreator.setDaemon(true);
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable runnable) {
+							return threadCreator.createThread(runnable);
+						}
+					});
+			executor.allowCoreThreadTimeOut(true);
+			return executor;
+		}
+	}
+
+}
@@ -0,0 +1,597 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Variant of {@link AntPathMatcher} that parses each pattern once into an
+ * immutable compiled form, instead of tokenizing pattern and path on every
+ * call and matching each segment through a regular expression.
+ *
+ * <p>Patterns and matching rules are the same as for {@link AntPathMatcher}.
+ * A compiled pattern consists of literal segments, {@code *} and {@code **}
+ * wildcards, and segments combining literals with {@code ?}, {@code *} and
+ * <code>{variable}</code> captures, all of which are matched directly against
+ * the path String in a single pass. Only segments declaring a variable with a
+ * custom regular expression, e.g. <code>{id:\\d+}</code>, still use a
+ * {@link java.util.regex.Pattern}, compiled once per pattern.
+ *
+ * <p>Matching a pattern without {@code **} does not allocate any objects,
+ * unless URI template variables are extracted. Compiled patterns are held in
+ * a {@link ConcurrentReferenceHashMap}, so the cache never needs to be turned
+ * off for a large number of distinct patterns.
+ *
+ * @since 4.3.4
+ * @see AntPathMatcher
+ */
+public class CompiledAntPathMatcher extends AntPathMatcher {
+
+	private static final Pattern GLOB_PATTERN = Pattern.compile("\\?|\\*|\\{((?:\\{[^/]+?\\}|[^/{}]|\\\\[{}])+?)\\}");
+
+
+	private String pathSeparator = DEFAULT_PATH_SEPARATOR;
+
+	private boolean caseSensitive = true;
+
+	private boolean trimTokens = false;
+
+	private volatile boolean cachePatterns = true;
+
+	private final Map<String, CompiledPattern> compiledPatternCache =
+			new ConcurrentReferenceHashMap<String, CompiledPattern>(256);
+
+
+	/**
+	 * Create a new instance with the {@link #DEFAULT_PATH_SEPARATOR}.
+	 */
+	public CompiledAntPathMatcher() {
+		super();
+	}
+
+	/**
+	 * Create a new instance with a custom path separator.
+	 * @param pathSeparator the path separator to use, must not be {@code null}.
+	 */
+	public CompiledAntPathMatcher(String pathSeparator) {
+		super(pathSeparator);
+		this.pathSeparator = pathSeparator;
+	}
+
+
+	@Override
+	public void setPathSeparator(String pathSeparator) {
+		super.setPathSeparator(pathSeparator);
+		this.pathSeparator = (pathSeparator != null ? pathSeparator : DEFAULT_PATH_SEPARATOR);
+		this.compiledPatternCache.clear();
+	}
+
+	@Override
+	public void setCaseSensitive(boolean caseSensitive) {
+		super.setCaseSensitive(caseSensitive);
+		this.caseSensitive = caseSensitive;
+		this.compiledPatternCache.clear();
+	}
+
+	@Override
+	public void setTrimTokens(boolean trimTokens) {
+		super.setTrimTokens(trimTokens);
+		this.trimTokens = trimTokens;
+		this.compiledPatternCache.clear();
+	}
+
+	/**
+	 * Specify whether to cache compiled patterns.
+	 * <p>Default is {@code true}. The cache holds its entries through soft
+	 * references, so it does not need to be turned off for a large number of
+	 * distinct patterns.
+	 */
+	@Override
+	public void setCachePatterns(boolean cachePatterns) {
+		super.setCachePatterns(cachePatterns);
+		this.cachePatterns = cachePatterns;
+		if (!cachePatterns) {
+			this.compiledPatternCache.clear();
+		}
+	}
+
+
+	@Override
+	protected boolean doMatch(String pattern, String path, boolean fullMatch, Map<String, String> uriTemplateVariables) {
+		if (path.startsWith(this.pathSeparator) != pattern.startsWith(this.pathSeparator)) {
+			return false;
+		}
+		return getCompiledPattern(pattern).match(path, fullMatch, uriTemplateVariables);
+	}
+
+	/**
+	 * Build or retrieve the compiled form of the given pattern.
+	 * @param pattern the pattern to compile (never {@code null})
+	 * @return the compiled pattern (never {@code null})
+	 */
+	protected CompiledPattern getCompiledPattern(String pattern) {
+		CompiledPattern compiled = (this.cachePatterns ? this.compiledPatternCache.get(pattern) : null);
+		if (compiled == null) {
+			compiled = new CompiledPattern(pattern, this.pathSeparator, this.caseSensitive, this.trimTokens);
+			if (this.cachePatterns) {
+				this.compiledPatternCache.put(pattern, compiled);
+			}
+		}
+		return compiled;
+	}
+
+
+	/**
+	 * The immutable compiled form of an Ant-style path pattern, applying the
+	 * same algorithm as {@link AntPathMatcher#doMatch} to pre-parsed segments
+	 * and to segment boundaries within the path String.
+	 */
+	protected static final class CompiledPattern {
+
+		private final String pattern;
+
+		private final Segment[] segments;
+
+		private final String pathSeparator;
+
+		private final boolean trimTokens;
+
+		CompiledPattern(String pattern, String pathSeparator, boolean caseSensitive, boolean trimTokens) {
+			this.pattern = pattern;
+			this.pathSeparator = pathSeparator;
+			this.trimTokens = trimTokens;
+			String[] tokens = StringUtils.tokenizeToStringArray(pattern, pathSeparator, trimTokens, true);
+			this.segments = new Segment[tokens.length];
+			for (int i = 0; i < tokens.length; i++) {
+				this.segments[i] = Segment.compile(tokens[i], caseSensitive);
+			}
+		}
+
+		public String getPattern() {
+			return this.pattern;
+		}
+
+		boolean match(String path, boolean fullMatch, Map<String, String> uriTemplateVariables) {
+			Segment[] pattDirs = this.segments;
+			int pattIdxStart = 0;
+			int pattIdxEnd = pattDirs.length - 1;
+			int pos = 0;
+
+			// Match all elements up to the first **, scanning the path in place
+			long bounds;
+			while (pattIdxStart <= pattIdxEnd && (bounds = nextSegment(path, pos)) != -1) {
+				Segment pattDir = pattDirs[pattIdxStart];
+				if (pattDir.isDoubleWildcard()) {
+					break;
+				}
+				int end = end(bounds);
+				if (!pattDir.match(path, start(bounds), end, uriTemplateVariables)) {
+					return false;
+				}
+				pattIdxStart++;
+				pos = end;
+			}
+
+			if (nextSegment(path, pos) == -1) {
+				// Path is exhausted, only match if rest of pattern is * or **'s
+				if (pattIdxStart > pattIdxEnd) {
+					return (this.pattern.endsWith(this.pathSeparator) ? path.endsWith(this.pathSeparator) :
+							!path.endsWith(this.pathSeparator));
+				}
+				if (!fullMatch) {
+					return true;
+				}
+				if (pattIdxStart == pattIdxEnd && pattDirs[pattIdxStart].isSingleWildcard() &&
+						path.endsWith(this.pathSeparator)) {
+					return true;
+				}
+				return onlyDoubleWildcards(pattIdxStart, pattIdxEnd);
+			}
+			else if (pattIdxStart > pattIdxEnd) {
+				// String not exhausted, but pattern is. Failure.
+				return false;
+			}
+			else if (!fullMatch && pattDirs[pattIdxStart].isDoubleWildcard()) {
+				// Path start definitely matches due to "**" part in pattern.
+				return true;
+			}
+
+			// Only reached with a ** in the pattern: random access to the remaining path segments
+			long[] pathDirs = tokenize(path, pos);
+			int pathIdxStart = 0;
+			int pathIdxEnd = pathDirs.length - 1;
+
+			// up to last '**'
+			while (pattIdxStart <= pattIdxEnd && pathIdxStart <= pathIdxEnd) {
+				Segment pattDir = pattDirs[pattIdxEnd];
+				if (pattDir.isDoubleWildcard()) {
+					break;
+				}
+				if (!pattDir.match(path, start(pathDirs[pathIdxEnd]), end(pathDirs[pathIdxEnd]), uriTemplateVariables)) {
+					return false;
+				}
+				pattIdxEnd--;
+				pathIdxEnd--;
+			}
+			if (pathIdxStart > pathIdxEnd) {
+				// String is exhausted
+				return onlyDoubleWildcards(pattIdxStart, pattIdxEnd);
+			}
+
+			while (pattIdxStart != pattIdxEnd && pathIdxStart <= pathIdxEnd) {
+				int patIdxTmp = -1;
+				for (int i = pattIdxStart + 1; i <= pattIdxEnd; i++) {
+					if (pattDirs[i].isDoubleWildcard()) {
+						patIdxTmp = i;
+						break;
+					}
+				}
+				if (patIdxTmp == pattIdxStart + 1) {
+					// '**/**' situation, so skip one
+					pattIdxStart++;
+					continue;
+				}
+				// Find the pattern between padIdxStart & padIdxTmp in str between
+				// strIdxStart & strIdxEnd
+				int patLength = (patIdxTmp - pattIdxStart - 1);
+				int strLength = (pathIdxEnd - pathIdxStart + 1);
+				int foundIdx = -1;
+
+				strLoop:
+				for (int i = 0; i <= strLength - patLength; i++) {
+					for (int j = 0; j < patLength; j++) {
+						Segment subPat = pattDirs[pattIdxStart + j + 1];
+						long subStr = pathDirs[pathIdxStart + i + j];
+						if (!subPat.match(path, start(subStr), end(subStr), uriTemplateVariables)) {
+							continue strLoop;
+						}
+					}
+					foundIdx = pathIdxStart + i;
+					break;
+				}
+
+				if (foundIdx == -1) {
+					return false;
+				}
+
+				pattIdxStart = patIdxTmp;
+				pathIdxStart = foundIdx + patLength;
+			}
+
+			return onlyDoubleWildcards(pattIdxStart, pattIdxEnd);
+		}
+
+		private boolean onlyDoubleWildcards(int from, int to) {
+			for (int i = from; i <= to; i++) {
+				if (!this.segments[i].isDoubleWildcard()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Find the next token in the path at or after the given position, following
+		 * {@link StringUtils#tokenizeToStringArray} semantics: any character of the
+		 * separator is a delimiter, tokens are optionally trimmed, empty tokens are
+		 * skipped. Start and end index are packed into a single {@code long}.
+		 * @return the packed token bounds, or -1 if there are no more tokens
+		 */
+		private long nextSegment(String path, int from) {
+			int length = path.length();
+			int i = from;
+			while (i < length) {
+				while (i < length && isDelimiter(path.charAt(i))) {
+					i++;
+				}
+				int start = i;
+				while (i < length && !isDelimiter(path.charAt(i))) {
+					i++;
+				}
+				int end = i;
+				if (this.trimTokens) {
+					while (start < end && path.charAt(start) <= ' ') {
+						start++;
+					}
+					while (end > start && path.charAt(end - 1) <= ' ') {
+						end--;
+					}
+				}
+				if (end > start) {
+					return ((long) start << 32) | end;
+				}
+			}
+			return -1;
+		}
+
+		private long[] tokenize(String path, int from) {
+			List<Long> tokens = new ArrayList<Long>();
+			long bounds;
+			int pos = from;
+			while ((bounds = nextSegment(path, pos)) != -1) {
+				tokens.add(bounds);
+				pos = end(bounds);
+			}
+			long[] result = new long[tokens.size()];
+			for (int i = 0; i < result.length; i++) {
+				result[i] = tokens.get(i);
+			}
+			return result;
+		}
+
+		private boolean isDelimiter(char c) {
+			return (this.pathSeparator.length() == 1 ? this.pathSeparator.charAt(0) == c :
+					this.pathSeparator.indexOf(c) != -1);
+		}
+
+		private static int start(long bounds) {
+			return (int) (bounds >>> 32);
+		}
+
+		private static int end(long bounds) {
+			return (int) bounds;
+		}
+	}
+
+
+	/**
+	 * A compiled pattern segment, matched against a region of the path.
+	 */
+	private static abstract class Segment {
+
+		private final String token;
+
+		private final boolean doubleWildcard;
+
+		private final boolean singleWildcard;
+
+		protected Segment(String token) {
+			this.token = token;
+			this.doubleWildcard = "**".equals(token);
+			this.singleWildcard = "*".equals(token);
+		}
+
+		protected String getToken() {
+			return this.token;
+		}
+
+		public boolean isDoubleWildcard() {
+			return this.doubleWildcard;
+		}
+
+		public boolean isSingleWildcard() {
+			return this.singleWildcard;
+		}
+
+		public abstract boolean match(String path, int start, int end, Map<String, String> uriTemplateVariables);
+
+		static Segment compile(String token, boolean caseSensitive) {
+			List<Object> parts = new ArrayList<Object>();
+			List<String> variableNames = new ArrayList<String>();
+			Matcher matcher = GLOB_PATTERN.matcher(token);
+			int end = 0;
+			while (matcher.find()) {
+				if (matcher.start() > end) {
+					parts.add(token.substring(end, matcher.start()));
+				}
+				String match = matcher.group();
+				if ("?".equals(match)) {
+					parts.add(GlobSegment.ANY_CHAR);
+				}
+				else if ("*".equals(match)) {
+					parts.add(GlobSegment.ANY_CHARS);
+				}
+				else if (match.indexOf(':') != -1) {
+					// Custom variable regex: fall back to regular expression matching
+					return new RegexSegment(token, caseSensitive);
+				}
+				else {
+					parts.add(GlobSegment.CAPTURE);
+					variableNames.add(matcher.group(1));
+				}
+				end = matcher.end();
+			}
+			if (end < token.length()) {
+				parts.add(token.substring(end));
+			}
+			if (parts.size() == 1 && parts.get(0) instanceof String) {
+				return new LiteralSegment(token, caseSensitive);
+			}
+			return new GlobSegment(token, parts, variableNames, caseSensitive);
+		}
+
+		static boolean regionMatches(String path, int offset, String literal, boolean caseSensitive) {
+			int length = literal.length();
+			if (caseSensitive) {
+				return path.regionMatches(offset, literal, 0, length);
+			}
+			for (int i = 0; i < length; i++) {
+				char c1 = path.charAt(offset + i);
+				char c2 = literal.charAt(i);
+				// Same as Pattern.CASE_INSENSITIVE: US-ASCII characters only
+				if (c1 != c2 && (c1 >= 128 || c2 >= 128 || toLowerCaseAscii(c1) != toLowerCaseAscii(c2))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static char toLowerCaseAscii(char c) {
+			return (c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+		}
+	}
+
+
+	private static final class LiteralSegment extends Segment {
+
+		private final boolean caseSensitive;
+
+		LiteralSegment(String token, boolean caseSensitive) {
+			super(token);
+			this.caseSensitive = caseSensitive;
+		}
+
+		@Override
+		public boolean match(String path, int start, int end, Map<String, String> uriTemplateVariables) {
+			String token = getToken();
+			return (end - start == token.length() && regionMatches(path, start, token, this.caseSensitive));
+		}
+	}
+
+
+	/**
+	 * Segment with {@code ?}, {@code *} and <code>{variable}</code> parts, matched
+	 * with the same greedy backtracking as the equivalent regular expression.
+	 */
+	private static final class GlobSegment extends Segment {
+
+		static final Object ANY_CHAR = new Object();
+
+		static final Object ANY_CHARS = new Object();
+
+		static final Object CAPTURE = new Object();
+
+		private final Object[] parts;
+
+		private final String[] variableNames;
+
+		private final int[] captureIndexes;
+
+		private final boolean caseSensitive;
+
+		GlobSegment(String token, List<Object> parts, List<String> variableNames, boolean caseSensitive) {
+			super(token);
+			this.parts = parts.toArray();
+			this.variableNames = variableNames.toArray(new String[variableNames.size()]);
+			this.captureIndexes = new int[this.parts.length];
+			int captureIndex = 0;
+			for (int i = 0; i < this.parts.length; i++) {
+				this.captureIndexes[i] = (this.parts[i] == CAPTURE ? captureIndex++ : -1);
+			}
+			this.caseSensitive = caseSensitive;
+		}
+
+		@Override
+		public boolean match(String path, int start, int end, Map<String, String> uriTemplateVariables) {
+			if (uriTemplateVariables == null || this.variableNames.length == 0) {
+				return matchFrom(0, path, start, end, null);
+			}
+			if (this.parts.length == 1) {
+				// Plain {variable} segment
+				if (!matchFrom(0, path, start, end, null)) {
+					return false;
+				}
+				uriTemplateVariables.put(this.variableNames[0], path.substring(start, end));
+				return true;
+			}
+			int[] captures = new int[this.variableNames.length * 2];
+			if (!matchFrom(0, path, start, end, captures)) {
+				return false;
+			}
+			for (int i = 0; i < this.variableNames.length; i++) {
+				uriTemplateVariables.put(this.variableNames[i], path.substring(captures[i * 2], captures[i * 2 + 1]));
+			}
+			return true;
+		}
+
+		private boolean matchFrom(int partIdx, String path, int pos, int end, int[] captures) {
+			while (partIdx < this.parts.length) {
+				Object part = this.parts[partIdx];
+				if (part == ANY_CHAR) {
+					if (pos >= end || isLineTerminator(path.charAt(pos))) {
+						return false;
+					}
+					pos += (isSurrogatePair(path, pos, end) ? 2 : 1);
+					partIdx++;
+				}
+				else if (part == ANY_CHARS || part == CAPTURE) {
+					// Greedy: find the longest run without line terminators, then back off
+					int max = pos;
+					while (max < end && !isLineTerminator(path.charAt(max))) {
+						max++;
+					}
+					int captureIdx = this.captureIndexes[partIdx];
+					if (partIdx == this.parts.length - 1) {
+						if (max != end) {
+							return false;
+						}
+						setCapture(captures, captureIdx, pos, end);
+						return true;
+					}
+					for (int i = max; i >= pos; i--) {
+						if (i > pos && i < end && Character.isLowSurrogate(path.charAt(i)) &&
+								Character.isHighSurrogate(path.charAt(i - 1))) {
+							continue;
+						}
+						setCapture(captures, captureIdx, pos, i);
+						if (matchFrom(partIdx + 1, path, i, end, captures)) {
+							return true;
+						}
+					}
+					return false;
+				}
+				else {
+					String literal = (String) part;
+					if (end - pos < literal.length() || !regionMatches(path, pos, literal, this.caseSensitive)) {
+						return false;
+					}
+					pos += literal.length();
+					partIdx++;
+				}
+			}
+			return (pos == end);
+		}
+
+		private static void setCapture(int[] captures, int captureIdx, int start, int end) {
+			if (captures != null && captureIdx != -1) {
+				captures[captureIdx * 2] = start;
+				captures[captureIdx * 2 + 1] = end;
+			}
+		}
+
+		private static boolean isSurrogatePair(String path, int pos, int end) {
+			return (pos + 1 < end && Character.isHighSurrogate(path.charAt(pos)) &&
+					Character.isLowSurrogate(path.charAt(pos + 1)));
+		}
+
+		private static boolean isLineTerminator(char c) {
+			// Characters not matched by '.' in a regular expression
+			return (c == '\n' || c == '\r' || c == '\u0085' || c == (char) 0x2028 || c == (char) 0x2029);
+		}
+	}
+
+
+	private static final class RegexSegment extends Segment {
+
+		private final AntPathStringMatcher matcher;
+
+		RegexSegment(String token, boolean caseSensitive) {
+			super(token);
+			this.matcher = new AntPathStringMatcher(token, caseSensitive);
+		}
+
+		@Override
+		public boolean match(String path, int start, int end, Map<String, String> uriTemplateVariables) {
+			return this.matcher.matchStrings(path.substring(start, end), uriTemplateVariables);
+		}
+	}
+
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StringUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ConcurrentMetadataReaderFactory}.
+ */
+public class ConcurrentMetadataReaderFactoryTests {
+
+	private static final List<Class<?>> TYPES = Arrays.<Class<?>>asList(
+			String.class, Integer.class, Long.class, Short.class, Byte.class, Double.class,
+			Float.class, Character.class, Boolean.class, Number.class, Object.class,
+			StringBuilder.class, Thread.class, Runnable.class, Exception.class, RuntimeException.class);
+
+	private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+
+	@After
+	public void shutdown() {
+		this.executorService.shutdownNow();
+	}
+
+
+	@Test
+	public void readersAreCached() throws IOException {
+		ConcurrentMetadataReaderFactory factory = new ConcurrentMetadataReaderFactory();
+		Resource resource = classResource(String.class);
+		assertSame(factory.getMetadataReader(resource), factory.getMetadataReader(resource));
+		assertSame(factory.getMetadataReader("java.lang.String"), factory.getMetadataReader("java.lang.String"));
+
+		MetadataReader metadataReader = factory.getMetadataReader(resource);
+		factory.clearCache();
+		assertNotSame(metadataReader, factory.getMetadataReader(resource));
+	}
+
+	@Test
+	public void preloadResources() throws IOException {
+		ConcurrentMetadataReaderFactory factory = new ConcurrentMetadataReaderFactory();
+		CountingExecutor executor = new CountingExecutor(this.executorService);
+		factory.setExecutor(executor);
+		factory.setParallelism(4);
+		List<Resource> resources = new ArrayList<Resource>();
+		for (Class<?> type : TYPES) {
+			resources.add(classResource(type));
+		}
+
+		factory.preloadMetadataReaders(resources);
+		assertEquals(4, executor.count.get());
+		// Cached, hence no further tasks
+		factory.preloadMetadataReaders(resources);
+		assertEquals(4, executor.count.get());
+
+		List<String> classNames = new ArrayList<String>();
+		for (Resource resource : resources) {
+			classNames.add(factory.getMetadataReader(resource).getClassMetadata().getClassName());
+		}
+		for (int i = 0; i < TYPES.size(); i++) {
+			assertEquals(TYPES.get(i).getName(), classNames.get(i));
+		}
+	}
+
+	@Test
+	public void preloadClassNames() throws IOException {
+		ConcurrentMetadataReaderFactory factory = new ConcurrentMetadataReaderFactory();
+		CountingExecutor executor = new CountingExecutor(this.executorService);
+		factory.setExecutor(executor);
+		factory.setParallelism(3);
+		List<String> classNames = new ArrayList<String>();
+		for (Class<?> type : TYPES) {
+			classNames.add(type.getName());
+		}
+
+		factory.preloadMetadataReadersForClassNames(classNames);
+		assertEquals(3, executor.count.get());
+		for (String className : classNames) {
+			assertEquals(className, factory.getMetadataReader(className).getClassMetadata().getClassName());
+		}
+	}
+
+	@Test
+	public void preloadBelowThreshold() {
+		ConcurrentMetadataReaderFactory factory = new ConcurrentMetadataReaderFactory();
+		CountingExecutor executor = new CountingExecutor(this.executorService);
+		factory.setExecutor(executor);
+		factory.setParallelThreshold(TYPES.size() + 1);
+		List<String> classNames = new ArrayList<String>();
+		for (Class<?> type : TYPES) {
+			classNames.add(type.getName());
+		}
+
+		factory.preloadMetadataReadersForClassNames(classNames);
+		assertEquals(0, executor.count.get());
+	}
+
+	@Test
+	public void preloadWithUnreadableClass() throws IOException {
+		ConcurrentMetadataReaderFactory factory = new ConcurrentMetadataReaderFactory();
+		factory.setExecutor(this.executorService);
+		factory.setParallelThreshold(0);
+		factory.preloadMetadataReadersForClassNames(Arrays.asList("java.lang.String", "com.example.DoesNotExist"));
+
+		assertEquals("java.lang.String", factory.getMetadataReader("java.lang.String").getClassMetadata().getClassName());
+		try {
+			factory.getMetadataReader("com.example.DoesNotExist");
+			fail("Should have thrown FileNotFoundException");
+		}
+		catch (FileNotFoundException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void sharedCachePerClassLoader() throws IOException {
+		ClassLoader classLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+		ConcurrentMetadataReaderFactory factory1 = new ConcurrentMetadataReaderFactory(classLoader, true);
+		ConcurrentMetadataReaderFactory factory2 = new ConcurrentMetadataReaderFactory(classLoader, true);
+		ConcurrentMetadataReaderFactory notShared = new ConcurrentMetadataReaderFactory(classLoader, false);
+		ConcurrentMetadataReaderFactory otherClassLoader = new ConcurrentMetadataReaderFactory(
+				new URLClassLoader(new URL[0], getClass().getClassLoader()), true);
+
+		MetadataReader metadataReader = factory1.getMetadataReader("java.lang.String");
+		assertSame(metadataReader, factory2.getMetadataReader("java.lang.String"));
+		assertNotSame(metadataReader, notShared.getMetadataReader("java.lang.String"));
+		assertNotSame(metadataReader, otherClassLoader.getMetadataReader("java.lang.String"));
+
+		factory2.clearCache();
+		assertNotSame(metadataReader, factory1.getMetadataReader("java.lang.String"));
+	}
+
+	@Test
+	public void sharedCacheRetainedAcrossGarbageCollection() throws IOException {
+		ConcurrentMetadataReaderFactory factory = new ConcurrentMetadataReaderFactory(getClass().getClassLoader(), true);
+		MetadataReader metadataReader = factory.getMetadataReader("java.lang.String");
+		factory = null;
+		System.gc();
+		factory = new ConcurrentMetadataReaderFactory(getClass().getClassLoader(), true);
+		assertSame(metadataReader, factory.getMetadataReader("java.lang.String"));
+		factory.clearCache();
+	}
+
+	@Test
+	public void clearClassLoader() throws IOException {
+		ClassLoader parent = new URLClassLoader(new URL[0], getClass().getClassLoader());
+		ClassLoader child = new URLClassLoader(new URL[0], parent);
+		ConcurrentMetadataReaderFactory parentFactory = new ConcurrentMetadataReaderFactory(parent, true);
+		ConcurrentMetadataReaderFactory childFactory = new ConcurrentMetadataReaderFactory(child, true);
+		ConcurrentMetadataReaderFactory otherFactory = new ConcurrentMetadataReaderFactory(getClass().getClassLoader(), true);
+		MetadataReader parentReader = parentFactory.getMetadataReader("java.lang.String");
+		MetadataReader childReader = childFactory.getMetadataReader("java.lang.String");
+		MetadataReader otherReader = otherFactory.getMetadataReader("java.lang.String");
+
+		ConcurrentMetadataReaderFactory.clearClassLoader(parent);
+		assertNotSame(parentReader, new ConcurrentMetadataReaderFactory(parent, true).getMetadataReader("java.lang.String"));
+		assertNotSame(childReader, new ConcurrentMetadataReaderFactory(child, true).getMetadataReader("java.lang.String"));
+		assertSame(otherReader, new ConcurrentMetadataReaderFactory(
+				getClass().getClassLoader(), true).getMetadataReader("java.lang.String"));
+		otherFactory.clearCache();
+	}
+
+	@Test
+	public void nestedPreloadIsSkipped() throws Exception {
+		final AtomicInteger readCount = new AtomicInteger();
+		final ConcurrentMetadataReaderFactory factory = new ConcurrentMetadataReaderFactory() {
+			@Override
+			public MetadataReader getMetadataReader(String className) throws IOException {
+				readCount.incrementAndGet();
+				preloadMetadataReadersForClassNames(Arrays.asList(className + "Nested1", className + "Nested2"));
+				return super.getMetadataReader(className);
+			}
+		};
+		CountingExecutor executor = new CountingExecutor(this.executorService);
+		factory.setExecutor(executor);
+		factory.setParallelism(2);
+		factory.setParallelThreshold(0);
+
+		factory.preloadMetadataReadersForClassNames(Arrays.asList("java.lang.String", "java.lang.Object"));
+		assertEquals(2, executor.count.get());
+		assertEquals(2, readCount.get());
+	}
+
+	@Test
+	public void defaultExecutorUsesDaemonThreads() throws IOException {
+		final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+		ConcurrentMetadataReaderFactory factory = new ConcurrentMetadataReaderFactory() {
+			@Override
+			public MetadataReader getMetadataReader(String className) throws IOException {
+				threads.add(Thread.currentThread());
+				return super.getMetadataReader(className);
+			}
+		};
+		factory.setParallelThreshold(0);
+		factory.setParallelism(2);
+		factory.preloadMetadataReadersForClassNames(Arrays.asList("java.lang.String", "java.lang.Object"));
+		assertEquals(2, threads.size());
+		for (Thread thread : threads) {
+			assertTrue(thread.isDaemon());
+			assertTrue(thread.getName().startsWith("metadata-reader-"));
+		}
+	}
+
+
+	private static Resource classResource(Class<?> type) {
+		return new ClassPathResource(StringUtils.replace(type.getName(), ".", "/") + ".class");
+	}
+
+
+	private static class CountingExecutor implements Executor {
+
+		private final Executor delegate;
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		public CountingExecutor(Executor delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			this.count.incrementAndGet();
+			this.delegate.execute(command);
+		}
+	}
+
+}
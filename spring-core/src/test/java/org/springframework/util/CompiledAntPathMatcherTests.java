@@ -0,0 +1,173 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link CompiledAntPathMatcher}, verifying the same results as
+ * {@link AntPathMatcher} for all combinations of a corpus of patterns and paths.
+ */
+public class CompiledAntPathMatcherTests {
+
+	private static final String[] PATTERNS = {
+			"test", "/test", "http://example.org", "/test.jpg", "t?st", "??st", "tes?", "te??", "?es?", "*",
+			"test*", "test/*", "*test*", "*test", "*.*", "test*aaa", "/?", "/?/a", "/a/?", "/??/a", "/a/??",
+			"/**", "/*/**", "/**/*", "/bla/**/bla", "/**/test", "/bla/**/**/bla", "/bla*bla/test",
+			"/*bla/test", "/????", "/**/*bla", "/*bla*/**/bla/**", "/*bla*/**/bla/*", "*bla*/**/bla/**",
+			"*bla*/**/bla/*", "/x/x/**/bla", "/foo/bar/**", "", "/{bla}.*", "/foo/bar", "test/t*.txt",
+			"test*/**", ".test", ".test/jpg", "*/*", ".?", ".?.a", ".a.?", ".??.a", ".a.??", ".**", ".*.**",
+			".**.*", ".bla.**.bla", ".**.test", ".bla.**.**.bla", ".bla*bla.test", ".*bla.test",
+			"/hotels/{hotel}", "/h?tels/{hotel}", "/hotels/{hotel}/bookings/{booking}",
+			"/**/hotels/**/{hotel}", "/{page}.html", "/{page}.*", "/A-{B}-C", "/{name}.{extension}",
+			"{symbolicName:[\\w\\.]+}-sources-{version:[\\w\\.]+}.jar", "/web/{id:foo(bar)?}",
+			"/group/{groupName}/members", "/Group/{groupName}/Members", "test?", "test/**/test.jpg",
+			"test/{name}.jpg", "bla/**/test.jpg", "**/{name}.jpg", "/**/{name}.jpg", "/*/dir/{name}.jpg",
+			"/{a}-{b}", "/{a}.{b}.{c}", "/x?z", "/*/{id}/**/{name}.*", "/**/{name}", "/**/a/**/b",
+			"/hotels/{hotel:\\d+}/**", "/{id:[a-z]+}-{rest}", "**", "/"
+	};
+
+	private static final String[] PATHS = {
+			"test", "/test", "http://example.org", "test.jpg", "tes", "testt", "tsst", "testTest",
+			"test/Test", "test/t", "test/", "AnothertestTest", "Anothertest", "test.", "test.test",
+			"test.test.test", "testblaaaa", "tst", "tsttest", "tsttst", "testblaaab", "/a", "/a/a", "/a/b",
+			"/aa/a", "/a/bb", "/testing/testing", "/bla/testing/testing/bla", "/bla/testing/testing/bla/bla",
+			"/bla/bla/test", "/bla/bla/bla/bla/bla/bla", "/blaXXXbla/test", "/XXXbla/test", "/blaXXXbl/test",
+			"XXXblab/test", "XXXbl/test", "/bala/bla", "/bla/bla/bla/bbb",
+			"/XXXblaXXXX/testing/testing/bla/testing/testing/", "/XXXblaXXXX/testing/testing/bla/testing",
+			"/XXXblaXXXX/testing/testing/bla/testing/testing",
+			"/XXXblaXXXX/testing/testing/bla/testing/testing.jpg",
+			"XXXblaXXXX/testing/testing/bla/testing/testing/", "XXXblaXXXX/testing/testing/bla/testing",
+			"XXXblaXXXX/testing/testing/bla/testing/testing", "/x/x/x/", "/foo/bar", "", "/testing.html",
+			"/foo /bar", ".test", "test/jpg", "test/test", "test/test/test", ".a", ".a.a", ".a.b", ".aa.a",
+			".a.bb", ".testing.testing", ".bla.testing.testing.bla", ".bla.testing.testing.bla.bla",
+			".bla.bla.test", ".bla.bla.bla.bla.bla.bla", ".blaXXXbla.test", ".XXXbla.test", ".blaXXXbl.test",
+			"XXXblab.test", "XXXbl.test", "/hotels/1", "/hotels/1/bookings/2", "/foo/hotels/bar/1",
+			"/42.html", "/A-b-C", "/test.html", "com.example-sources-1.0.0.jar", "/web/foobar",
+			"/group/sales/members", "/group/  sales/members", "/Group/  Sales/Members",
+			"/Group/Sales/Members", "/group/Sales/members", "best", "view/test.jpg", "testian", "testFf",
+			"test/dir/name.jpg", "test/lorem.jpg", "bla/test.jpg", "/test/lorem.jpg", "/*/dir/lorem.jpg",
+			"/a-b-c", "/a.b.c.d", "/x\uD83D\uDE00z", "/xyz", "/a/42/b/c/d/name.html", "/a/x/a/b/b",
+			"/hotels/42/rooms", "/abc-def-ghi", "/line\nbreak", "/", "/A/B", "/tEsT"
+	};
+
+
+	@Test
+	public void sameResultsAsAntPathMatcher() {
+		assertSameResults(new AntPathMatcher(), new CompiledAntPathMatcher());
+	}
+
+	@Test
+	public void sameResultsAsAntPathMatcherCaseInsensitive() {
+		AntPathMatcher expected = new AntPathMatcher();
+		expected.setCaseSensitive(false);
+		CompiledAntPathMatcher actual = new CompiledAntPathMatcher();
+		actual.setCaseSensitive(false);
+		assertSameResults(expected, actual);
+	}
+
+	@Test
+	public void sameResultsAsAntPathMatcherWithTrimTokens() {
+		AntPathMatcher expected = new AntPathMatcher();
+		expected.setTrimTokens(true);
+		CompiledAntPathMatcher actual = new CompiledAntPathMatcher();
+		actual.setTrimTokens(true);
+		assertSameResults(expected, actual);
+	}
+
+	@Test
+	public void sameResultsAsAntPathMatcherWithCustomSeparator() {
+		assertSameResults(new AntPathMatcher("."), new CompiledAntPathMatcher("."));
+	}
+
+	@Test
+	public void extractUriTemplateVariables() {
+		CompiledAntPathMatcher pathMatcher = new CompiledAntPathMatcher();
+		Map<String, String> result = pathMatcher.extractUriTemplateVariables("/{a}-{b}", "/x-y-z");
+		assertEquals("x-y", result.get("a"));
+		assertEquals("z", result.get("b"));
+
+		result = pathMatcher.extractUriTemplateVariables("/hotels/{hotel:\\d+}/rooms/{room}.*", "/hotels/42/rooms/7.html");
+		assertEquals("42", result.get("hotel"));
+		assertEquals("7", result.get("room"));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void extractUriTemplateVariablesWithoutMatch() {
+		new CompiledAntPathMatcher().extractUriTemplateVariables("/hotels/{hotel}", "/bookings/1");
+	}
+
+	@Test
+	public void compiledPatternCache() {
+		CompiledAntPathMatcher pathMatcher = new CompiledAntPathMatcher();
+		assertSame(pathMatcher.getCompiledPattern("/hotels/{hotel}"), pathMatcher.getCompiledPattern("/hotels/{hotel}"));
+
+		pathMatcher.setCachePatterns(false);
+		assertNotSame(pathMatcher.getCompiledPattern("/hotels/{hotel}"), pathMatcher.getCompiledPattern("/hotels/{hotel}"));
+	}
+
+	@Test
+	public void matchPerformance() {
+		Assume.group(TestGroup.PERFORMANCE);
+		String[] patterns = {"/accounts/{id}/orders/{orderId}", "/static/**/*.js", "/users/*/profile", "/api/v?/items"};
+		String[] paths = {"/accounts/42/orders/7", "/static/js/lib/app.js", "/users/jdoe/profile", "/api/v2/items"};
+		int iterations = 1000000;
+		StopWatch sw = new StopWatch("Path matching, " + iterations + " iterations");
+		for (PathMatcher pathMatcher : new PathMatcher[] {new AntPathMatcher(), new CompiledAntPathMatcher()}) {
+			sw.start(pathMatcher.getClass().getSimpleName() + ".match");
+			for (int i = 0; i < iterations; i++) {
+				assertTrue(pathMatcher.match(patterns[i % patterns.length], paths[i % paths.length]));
+			}
+			sw.stop();
+			sw.start(pathMatcher.getClass().getSimpleName() + ".extractUriTemplateVariables");
+			for (int i = 0; i < iterations; i++) {
+				pathMatcher.extractUriTemplateVariables(patterns[0], paths[0]);
+			}
+			sw.stop();
+		}
+		System.out.println(sw.prettyPrint());
+	}
+
+
+	private void assertSameResults(AntPathMatcher expected, CompiledAntPathMatcher actual) {
+		for (String pattern : PATTERNS) {
+			for (String path : PATHS) {
+				String message = "Pattern \"" + pattern + "\", path \"" + path + "\"";
+				assertEquals(message, expected.match(pattern, path), actual.match(pattern, path));
+				assertEquals(message, expected.matchStart(pattern, path), actual.matchStart(pattern, path));
+				assertEquals(message, extractVariables(expected, pattern, path), extractVariables(actual, pattern, path));
+			}
+		}
+	}
+
+	private String extractVariables(PathMatcher pathMatcher, String pattern, String path) {
+		try {
+			return pathMatcher.extractUriTemplateVariables(pattern, path).toString();
+		}
+		catch (RuntimeException ex) {
+			return ex.toString();
+		}
+	}
+
+}
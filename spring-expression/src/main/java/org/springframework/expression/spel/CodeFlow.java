@@ -79,9 +79,17 @@ public class CodeFlow implements Opcodes {
 
 	/**
 	 * When code generation requires an intermediate variable within a method,
-	 * this method records the next available variable (variable 0 is 'this').
+	 * this method records the next available variable (variable 0 is 'this',
+	 * variables 1 and 2 are the target and the evaluation context).
 	 */
-	private int nextFreeVariableId = 1;
+	private int nextFreeVariableId = 3;
+
+	/**
+	 * The local variables holding the active context objects, e.g. the current
+	 * element while generating the code for a projection or selection. When
+	 * empty, the active context object is the target.
+	 */
+	private final Stack<Integer> activeContextObjects = new Stack<Integer>();
 
 	public CodeFlow(String clazzName, ClassWriter cw) {
 		this.compilationScopes = new Stack<ArrayList<String>>();
@@ -92,11 +100,37 @@ public class CodeFlow implements Opcodes {
 
 	/**
 	 * Push the byte code to load the target (i.e. what was passed as the first argument
-	 * to CompiledExpression.getValue(target, context))
+	 * to CompiledExpression.getValue(target, context)), or the current active context
+	 * object if one has been pushed.
 	 * @param mv the visitor into which the load instruction should be inserted
+	 * @see #pushActiveContextObject(int)
 	 */
 	public void loadTarget(MethodVisitor mv) {
-		mv.visitVarInsn(ALOAD, 1);
+		if (this.activeContextObjects.isEmpty()) {
+			mv.visitVarInsn(ALOAD, 1);
+		}
+		else {
+			mv.visitVarInsn(ALOAD, this.activeContextObjects.peek());
+		}
+	}
+
+	/**
+	 * Make the object held in the specified local variable the active context object,
+	 * i.e. what {@link #loadTarget(MethodVisitor)} loads, for example the current
+	 * element of a collection while generating the code for a projection.
+	 * @param variableId the local variable holding the active context object
+	 * @since 4.3.4
+	 */
+	public void pushActiveContextObject(int variableId) {
+		this.activeContextObjects.push(variableId);
+	}
+
+	/**
+	 * Restore the previous active context object.
+	 * @since 4.3.4
+	 */
+	public void popActiveContextObject() {
+		this.activeContextObjects.pop();
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import org.springframework.asm.Label;
 import org.springframework.asm.MethodVisitor;
 import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.expression.AccessException;
@@ -38,6 +39,7 @@ import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.expression.spel.SpelMessage;
 import org.springframework.expression.spel.support.ReflectiveMethodExecutor;
 import org.springframework.expression.spel.support.ReflectiveMethodResolver;
+import org.springframework.util.ClassUtils;
 
 /**
  * Expression language AST node that represents a method reference.
@@ -66,6 +68,10 @@ public class MethodReference extends SpelNodeImpl {
 		return this.name;
 	}
 
+	public boolean isNullSafe() {
+		return this.nullSafe;
+	}
+
 	@Override
 	protected ValueRef getValueRef(ExpressionState state) throws EvaluationException {
 		Object[] arguments = getArguments(state);
@@ -232,7 +238,12 @@ public class MethodReference extends SpelNodeImpl {
 		CachedMethodExecutor executorToCheck = this.cachedExecutor;
 		if (executorToCheck != null && executorToCheck.get() instanceof ReflectiveMethodExecutor) {
 			Method method = ((ReflectiveMethodExecutor) executorToCheck.get()).getMethod();
-			this.exitTypeDescriptor = CodeFlow.toDescriptor(method.getReturnType());
+			Class<?> returnType = method.getReturnType();
+			if (this.nullSafe && returnType.isPrimitive() && returnType != void.class) {
+				// The compiled code boxes primitive values since it may have to return null instead
+				returnType = ClassUtils.resolvePrimitiveIfNecessary(returnType);
+			}
+			this.exitTypeDescriptor = CodeFlow.toDescriptor(returnType);
 		}
 	}
 
@@ -309,6 +320,20 @@ public class MethodReference extends SpelNodeImpl {
 			CodeFlow.insertBoxIfNecessary(mv, descriptor.charAt(0));
 		}
 
+		Label skipIfNull = null;
+		if (this.nullSafe && !isStaticMethod && !CodeFlow.isPrimitive(descriptor)) {
+			skipIfNull = new Label();
+			Label continueLabel = new Label();
+			mv.visitInsn(DUP);
+			mv.visitJumpInsn(IFNONNULL, continueLabel);
+			mv.visitInsn(POP);
+			if (!"V".equals(this.exitTypeDescriptor)) {
+				mv.visitInsn(ACONST_NULL);
+			}
+			mv.visitJumpInsn(GOTO, skipIfNull);
+			mv.visitLabel(continueLabel);
+		}
+
 		String classDesc = (Modifier.isPublic(method.getDeclaringClass().getModifiers()) ?
 				method.getDeclaringClass().getName().replace('.', '/') :
 				methodExecutor.getPublicDeclaringClass().getName().replace('.', '/'));
@@ -321,6 +346,12 @@ public class MethodReference extends SpelNodeImpl {
 		generateCodeForArguments(mv, cf, method, this.children);
 		mv.visitMethodInsn((isStaticMethod ? INVOKESTATIC : INVOKEVIRTUAL), classDesc, method.getName(),
 				CodeFlow.createSignatureDescriptor(method), method.getDeclaringClass().isInterface());
+		if (this.nullSafe) {
+			CodeFlow.insertBoxIfNecessary(mv, CodeFlow.toDescriptor(method.getReturnType()));
+		}
+		if (skipIfNull != null) {
+			mv.visitLabel(skipIfNull);
+		}
 		cf.pushDescriptor(this.exitTypeDescriptor);
 	}
 
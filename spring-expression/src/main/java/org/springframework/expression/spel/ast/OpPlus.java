@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -182,7 +182,8 @@ public class OpPlus extends Operator {
 				 return false;
 			 }
 		}
-		return (this.exitTypeDescriptor != null);
+		return (this.exitTypeDescriptor != null &&
+				("Ljava/lang/String".equals(this.exitTypeDescriptor) || !hasNullSafeOperand()));
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -96,7 +96,38 @@ public abstract class Operator extends SpelNodeImpl {
 		String rightDesc = right.exitTypeDescriptor;
 		DescriptorComparison dc = DescriptorComparison.checkNumericCompatibility(leftDesc, rightDesc,
 				this.leftActualDescriptor, this.rightActualDescriptor);
-		return (dc.areNumbers && dc.areCompatible);
+		return (dc.areNumbers && dc.areCompatible && !hasNullSafeOperand());
+	}
+
+	/**
+	 * Determine whether an operand is a null-safe navigation, e.g. {@code child?.age}.
+	 * Such an operand may be {@code null} at runtime, which the interpreter handles
+	 * but which generated code unboxing a numeric operand would fail on.
+	 */
+	protected boolean hasNullSafeOperand() {
+		for (SpelNodeImpl operand : this.children) {
+			if (isNullSafeNavigation(operand)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isNullSafeNavigation(SpelNodeImpl node) {
+		if (node instanceof PropertyOrFieldReference) {
+			return ((PropertyOrFieldReference) node).isNullSafe();
+		}
+		if (node instanceof MethodReference) {
+			return ((MethodReference) node).isNullSafe();
+		}
+		if (node instanceof CompoundExpression) {
+			for (int i = 0; i < node.getChildCount(); i++) {
+				if (isNullSafeNavigation((SpelNodeImpl) node.getChild(i))) {
+					return true;
+				}
+			}
+		}
+		return false;
 	}
 
 	/** 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.springframework.asm.Label;
 import org.springframework.asm.MethodVisitor;
 import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.expression.AccessException;
@@ -34,6 +35,7 @@ import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.expression.spel.SpelMessage;
 import org.springframework.expression.spel.support.ReflectivePropertyAccessor;
+import org.springframework.util.ClassUtils;
 
 /**
  * Represents a simple property or field reference.
@@ -82,12 +84,20 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 				state.getConfiguration().isAutoGrowNullReferences());
 		PropertyAccessor accessorToUse = this.cachedReadAccessor;
 		if (accessorToUse instanceof CompilablePropertyAccessor) {
-			CompilablePropertyAccessor accessor = (CompilablePropertyAccessor) accessorToUse;
-			this.exitTypeDescriptor = CodeFlow.toDescriptor(accessor.getPropertyType());
+			updateExitTypeDescriptor((CompilablePropertyAccessor) accessorToUse);
 		}
 		return tv;
 	}
 
+	private void updateExitTypeDescriptor(CompilablePropertyAccessor accessor) {
+		Class<?> propertyType = accessor.getPropertyType();
+		if (this.nullSafe) {
+			// The compiled code boxes primitive values since it may have to return null instead
+			propertyType = ClassUtils.resolvePrimitiveIfNecessary(propertyType);
+		}
+		this.exitTypeDescriptor = CodeFlow.toDescriptor(propertyType);
+	}
+
 	private TypedValue getValueInternal(TypedValue contextObject, EvaluationContext evalContext,
 			boolean isAutoGrowNullReferences) throws EvaluationException {
 
@@ -346,7 +356,34 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 		if (!(accessorToUse instanceof CompilablePropertyAccessor)) {
 			throw new IllegalStateException("Property accessor is not compilable: " + accessorToUse);
 		}
-		((CompilablePropertyAccessor) accessorToUse).generateCode(this.name, mv, cf);
+		Label skipIfNull = null;
+		if (this.nullSafe) {
+			String descriptor = cf.lastDescriptor();
+			if (descriptor == null) {
+				cf.loadTarget(mv);
+				// The accessor has to use what is on the stack now
+				descriptor = "Ljava/lang/Object";
+				cf.pushDescriptor(descriptor);
+			}
+			if (!CodeFlow.isPrimitive(descriptor)) {
+				skipIfNull = new Label();
+				Label continueLabel = new Label();
+				mv.visitInsn(DUP);
+				mv.visitJumpInsn(IFNONNULL, continueLabel);
+				mv.visitInsn(POP);
+				mv.visitInsn(ACONST_NULL);
+				mv.visitJumpInsn(GOTO, skipIfNull);
+				mv.visitLabel(continueLabel);
+			}
+		}
+		CompilablePropertyAccessor accessor = (CompilablePropertyAccessor) accessorToUse;
+		accessor.generateCode(this.name, mv, cf);
+		if (this.nullSafe) {
+			CodeFlow.insertBoxIfNecessary(mv, CodeFlow.toDescriptor(accessor.getPropertyType()));
+		}
+		if (skipIfNull != null) {
+			mv.visitLabel(skipIfNull);
+		}
 		cf.pushDescriptor(this.exitTypeDescriptor);
 	}
 
@@ -373,8 +410,7 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 		public TypedValue getValue() {
 			TypedValue value = this.ref.getValueInternal(this.contextObject, this.evalContext, this.autoGrowNullReferences);
 			if (this.ref.cachedReadAccessor instanceof CompilablePropertyAccessor) {
-				CompilablePropertyAccessor accessor = (CompilablePropertyAccessor) this.ref.cachedReadAccessor;
-				this.ref.exitTypeDescriptor = CodeFlow.toDescriptor(accessor.getPropertyType());
+				this.ref.updateExitTypeDescriptor((CompilablePropertyAccessor) this.ref.cachedReadAccessor);
 			}
 			return value;
 		}
@@ -0,0 +1,392 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel.standard;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.core.style.ToStringCreator;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.ParserContext;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.util.Assert;
+
+/**
+ * Bounded cache of parsed expressions, meant to be shared by the components
+ * that evaluate the same expressions over and over again. Exposes statistics
+ * about its usage.
+ *
+ * <p>Expressions are cached under a key chosen by the caller, which is
+ * typically the expression string plus the element that declares it, since
+ * the same expression text may be evaluated against different types of data.
+ *
+ * <p>Once an expression has been retrieved more often than the
+ * {@linkplain #setCompilationThreshold compilation threshold}, it gets
+ * re-parsed in {@link SpelCompilerMode#MIXED} mode: it compiles itself after
+ * some more interpreted evaluations and falls back to the interpreter if the
+ * compiled form fails. This only applies to a {@link SpelExpressionParser}
+ * that does not compile expressions already.
+ *
+ * @since 4.3.4
+ * @see SpelCompiler
+ */
+public class SpelExpressionCache {
+
+	/** Default maximum number of entries for the expression cache: 1024 */
+	public static final int DEFAULT_CACHE_LIMIT = 1024;
+
+
+	private volatile ExpressionParser expressionParser;
+
+	private volatile ExpressionParser compilingExpressionParser;
+
+	/** The maximum number of entries in the cache */
+	private volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
+
+	/** The number of retrievals after which an expression gets compiled, -1 for never */
+	private volatile int compilationThreshold = -1;
+
+	/** Fast access cache for expressions, returning already cached instances without a global lock */
+	private final Map<Object, CachedExpression> expressionAccessCache =
+			new ConcurrentHashMap<Object, CachedExpression>(DEFAULT_CACHE_LIMIT);
+
+	/** Map from key to expression, synchronized for parsing and eviction */
+	@SuppressWarnings("serial")
+	private final Map<Object, CachedExpression> expressionCreationCache =
+			new LinkedHashMap<Object, CachedExpression>(DEFAULT_CACHE_LIMIT, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Object, CachedExpression> eldest) {
+					if (size() > getCacheLimit()) {
+						expressionAccessCache.remove(eldest.getKey());
+						evictionCount.incrementAndGet();
+						return true;
+					}
+					else {
+						return false;
+					}
+				}
+			};
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	private final AtomicLong promotionCount = new AtomicLong();
+
+
+	/**
+	 * Create a new {@code SpelExpressionCache} using a default {@link SpelExpressionParser}.
+	 */
+	public SpelExpressionCache() {
+		this(new SpelExpressionParser());
+	}
+
+	/**
+	 * Create a new {@code SpelExpressionCache} using the given parser.
+	 * @param expressionParser the parser to use for expressions not found in the cache
+	 */
+	public SpelExpressionCache(ExpressionParser expressionParser) {
+		setExpressionParser(expressionParser);
+	}
+
+	private static ExpressionParser createCompilingExpressionParser(ExpressionParser expressionParser) {
+		if (expressionParser.getClass() != SpelExpressionParser.class) {
+			return null;
+		}
+		SpelParserConfiguration configuration = ((SpelExpressionParser) expressionParser).getConfiguration();
+		if (configuration.getCompilerMode() != SpelCompilerMode.OFF) {
+			return null;
+		}
+		return new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.MIXED,
+				configuration.getCompilerClassLoader(), configuration.isAutoGrowNullReferences(),
+				configuration.isAutoGrowCollections(), configuration.getMaximumAutoGrowSize()));
+	}
+
+
+	/**
+	 * Specify the parser to use for expressions not found in the cache.
+	 * <p>Removes all expressions parsed so far, so that every cached
+	 * expression comes from the same parser. The settings and statistics
+	 * of this cache are retained.
+	 */
+	public void setExpressionParser(ExpressionParser expressionParser) {
+		Assert.notNull(expressionParser, "ExpressionParser must not be null");
+		synchronized (this.expressionCreationCache) {
+			this.expressionParser = expressionParser;
+			this.compilingExpressionParser = createCompilingExpressionParser(expressionParser);
+			this.expressionAccessCache.clear();
+			this.expressionCreationCache.clear();
+		}
+	}
+
+	/**
+	 * Return the parser to use for expressions not found in the cache.
+	 */
+	public ExpressionParser getExpressionParser() {
+		return this.expressionParser;
+	}
+
+	/**
+	 * Specify the maximum number of entries for the expression cache.
+	 * Default is 1024.
+	 */
+	public void setCacheLimit(int cacheLimit) {
+		this.cacheLimit = cacheLimit;
+	}
+
+	/**
+	 * Return the maximum number of entries for the expression cache.
+	 */
+	public int getCacheLimit() {
+		return this.cacheLimit;
+	}
+
+	/**
+	 * Specify the number of times an expression has to be retrieved from the
+	 * cache before it gets parsed again for {@link SpelCompilerMode#MIXED}
+	 * compilation. Default is -1, never compiling expressions.
+	 */
+	public void setCompilationThreshold(int compilationThreshold) {
+		this.compilationThreshold = compilationThreshold;
+	}
+
+	/**
+	 * Return the number of times an expression has to be retrieved from the
+	 * cache before it gets compiled, or -1 if expressions never get compiled.
+	 */
+	public int getCompilationThreshold() {
+		return this.compilationThreshold;
+	}
+
+
+	/**
+	 * Return the expression for the given expression string, using the
+	 * string as the key. Parse the expression if it hasn't been already.
+	 * @param expressionString the raw expression string to parse
+	 * @return the cached expression
+	 * @throws ParseException if an exception occurred during parsing
+	 */
+	public Expression getExpression(String expressionString) throws ParseException {
+		return getExpression(expressionString, expressionString, null);
+	}
+
+	/**
+	 * Return the expression for the given key, parsing the given expression
+	 * string if there is none cached yet.
+	 * @param key the key to cache the expression under
+	 * @param expressionString the raw expression string to parse
+	 * @return the cached expression
+	 * @throws ParseException if an exception occurred during parsing
+	 */
+	public Expression getExpression(Object key, String expressionString) throws ParseException {
+		return getExpression(key, expressionString, null);
+	}
+
+	/**
+	 * Return the expression for the given key, parsing the given expression
+	 * string with the given context if there is none cached yet.
+	 * @param key the key to cache the expression under
+	 * @param expressionString the expression string to parse
+	 * @param context a context for influencing the parsing (may be {@code null})
+	 * @return the cached expression
+	 * @throws ParseException if an exception occurred during parsing
+	 */
+	public Expression getExpression(Object key, String expressionString, ParserContext context)
+			throws ParseException {
+
+		Assert.notNull(key, "Key must not be null");
+		CachedExpression cachedExpression = this.expressionAccessCache.get(key);
+		if (cachedExpression != null) {
+			this.hitCount.incrementAndGet();
+			return cachedExpression.retrieve();
+		}
+		synchronized (this.expressionCreationCache) {
+			cachedExpression = this.expressionCreationCache.get(key);
+			if (cachedExpression != null) {
+				this.hitCount.incrementAndGet();
+				return cachedExpression.retrieve();
+			}
+			this.missCount.incrementAndGet();
+			Expression expression = parseExpression(this.expressionParser, expressionString, context);
+			cachedExpression = new CachedExpression(expression, expressionString, context);
+			this.expressionAccessCache.put(key, cachedExpression);
+			this.expressionCreationCache.put(key, cachedExpression);
+			return expression;
+		}
+	}
+
+	private static Expression parseExpression(ExpressionParser parser, String expressionString, ParserContext context) {
+		return (context != null ? parser.parseExpression(expressionString, context) :
+				parser.parseExpression(expressionString));
+	}
+
+	/**
+	 * Remove the expression cached under the given key, if any.
+	 * @param key the key the expression was cached under
+	 */
+	public void remove(Object key) {
+		synchronized (this.expressionCreationCache) {
+			this.expressionAccessCache.remove(key);
+			this.expressionCreationCache.remove(key);
+		}
+	}
+
+	/**
+	 * Remove the expressions cached under the keys that the given filter matches,
+	 * e.g. all keys that a particular component has used.
+	 * @param keyFilter the filter to apply to the keys in the cache
+	 */
+	public void removeMatching(KeyFilter keyFilter) {
+		Assert.notNull(keyFilter, "KeyFilter must not be null");
+		synchronized (this.expressionCreationCache) {
+			for (Iterator<Object> it = this.expressionCreationCache.keySet().iterator(); it.hasNext();) {
+				Object key = it.next();
+				if (keyFilter.matches(key)) {
+					this.expressionAccessCache.remove(key);
+					it.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remove all expressions from the cache. The statistics are retained.
+	 */
+	public void clear() {
+		synchronized (this.expressionCreationCache) {
+			this.expressionAccessCache.clear();
+			this.expressionCreationCache.clear();
+		}
+	}
+
+
+	/**
+	 * Return the number of expressions currently held in the cache.
+	 */
+	public int size() {
+		return this.expressionAccessCache.size();
+	}
+
+	/**
+	 * Return the number of times an expression was found in the cache.
+	 */
+	public long getHitCount() {
+		return this.hitCount.get();
+	}
+
+	/**
+	 * Return the number of times an expression had to be parsed.
+	 */
+	public long getMissCount() {
+		return this.missCount.get();
+	}
+
+	/**
+	 * Return the number of expressions removed from the cache since it
+	 * reached its {@linkplain #setCacheLimit limit}.
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount.get();
+	}
+
+	/**
+	 * Return the number of expressions that have been parsed again for
+	 * compilation after reaching the {@linkplain #setCompilationThreshold
+	 * compilation threshold}.
+	 */
+	public long getPromotionCount() {
+		return this.promotionCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringCreator(this)
+				.append("size", size())
+				.append("cacheLimit", getCacheLimit())
+				.append("hitCount", getHitCount())
+				.append("missCount", getMissCount())
+				.append("evictionCount", getEvictionCount())
+				.append("promotionCount", getPromotionCount())
+				.toString();
+	}
+
+
+	/**
+	 * Callback interface used to select the keys of the expressions to remove.
+	 * @see #removeMatching
+	 */
+	public interface KeyFilter {
+
+		/**
+		 * Determine whether the given key matches.
+		 * @param key the key that an expression is cached under
+		 */
+		boolean matches(Object key);
+	}
+
+
+	/**
+	 * Holder for a cached expression, counting its retrievals and
+	 * replacing it with a compiling variant once it is hot enough.
+	 */
+	private class CachedExpression {
+
+		private final String expressionString;
+
+		private final ParserContext context;
+
+		private final AtomicInteger retrievalCount = new AtomicInteger();
+
+		private volatile Expression expression;
+
+		private volatile boolean promoted;
+
+		public CachedExpression(Expression expression, String expressionString, ParserContext context) {
+			this.expression = expression;
+			this.expressionString = expressionString;
+			this.context = context;
+		}
+
+		public Expression retrieve() {
+			if (!this.promoted && compilingExpressionParser != null) {
+				int threshold = getCompilationThreshold();
+				if (threshold >= 0 && this.retrievalCount.incrementAndGet() > threshold) {
+					promote();
+				}
+			}
+			return this.expression;
+		}
+
+		private synchronized void promote() {
+			if (!this.promoted) {
+				this.expression = parseExpression(compilingExpressionParser, this.expressionString, this.context);
+				this.promoted = true;
+				promotionCount.incrementAndGet();
+			}
+		}
+	}
+
+}
@@ -19,6 +19,7 @@ package org.springframework.expression.spel;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -102,7 +103,10 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 	 * ConstructorReference
 	 * FunctionReference
 	 * InlineList
+	 * InlineMap
 	 * OpModulus
+	 * Projection (over collections)
+	 * Selection (over collections)
 	 *
 	 * Not yet compiled (some may never need to be):
 	 * Assign
@@ -113,9 +117,9 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 	 * OpMatches
 	 * OpPower
 	 * OpInc
-	 * Projection
+	 * Projection (over maps and arrays)
 	 * QualifiedId
-	 * Selection
+	 * Selection (over maps and arrays)
 	 */
 
 	@Test
@@ -741,6 +745,213 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 		assertEquals(42,i);
 	}
 
+	@Test
+	public void variableReference_this() throws Exception {
+		expression = parser.parseExpression("#this");
+		assertEquals("hello", expression.getValue("hello"));
+		assertCanCompile(expression);
+		assertEquals("hello", expression.getValue("hello"));
+
+		expression = parser.parseExpression("#this.length()");
+		assertEquals(5, expression.getValue("hello"));
+		assertCanCompile(expression);
+		assertEquals(5, expression.getValue("hello"));
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void inlineListWithNonConstantElements() throws Exception {
+		TestClass11 tc = new TestClass11();
+		expression = parser.parseExpression("{name,'abc',size}");
+		assertEquals("[basket, abc, 3]", expression.getValue(tc).toString());
+		assertCanCompile(expression);
+		List<?> l = (List) expression.getValue(tc);
+		assertEquals("[basket, abc, 3]", l.toString());
+		assertNotSame(l, expression.getValue(tc));
+		tc.name = "bag";
+		assertEquals("[bag, abc, 3]", expression.getValue(tc).toString());
+
+		expression = parser.parseExpression("{name,{size,name}}");
+		assertEquals("[bag, [3, bag]]", expression.getValue(tc).toString());
+		assertCanCompile(expression);
+		assertEquals("[bag, [3, bag]]", expression.getValue(tc).toString());
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void inlineMap() throws Exception {
+		expression = parser.parseExpression("{a:'b',c:{1,2},'d':{e:3}}");
+		assertEquals("{a=b, c=[1, 2], d={e=3}}", expression.getValue().toString());
+		assertCanCompile(expression);
+		Map m = (Map) expression.getValue();
+		assertEquals("{a=b, c=[1, 2], d={e=3}}", m.toString());
+		assertSame(m, expression.getValue());
+		try {
+			m.clear();
+			fail("Constant map should be unmodifiable");
+		}
+		catch (UnsupportedOperationException ex) {
+			// success!
+		}
+
+		TestClass11 tc = new TestClass11();
+		expression = parser.parseExpression("{name:name,size:size+1,lengths:items.![length()]}");
+		assertEquals("{name=basket, size=4, lengths=[5, 6, 4]}", expression.getValue(tc).toString());
+		assertCanCompile(expression);
+		assertEquals("{name=basket, size=4, lengths=[5, 6, 4]}", expression.getValue(tc).toString());
+		tc.items.add("fig");
+		assertEquals("{name=basket, size=5, lengths=[5, 6, 4, 3]}", expression.getValue(tc).toString());
+	}
+
+	@Test
+	public void projection() throws Exception {
+		TestClass11 tc = new TestClass11();
+		expression = parser.parseExpression("items.![length()]");
+		assertEquals("[5, 6, 4]", expression.getValue(tc).toString());
+		assertCanCompile(expression);
+		assertEquals("[5, 6, 4]", expression.getValue(tc).toString());
+
+		expression = parser.parseExpression("items.![#root.name + ':' + #this]");
+		assertEquals("[basket:apple, basket:banana, basket:pear]", expression.getValue(tc).toString());
+		assertCanCompile(expression);
+		assertEquals("[basket:apple, basket:banana, basket:pear]", expression.getValue(tc).toString());
+
+		expression = parser.parseExpression("items.![{#this,length()}]");
+		assertEquals("[[apple, 5], [banana, 6], [pear, 4]]", expression.getValue(tc).toString());
+		assertCanCompile(expression);
+		assertEquals("[[apple, 5], [banana, 6], [pear, 4]]", expression.getValue(tc).toString());
+		tc.items.clear();
+		assertEquals("[]", expression.getValue(tc).toString());
+
+		// Projection over an array or a map isn't compiled
+		expression = parser.parseExpression("itemArray.![length()]");
+		assertArrayEquals(new Integer[] {5, 6, 4}, (Integer[]) expression.getValue(tc));
+		assertCantCompile(expression);
+
+		expression = parser.parseExpression("prices.![1]");
+		assertEquals("[1, 1]", expression.getValue(tc).toString());
+		assertCantCompile(expression);
+	}
+
+	@Test
+	public void selection() throws Exception {
+		TestClass11 tc = new TestClass11();
+		expression = parser.parseExpression("items.?[length() > 4]");
+		assertEquals("[apple, banana]", expression.getValue(tc).toString());
+		assertCanCompile(expression);
+		assertEquals("[apple, banana]", expression.getValue(tc).toString());
+
+		expression = parser.parseExpression("items.^[length() > 4]");
+		assertEquals("apple", expression.getValue(tc));
+		assertCanCompile(expression);
+		assertEquals("apple", expression.getValue(tc));
+
+		expression = parser.parseExpression("items.$[length() > 4]");
+		assertEquals("banana", expression.getValue(tc));
+		assertCanCompile(expression);
+		assertEquals("banana", expression.getValue(tc));
+
+		expression = parser.parseExpression("items.^[length() > 9]");
+		assertNull(expression.getValue(tc));
+		assertCanCompile(expression);
+		assertNull(expression.getValue(tc));
+
+		expression = parser.parseExpression("items.?[startsWith('p') or #this.length() == 6].![toUpperCase()]");
+		assertEquals("[BANANA, PEAR]", expression.getValue(tc).toString());
+		assertCanCompile(expression);
+		assertEquals("[BANANA, PEAR]", expression.getValue(tc).toString());
+
+		// Selection over an array or a map isn't compiled
+		expression = parser.parseExpression("itemArray.?[length() > 4]");
+		assertArrayEquals(new String[] {"apple", "banana"}, (String[]) expression.getValue(tc));
+		assertCantCompile(expression);
+
+		expression = parser.parseExpression("prices.?[true]");
+		assertEquals(2, ((Map<?, ?>) expression.getValue(tc)).size());
+		assertCantCompile(expression);
+	}
+
+	@Test
+	public void nullSafeNavigation() throws Exception {
+		TestClass11 tc = new TestClass11();
+		tc.nested = new TestClass11();
+		expression = parser.parseExpression("nested?.name");
+		assertEquals("basket", expression.getValue(tc));
+		assertCanCompile(expression);
+		assertEquals("basket", expression.getValue(tc));
+		assertNull(expression.getValue(new TestClass11()));
+
+		expression = parser.parseExpression("nested?.size");
+		assertEquals(3, expression.getValue(tc));
+		assertCanCompile(expression);
+		assertEquals("Ljava/lang/Integer", getAst().getExitDescriptor());
+		assertEquals(3, expression.getValue(tc));
+		assertNull(expression.getValue(new TestClass11()));
+
+		expression = parser.parseExpression("nested?.getSize()");
+		assertEquals(3, expression.getValue(tc));
+		assertCanCompile(expression);
+		assertEquals("Ljava/lang/Integer", getAst().getExitDescriptor());
+		assertEquals(3, expression.getValue(tc));
+		assertNull(expression.getValue(new TestClass11()));
+
+		expression = parser.parseExpression("nested?.nested?.name?.length()");
+		tc.nested.nested = new TestClass11();
+		assertEquals(6, expression.getValue(tc));
+		assertCanCompile(expression);
+		assertEquals(6, expression.getValue(tc));
+		tc.nested.nested = null;
+		assertNull(expression.getValue(tc));
+		assertNull(expression.getValue(new TestClass11()));
+
+		expression = parser.parseExpression("nested?.items?.![length()]");
+		assertEquals("[5, 6, 4]", expression.getValue(tc).toString());
+		assertCanCompile(expression);
+		assertEquals("[5, 6, 4]", expression.getValue(tc).toString());
+		tc.nested.items = null;
+		assertNull(expression.getValue(tc));
+		assertNull(expression.getValue(new TestClass11()));
+	}
+
+	@Test
+	public void nullSafeNavigationOperands() throws Exception {
+		TestClass11 tc = new TestClass11();
+		tc.nested = new TestClass11();
+		TestClass11 empty = new TestClass11();
+
+		// A null-safe operand may be null: numeric operators stay interpreted
+		expression = parser.parseExpression("nested?.size > 2");
+		assertTrue(expression.getValue(tc, Boolean.class));
+		assertCantCompile(expression);
+		assertFalse(expression.getValue(empty, Boolean.class));
+
+		expression = parser.parseExpression("nested?.getSize() == 3");
+		assertTrue(expression.getValue(tc, Boolean.class));
+		assertCantCompile(expression);
+		assertFalse(expression.getValue(empty, Boolean.class));
+
+		expression = parser.parseExpression("(nested?.size) + 1");
+		assertEquals(4, expression.getValue(tc));
+		assertCantCompile(expression);
+
+		expression = parser.parseExpression("-nested?.nested?.size");
+		tc.nested.nested = new TestClass11();
+		assertEquals(-3, expression.getValue(tc));
+		assertCantCompile(expression);
+
+		// String concatenation handles null
+		expression = parser.parseExpression("nested?.name + '!'");
+		assertEquals("basket!", expression.getValue(tc));
+		assertCanCompile(expression);
+		assertEquals("basket!", expression.getValue(tc));
+		assertEquals("null!", expression.getValue(empty));
+
+		expression = parser.parseExpression("nested.size > 2");
+		assertTrue(expression.getValue(tc, Boolean.class));
+		assertCanCompile(expression);
+		assertTrue(expression.getValue(tc, Boolean.class));
+	}
+
 	public static String concat(String a, String b) {
 		return a+b;
 	}
@@ -862,7 +1073,7 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 
 		expression = parser.parseExpression("#negate(#ints.?[#this<2][0])");
 		assertEquals("-1",expression.getValue(context, Integer.class).toString());
-		// Selection isn't compilable.
+		// Selection over an array isn't compilable.
 		assertFalse(((SpelNodeImpl)((SpelExpression)expression).getAST()).isCompilable());
 	}
 
@@ -5025,6 +5236,28 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 		}
 	}
 
+	public static class TestClass11 {
+
+		public String name = "basket";
+
+		public List<String> items = new ArrayList<String>(Arrays.asList("apple", "banana", "pear"));
+
+		public String[] itemArray = {"apple", "banana", "pear"};
+
+		public Map<String, Integer> prices = new HashMap<String, Integer>();
+
+		public TestClass11 nested;
+
+		public TestClass11() {
+			this.prices.put("apple", 2);
+			this.prices.put("pear", 3);
+		}
+
+		public int getSize() {
+			return this.items.size();
+		}
+	}
+
 	public static class TestClass5 {
 
 		public int i = 0;
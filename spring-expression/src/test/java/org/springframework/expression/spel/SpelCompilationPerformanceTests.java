@@ -16,6 +16,12 @@
 
 package org.springframework.expression.spel;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.junit.Ignore;
 import org.junit.Test;
 
@@ -67,6 +73,26 @@ public class SpelCompilationPerformanceTests extends AbstractExpressionTests {
 		public int payload = 36;
 	}
 
+	public static class Basket {
+
+		public String name = "basket";
+
+		public List<String> items = new ArrayList<String>(Arrays.asList("apple", "banana", "pear"));
+
+		public Map<String, Integer> prices = new HashMap<String, Integer>();
+
+		public Basket nested;
+
+		public Basket() {
+			this.prices.put("apple", 2);
+			this.prices.put("pear", 3);
+		}
+
+		public String getName() {
+			return this.name;
+		}
+	}
+
 	/**
 	 * This test verifies the new support for compiling mathematical expressions with
 	 * different operand types.
@@ -666,6 +692,77 @@ public class SpelCompilationPerformanceTests extends AbstractExpressionTests {
 		}
 	}
 
+	/**
+	 * Compares interpreted and compiled evaluation for a corpus of typical expressions,
+	 * reporting the speed-up per kind of node.
+	 */
+	@Test
+	public void compilingExpressionCorpus() throws Exception {
+		Basket basket = new Basket();
+		basket.nested = new Basket();
+		basket.nested.nested = new Basket();
+		String[][] corpus = new String[][] {
+			{"method call on collection", "items.contains('pear') and !items.isEmpty()"},
+			{"map access", "prices['apple'] + prices['pear']"},
+			{"projection", "items.![length()]"},
+			{"selection", "items.?[length() > 4]"},
+			{"selection (first)", "items.^[startsWith('p')]"},
+			{"selection and projection", "items.?[length() > 4].![toUpperCase()]"},
+			{"inline list", "{name, items.size()}"},
+			{"inline map", "{name: name, count: items.size()}"},
+			{"elvis", "nested.name ?: 'unknown'"},
+			{"safe navigation", "nested?.nested?.name"},
+			{"safe navigation (method)", "nested?.getName()?.length()"}
+		};
+		for (String[] entry : corpus) {
+			timeInterpretedAndCompiled(entry[0], entry[1], basket);
+		}
+	}
+
+	private void timeInterpretedAndCompiled(String title, String expressionString, Object root) {
+		long interpretedTotal = 0, compiledTotal = 0, stime, etime;
+		Object interpretedResult = null, compiledResult = null;
+		Expression expression = parser.parseExpression(expressionString);
+		logln("Performance check for SpEL expression: '" + expressionString + "'");
+
+		// warmup
+		for (int i = 0; i < count; i++) {
+			expression.getValue(root);
+		}
+
+		log("timing interpreted: ");
+		for (int i = 0; i < iterations; i++) {
+			stime = System.currentTimeMillis();
+			for (int j = 0; j < count; j++) {
+				interpretedResult = expression.getValue(root);
+			}
+			etime = System.currentTimeMillis();
+			long interpretedSpeed = (etime - stime);
+			interpretedTotal += interpretedSpeed;
+			log(interpretedSpeed + "ms ");
+		}
+		logln();
+
+		compile(expression);
+
+		log("timing compiled: ");
+		expression.getValue(root);
+		for (int i = 0; i < iterations; i++) {
+			stime = System.currentTimeMillis();
+			for (int j = 0; j < count; j++) {
+				compiledResult = expression.getValue(root);
+			}
+			etime = System.currentTimeMillis();
+			long compiledSpeed = (etime - stime);
+			compiledTotal += compiledSpeed;
+			log(compiledSpeed + "ms ");
+		}
+		logln();
+
+		assertEquals(interpretedResult, compiledResult);
+		reportPerformance(title, interpretedTotal, compiledTotal);
+	}
+
 	// ---
 
 	private void reportPerformance(String title, long interpretedTotal, long compiledTotal) {
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel.standard;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.junit.Test;
+
+import org.springframework.expression.spel.CompiledExpression;
+import org.springframework.expression.spel.ast.SpelNodeImpl;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link SpelCompiler}.
+ */
+public class SpelCompilerTests {
+
+	private final SpelExpressionParser parser = new SpelExpressionParser();
+
+
+	@Test
+	public void childClassLoaderReplacedAfterClassesDefinedLimit() {
+		ClassLoader classLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+		SpelCompiler compiler = SpelCompiler.getCompiler(classLoader);
+
+		ClassLoader childClassLoader = compile(compiler, 0).getClass().getClassLoader();
+		assertSame(classLoader, childClassLoader.getParent());
+		for (int i = 1; i < 100; i++) {
+			assertSame(childClassLoader, compile(compiler, i).getClass().getClassLoader());
+		}
+
+		ClassLoader nextChildClassLoader = compile(compiler, 100).getClass().getClassLoader();
+		assertNotSame(childClassLoader, nextChildClassLoader);
+		assertSame(classLoader, nextChildClassLoader.getParent());
+		assertSame(nextChildClassLoader, compile(compiler, 101).getClass().getClassLoader());
+	}
+
+	private CompiledExpression compile(SpelCompiler compiler, int value) {
+		SpelExpression expression = (SpelExpression) this.parser.parseExpression(Integer.toString(value));
+		CompiledExpression compiledExpression = compiler.compile((SpelNodeImpl) expression.getAST());
+		assertNotNull(compiledExpression);
+		return compiledExpression;
+	}
+
+}
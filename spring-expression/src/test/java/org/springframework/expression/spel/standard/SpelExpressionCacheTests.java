@@ -0,0 +1,171 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel.standard;
+
+import java.lang.reflect.Field;
+
+import org.junit.Test;
+
+import org.springframework.expression.Expression;
+import org.springframework.expression.common.TemplateParserContext;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.util.ReflectionUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link SpelExpressionCache}.
+ */
+public class SpelExpressionCacheTests {
+
+	private final SpelExpressionCache cache = new SpelExpressionCache();
+
+
+	@Test
+	public void expressionIsParsedOnce() {
+		Expression expression = this.cache.getExpression("'abc'.length()");
+		assertSame(expression, this.cache.getExpression("'abc'.length()"));
+		assertEquals(3, expression.getValue());
+		assertEquals(1, this.cache.size());
+		assertEquals(1, this.cache.getHitCount());
+		assertEquals(1, this.cache.getMissCount());
+	}
+
+	@Test
+	public void expressionsAreCachedPerKey() {
+		Expression expression1 = this.cache.getExpression("key1", "length()");
+		Expression expression2 = this.cache.getExpression("key2", "length()");
+		assertNotSame(expression1, expression2);
+		assertSame(expression1, this.cache.getExpression("key1", "length()"));
+		assertEquals(2, this.cache.size());
+		assertEquals(2, this.cache.getMissCount());
+	}
+
+	@Test
+	public void expressionIsParsedWithContext() {
+		Expression expression = this.cache.getExpression("key", "#{'abc'}def", new TemplateParserContext());
+		assertEquals("abcdef", expression.getValue());
+	}
+
+	@Test
+	public void eldestExpressionIsEvicted() {
+		this.cache.setCacheLimit(2);
+		Expression expression1 = this.cache.getExpression("1");
+		Expression expression2 = this.cache.getExpression("2");
+		this.cache.getExpression("3");
+		assertEquals(2, this.cache.size());
+		assertEquals(1, this.cache.getEvictionCount());
+		assertSame(expression2, this.cache.getExpression("2"));
+		assertEquals(3, this.cache.getMissCount());
+		assertNotSame(expression1, this.cache.getExpression("1"));
+		assertEquals(4, this.cache.getMissCount());
+		assertEquals(2, this.cache.getEvictionCount());
+	}
+
+	@Test
+	public void clear() {
+		this.cache.getExpression("1");
+		this.cache.clear();
+		assertEquals(0, this.cache.size());
+		this.cache.getExpression("1");
+		assertEquals(2, this.cache.getMissCount());
+	}
+
+	@Test
+	public void remove() {
+		this.cache.getExpression("1");
+		Expression expression = this.cache.getExpression("2");
+		this.cache.remove("1");
+		assertEquals(1, this.cache.size());
+		assertSame(expression, this.cache.getExpression("2"));
+		this.cache.getExpression("1");
+		assertEquals(3, this.cache.getMissCount());
+	}
+
+	@Test
+	public void removeMatching() {
+		this.cache.getExpression("1");
+		this.cache.getExpression("2");
+		Expression expression = this.cache.getExpression("3");
+		this.cache.removeMatching(key -> !"3".equals(key));
+		assertEquals(1, this.cache.size());
+		assertSame(expression, this.cache.getExpression("3"));
+		assertEquals(3, this.cache.getMissCount());
+	}
+
+	@Test
+	public void setExpressionParserKeepsSettings() {
+		this.cache.setCacheLimit(10);
+		this.cache.setCompilationThreshold(5);
+		Expression expression = this.cache.getExpression("1");
+		SpelExpressionParser parser = new SpelExpressionParser();
+		this.cache.setExpressionParser(parser);
+		assertSame(parser, this.cache.getExpressionParser());
+		assertEquals(0, this.cache.size());
+		assertNotSame(expression, this.cache.getExpression("1"));
+		assertEquals(10, this.cache.getCacheLimit());
+		assertEquals(5, this.cache.getCompilationThreshold());
+		assertEquals(2, this.cache.getMissCount());
+	}
+
+	@Test
+	public void noPromotionByDefault() {
+		Expression expression = this.cache.getExpression("1");
+		for (int i = 0; i < 1000; i++) {
+			assertSame(expression, this.cache.getExpression("1"));
+		}
+		assertEquals(0, this.cache.getPromotionCount());
+	}
+
+	@Test
+	public void hotExpressionIsPromotedToCompilation() {
+		this.cache.setCompilationThreshold(2);
+		Expression expression = this.cache.getExpression("'abc'.length()");
+		assertSame(expression, this.cache.getExpression("'abc'.length()"));
+		assertSame(expression, this.cache.getExpression("'abc'.length()"));
+		Expression promoted = this.cache.getExpression("'abc'.length()");
+		assertNotSame(expression, promoted);
+		assertSame(promoted, this.cache.getExpression("'abc'.length()"));
+		assertEquals(1, this.cache.getPromotionCount());
+
+		assertFalse(isCompiled(promoted));
+		for (int i = 0; i < 200; i++) {
+			assertEquals(3, promoted.getValue());
+		}
+		assertTrue(isCompiled(promoted));
+		assertFalse(isCompiled(expression));
+	}
+
+	@Test
+	public void noPromotionForCompilingParser() {
+		SpelExpressionCache cache = new SpelExpressionCache(
+				new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.IMMEDIATE, null)));
+		cache.setCompilationThreshold(0);
+		Expression expression = cache.getExpression("1");
+		assertSame(expression, cache.getExpression("1"));
+		assertEquals(0, cache.getPromotionCount());
+	}
+
+
+	private static boolean isCompiled(Expression expression) {
+		Field field = ReflectionUtils.findField(SpelExpression.class, "compiledAst");
+		ReflectionUtils.makeAccessible(field);
+		return (ReflectionUtils.getField(field, expression) != null);
+	}
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp.broker;
+
+import org.springframework.expression.AccessException;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.TypedValue;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+
+/**
+ * A {@link PropertyAccessor} exposing the destination and the native headers
+ * of a message, used to evaluate subscription selector expressions against
+ * {@link MessageHeaders}.
+ *
+ * @author Rossen Stoyanchev
+ * @since 4.2
+ */
+class SimpMessageHeaderPropertyAccessor implements PropertyAccessor {
+
+	@Override
+	public Class<?>[] getSpecificTargetClasses() {
+		return new Class<?>[] {MessageHeaders.class};
+	}
+
+	@Override
+	public boolean canRead(EvaluationContext context, Object target, String name) {
+		return true;
+	}
+
+	@Override
+	public TypedValue read(EvaluationContext context, Object target, String name) throws AccessException {
+		MessageHeaders headers = (MessageHeaders) target;
+		SimpMessageHeaderAccessor accessor =
+				MessageHeaderAccessor.getAccessor(headers, SimpMessageHeaderAccessor.class);
+		Object value;
+		if ("destination".equalsIgnoreCase(name)) {
+			value = accessor.getDestination();
+		}
+		else {
+			value = accessor.getFirstNativeHeader(name);
+			if (value == null) {
+				value = headers.get(name);
+			}
+		}
+		return new TypedValue(value);
+	}
+
+	@Override
+	public boolean canWrite(EvaluationContext context, Object target, String name) {
+		return false;
+	}
+
+	@Override
+	public void write(EvaluationContext context, Object target, String name, Object value) {
+	}
+}
@@ -17,7 +17,10 @@
 package org.springframework.messaging.simp.broker;
 
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
@@ -25,9 +28,11 @@ import java.util.concurrent.ScheduledFuture;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.MessagingException;
 import org.springframework.messaging.SubscribableChannel;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.messaging.support.MessageHeaderInitializer;
@@ -65,6 +70,8 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 
 	private MessageHeaderInitializer headerInitializer;
 
+	private int broadcastBatchSize = 1;
+
 
 	/**
 	 * Create a SimpleBrokerMessageHandler instance with the given message channels
@@ -86,8 +93,9 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 	 * Configure a custom SubscriptionRegistry to use for storing subscriptions.
 	 * <p><strong>Note</strong> that when a custom PathMatcher is configured via
 	 * {@link #setPathMatcher}, if the custom registry is not an instance of
-	 * {@link DefaultSubscriptionRegistry}, the provided PathMatcher is not used
-	 * and must be configured directly on the custom registry.
+	 * {@link DefaultSubscriptionRegistry} or {@link TrieSubscriptionRegistry},
+	 * the provided PathMatcher is not used and must be configured directly on
+	 * the custom registry.
 	 */
 	public void setSubscriptionRegistry(SubscriptionRegistry subscriptionRegistry) {
 		Assert.notNull(subscriptionRegistry, "SubscriptionRegistry must not be null");
@@ -107,6 +115,7 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 	 * @since 4.1
 	 * @see #setSubscriptionRegistry
 	 * @see DefaultSubscriptionRegistry#setPathMatcher
+	 * @see TrieSubscriptionRegistry#setPathMatcher
 	 * @see org.springframework.util.AntPathMatcher
 	 */
 	public void setPathMatcher(PathMatcher pathMatcher) {
@@ -118,6 +127,9 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		if (this.pathMatcher != null && this.subscriptionRegistry instanceof DefaultSubscriptionRegistry) {
 			((DefaultSubscriptionRegistry) this.subscriptionRegistry).setPathMatcher(this.pathMatcher);
 		}
+		else if (this.pathMatcher != null && this.subscriptionRegistry instanceof TrieSubscriptionRegistry) {
+			((TrieSubscriptionRegistry) this.subscriptionRegistry).setPathMatcher(this.pathMatcher);
+		}
 	}
 
 	/**
@@ -204,6 +216,29 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		return this.headerInitializer;
 	}
 
+	/**
+	 * Configure the maximum number of messages handed to the executor of the
+	 * client outbound channel as a single task when a message is broadcast to
+	 * its subscribers. This applies when the client outbound channel is an
+	 * {@link ExecutorSubscribableChannel} and reduces the per-message executor
+	 * overhead for destinations with many subscribers.
+	 * <p>By default this is set to 1, i.e. every message is sent individually.
+	 * @since 4.3.4
+	 * @see ExecutorSubscribableChannel#sendBatch
+	 */
+	public void setBroadcastBatchSize(int broadcastBatchSize) {
+		Assert.isTrue(broadcastBatchSize > 0, "'broadcastBatchSize' must be greater than 0");
+		this.broadcastBatchSize = broadcastBatchSize;
+	}
+
+	/**
+	 * Return the configured broadcast batch size.
+	 * @since 4.3.4
+	 */
+	public int getBroadcastBatchSize() {
+		return this.broadcastBatchSize;
+	}
+
 
 	@Override
 	public void startInternal() {
@@ -326,9 +361,18 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 
 	protected void sendMessageToSubscribers(String destination, Message<?> message) {
 		MultiValueMap<String,String> subscriptions = this.subscriptionRegistry.findSubscriptions(message);
-		if (!subscriptions.isEmpty() && logger.isDebugEnabled()) {
+		if (subscriptions.isEmpty()) {
+			return;
+		}
+		if (logger.isDebugEnabled()) {
 			logger.debug("Broadcasting to " + subscriptions.size() + " sessions.");
 		}
+		Map<String, Object> sharedHeaders = getBroadcastHeaders(message);
+		Object payload = message.getPayload();
+		List<Message<?>> batch = null;
+		if (this.broadcastBatchSize > 1 && getClientOutboundChannel() instanceof ExecutorSubscribableChannel) {
+			batch = new ArrayList<Message<?>>(subscriptions.size());
+		}
 		long now = System.currentTimeMillis();
 		for (String sessionId : subscriptions.keySet()) {
 			for (String subscriptionId : subscriptions.get(sessionId)) {
@@ -336,9 +380,13 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 				initHeaders(headerAccessor);
 				headerAccessor.setSessionId(sessionId);
 				headerAccessor.setSubscriptionId(subscriptionId);
-				headerAccessor.copyHeadersIfAbsent(message.getHeaders());
-				Object payload = message.getPayload();
+				headerAccessor.copyHeadersIfAbsent(sharedHeaders);
 				Message<?> reply = MessageBuilder.createMessage(payload, headerAccessor.getMessageHeaders());
+				if (batch != null) {
+					batch.add(reply);
+					updateSessionWriteTime(sessionId, now);
+					continue;
+				}
 				try {
 					getClientOutboundChannel().send(reply);
 				}
@@ -346,13 +394,38 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 					logger.error("Failed to send " + message, ex);
 				}
 				finally {
-					SessionInfo info = this.sessions.get(sessionId);
-					if (info != null) {
-						info.setLastWriteTime(now);
-					}
+					updateSessionWriteTime(sessionId, now);
 				}
 			}
 		}
+		if (batch != null) {
+			ExecutorSubscribableChannel channel = (ExecutorSubscribableChannel) getClientOutboundChannel();
+			for (MessagingException ex : channel.sendBatch(batch, this.broadcastBatchSize)) {
+				logger.error("Failed to send " + ex.getFailedMessage(), ex);
+			}
+		}
+	}
+
+	/**
+	 * Return the headers of the given message to copy to every message sent
+	 * to its subscribers, i.e. without the headers specific to the sender
+	 * session and subscription, which are set for each subscriber.
+	 */
+	private Map<String, Object> getBroadcastHeaders(Message<?> message) {
+		Map<String, Object> headers = new HashMap<String, Object>(message.getHeaders());
+		headers.remove(SimpMessageHeaderAccessor.MESSAGE_TYPE_HEADER);
+		headers.remove(SimpMessageHeaderAccessor.SESSION_ID_HEADER);
+		headers.remove(SimpMessageHeaderAccessor.SUBSCRIPTION_ID_HEADER);
+		headers.remove(MessageHeaders.ID);
+		headers.remove(MessageHeaders.TIMESTAMP);
+		return headers;
+	}
+
+	private void updateSessionWriteTime(String sessionId, long time) {
+		SessionInfo info = this.sessions.get(sessionId);
+		if (info != null) {
+			info.setLastWriteTime(time);
+		}
 	}
 
 	@Override
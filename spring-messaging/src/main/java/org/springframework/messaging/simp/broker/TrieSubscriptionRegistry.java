@@ -0,0 +1,472 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp.broker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.Assert;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.PathMatcher;
+import org.springframework.util.StringUtils;
+
+/**
+ * Implementation of {@link SubscriptionRegistry} that indexes subscriptions
+ * by destination, as an alternative to {@link DefaultSubscriptionRegistry}
+ * for brokers with many sessions and subscriptions.
+ *
+ * <p>Subscriptions are kept in a trie keyed by the literal leading segments
+ * of their destination, so that a lookup only checks the subscriptions stored
+ * along the path of the target destination against the {@link PathMatcher}.
+ * Subscriptions to plain destinations are indexed by all of their segments,
+ * subscriptions to destination patterns up to their first wildcard. Trie
+ * nodes are removed again once they hold no subscriptions.
+ *
+ * <p>The index is only used with a plain {@link AntPathMatcher} that matches
+ * case-sensitively and without trimming tokens, splitting destinations by the
+ * path separator of the matcher. With any other {@code PathMatcher}, all
+ * subscriptions are checked on every lookup.
+ *
+ * <p>Lookups are lock-free and do not depend on a destination cache: each
+ * trie node holds an immutable array of subscriptions which is replaced on
+ * modification. Subscription ids are returned in registration order.
+ *
+ * <p>Like {@link DefaultSubscriptionRegistry}, this class supports a
+ * {@link #setSelectorHeaderName selector} header on subscription messages.
+ *
+ * @since 4.3.4
+ * @see SimpleBrokerMessageHandler#setSubscriptionRegistry
+ */
+public class TrieSubscriptionRegistry extends AbstractSubscriptionRegistry {
+
+	private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
+	private static final Comparator<Subscription> REGISTRATION_ORDER_COMPARATOR = new Comparator<Subscription>() {
+		@Override
+		public int compare(Subscription sub1, Subscription sub2) {
+			return (sub1.order < sub2.order ? -1 : (sub1.order > sub2.order ? 1 : 0));
+		}
+	};
+
+
+	private PathMatcher pathMatcher = new AntPathMatcher();
+
+	/** The path separator to index destinations by, or {@code null} if not indexed */
+	private String pathSeparator = AntPathMatcher.DEFAULT_PATH_SEPARATOR;
+
+	private String selectorHeaderName = "selector";
+
+	private final ExpressionParser expressionParser = new SpelExpressionParser();
+
+	/** Trie of subscriptions keyed by literal leading destination segments */
+	private final Node destinationLookup = new Node();
+
+	/** Map from sessionId -> subscriptionId -> subscription */
+	private final ConcurrentMap<String, ConcurrentMap<String, Subscription>> sessions =
+			new ConcurrentHashMap<String, ConcurrentMap<String, Subscription>>();
+
+	private final AtomicLong orderCounter = new AtomicLong();
+
+
+	/**
+	 * Specify the {@link PathMatcher} to use.
+	 * <p>Subscriptions are indexed based on the {@code PathMatcher} in use,
+	 * so this should be configured before any subscriptions are registered.
+	 */
+	public void setPathMatcher(PathMatcher pathMatcher) {
+		Assert.notNull(pathMatcher, "PathMatcher must not be null");
+		this.pathMatcher = pathMatcher;
+		this.pathSeparator = determinePathSeparator(pathMatcher);
+	}
+
+	/**
+	 * Return the configured {@link PathMatcher}.
+	 */
+	public PathMatcher getPathMatcher() {
+		return this.pathMatcher;
+	}
+
+	/**
+	 * Configure the name of a selector header that a subscription message can
+	 * have in order to filter messages based on their headers. The value of the
+	 * header can use Spring EL expressions against message headers.
+	 * <p>By default this is set to "selector".
+	 * @see DefaultSubscriptionRegistry#setSelectorHeaderName
+	 */
+	public void setSelectorHeaderName(String selectorHeaderName) {
+		Assert.notNull(selectorHeaderName, "'selectorHeaderName' must not be null");
+		this.selectorHeaderName = selectorHeaderName;
+	}
+
+	/**
+	 * Return the name for the selector header.
+	 */
+	public String getSelectorHeaderName() {
+		return this.selectorHeaderName;
+	}
+
+
+	@Override
+	protected void addSubscriptionInternal(String sessionId, String subsId, String destination,
+			Message<?> message) {
+
+		Expression expression = null;
+		String selector = SimpMessageHeaderAccessor.getFirstNativeHeader(getSelectorHeaderName(), message.getHeaders());
+		if (selector != null) {
+			try {
+				expression = this.expressionParser.parseExpression(selector);
+				if (logger.isTraceEnabled()) {
+					logger.trace("Subscription selector: [" + selector + "]");
+				}
+			}
+			catch (Throwable ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Failed to parse selector: " + selector, ex);
+				}
+			}
+		}
+
+		Subscription subscription = new Subscription(sessionId, subsId, destination, expression,
+				getIndexSegments(destination), this.orderCounter.getAndIncrement());
+
+		ConcurrentMap<String, Subscription> sessionSubscriptions = this.sessions.get(sessionId);
+		if (sessionSubscriptions == null) {
+			sessionSubscriptions = new ConcurrentHashMap<String, Subscription>(4);
+			ConcurrentMap<String, Subscription> existing = this.sessions.putIfAbsent(sessionId, sessionSubscriptions);
+			if (existing != null) {
+				sessionSubscriptions = existing;
+			}
+		}
+		Subscription previous = sessionSubscriptions.put(subsId, subscription);
+		if (previous != null) {
+			removeFromIndex(previous);
+		}
+		addToIndex(subscription);
+
+		// Concurrently unregistered session or subscription?
+		if (this.sessions.get(sessionId) != sessionSubscriptions || sessionSubscriptions.get(subsId) != subscription) {
+			removeFromIndex(subscription);
+		}
+	}
+
+	@Override
+	protected void removeSubscriptionInternal(String sessionId, String subsId, Message<?> message) {
+		ConcurrentMap<String, Subscription> sessionSubscriptions = this.sessions.get(sessionId);
+		if (sessionSubscriptions != null) {
+			Subscription subscription = sessionSubscriptions.remove(subsId);
+			if (subscription != null) {
+				removeFromIndex(subscription);
+			}
+		}
+	}
+
+	@Override
+	public void unregisterAllSubscriptions(String sessionId) {
+		ConcurrentMap<String, Subscription> sessionSubscriptions = this.sessions.remove(sessionId);
+		if (sessionSubscriptions != null) {
+			for (Subscription subscription : sessionSubscriptions.values()) {
+				removeFromIndex(subscription);
+			}
+		}
+	}
+
+	@Override
+	protected MultiValueMap<String, String> findSubscriptionsInternal(String destination, Message<?> message) {
+		List<Subscription> matches = null;
+		boolean sorted = true;
+
+		Node node = this.destinationLookup;
+		String pathSeparator = this.pathSeparator;
+		String[] segments = (pathSeparator == null || node.children.isEmpty() ? null :
+				tokenize(destination, pathSeparator));
+		int index = 0;
+		while (node != null) {
+			Subscription[] subscriptions = node.subscriptions;
+			String matchedPattern = null;
+			String unmatchedPattern = null;
+			for (Subscription subscription : subscriptions) {
+				String pattern = subscription.getDestination();
+				if (pattern.equals(unmatchedPattern)) {
+					continue;
+				}
+				if (!pattern.equals(matchedPattern)) {
+					if (!this.pathMatcher.match(pattern, destination)) {
+						unmatchedPattern = pattern;
+						continue;
+					}
+					matchedPattern = pattern;
+				}
+				if (matches == null) {
+					matches = new ArrayList<Subscription>(4);
+				}
+				else if (sorted && matches.get(matches.size() - 1).order > subscription.order) {
+					sorted = false;
+				}
+				matches.add(subscription);
+			}
+			if (segments == null || index >= segments.length) {
+				break;
+			}
+			node = node.children.get(segments[index++]);
+		}
+
+		if (matches == null) {
+			return new LinkedMultiValueMap<String, String>(0);
+		}
+		if (!sorted) {
+			Collections.sort(matches, REGISTRATION_ORDER_COMPARATOR);
+		}
+
+		EvaluationContext context = null;
+		MultiValueMap<String, String> result = new LinkedMultiValueMap<String, String>();
+		for (Subscription subscription : matches) {
+			Expression expression = subscription.getSelectorExpression();
+			if (expression != null) {
+				if (context == null) {
+					context = new StandardEvaluationContext(message);
+					context.getPropertyAccessors().add(new SimpMessageHeaderPropertyAccessor());
+				}
+				if (!evaluateSelector(expression, context)) {
+					continue;
+				}
+			}
+			result.add(subscription.getSessionId(), subscription.getId());
+		}
+		return result;
+	}
+
+	private boolean evaluateSelector(Expression expression, EvaluationContext context) {
+		try {
+			return expression.getValue(context, boolean.class);
+		}
+		catch (SpelEvaluationException ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Failed to evaluate selector: " + ex.getMessage());
+			}
+		}
+		catch (Throwable ex) {
+			logger.debug("Failed to evaluate selector", ex);
+		}
+		return false;
+	}
+
+
+	/**
+	 * Determine the path separator to index destinations by, or {@code null}
+	 * if the given matcher may match literal segments other than by equality,
+	 * i.e. if it is not a plain {@link AntPathMatcher}, or if it matches
+	 * case-insensitively or trims tokens.
+	 */
+	private static String determinePathSeparator(PathMatcher pathMatcher) {
+		if (pathMatcher.getClass() != AntPathMatcher.class ||
+				pathMatcher.match("a", "A") || pathMatcher.match("a", " a")) {
+			return null;
+		}
+		// Plain segments are combined as "a" + pathSeparator + "b"
+		String combined = pathMatcher.combine("a", "b");
+		return combined.substring(1, combined.length() - 1);
+	}
+
+	private static String[] tokenize(String destination, String pathSeparator) {
+		return StringUtils.tokenizeToStringArray(destination, pathSeparator, false, true);
+	}
+
+	/**
+	 * Return the trie path for the given destination: all segments of a plain
+	 * destination, or the literal segments of a pattern excluding the last one
+	 * which may also match through a trailing path separator.
+	 */
+	private String[] getIndexSegments(String destination) {
+		String pathSeparator = this.pathSeparator;
+		if (pathSeparator == null) {
+			return new String[0];
+		}
+		String[] segments = tokenize(destination, pathSeparator);
+		if (!this.pathMatcher.isPattern(destination) && destination.indexOf('{') == -1) {
+			return segments;
+		}
+		int count = 0;
+		while (count < segments.length - 1) {
+			String segment = segments[count];
+			if (segment.indexOf('*') != -1 || segment.indexOf('?') != -1 || segment.indexOf('{') != -1) {
+				break;
+			}
+			count++;
+		}
+		String[] result = new String[count];
+		System.arraycopy(segments, 0, result, 0, count);
+		return result;
+	}
+
+	private void addToIndex(Subscription subscription) {
+		synchronized (this.destinationLookup) {
+			Node node = this.destinationLookup;
+			for (String segment : subscription.getIndexSegments()) {
+				Node child = node.children.get(segment);
+				if (child == null) {
+					child = new Node();
+					node.children.put(segment, child);
+				}
+				node = child;
+			}
+			node.add(subscription);
+		}
+	}
+
+	private void removeFromIndex(Subscription subscription) {
+		synchronized (this.destinationLookup) {
+			String[] segments = subscription.getIndexSegments();
+			Node[] path = new Node[segments.length + 1];
+			path[0] = this.destinationLookup;
+			for (int i = 0; i < segments.length; i++) {
+				path[i + 1] = path[i].children.get(segments[i]);
+				if (path[i + 1] == null) {
+					return;
+				}
+			}
+			path[segments.length].remove(subscription);
+			for (int i = segments.length; i > 0 && path[i].isEmpty(); i--) {
+				path[i - 1].children.remove(segments[i - 1]);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "TrieSubscriptionRegistry[sessions=" + this.sessions.size() + "]";
+	}
+
+
+	/**
+	 * A trie node with the subscriptions stored under it. Nodes are modified
+	 * under the lock of the trie root, while lookups read the immutable array
+	 * of subscriptions. Subscriptions to the same destination are kept next to
+	 * each other so that a pattern is only matched once per lookup.
+	 */
+	private static class Node {
+
+		private final ConcurrentMap<String, Node> children = new ConcurrentHashMap<String, Node>(4);
+
+		private volatile Subscription[] subscriptions = NO_SUBSCRIPTIONS;
+
+		public void add(Subscription subscription) {
+			Subscription[] current = this.subscriptions;
+			int insertAt = current.length;
+			for (int i = current.length - 1; i >= 0; i--) {
+				if (current[i].getDestination().equals(subscription.getDestination())) {
+					insertAt = i + 1;
+					break;
+				}
+			}
+			Subscription[] updated = new Subscription[current.length + 1];
+			System.arraycopy(current, 0, updated, 0, insertAt);
+			updated[insertAt] = subscription;
+			System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+			this.subscriptions = updated;
+		}
+
+		public void remove(Subscription subscription) {
+			Subscription[] current = this.subscriptions;
+			for (int i = 0; i < current.length; i++) {
+				if (current[i] == subscription) {
+					if (current.length == 1) {
+						this.subscriptions = NO_SUBSCRIPTIONS;
+					}
+					else {
+						Subscription[] updated = new Subscription[current.length - 1];
+						System.arraycopy(current, 0, updated, 0, i);
+						System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+						this.subscriptions = updated;
+					}
+					return;
+				}
+			}
+		}
+
+		public boolean isEmpty() {
+			return (this.subscriptions.length == 0 && this.children.isEmpty());
+		}
+	}
+
+
+	private static final class Subscription {
+
+		private final String sessionId;
+
+		private final String id;
+
+		private final String destination;
+
+		private final Expression selectorExpression;
+
+		private final String[] indexSegments;
+
+		private final long order;
+
+		public Subscription(String sessionId, String id, String destination, Expression selectorExpression,
+				String[] indexSegments, long order) {
+
+			this.sessionId = sessionId;
+			this.id = id;
+			this.destination = destination;
+			this.selectorExpression = selectorExpression;
+			this.indexSegments = indexSegments;
+			this.order = order;
+		}
+
+		public String getSessionId() {
+			return this.sessionId;
+		}
+
+		public String getId() {
+			return this.id;
+		}
+
+		public String getDestination() {
+			return this.destination;
+		}
+
+		public Expression getSelectorExpression() {
+			return this.selectorExpression;
+		}
+
+		public String[] getIndexSegments() {
+			return this.indexSegments;
+		}
+
+		@Override
+		public String toString() {
+			return "subscription(id=" + this.id + ", destination=" + this.destination + ")";
+		}
+	}
+
+}
@@ -36,6 +36,7 @@ import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.converter.StringMessageConverter;
 import org.springframework.messaging.handler.invocation.HandlerMethodArgumentResolver;
 import org.springframework.messaging.handler.invocation.HandlerMethodReturnValueHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
 import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
@@ -121,6 +122,7 @@ public abstract class AbstractMessageBrokerConfiguration implements ApplicationC
 		ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(clientInboundChannelExecutor());
 		ChannelRegistration reg = getClientInboundChannelRegistration();
 		channel.setInterceptors(reg.getInterceptors());
+		initSessionSharding(channel, reg);
 		return channel;
 	}
 
@@ -154,6 +156,7 @@ public abstract class AbstractMessageBrokerConfiguration implements ApplicationC
 		ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(clientOutboundChannelExecutor());
 		ChannelRegistration reg = getClientOutboundChannelRegistration();
 		channel.setInterceptors(reg.getInterceptors());
+		initSessionSharding(channel, reg);
 		return channel;
 	}
 
@@ -182,6 +185,13 @@ public abstract class AbstractMessageBrokerConfiguration implements ApplicationC
 	protected void configureClientOutboundChannel(ChannelRegistration registration) {
 	}
 
+	private void initSessionSharding(ExecutorSubscribableChannel channel, ChannelRegistration registration) {
+		if (registration.getSessionShardCount() > 0) {
+			channel.setShardHeaderName(SimpMessageHeaderAccessor.SESSION_ID_HEADER);
+			channel.setShardCount(registration.getSessionShardCount());
+		}
+	}
+
 	@Bean
 	public AbstractSubscribableChannel brokerChannel() {
 		ChannelRegistration reg = getBrokerRegistry().getBrokerChannelRegistration();
@@ -36,6 +36,8 @@ public class ChannelRegistration {
 
 	private final List<ChannelInterceptor> interceptors = new ArrayList<ChannelInterceptor>();
 
+	private int sessionShardCount;
+
 
 	/**
 	 * Configure the thread pool backing this message channel.
@@ -68,6 +70,21 @@ public class ChannelRegistration {
 		return this;
 	}
 
+	/**
+	 * Dispatch messages onto the given number of shards by their
+	 * {@code simpSessionId} header, so that messages for the same session are
+	 * handled in order, one batch at a time, by a single thread of the pool.
+	 * <p>By default messages are dispatched to the thread pool individually
+	 * and may be handled concurrently and out of order.
+	 * @param shardCount the number of shards; typically the core pool size
+	 * @since 4.3.4
+	 * @see org.springframework.messaging.support.ExecutorSubscribableChannel#setShardCount
+	 */
+	public ChannelRegistration shardBySession(int shardCount) {
+		this.sessionShardCount = shardCount;
+		return this;
+	}
+
 
 	protected boolean hasTaskExecutor() {
 		return (this.registration != null);
@@ -88,4 +105,8 @@ public class ChannelRegistration {
 	protected List<ChannelInterceptor> getInterceptors() {
 		return this.interceptors;
 	}
+
+	protected int getSessionShardCount() {
+		return this.sessionShardCount;
+	}
 }
@@ -19,8 +19,6 @@ package org.springframework.messaging.simp.stomp;
 import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.LinkedBlockingQueue;
 
 import org.springframework.messaging.Message;
 import org.springframework.util.Assert;
@@ -41,6 +39,10 @@ import org.springframework.util.MultiValueMap;
  * be used any more as its internal state is not guaranteed to be consistent.
  * It is expected that the underlying session is closed at that point.
  *
+ * <p>As of 4.3.4, left-over content is appended to a single buffer that is
+ * reused across calls and grown as needed, rather than re-assembled from
+ * all buffered chunks on every call.
+ *
  * @author Rossen Stoyanchev
  * @since 4.0.3
  * @see StompDecoder
@@ -51,7 +53,8 @@ public class BufferingStompDecoder {
 
 	private final int bufferSizeLimit;
 
-	private final Queue<ByteBuffer> chunks = new LinkedBlockingQueue<ByteBuffer>();
+	/** Buffered partial content, in write mode, or {@code null} if none */
+	private volatile ByteBuffer partialContent;
 
 	private volatile Integer expectedContentLength;
 
@@ -99,43 +102,59 @@ public class BufferingStompDecoder {
 	 * @throws StompConversionException raised in case of decoding issues
 	 */
 	public List<Message<byte[]>> decode(ByteBuffer newBuffer) {
-		this.chunks.add(newBuffer);
-		checkBufferLimits();
-
-		if (this.expectedContentLength != null && getBufferSize() < this.expectedContentLength) {
-			return Collections.<Message<byte[]>>emptyList();
+		ByteBuffer bufferToDecode;
+		if (this.partialContent == null) {
+			checkBufferLimits(newBuffer.remaining());
+			bufferToDecode = newBuffer;
+		}
+		else {
+			checkBufferLimits(getBufferSize() + newBuffer.remaining());
+			appendToPartialContent(newBuffer);
+			if (this.expectedContentLength != null && getBufferSize() < this.expectedContentLength) {
+				return Collections.<Message<byte[]>>emptyList();
+			}
+			bufferToDecode = this.partialContent;
+			bufferToDecode.flip();
 		}
 
-		ByteBuffer bufferToDecode = assembleChunksAndReset();
 		MultiValueMap<String, String> headers = new LinkedMultiValueMap<String, String>();
 		List<Message<byte[]>> messages = this.stompDecoder.decode(bufferToDecode, headers);
 
 		if (bufferToDecode.hasRemaining()) {
-			this.chunks.add(bufferToDecode);
+			if (bufferToDecode == this.partialContent) {
+				bufferToDecode.compact();
+			}
+			else {
+				this.partialContent = null;
+				appendToPartialContent(bufferToDecode);
+			}
 			this.expectedContentLength = StompHeaderAccessor.getContentLength(headers);
 		}
+		else {
+			this.partialContent = null;
+			this.expectedContentLength = null;
+		}
 
 		return messages;
 	}
 
-	private ByteBuffer assembleChunksAndReset() {
-		ByteBuffer result;
-		if (this.chunks.size() == 1) {
-			result = this.chunks.remove();
-		}
-		else {
-			result = ByteBuffer.allocate(getBufferSize());
-			for (ByteBuffer partial : this.chunks) {
-				result.put(partial);
+	private void appendToPartialContent(ByteBuffer newBuffer) {
+		ByteBuffer buffer = this.partialContent;
+		int required = (buffer != null ? buffer.position() : 0) + newBuffer.remaining();
+		if (buffer == null || buffer.capacity() < required) {
+			int capacity = Math.max(required, Math.min(required * 2, this.bufferSizeLimit));
+			ByteBuffer grown = ByteBuffer.allocate(Math.max(capacity, 256));
+			if (buffer != null) {
+				buffer.flip();
+				grown.put(buffer);
 			}
-			result.flip();
+			buffer = grown;
 		}
-		this.chunks.clear();
-		this.expectedContentLength = null;
-		return result;
+		buffer.put(newBuffer);
+		this.partialContent = buffer;
 	}
 
-	private void checkBufferLimits() {
+	private void checkBufferLimits(int bufferSize) {
 		if (this.expectedContentLength != null) {
 			if (this.expectedContentLength > this.bufferSizeLimit) {
 				throw new StompConversionException(
@@ -143,7 +162,7 @@ public class BufferingStompDecoder {
 						"  exceeds configured buffer size limit " + this.bufferSizeLimit);
 			}
 		}
-		if (getBufferSize() > this.bufferSizeLimit) {
+		if (bufferSize > this.bufferSizeLimit) {
 			throw new StompConversionException("The configured STOMP buffer size limit of " +
 					this.bufferSizeLimit + " bytes has been exceeded");
 		}
@@ -153,11 +172,8 @@ public class BufferingStompDecoder {
 	 * Calculate the current buffer size.
 	 */
 	public int getBufferSize() {
-		int size = 0;
-		for (ByteBuffer buffer : this.chunks) {
-			size = size + buffer.remaining();
-		}
-		return size;
+		ByteBuffer buffer = this.partialContent;
+		return (buffer != null ? buffer.position() : 0);
 	}
 
 	/**
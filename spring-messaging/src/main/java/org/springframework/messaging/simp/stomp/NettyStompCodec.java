@@ -0,0 +1,73 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp.stomp;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.tcp.netty.NettyCodec;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link NettyCodec} for sending and receiving STOMP messages.
+ *
+ * <p>Frames are encoded straight into the (typically pooled, direct) buffer
+ * of the connection, and decoded from the readable region of the buffer
+ * without copying it first.
+ *
+ * @since 4.3.4
+ */
+public class NettyStompCodec implements NettyCodec<byte[]> {
+
+	private final StompEncoder encoder;
+
+	private final StompDecoder decoder;
+
+
+	public NettyStompCodec() {
+		this(new StompEncoder(), new StompDecoder());
+	}
+
+	public NettyStompCodec(StompEncoder encoder, StompDecoder decoder) {
+		Assert.notNull(encoder, "StompEncoder is required");
+		Assert.notNull(decoder, "StompDecoder is required");
+		this.encoder = encoder;
+		this.decoder = decoder;
+	}
+
+
+	@Override
+	public List<Message<byte[]>> decode(ByteBuf buffer) {
+		ByteBuffer nioBuffer = buffer.nioBuffer();
+		List<Message<byte[]>> messages = this.decoder.decode(nioBuffer);
+		buffer.skipBytes(nioBuffer.position());
+		return messages;
+	}
+
+	@Override
+	public void encode(Message<byte[]> message, ByteBuf buffer) {
+		int length = this.encoder.getEncodedLength(message.getHeaders(), message.getPayload());
+		buffer.ensureWritable(length);
+		int writerIndex = buffer.writerIndex();
+		this.encoder.encode(message.getHeaders(), message.getPayload(), buffer.nioBuffer(writerIndex, length));
+		buffer.writerIndex(writerIndex + length);
+	}
+
+}
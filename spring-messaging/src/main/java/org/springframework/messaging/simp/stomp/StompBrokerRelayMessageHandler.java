@@ -40,8 +40,10 @@ import org.springframework.messaging.tcp.FixedIntervalReconnectStrategy;
 import org.springframework.messaging.tcp.TcpConnection;
 import org.springframework.messaging.tcp.TcpConnectionHandler;
 import org.springframework.messaging.tcp.TcpOperations;
+import org.springframework.messaging.tcp.netty.NettyTcpClient;
 import org.springframework.messaging.tcp.reactor.Reactor2TcpClient;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.ListenableFutureCallback;
 import org.springframework.util.concurrent.ListenableFutureTask;
@@ -95,6 +97,9 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 	 */
 	private static final int MAX_TIME_TO_CONNECTED_FRAME = 60 * 1000;
 
+	private static final boolean reactor2Present = ClassUtils.isPresent(
+			"reactor.io.net.NetStreams", StompBrokerRelayMessageHandler.class.getClassLoader());
+
 
 
 	static {
@@ -335,7 +340,9 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 
 	/**
 	 * Configure a TCP client for managing TCP connections to the STOMP broker.
-	 * By default {@link Reactor2TcpClient} is used.
+	 * By default {@link Reactor2TcpClient} is used if Reactor 2 is present on
+	 * the classpath, or otherwise {@link NettyTcpClient} which only requires
+	 * Netty 4.
 	 */
 	public void setTcpClient(TcpOperations<byte[]> tcpClient) {
 		this.tcpClient = tcpClient;
@@ -387,8 +394,9 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 		if (this.tcpClient == null) {
 			StompDecoder decoder = new StompDecoder();
 			decoder.setHeaderInitializer(getHeaderInitializer());
-			Reactor2StompCodec codec = new Reactor2StompCodec(new StompEncoder(), decoder);
-			this.tcpClient = new StompTcpClientFactory().create(this.relayHost, this.relayPort, codec);
+			this.tcpClient = (reactor2Present ?
+					new StompTcpClientFactory().create(this.relayHost, this.relayPort, decoder) :
+					new NettyStompTcpClientFactory().create(this.relayHost, this.relayPort, decoder));
 		}
 
 		if (logger.isInfoEnabled()) {
@@ -973,12 +981,22 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 
 	private static class StompTcpClientFactory {
 
-		public TcpOperations<byte[]> create(String relayHost, int relayPort, Reactor2StompCodec codec) {
+		public TcpOperations<byte[]> create(String relayHost, int relayPort, StompDecoder decoder) {
+			Reactor2StompCodec codec = new Reactor2StompCodec(new StompEncoder(), decoder);
 			return new Reactor2TcpClient<byte[]>(relayHost, relayPort, codec);
 		}
 	}
 
 
+	private static class NettyStompTcpClientFactory {
+
+		public TcpOperations<byte[]> create(String relayHost, int relayPort, StompDecoder decoder) {
+			NettyStompCodec codec = new NettyStompCodec(new StompEncoder(), decoder);
+			return new NettyTcpClient<byte[]>(relayHost, relayPort, codec);
+		}
+	}
+
+
 	private static class VoidCallable implements Callable<Void> {
 
 		@Override
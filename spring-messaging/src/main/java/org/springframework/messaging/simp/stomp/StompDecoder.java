@@ -16,7 +16,6 @@
 
 package org.springframework.messaging.simp.stomp;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
@@ -41,6 +40,12 @@ import org.springframework.util.MultiValueMap;
  * partial content. The caller is then responsible for dealing with that
  * incomplete content by buffering until there is more input available.
  *
+ * <p>As of 4.3.4, header lines are parsed in place in the input buffer, and
+ * frequently used header names and values, e.g. destinations and content
+ * types, are taken from a small cache instead of being decoded into a new
+ * String for every frame. The cache is shared by all callers of a decoder
+ * instance, and a decoder remains safe to use from multiple threads.
+ *
  * @author Andy Wilkinson
  * @author Rossen Stoyanchev
  * @since 4.0
@@ -53,6 +58,21 @@ public class StompDecoder {
 
 	private static final Log logger = LogFactory.getLog(StompDecoder.class);
 
+	private static final StompCommand[] COMMANDS = StompCommand.values();
+
+	private static final byte[][] COMMAND_BYTES = new byte[COMMANDS.length][];
+
+	static {
+		for (int i = 0; i < COMMANDS.length; i++) {
+			COMMAND_BYTES[i] = COMMANDS[i].name().getBytes(UTF8_CHARSET);
+		}
+	}
+
+
+	private final HeaderStringCache headerNameCache = new HeaderStringCache(64);
+
+	private final HeaderStringCache headerValueCache = new HeaderStringCache(1024);
+
 	private MessageHeaderInitializer headerInitializer;
 
 
@@ -126,12 +146,13 @@ public class StompDecoder {
 		skipLeadingEol(buffer);
 		buffer.mark();
 
-		String command = readCommand(buffer);
-		if (command.length() > 0) {
+		int commandStart = buffer.position();
+		int commandLength = readCommand(buffer);
+		if (commandLength > 0) {
 			StompHeaderAccessor headerAccessor = null;
 			byte[] payload = null;
 			if (buffer.remaining() > 0) {
-				StompCommand stompCommand = StompCommand.valueOf(command);
+				StompCommand stompCommand = getCommand(buffer, commandStart, commandLength);
 				headerAccessor = StompHeaderAccessor.create(stompCommand);
 				initHeaders(headerAccessor);
 				readHeaders(buffer, headerAccessor);
@@ -196,51 +217,87 @@ public class StompDecoder {
 		}
 	}
 
-	private String readCommand(ByteBuffer buffer) {
-		ByteArrayOutputStream command = new ByteArrayOutputStream(256);
-		while (buffer.remaining() > 0 && !tryConsumeEndOfLine(buffer)) {
-			command.write(buffer.get());
+	/**
+	 * Read the command line, leaving the buffer positioned after it.
+	 * @return the length of the command, 0 for a heartbeat, or the number of
+	 * bytes read if the buffer ended before the end of the command line
+	 */
+	private int readCommand(ByteBuffer buffer) {
+		int start = buffer.position();
+		while (buffer.remaining() > 0) {
+			int end = buffer.position();
+			if (tryConsumeEndOfLine(buffer)) {
+				return end - start;
+			}
+			buffer.get();
 		}
-		return new String(command.toByteArray(), UTF8_CHARSET);
+		return buffer.position() - start;
+	}
+
+	private StompCommand getCommand(ByteBuffer buffer, int start, int length) {
+		for (int i = 0; i < COMMANDS.length; i++) {
+			if (equals(COMMAND_BYTES[i], buffer, start, length)) {
+				return COMMANDS[i];
+			}
+		}
+		return StompCommand.valueOf(decode(buffer, start, length));
 	}
 
 	private void readHeaders(ByteBuffer buffer, StompHeaderAccessor headerAccessor) {
 		while (true) {
-			ByteArrayOutputStream headerStream = new ByteArrayOutputStream(256);
-			boolean headerComplete = false;
+			int start = buffer.position();
+			int end = -1;
 			while (buffer.hasRemaining()) {
+				int position = buffer.position();
 				if (tryConsumeEndOfLine(buffer)) {
-					headerComplete = true;
+					end = position;
 					break;
 				}
-				headerStream.write(buffer.get());
+				buffer.get();
 			}
-			if (headerStream.size() > 0 && headerComplete) {
-				String header = new String(headerStream.toByteArray(), UTF8_CHARSET);
-				int colonIndex = header.indexOf(':');
-				if (colonIndex <= 0) {
-					if (buffer.remaining() > 0) {
-						throw new StompConversionException("Illegal header: '" + header +
-								"'. A header must be of the form <name>:[<value>].");
-					}
+			if (end == -1 || end == start) {
+				// Incomplete header line, or end of headers
+				break;
+			}
+			int colonIndex = -1;
+			for (int i = start; i < end; i++) {
+				if (buffer.get(i) == ':') {
+					colonIndex = i;
+					break;
 				}
-				else {
-					String headerName = unescape(header.substring(0, colonIndex));
-					String headerValue = unescape(header.substring(colonIndex + 1));
-					try {
-						headerAccessor.addNativeHeader(headerName, headerValue);
-					}
-					catch (InvalidMimeTypeException ex) {
-						if (buffer.remaining() > 0) {
-							throw ex;
-						}
-					}
+			}
+			if (colonIndex <= start) {
+				if (buffer.remaining() > 0) {
+					throw new StompConversionException("Illegal header: '" + decode(buffer, start, end - start) +
+							"'. A header must be of the form <name>:[<value>].");
 				}
 			}
 			else {
-				break;
+				String headerName = readHeaderString(buffer, start, colonIndex, this.headerNameCache);
+				String headerValue = readHeaderString(buffer, colonIndex + 1, end, this.headerValueCache);
+				try {
+					headerAccessor.addNativeHeader(headerName, headerValue);
+				}
+				catch (InvalidMimeTypeException ex) {
+					if (buffer.remaining() > 0) {
+						throw ex;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Decode and unescape the header name or value between the given indexes,
+	 * using the given cache for values without escape sequences.
+	 */
+	private String readHeaderString(ByteBuffer buffer, int start, int end, HeaderStringCache cache) {
+		for (int i = start; i < end; i++) {
+			if (buffer.get(i) == '\\') {
+				return unescape(decode(buffer, start, end - start));
 			}
 		}
+		return cache.get(buffer, start, end - start);
 	}
 
 	/**
@@ -306,16 +363,15 @@ public class StompDecoder {
 			}
 		}
 		else {
-			ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
-			while (buffer.remaining() > 0) {
-				byte b = buffer.get();
-				if (b == 0) {
-					return payload.toByteArray();
-				}
-				else {
-					payload.write(b);
+			for (int i = buffer.position(); i < buffer.limit(); i++) {
+				if (buffer.get(i) == 0) {
+					byte[] payload = new byte[i - buffer.position()];
+					buffer.get(payload);
+					buffer.get();
+					return payload;
 				}
 			}
+			buffer.position(buffer.limit());
 		}
 		return null;
 	}
@@ -343,4 +399,83 @@ public class StompDecoder {
 		return false;
 	}
 
+
+	private static boolean equals(byte[] bytes, ByteBuffer buffer, int start, int length) {
+		if (bytes.length != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (bytes[i] != buffer.get(start + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String decode(ByteBuffer buffer, int start, int length) {
+		if (buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + start, length, UTF8_CHARSET);
+		}
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		return new String(bytes, UTF8_CHARSET);
+	}
+
+
+	/**
+	 * A fixed-size, direct-mapped cache of decoded header strings keyed by
+	 * their UTF-8 bytes. A lookup does not allocate if the string is present.
+	 * Entries are immutable, so the cache may be accessed concurrently without
+	 * locking at the risk of occasionally decoding the same string twice.
+	 */
+	private static class HeaderStringCache {
+
+		private static final int MAX_LENGTH = 128;
+
+		private final Entry[] entries;
+
+		public HeaderStringCache(int size) {
+			this.entries = new Entry[size];
+		}
+
+		public String get(ByteBuffer buffer, int start, int length) {
+			if (length > MAX_LENGTH) {
+				return decode(buffer, start, length);
+			}
+			int hash = 1;
+			for (int i = start; i < start + length; i++) {
+				hash = 31 * hash + buffer.get(i);
+			}
+			int index = (hash ^ (hash >>> 16)) & (this.entries.length - 1);
+			Entry entry = this.entries[index];
+			if (entry != null && entry.hash == hash && StompDecoder.equals(entry.bytes, buffer, start, length)) {
+				return entry.value;
+			}
+			String value = decode(buffer, start, length);
+			byte[] bytes = new byte[length];
+			for (int i = 0; i < length; i++) {
+				bytes[i] = buffer.get(start + i);
+			}
+			this.entries[index] = new Entry(hash, bytes, value);
+			return value;
+		}
+
+		private static class Entry {
+
+			private final int hash;
+
+			private final byte[] bytes;
+
+			private final String value;
+
+			public Entry(int hash, byte[] bytes, String value) {
+				this.hash = hash;
+				this.bytes = bytes;
+				this.value = value;
+			}
+		}
+	}
+
 }
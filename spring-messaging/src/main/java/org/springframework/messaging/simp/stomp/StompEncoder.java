@@ -16,10 +16,10 @@
 
 package org.springframework.messaging.simp.stomp;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -36,6 +36,12 @@ import org.springframework.util.Assert;
 /**
  * An encoder for STOMP frames.
  *
+ * <p>Frames are encoded in two passes, first computing the encoded length and
+ * then writing header names and values directly into the target buffer, so
+ * that no intermediate arrays are created. As of 4.3.4, frames can also be
+ * encoded into a caller-provided {@link ByteBuffer}, e.g. a pooled one, via
+ * {@link #getEncodedLength} and {@link #encode(Map, byte[], ByteBuffer)}.
+ *
  * @author Andy Wilkinson
  * @author Rossen Stoyanchev
  * @since 4.0
@@ -47,8 +53,34 @@ public class StompEncoder  {
 
 	private static final byte COLON = ':';
 
+	private static final byte[] CONTENT_LENGTH = "content-length:".getBytes(StompDecoder.UTF8_CHARSET);
+
+	private static final Map<StompCommand, byte[]> COMMANDS = new EnumMap<StompCommand, byte[]>(StompCommand.class);
+
+	/** Pre-encoded common header names, none of which needs escaping */
+	private static final Map<String, byte[]> HEADER_NAMES = new HashMap<String, byte[]>(32);
+
 	private static final Log logger = LogFactory.getLog(StompEncoder.class);
 
+	static {
+		for (StompCommand command : StompCommand.values()) {
+			COMMANDS.put(command, command.toString().getBytes(StompDecoder.UTF8_CHARSET));
+		}
+		String[] headerNames = new String[] {
+				StompHeaderAccessor.STOMP_DESTINATION_HEADER, StompHeaderAccessor.STOMP_CONTENT_TYPE_HEADER,
+				StompHeaderAccessor.STOMP_CONTENT_LENGTH_HEADER, StompHeaderAccessor.STOMP_SUBSCRIPTION_HEADER,
+				StompHeaderAccessor.STOMP_MESSAGE_ID_HEADER, StompHeaderAccessor.STOMP_ID_HEADER,
+				StompHeaderAccessor.STOMP_RECEIPT_HEADER, StompHeaderAccessor.STOMP_RECEIPT_ID_HEADER,
+				StompHeaderAccessor.STOMP_ACK_HEADER, StompHeaderAccessor.STOMP_MESSAGE_HEADER,
+				StompHeaderAccessor.STOMP_HEARTBEAT_HEADER, StompHeaderAccessor.STOMP_VERSION_HEADER,
+				StompHeaderAccessor.STOMP_ACCEPT_VERSION_HEADER, StompHeaderAccessor.STOMP_HOST_HEADER,
+				StompHeaderAccessor.STOMP_LOGIN_HEADER, StompHeaderAccessor.STOMP_PASSCODE_HEADER,
+				"session", "server", "transaction"};
+		for (String headerName : headerNames) {
+			HEADER_NAMES.put(headerName, headerName.getBytes(StompDecoder.UTF8_CHARSET));
+		}
+	}
+
 
 	/**
 	 * Encodes the given STOMP {@code message} into a {@code byte[]}
@@ -68,55 +100,86 @@ public class StompEncoder  {
 	public byte[] encode(Map<String, Object> headers, byte[] payload) {
 		Assert.notNull(headers, "'headers' is required");
 		Assert.notNull(payload, "'payload' is required");
+		ByteBuffer buffer = ByteBuffer.allocate(writeFrame(headers, payload, null));
+		writeFrame(headers, payload, buffer);
+		return buffer.array();
+	}
 
-		try {
-			ByteArrayOutputStream baos = new ByteArrayOutputStream(128 + payload.length);
-			DataOutputStream output = new DataOutputStream(baos);
+	/**
+	 * Return the number of bytes the given payload and headers encode to,
+	 * e.g. in order to obtain a large enough buffer for
+	 * {@link #encode(Map, byte[], ByteBuffer)}.
+	 * @param headers the headers
+	 * @param payload the payload
+	 * @return the length of the encoded message
+	 * @since 4.3.4
+	 */
+	public int getEncodedLength(Map<String, Object> headers, byte[] payload) {
+		Assert.notNull(headers, "'headers' is required");
+		Assert.notNull(payload, "'payload' is required");
+		return writeFrame(headers, payload, null);
+	}
 
-			if (SimpMessageType.HEARTBEAT.equals(SimpMessageHeaderAccessor.getMessageType(headers))) {
-				if (logger.isTraceEnabled()) {
-					logger.trace("Encoding heartbeat");
-				}
-				output.write(StompDecoder.HEARTBEAT_PAYLOAD);
-			}
+	/**
+	 * Encodes the given payload and headers into the given buffer, starting
+	 * at its current position.
+	 * @param headers the headers
+	 * @param payload the payload
+	 * @param buffer the buffer to write to, with at least as many bytes
+	 * remaining as returned from {@link #getEncodedLength}
+	 * @throws java.nio.BufferOverflowException if the buffer has insufficient space
+	 * @since 4.3.4
+	 */
+	public void encode(Map<String, Object> headers, byte[] payload, ByteBuffer buffer) {
+		Assert.notNull(headers, "'headers' is required");
+		Assert.notNull(payload, "'payload' is required");
+		Assert.notNull(buffer, "'buffer' is required");
+		writeFrame(headers, payload, buffer);
+	}
 
-			else {
-				StompCommand command = StompHeaderAccessor.getCommand(headers);
-				if (command == null) {
-					throw new IllegalStateException("Missing STOMP command: " + headers);
-				}
 
-				output.write(command.toString().getBytes(StompDecoder.UTF8_CHARSET));
-				output.write(LF);
-				writeHeaders(command, headers, payload, output);
-				output.write(LF);
-				writeBody(payload, output);
-				output.write((byte) 0);
+	/**
+	 * Write the frame to the given buffer, or only compute its length if the
+	 * buffer is {@code null}.
+	 * @return the number of bytes of the frame
+	 */
+	private int writeFrame(Map<String, Object> headers, byte[] payload, ByteBuffer buffer) {
+		if (SimpMessageType.HEARTBEAT.equals(SimpMessageHeaderAccessor.getMessageType(headers))) {
+			if (buffer != null && logger.isTraceEnabled()) {
+				logger.trace("Encoding heartbeat");
 			}
-
-			return baos.toByteArray();
+			return write(StompDecoder.HEARTBEAT_PAYLOAD, buffer);
 		}
-		catch (IOException ex) {
-			throw new StompConversionException("Failed to encode STOMP frame, headers=" + headers,  ex);
+
+		StompCommand command = StompHeaderAccessor.getCommand(headers);
+		if (command == null) {
+			throw new IllegalStateException("Missing STOMP command: " + headers);
 		}
-	}
 
-	private void writeHeaders(StompCommand command, Map<String, Object> headers, byte[] payload,
-			DataOutputStream output) throws IOException {
+		int length = write(COMMANDS.get(command), buffer);
+		length += write(LF, buffer);
+		length += writeHeaders(command, headers, payload, buffer);
+		length += write(LF, buffer);
+		length += write(payload, buffer);
+		length += write((byte) 0, buffer);
+		return length;
+	}
 
+	private int writeHeaders(StompCommand command, Map<String, Object> headers, byte[] payload, ByteBuffer buffer) {
 		@SuppressWarnings("unchecked")
 		Map<String,List<String>> nativeHeaders =
 				(Map<String, List<String>>) headers.get(NativeMessageHeaderAccessor.NATIVE_HEADERS);
 
-		if (logger.isTraceEnabled()) {
+		if (buffer != null && logger.isTraceEnabled()) {
 			logger.trace("Encoding STOMP " + command + ", headers=" + nativeHeaders);
 		}
 
 		if (nativeHeaders == null) {
-			return;
+			return 0;
 		}
 
 		boolean shouldEscape = (command != StompCommand.CONNECT && command != StompCommand.CONNECTED);
+		int length = 0;
 
 		for (Entry<String, List<String>> entry : nativeHeaders.entrySet()) {
 			if (command.requiresContentLength() && "content-length".equals(entry.getKey())) {
@@ -129,57 +192,92 @@ public class StompEncoder  {
 				values = Collections.singletonList(StompHeaderAccessor.getPasscode(headers));
 			}
 
-			byte[] encodedKey = encodeHeaderString(entry.getKey(), shouldEscape);
+			byte[] encodedKey = HEADER_NAMES.get(entry.getKey());
 			for (String value : values) {
-				output.write(encodedKey);
-				output.write(COLON);
-				output.write(encodeHeaderString(value, shouldEscape));
-				output.write(LF);
+				if (encodedKey != null) {
+					length += write(encodedKey, buffer);
+				}
+				else {
+					length += writeHeaderString(entry.getKey(), shouldEscape, buffer);
+				}
+				length += write(COLON, buffer);
+				length += writeHeaderString(value, shouldEscape, buffer);
+				length += write(LF, buffer);
 			}
 		}
 
 		if (command.requiresContentLength()) {
-			int contentLength = payload.length;
-			output.write("content-length:".getBytes(StompDecoder.UTF8_CHARSET));
-			output.write(Integer.toString(contentLength).getBytes(StompDecoder.UTF8_CHARSET));
-			output.write(LF);
+			length += write(CONTENT_LENGTH, buffer);
+			length += writeHeaderString(Integer.toString(payload.length), false, buffer);
+			length += write(LF, buffer);
 		}
-	}
-
-	private byte[] encodeHeaderString(String input, boolean escape) {
-		String inputToUse = (escape ? escape(input) : input);
-		return inputToUse.getBytes(StompDecoder.UTF8_CHARSET);
+		return length;
 	}
 
 	/**
-	 * See STOMP Spec 1.2:
+	 * Write the given header name or value as UTF-8, escaping it if necessary.
+	 * <p>See STOMP Spec 1.2:
 	 * <a href="http://stomp.github.io/stomp-specification-1.2.html#Value_Encoding">"Value Encoding"</a>.
 	 */
-	private String escape(String inString) {
-		StringBuilder sb = new StringBuilder(inString.length());
-		for (int i = 0; i < inString.length(); i++) {
-			char c = inString.charAt(i);
-			if (c == '\\') {
-				sb.append("\\\\");
+	private int writeHeaderString(String input, boolean escape, ByteBuffer buffer) {
+		int length = 0;
+		for (int i = 0; i < input.length(); i++) {
+			char c = input.charAt(i);
+			byte escaped = (escape ? getEscapeSequenceChar(c) : 0);
+			if (escaped != 0) {
+				length += write((byte) '\\', buffer);
+				length += write(escaped, buffer);
 			}
-			else if (c == ':') {
-				sb.append("\\c");
+			else if (c < 0x80) {
+				length += write((byte) c, buffer);
 			}
-			else if (c == '\n') {
-				 sb.append("\\n");
+			else if (c < 0x800) {
+				length += write((byte) (0xC0 | (c >> 6)), buffer);
+				length += write((byte) (0x80 | (c & 0x3F)), buffer);
 			}
-			else if (c == '\r') {
-				sb.append("\\r");
+			else if (Character.isHighSurrogate(c) && i + 1 < input.length() &&
+					Character.isLowSurrogate(input.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, input.charAt(++i));
+				length += write((byte) (0xF0 | (codePoint >> 18)), buffer);
+				length += write((byte) (0x80 | ((codePoint >> 12) & 0x3F)), buffer);
+				length += write((byte) (0x80 | ((codePoint >> 6) & 0x3F)), buffer);
+				length += write((byte) (0x80 | (codePoint & 0x3F)), buffer);
+			}
+			else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+				// Malformed input: replaced as by String.getBytes
+				length += write((byte) '?', buffer);
 			}
 			else {
-				sb.append(c);
+				length += write((byte) (0xE0 | (c >> 12)), buffer);
+				length += write((byte) (0x80 | ((c >> 6) & 0x3F)), buffer);
+				length += write((byte) (0x80 | (c & 0x3F)), buffer);
 			}
 		}
-		return sb.toString();
+		return length;
 	}
 
-	private void writeBody(byte[] payload, DataOutputStream output) throws IOException {
-		output.write(payload);
+	private static byte getEscapeSequenceChar(char c) {
+		switch (c) {
+			case '\\': return '\\';
+			case ':': return 'c';
+			case '\n': return 'n';
+			case '\r': return 'r';
+			default: return 0;
+		}
+	}
+
+	private static int write(byte b, ByteBuffer buffer) {
+		if (buffer != null) {
+			buffer.put(b);
+		}
+		return 1;
+	}
+
+	private static int write(byte[] bytes, ByteBuffer buffer) {
+		if (buffer != null) {
+			buffer.put(bytes);
+		}
+		return bytes.length;
 	}
 
 }
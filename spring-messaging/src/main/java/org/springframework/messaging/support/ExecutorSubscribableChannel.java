@@ -18,17 +18,30 @@ package org.springframework.messaging.support;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageDeliveryException;
 import org.springframework.messaging.MessageHandler;
 import org.springframework.messaging.MessagingException;
 import org.springframework.messaging.SubscribableChannel;
+import org.springframework.util.Assert;
 
 /**
  * A {@link SubscribableChannel} that sends messages to each of its subscribers.
  *
+ * <p>By default every message is handed to the {@link Executor} as a separate
+ * task, so there is no guarantee about the order in which messages are handled.
+ * When a {@link #setShardHeaderName shard header} and a {@link #setShardCount
+ * shard count} are configured, messages are instead assigned by the value of
+ * that header to one of a fixed number of queues, each drained by at most one
+ * executor thread at a time. Messages with the same header value (e.g. the same
+ * {@code simpSessionId}) are then handled in the order they were sent, and a
+ * single executor task handles up to {@link #setShardBatchSize} messages.
+ *
  * @author Phillip Webb
  * @author Rossen Stoyanchev
  * @since 4.0
@@ -39,6 +52,12 @@ public class ExecutorSubscribableChannel extends AbstractSubscribableChannel {
 
 	private final List<ExecutorChannelInterceptor> executorInterceptors = new ArrayList<ExecutorChannelInterceptor>(4);
 
+	private String shardHeaderName;
+
+	private Shard[] shards;
+
+	private int shardBatchSize = 64;
+
 
 	/**
 	 * Create a new {@link ExecutorSubscribableChannel} instance
@@ -63,6 +82,72 @@ public class ExecutorSubscribableChannel extends AbstractSubscribableChannel {
 		return this.executor;
 	}
 
+	/**
+	 * Configure the name of the message header whose value determines the
+	 * shard a message is dispatched to, e.g. {@code "simpSessionId"}.
+	 * Messages without this header are dispatched as independent tasks.
+	 * <p>Sharding is only in effect if a {@link #setShardCount shard count}
+	 * is configured as well and the channel has an executor.
+	 * @since 4.3.4
+	 */
+	public void setShardHeaderName(String shardHeaderName) {
+		this.shardHeaderName = shardHeaderName;
+	}
+
+	/**
+	 * Return the configured shard header name.
+	 * @since 4.3.4
+	 */
+	public String getShardHeaderName() {
+		return this.shardHeaderName;
+	}
+
+	/**
+	 * Configure the number of shards, i.e. the maximum number of executor
+	 * threads handling sharded messages at the same time.
+	 * <p>By default this is 0, i.e. messages are not sharded.
+	 * @since 4.3.4
+	 */
+	public void setShardCount(int shardCount) {
+		Assert.isTrue(shardCount >= 0, "'shardCount' must not be negative");
+		Shard[] shards = null;
+		if (shardCount > 0) {
+			shards = new Shard[shardCount];
+			for (int i = 0; i < shardCount; i++) {
+				shards[i] = new Shard();
+			}
+		}
+		this.shards = shards;
+	}
+
+	/**
+	 * Return the configured number of shards.
+	 * @since 4.3.4
+	 */
+	public int getShardCount() {
+		return (this.shards != null ? this.shards.length : 0);
+	}
+
+	/**
+	 * Configure the maximum number of queued messages a shard handles in a
+	 * single executor task before handing the rest over to a new task, which
+	 * gives other tasks of the executor a chance to run.
+	 * <p>By default this is 64.
+	 * @since 4.3.4
+	 */
+	public void setShardBatchSize(int shardBatchSize) {
+		Assert.isTrue(shardBatchSize > 0, "'shardBatchSize' must be greater than 0");
+		this.shardBatchSize = shardBatchSize;
+	}
+
+	/**
+	 * Return the configured shard batch size.
+	 * @since 4.3.4
+	 */
+	public int getShardBatchSize() {
+		return this.shardBatchSize;
+	}
+
 	@Override
 	public void setInterceptors(List<ChannelInterceptor> interceptors) {
 		super.setInterceptors(interceptors);
@@ -85,11 +170,15 @@ public class ExecutorSubscribableChannel extends AbstractSubscribableChannel {
 
 	@Override
 	public boolean sendInternal(Message<?> message, long timeout) {
+		Shard shard = getShard(message);
 		for (MessageHandler handler : getSubscribers()) {
 			SendTask sendTask = new SendTask(message, handler);
 			if (this.executor == null) {
 				sendTask.run();
 			}
+			else if (shard != null) {
+				shard.add(sendTask);
+			}
 			else {
 				this.executor.execute(sendTask);
 			}
@@ -97,6 +186,224 @@ public class ExecutorSubscribableChannel extends AbstractSubscribableChannel {
 		return true;
 	}
 
+	private Shard getShard(Message<?> message) {
+		Shard[] shards = this.shards;
+		if (shards == null || this.shardHeaderName == null || this.executor == null) {
+			return null;
+		}
+		Object key = message.getHeaders().get(this.shardHeaderName);
+		if (key == null) {
+			return null;
+		}
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		return shards[(hash & Integer.MAX_VALUE) % shards.length];
+	}
+
+	/**
+	 * Send the given messages to all subscribers, handing them to the executor
+	 * in batches of up to {@code batchSize} messages per subscriber instead of
+	 * one task per message and subscriber. Channel interceptors are applied to
+	 * each message as with {@link #send(Message)}.
+	 * <p>The messages of a batch are handled in the given order. A failure to
+	 * handle one of them is logged and does not prevent the rest of the batch
+	 * from being handled. Likewise, a failure to send one of the messages, e.g.
+	 * because an interceptor or the executor rejected it, does not prevent the
+	 * other messages from being sent.
+	 * @param messages the messages to send
+	 * @param batchSize the maximum number of messages per executor task
+	 * @return an exception for each message that could not be sent, exposing
+	 * the message through {@link MessagingException#getFailedMessage()},
+	 * or an empty list if all messages were sent
+	 * @since 4.3.4
+	 */
+	public List<MessagingException> sendBatch(List<? extends Message<?>> messages, int batchSize) {
+		Assert.notNull(messages, "Messages must not be null");
+		Assert.isTrue(batchSize > 0, "'batchSize' must be greater than 0");
+
+		List<MessagingException> failures = new ArrayList<MessagingException>(0);
+		List<Message<?>> messagesToSend = new ArrayList<Message<?>>(messages.size());
+		List<ChannelInterceptorChain> chains = new ArrayList<ChannelInterceptorChain>(messages.size());
+		for (Message<?> message : messages) {
+			ChannelInterceptorChain chain = new ChannelInterceptorChain();
+			try {
+				Message<?> messageToSend = chain.applyPreSend(message, this);
+				if (messageToSend != null) {
+					messagesToSend.add(messageToSend);
+					chains.add(chain);
+				}
+			}
+			catch (Throwable ex) {
+				MessagingException failure = getSendFailure(message, ex);
+				chain.triggerAfterSendCompletion(message, this, false, failure);
+				failures.add(failure);
+			}
+		}
+
+		Throwable[] sendFailures = new Throwable[messagesToSend.size()];
+		List<Integer> unsharded = new ArrayList<Integer>(messagesToSend.size());
+		for (int i = 0; i < messagesToSend.size(); i++) {
+			Message<?> message = messagesToSend.get(i);
+			Shard shard = getShard(message);
+			if (shard == null) {
+				unsharded.add(i);
+				continue;
+			}
+			for (MessageHandler handler : getSubscribers()) {
+				try {
+					shard.add(new SendTask(message, handler));
+				}
+				catch (Throwable ex) {
+					sendFailures[i] = ex;
+				}
+			}
+		}
+		for (MessageHandler handler : getSubscribers()) {
+			for (int i = 0; i < unsharded.size(); i += batchSize) {
+				List<Integer> indexes = unsharded.subList(i, Math.min(i + batchSize, unsharded.size()));
+				List<Message<?>> batch = new ArrayList<Message<?>>(indexes.size());
+				for (int index : indexes) {
+					batch.add(messagesToSend.get(index));
+				}
+				BatchSendTask batchSendTask = new BatchSendTask(batch, handler);
+				if (this.executor == null) {
+					batchSendTask.run();
+					continue;
+				}
+				try {
+					this.executor.execute(batchSendTask);
+				}
+				catch (Throwable ex) {
+					for (int index : indexes) {
+						sendFailures[index] = ex;
+					}
+				}
+			}
+		}
+
+		for (int i = 0; i < messagesToSend.size(); i++) {
+			Message<?> message = messagesToSend.get(i);
+			ChannelInterceptorChain chain = chains.get(i);
+			Throwable sendFailure = sendFailures[i];
+			if (sendFailure == null) {
+				try {
+					chain.applyPostSend(message, this, true);
+					chain.triggerAfterSendCompletion(message, this, true, null);
+					continue;
+				}
+				catch (Throwable ex) {
+					sendFailure = ex;
+				}
+			}
+			MessagingException failure = getSendFailure(message, sendFailure);
+			chain.triggerAfterSendCompletion(message, this, (sendFailures[i] == null), failure);
+			failures.add(failure);
+		}
+		return failures;
+	}
+
+	private MessagingException getSendFailure(Message<?> message, Throwable ex) {
+		if (ex instanceof MessagingException) {
+			return (MessagingException) ex;
+		}
+		return new MessageDeliveryException(message, "Failed to send message to " + this, ex);
+	}
+
+
+	/**
+	 * A queue of send tasks handled in order by at most one executor thread
+	 * at a time. The shard is scheduled on the executor when the first task
+	 * is added and keeps draining its queue in batches until it is empty.
+	 */
+	private class Shard implements Runnable {
+
+		private final Queue<SendTask> queue = new ConcurrentLinkedQueue<SendTask>();
+
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		/**
+		 * Add the given task, scheduling the shard if it is not scheduled yet.
+		 * If the executor rejects the shard, the task is removed again and the
+		 * exception is propagated; tasks queued concurrently by other threads
+		 * are handled with the next successful scheduling.
+		 */
+		public void add(SendTask sendTask) {
+			this.queue.add(sendTask);
+			if (this.scheduled.compareAndSet(false, true)) {
+				try {
+					executor.execute(this);
+				}
+				catch (RuntimeException ex) {
+					this.queue.remove(sendTask);
+					this.scheduled.set(false);
+					throw ex;
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				for (int i = 0; i < shardBatchSize; i++) {
+					SendTask sendTask = this.queue.poll();
+					if (sendTask == null) {
+						break;
+					}
+					try {
+						sendTask.run();
+					}
+					catch (Throwable ex) {
+						logger.error("Failed to handle " + sendTask.getMessage() +
+								" in " + sendTask.getMessageHandler(), ex);
+					}
+				}
+				this.scheduled.set(false);
+				if (this.queue.isEmpty() || !this.scheduled.compareAndSet(false, true)) {
+					return;
+				}
+				try {
+					executor.execute(this);
+					return;
+				}
+				catch (RuntimeException ex) {
+					// Rejected: keep draining in the current thread rather than
+					// leaving the queue stranded until the next message arrives
+					if (logger.isDebugEnabled()) {
+						logger.debug("Failed to reschedule shard, continuing in current thread", ex);
+					}
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Invoke a MessageHandler with a batch of messages, one after the other.
+	 */
+	private class BatchSendTask implements Runnable {
+
+		private final List<Message<?>> messages;
+
+		private final MessageHandler messageHandler;
+
+		public BatchSendTask(List<Message<?>> messages, MessageHandler messageHandler) {
+			this.messages = messages;
+			this.messageHandler = messageHandler;
+		}
+
+		@Override
+		public void run() {
+			for (Message<?> message : this.messages) {
+				try {
+					new SendTask(message, this.messageHandler).run();
+				}
+				catch (Throwable ex) {
+					logger.error("Failed to handle " + message + " in " + this.messageHandler, ex);
+				}
+			}
+		}
+	}
+
 
 	/**
 	 * Invoke a MessageHandler with ExecutorChannelInterceptors.
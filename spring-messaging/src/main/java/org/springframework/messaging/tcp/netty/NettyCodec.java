@@ -0,0 +1,52 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.tcp.netty;
+
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+
+import org.springframework.messaging.Message;
+
+/**
+ * Contract to encode and decode {@link Message Messages} to and from the
+ * Netty {@link ByteBuf ByteBufs} of a TCP connection.
+ *
+ * @since 4.3.4
+ * @param <P> the type of payload for in and outbound messages
+ * @see NettyTcpClient
+ */
+public interface NettyCodec<P> {
+
+	/**
+	 * Decode all complete messages from the readable bytes of the given buffer.
+	 * The reader index of the buffer must be left at the beginning of any
+	 * remaining partial message, which is passed in again once more bytes
+	 * have been received.
+	 * @param buffer the buffer to decode from
+	 * @return the decoded messages, or an empty list if none
+	 */
+	List<Message<P>> decode(ByteBuf buffer);
+
+	/**
+	 * Encode the given message into the given buffer.
+	 * @param message the message to encode
+	 * @param buffer the buffer to write to, expanded as necessary
+	 */
+	void encode(Message<P> message, ByteBuf buffer);
+
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.tcp.netty;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.ChannelGroupFuture;
+import io.netty.channel.group.ChannelGroupFutureListener;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.tcp.ReconnectStrategy;
+import org.springframework.messaging.tcp.TcpConnectionHandler;
+import org.springframework.messaging.tcp.TcpOperations;
+import org.springframework.util.Assert;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+/**
+ * An implementation of {@link org.springframework.messaging.tcp.TcpOperations}
+ * based directly on Netty 4.
+ *
+ * <p>Unlike {@code Reactor2TcpClient}, which creates a client instance per
+ * connection, all connections share a single Netty {@link Bootstrap} and
+ * {@link EventLoopGroup}. Buffers are allocated from the pooled direct
+ * buffer allocator, and messages are encoded and decoded straight to and
+ * from those buffers through a {@link NettyCodec}.
+ *
+ * @since 4.3.4
+ * @param <P> the type of payload for in and outbound messages
+ */
+public class NettyTcpClient<P> implements TcpOperations<P> {
+
+	private static final Log logger = LogFactory.getLog(NettyTcpClient.class);
+
+
+	private final NettyCodec<P> codec;
+
+	private final EventLoopGroup eventLoopGroup;
+
+	private final boolean shutdownEventLoopGroup;
+
+	private final Bootstrap bootstrap;
+
+	private final ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+
+	private volatile boolean stopping;
+
+
+	/**
+	 * Create a client with an {@link NioEventLoopGroup} using as many threads
+	 * as there are available processors.
+	 * @param host the host to connect to
+	 * @param port the port to connect to
+	 * @param codec the codec to use for encoding and decoding the TCP stream
+	 */
+	public NettyTcpClient(String host, int port, NettyCodec<P> codec) {
+		this(host, port, codec, new NioEventLoopGroup(
+				Runtime.getRuntime().availableProcessors(), new DefaultThreadFactory("tcp-client-netty", true)), true);
+	}
+
+	/**
+	 * Create a client that uses the given {@link EventLoopGroup}, e.g. to share
+	 * it with other clients. The group is not shut down with this client.
+	 * @param host the host to connect to
+	 * @param port the port to connect to
+	 * @param codec the codec to use for encoding and decoding the TCP stream
+	 * @param eventLoopGroup the event loop group to use
+	 */
+	public NettyTcpClient(String host, int port, NettyCodec<P> codec, EventLoopGroup eventLoopGroup) {
+		this(host, port, codec, eventLoopGroup, false);
+	}
+
+	private NettyTcpClient(String host, int port, NettyCodec<P> codec,
+			EventLoopGroup eventLoopGroup, boolean shutdownEventLoopGroup) {
+
+		Assert.notNull(host, "'host' must not be null");
+		Assert.notNull(codec, "NettyCodec must not be null");
+		Assert.notNull(eventLoopGroup, "EventLoopGroup must not be null");
+		this.codec = codec;
+		this.eventLoopGroup = eventLoopGroup;
+		this.shutdownEventLoopGroup = shutdownEventLoopGroup;
+		this.bootstrap = new Bootstrap()
+				.group(eventLoopGroup)
+				.channel(NioSocketChannel.class)
+				.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+				.option(ChannelOption.TCP_NODELAY, true)
+				.option(ChannelOption.SO_KEEPALIVE, true)
+				.remoteAddress(host, port);
+	}
+
+
+	@Override
+	public ListenableFuture<Void> connect(TcpConnectionHandler<P> connectionHandler) {
+		Assert.notNull(connectionHandler, "TcpConnectionHandler must not be null");
+		SettableListenableFuture<Void> connectFuture = new SettableListenableFuture<Void>();
+		doConnect(connectionHandler, null, 1, connectFuture);
+		return connectFuture;
+	}
+
+	@Override
+	public ListenableFuture<Void> connect(TcpConnectionHandler<P> connectionHandler, ReconnectStrategy strategy) {
+		Assert.notNull(connectionHandler, "TcpConnectionHandler must not be null");
+		Assert.notNull(strategy, "ReconnectStrategy must not be null");
+		SettableListenableFuture<Void> connectFuture = new SettableListenableFuture<Void>();
+		doConnect(connectionHandler, strategy, 1, connectFuture);
+		return connectFuture;
+	}
+
+	private void doConnect(final TcpConnectionHandler<P> connectionHandler, final ReconnectStrategy strategy,
+			final int attempt, final SettableListenableFuture<Void> connectFuture) {
+
+		if (this.stopping) {
+			IllegalStateException ex = new IllegalStateException("Shutting down.");
+			connectionHandler.afterConnectFailure(ex);
+			connectFuture.setException(ex);
+			return;
+		}
+
+		Bootstrap bootstrap = this.bootstrap.clone().handler(new ChannelInitializer<SocketChannel>() {
+			@Override
+			protected void initChannel(SocketChannel channel) {
+				channel.pipeline().addLast(
+						new MessageDecoder(),
+						new MessageEncoder(),
+						new ConnectionInboundHandler(connectionHandler, strategy, connectFuture));
+			}
+		});
+
+		bootstrap.connect().addListener(new ChannelFutureListener() {
+			@Override
+			public void operationComplete(ChannelFuture future) {
+				if (future.isSuccess()) {
+					channels.add(future.channel());
+					connectFuture.set(null);
+					return;
+				}
+				connectionHandler.afterConnectFailure(future.cause());
+				if (strategy != null && !stopping) {
+					scheduleReconnect(connectionHandler, strategy, attempt, connectFuture);
+				}
+				else {
+					connectFuture.setException(future.cause());
+				}
+			}
+		});
+	}
+
+	private void scheduleReconnect(final TcpConnectionHandler<P> connectionHandler, final ReconnectStrategy strategy,
+			final int attempt, final SettableListenableFuture<Void> connectFuture) {
+
+		Long delay = strategy.getTimeToNextAttempt(attempt);
+		if (delay == null) {
+			String reason = "Giving up reconnecting after " + attempt + " attempts";
+			connectFuture.setException(new IllegalStateException(reason));
+			return;
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Reconnecting in " + delay + " ms (attempt " + attempt + ")");
+		}
+		try {
+			this.eventLoopGroup.schedule(new Runnable() {
+				@Override
+				public void run() {
+					doConnect(connectionHandler, strategy, attempt + 1, connectFuture);
+				}
+			}, delay, TimeUnit.MILLISECONDS);
+		}
+		catch (Throwable ex) {
+			// Event loop group shutting down
+			connectFuture.setException(ex);
+		}
+	}
+
+	@Override
+	public ListenableFuture<Void> shutdown() {
+		this.stopping = true;
+		final SettableListenableFuture<Void> future = new SettableListenableFuture<Void>();
+		this.channels.close().addListener(new ChannelGroupFutureListener() {
+			@Override
+			public void operationComplete(ChannelGroupFuture channelGroupFuture) {
+				if (!shutdownEventLoopGroup) {
+					future.set(null);
+					return;
+				}
+				eventLoopGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS).addListener(new FutureListener<Object>() {
+					@Override
+					public void operationComplete(Future<Object> shutdownFuture) {
+						if (shutdownFuture.isSuccess()) {
+							future.set(null);
+						}
+						else {
+							future.setException(shutdownFuture.cause());
+						}
+					}
+				});
+			}
+		});
+		return future;
+	}
+
+	@Override
+	public String toString() {
+		return "NettyTcpClient[remoteAddress=" + this.bootstrap.config().remoteAddress() +
+				", connections=" + this.channels.size() + "]";
+	}
+
+
+	/**
+	 * Decode messages through the codec as bytes arrive, keeping partial
+	 * content in the cumulation buffer of the {@link ByteToMessageDecoder}.
+	 */
+	private class MessageDecoder extends ByteToMessageDecoder {
+
+		@Override
+		protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+			out.addAll(codec.decode(in));
+		}
+	}
+
+
+	/**
+	 * Encode outbound messages into a buffer from the channel's allocator.
+	 */
+	private class MessageEncoder extends ChannelOutboundHandlerAdapter {
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+			if (!(msg instanceof Message)) {
+				ctx.write(msg, promise);
+				return;
+			}
+			ByteBuf buffer = ctx.alloc().ioBuffer();
+			try {
+				codec.encode((Message<P>) msg, buffer);
+			}
+			catch (Throwable ex) {
+				buffer.release();
+				promise.setFailure(ex);
+				return;
+			}
+			ctx.write(buffer, promise);
+		}
+	}
+
+
+	/**
+	 * Adapt channel events to the {@link TcpConnectionHandler}.
+	 */
+	private class ConnectionInboundHandler extends ChannelInboundHandlerAdapter {
+
+		private final TcpConnectionHandler<P> connectionHandler;
+
+		private final ReconnectStrategy strategy;
+
+		private final SettableListenableFuture<Void> connectFuture;
+
+		private NettyTcpConnection<P> connection;
+
+		private boolean failed;
+
+		public ConnectionInboundHandler(TcpConnectionHandler<P> connectionHandler, ReconnectStrategy strategy,
+				SettableListenableFuture<Void> connectFuture) {
+
+			this.connectionHandler = connectionHandler;
+			this.strategy = strategy;
+			this.connectFuture = connectFuture;
+		}
+
+		@Override
+		public void channelActive(ChannelHandlerContext ctx) throws Exception {
+			this.connection = new NettyTcpConnection<P>(ctx.channel());
+			this.connectionHandler.afterConnected(this.connection);
+			super.channelActive(ctx);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void channelRead(ChannelHandlerContext ctx, Object msg) {
+			this.connectionHandler.handleMessage((Message<P>) msg);
+		}
+
+		@Override
+		public void userEventTriggered(ChannelHandlerContext ctx, Object event) throws Exception {
+			if (event instanceof IdleStateEvent && this.connection != null) {
+				IdleState state = ((IdleStateEvent) event).state();
+				Runnable task = (state == IdleState.READER_IDLE ? this.connection.getReadInactivityTask() :
+						state == IdleState.WRITER_IDLE ? this.connection.getWriteInactivityTask() : null);
+				if (task != null) {
+					task.run();
+				}
+				return;
+			}
+			super.userEventTriggered(ctx, event);
+		}
+
+		@Override
+		public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+			if (!this.failed) {
+				this.failed = true;
+				this.connectionHandler.handleFailure(cause);
+			}
+			ctx.close();
+		}
+
+		@Override
+		public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+			if (!this.failed) {
+				this.connectionHandler.afterConnectionClosed();
+			}
+			if (this.strategy != null && !stopping) {
+				scheduleReconnect(this.connectionHandler, this.strategy, 1, this.connectFuture);
+			}
+			super.channelInactive(ctx);
+		}
+	}
+
+}
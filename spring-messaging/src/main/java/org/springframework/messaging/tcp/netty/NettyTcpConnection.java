@@ -0,0 +1,175 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.tcp.netty;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.handler.timeout.IdleStateHandler;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.tcp.TcpConnection;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+/**
+ * An implementation of {@link org.springframework.messaging.tcp.TcpConnection
+ * TcpConnection} based on a Netty 4 {@link Channel}.
+ *
+ * <p>Messages sent from any thread are queued and then written by a single
+ * task on the channel's event loop, which flushes once per batch so that
+ * messages sent in quick succession go out with fewer socket writes.
+ *
+ * @since 4.3.4
+ * @param <P> the payload type of messages read or written to the TCP stream.
+ */
+public class NettyTcpConnection<P> implements TcpConnection<P> {
+
+	private static final String READ_IDLE_HANDLER_NAME = "readIdleStateHandler";
+
+	private static final String WRITE_IDLE_HANDLER_NAME = "writeIdleStateHandler";
+
+
+	private final Channel channel;
+
+	private final Queue<PendingWrite> pendingWrites = new ConcurrentLinkedQueue<PendingWrite>();
+
+	private final AtomicBoolean writeScheduled = new AtomicBoolean();
+
+	private final Runnable writeTask = new Runnable() {
+		@Override
+		public void run() {
+			PendingWrite pendingWrite;
+			while ((pendingWrite = pendingWrites.poll()) != null) {
+				channel.write(pendingWrite.message).addListener(pendingWrite);
+			}
+			writeScheduled.set(false);
+			channel.flush();
+			if (!pendingWrites.isEmpty() && writeScheduled.compareAndSet(false, true)) {
+				scheduleWrite();
+			}
+		}
+	};
+
+	private volatile Runnable readInactivityTask;
+
+	private volatile Runnable writeInactivityTask;
+
+
+	public NettyTcpConnection(Channel channel) {
+		this.channel = channel;
+	}
+
+
+	@Override
+	public ListenableFuture<Void> send(Message<P> message) {
+		PendingWrite pendingWrite = new PendingWrite(message);
+		this.pendingWrites.add(pendingWrite);
+		if (this.writeScheduled.compareAndSet(false, true)) {
+			scheduleWrite();
+		}
+		return pendingWrite.future;
+	}
+
+	/**
+	 * Schedule the write task on the channel's event loop. If the event loop
+	 * rejects it, e.g. after shutdown, fail the queued writes instead.
+	 */
+	private void scheduleWrite() {
+		try {
+			this.channel.eventLoop().execute(this.writeTask);
+		}
+		catch (RejectedExecutionException ex) {
+			// Reset first, so that writes queued from now on schedule the task again
+			this.writeScheduled.set(false);
+			PendingWrite pendingWrite;
+			while ((pendingWrite = this.pendingWrites.poll()) != null) {
+				pendingWrite.future.setException(ex);
+			}
+		}
+	}
+
+	@Override
+	public void onReadInactivity(Runnable runnable, long inactivityDuration) {
+		this.readInactivityTask = runnable;
+		addIdleStateHandler(READ_IDLE_HANDLER_NAME, new IdleStateHandler(
+				inactivityDuration, 0, 0, TimeUnit.MILLISECONDS));
+	}
+
+	@Override
+	public void onWriteInactivity(Runnable runnable, long inactivityDuration) {
+		this.writeInactivityTask = runnable;
+		addIdleStateHandler(WRITE_IDLE_HANDLER_NAME, new IdleStateHandler(
+				0, inactivityDuration, 0, TimeUnit.MILLISECONDS));
+	}
+
+	private void addIdleStateHandler(String name, IdleStateHandler handler) {
+		if (this.channel.pipeline().get(name) != null) {
+			this.channel.pipeline().replace(name, name, handler);
+		}
+		else {
+			this.channel.pipeline().addFirst(name, handler);
+		}
+	}
+
+	@Override
+	public void close() {
+		this.channel.close();
+	}
+
+	Runnable getReadInactivityTask() {
+		return this.readInactivityTask;
+	}
+
+	Runnable getWriteInactivityTask() {
+		return this.writeInactivityTask;
+	}
+
+	@Override
+	public String toString() {
+		return "NettyTcpConnection[" + this.channel + "]";
+	}
+
+
+	private class PendingWrite implements ChannelFutureListener {
+
+		private final Message<P> message;
+
+		private final SettableListenableFuture<Void> future = new SettableListenableFuture<Void>();
+
+		public PendingWrite(Message<P> message) {
+			this.message = message;
+		}
+
+		@Override
+		public void operationComplete(ChannelFuture channelFuture) {
+			if (channelFuture.isSuccess()) {
+				this.future.set(null);
+			}
+			else {
+				this.future.setException(channelFuture.cause());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Contains support for TCP messaging based on Netty 4.
+ */
+package org.springframework.messaging.tcp.netty;
@@ -30,11 +30,13 @@ import org.mockito.MockitoAnnotations;
 
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.SubscribableChannel;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.TestPrincipal;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.scheduling.TaskScheduler;
 
@@ -113,6 +115,39 @@ public class SimpleBrokerMessageHandlerTests {
 		assertTrue(messageCaptured("sess2", "sub3", "/bar"));
 	}
 
+	@Test
+	public void subcribePublishWithBroadcastBatch() {
+		ExecutorSubscribableChannel outboundChannel = new ExecutorSubscribableChannel();
+		MessageHandler handler = mock(MessageHandler.class);
+		outboundChannel.subscribe(handler);
+		this.messageHandler = new SimpleBrokerMessageHandler(this.clientInboundChannel,
+				outboundChannel, this.brokerChannel, Collections.emptyList());
+		this.messageHandler.setBroadcastBatchSize(2);
+		this.messageHandler.start();
+
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess1", "sub1", "/foo"));
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess1", "sub2", "/foo"));
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess2", "sub1", "/foo"));
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess2", "sub2", "/bar"));
+
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		accessor.setDestination("/foo");
+		accessor.setSessionId("sess3");
+		accessor.setNativeHeader("foo", "bar");
+		this.messageHandler.handleMessage(MessageBuilder.createMessage("message1", accessor.getMessageHeaders()));
+
+		verify(handler, times(3)).handleMessage(this.messageCaptor.capture());
+		assertTrue(messageCaptured("sess1", "sub1", "/foo"));
+		assertTrue(messageCaptured("sess1", "sub2", "/foo"));
+		assertTrue(messageCaptured("sess2", "sub1", "/foo"));
+		for (Message<?> message : this.messageCaptor.getAllValues()) {
+			SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(message);
+			assertEquals(SimpMessageType.MESSAGE, headers.getMessageType());
+			assertEquals("bar", headers.getFirstNativeHeader("foo"));
+			assertEquals("message1", message.getPayload());
+		}
+	}
+
 	@Test
 	public void subcribeDisconnectPublish() {
 
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp.broker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.PathMatcher;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test fixture for {@link TrieSubscriptionRegistry}.
+ */
+public class TrieSubscriptionRegistryTests {
+
+	private static final String[] DESTINATIONS = {
+			"/topic/PRICE.STOCK.NASDAQ.IBM", "/topic/PRICE.STOCK.NYSE.IBM", "/topic/PRICE.STOCK.NASDAQ.GOOG",
+			"/topic/news", "/topic/news/sports", "/topic/news/sports/", "/queue/orders", "/queue/orders/42",
+			"/user/queue/errors", "/topic", "/foo", "//foo", "/Topic/News", "/topic/ news"};
+
+	private static final String[] PATTERNS = {
+			"/topic/PRICE.STOCK.*.IBM", "/topic/PRICE.STOCK.**", "/topic/**", "/topic/*", "/topic/news/*",
+			"/topic/news/**", "/queue/orders/{id}", "/queue/orders/{id:\\d+}", "/**", "/*/queue/*",
+			"/topic/n?ws", "/queue/orders/**/*"};
+
+
+	private final TrieSubscriptionRegistry registry = new TrieSubscriptionRegistry();
+
+
+	@Test
+	public void registerSubscription() {
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", "/foo"));
+
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(createMessage("/foo"));
+		assertEquals(1, actual.size());
+		assertEquals(Collections.singletonList("subs01"), actual.get("sess01"));
+		assertEquals(0, this.registry.findSubscriptions(createMessage("/foo/")).size());
+		assertEquals(0, this.registry.findSubscriptions(createMessage("/bar")).size());
+	}
+
+	@Test
+	public void registerSubscriptionsWithSimpleAndPatternDestinations() {
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", "/topic/news/*"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs02", "/topic/news/sports"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs03", "/topic/**"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs04", "/topic/news/*"));
+		this.registry.registerSubscription(subscribeMessage("sess02", "subs01", "/topic/weather/*"));
+
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(createMessage("/topic/news/sports"));
+		assertEquals(1, actual.size());
+		assertEquals(Arrays.asList("subs01", "subs02", "subs03", "subs04"), actual.get("sess01"));
+
+		actual = this.registry.findSubscriptions(createMessage("/topic/weather/today"));
+		assertEquals(2, actual.size());
+		assertEquals(Collections.singletonList("subs03"), actual.get("sess01"));
+		assertEquals(Collections.singletonList("subs01"), actual.get("sess02"));
+
+		this.registry.unregisterSubscription(unsubscribeMessage("sess01", "subs03"));
+		actual = this.registry.findSubscriptions(createMessage("/topic/news/sports"));
+		assertEquals(Arrays.asList("subs01", "subs02", "subs04"), actual.get("sess01"));
+
+		this.registry.unregisterAllSubscriptions("sess01");
+		assertEquals(0, this.registry.findSubscriptions(createMessage("/topic/news/sports")).size());
+		assertEquals(1, this.registry.findSubscriptions(createMessage("/topic/weather/today")).size());
+	}
+
+	@Test
+	public void registerSubscriptionWithSameIdReplacesDestination() {
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", "/foo"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", "/bar"));
+
+		assertEquals(0, this.registry.findSubscriptions(createMessage("/foo")).size());
+		assertEquals(1, this.registry.findSubscriptions(createMessage("/bar")).size());
+
+		this.registry.unregisterSubscription(unsubscribeMessage("sess01", "subs01"));
+		assertEquals(0, this.registry.findSubscriptions(createMessage("/bar")).size());
+	}
+
+	@Test
+	public void registerSubscriptionWithSelector() {
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", "/foo", "headers.foo == 'bar'"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs02", "/foo"));
+
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+		accessor.setDestination("/foo");
+		accessor.setNativeHeader("foo", "bar");
+		Message<?> message = MessageBuilder.createMessage("", accessor.getMessageHeaders());
+
+		assertEquals(Arrays.asList("subs01", "subs02"), this.registry.findSubscriptions(message).get("sess01"));
+		assertEquals(Collections.singletonList("subs02"),
+				this.registry.findSubscriptions(createMessage("/foo")).get("sess01"));
+	}
+
+	@Test
+	public void dotSeparatedDestinations() {
+		this.registry.setPathMatcher(new AntPathMatcher("."));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", "price.stock.*.ibm"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs02", "price.stock.nasdaq.*"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs03", "price.**"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs04", "price.bond.*"));
+
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(createMessage("price.stock.nasdaq.ibm"));
+		assertEquals(Arrays.asList("subs01", "subs02", "subs03"), actual.get("sess01"));
+		actual = this.registry.findSubscriptions(createMessage("price.stock.nyse.goog"));
+		assertEquals(Collections.singletonList("subs03"), actual.get("sess01"));
+	}
+
+	@Test
+	public void pathMatcherFromBrokerMessageHandler() {
+		SimpleBrokerMessageHandler handler = new SimpleBrokerMessageHandler(
+				mock(SubscribableChannel.class), mock(MessageChannel.class), mock(SubscribableChannel.class),
+				Collections.<String>emptyList());
+		handler.setSubscriptionRegistry(this.registry);
+		handler.setPathMatcher(new AntPathMatcher("."));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", "price.stock.*"));
+		assertTrue(getTrieChildren().containsKey("price"));
+
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(createMessage("price.stock.ibm"));
+		assertEquals(Collections.singletonList("subs01"), actual.get("sess01"));
+	}
+
+	@Test
+	public void caseInsensitivePathMatcher() {
+		AntPathMatcher pathMatcher = new AntPathMatcher();
+		pathMatcher.setCaseSensitive(false);
+		this.registry.setPathMatcher(pathMatcher);
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", "/Topic/News"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs02", "/TOPIC/*"));
+
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(createMessage("/topic/news"));
+		assertEquals(Arrays.asList("subs01", "subs02"), actual.get("sess01"));
+	}
+
+	@Test
+	public void customPathMatcher() {
+		this.registry.setPathMatcher(new AntPathMatcher() {
+			@Override
+			public boolean match(String pattern, String path) {
+				return super.match(pattern, path.replace("/v1/", "/"));
+			}
+		});
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", "/topic/news"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs02", "/topic/*"));
+
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(createMessage("/v1/topic/news"));
+		assertEquals(Arrays.asList("subs01", "subs02"), actual.get("sess01"));
+	}
+
+	@Test
+	public void trieNodesRemovedOnUnsubscribeAndDisconnect() {
+		for (int i = 0; i < 100; i++) {
+			this.registry.registerSubscription(subscribeMessage("sess" + i, "subs01", "/topic/quotes/" + i));
+			this.registry.registerSubscription(subscribeMessage("sess" + i, "subs02", "/user/sess" + i + "/*"));
+			this.registry.registerSubscription(subscribeMessage("sess" + i, "subs03", "/topic/news"));
+		}
+		assertFalse(getTrieChildren().isEmpty());
+
+		for (int i = 0; i < 100; i++) {
+			this.registry.unregisterSubscription(unsubscribeMessage("sess" + i, "subs01"));
+			if (i % 2 == 0) {
+				this.registry.unregisterSubscription(unsubscribeMessage("sess" + i, "subs02"));
+			}
+			this.registry.unregisterAllSubscriptions("sess" + i);
+		}
+		assertEquals(0, getTrieChildren().size());
+		assertEquals(0, this.registry.findSubscriptions(createMessage("/topic/news")).size());
+	}
+
+	@Test
+	public void sameMatchesAsDefaultSubscriptionRegistry() {
+		assertSameMatchesAsDefaultSubscriptionRegistry(new AntPathMatcher());
+	}
+
+	@Test
+	public void sameMatchesAsDefaultSubscriptionRegistryWithCaseInsensitivePathMatcher() {
+		AntPathMatcher pathMatcher = new AntPathMatcher();
+		pathMatcher.setCaseSensitive(false);
+		assertSameMatchesAsDefaultSubscriptionRegistry(pathMatcher);
+	}
+
+	@Test
+	public void sameMatchesAsDefaultSubscriptionRegistryWithTrimTokens() {
+		AntPathMatcher pathMatcher = new AntPathMatcher();
+		pathMatcher.setTrimTokens(true);
+		assertSameMatchesAsDefaultSubscriptionRegistry(pathMatcher);
+	}
+
+	private void assertSameMatchesAsDefaultSubscriptionRegistry(PathMatcher pathMatcher) {
+		DefaultSubscriptionRegistry defaultRegistry = new DefaultSubscriptionRegistry();
+		defaultRegistry.setPathMatcher(pathMatcher);
+		this.registry.setPathMatcher(pathMatcher);
+		Random random = new Random(42);
+		String[] all = concat(DESTINATIONS, PATTERNS);
+
+		for (int i = 0; i < 2000; i++) {
+			String sessionId = "sess" + random.nextInt(10);
+			String subsId = "subs" + random.nextInt(10);
+			int operation = random.nextInt(10);
+			if (operation < 6) {
+				String destination = all[random.nextInt(all.length)];
+				this.registry.registerSubscription(subscribeMessage(sessionId, subsId, destination));
+				defaultRegistry.unregisterSubscription(unsubscribeMessage(sessionId, subsId));
+				defaultRegistry.registerSubscription(subscribeMessage(sessionId, subsId, destination));
+			}
+			else if (operation < 9) {
+				this.registry.unregisterSubscription(unsubscribeMessage(sessionId, subsId));
+				defaultRegistry.unregisterSubscription(unsubscribeMessage(sessionId, subsId));
+			}
+			else {
+				this.registry.unregisterAllSubscriptions(sessionId);
+				defaultRegistry.unregisterAllSubscriptions(sessionId);
+			}
+			for (String destination : DESTINATIONS) {
+				Message<?> message = createMessage(destination);
+				assertEquals("Different match for \"" + destination + "\" after " + (i + 1) + " operations",
+						sorted(defaultRegistry.findSubscriptions(message)),
+						sorted(this.registry.findSubscriptions(message)));
+			}
+		}
+		for (int i = 0; i < 10; i++) {
+			this.registry.unregisterAllSubscriptions("sess" + i);
+		}
+		assertEquals(0, getTrieChildren().size());
+	}
+
+	@Test
+	public void findSubscriptionsPerformance() {
+		Assume.group(TestGroup.PERFORMANCE);
+		int sessions = 2000;
+		int iterations = 10000;
+		DefaultSubscriptionRegistry defaultRegistry = new DefaultSubscriptionRegistry();
+		List<String> destinations = new ArrayList<String>();
+		for (int i = 0; i < sessions; i++) {
+			String sessionId = "sess" + i;
+			String destination = "/topic/quotes/" + (i % 200);
+			destinations.add(destination);
+			for (AbstractSubscriptionRegistry registry : new AbstractSubscriptionRegistry[] {
+					defaultRegistry, this.registry}) {
+				registry.registerSubscription(subscribeMessage(sessionId, "subs01", destination));
+				registry.registerSubscription(subscribeMessage(sessionId, "subs02", "/user/" + sessionId + "/*"));
+				registry.registerSubscription(subscribeMessage(sessionId, "subs03", "/topic/news/" + (i % 50) + "/*"));
+			}
+		}
+		List<Message<?>> messages = new ArrayList<Message<?>>();
+		for (int i = 0; i < 1000; i++) {
+			messages.add(createMessage(destinations.get(i * 7 % sessions)));
+			messages.add(createMessage("/user/sess" + (i * 13 % sessions) + "/queue"));
+			messages.add(createMessage("/topic/news/" + (i % 50) + "/today"));
+		}
+
+		StopWatch sw = new StopWatch("findSubscriptions, " + sessions + " sessions, " + iterations + " lookups");
+		for (AbstractSubscriptionRegistry registry : new AbstractSubscriptionRegistry[] {
+				defaultRegistry, this.registry}) {
+			sw.start(registry.getClass().getSimpleName());
+			for (int i = 0; i < iterations; i++) {
+				assertFalse(registry.findSubscriptions(messages.get(i % messages.size())).isEmpty());
+			}
+			sw.stop();
+		}
+		System.out.println(sw.prettyPrint());
+	}
+
+
+	private Map<?, ?> getTrieChildren() {
+		return (Map<?, ?>) new DirectFieldAccessor(this.registry).getPropertyValue("destinationLookup.children");
+	}
+
+	private static String[] concat(String[] array1, String[] array2) {
+		String[] result = Arrays.copyOf(array1, array1.length + array2.length);
+		System.arraycopy(array2, 0, result, array1.length, array2.length);
+		return result;
+	}
+
+	private static TreeMap<String, List<String>> sorted(MultiValueMap<String, String> map) {
+		TreeMap<String, List<String>> result = new TreeMap<String, List<String>>();
+		for (String key : map.keySet()) {
+			List<String> values = new ArrayList<String>(map.get(key));
+			Collections.sort(values);
+			result.put(key, values);
+		}
+		return result;
+	}
+
+	private Message<?> createMessage(String destination) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+		accessor.setDestination(destination);
+		return MessageBuilder.createMessage("", accessor.getMessageHeaders());
+	}
+
+	private Message<?> subscribeMessage(String sessionId, String subscriptionId, String destination) {
+		return subscribeMessage(sessionId, subscriptionId, destination, null);
+	}
+
+	private Message<?> subscribeMessage(String sessionId, String subscriptionId, String dest, String selector) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+		accessor.setSessionId(sessionId);
+		accessor.setSubscriptionId(subscriptionId);
+		accessor.setDestination(dest);
+		if (selector != null) {
+			accessor.setNativeHeader("selector", selector);
+		}
+		return MessageBuilder.createMessage("", accessor.getMessageHeaders());
+	}
+
+	private Message<?> unsubscribeMessage(String sessionId, String subscriptionId) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+		accessor.setSessionId(sessionId);
+		accessor.setSubscriptionId(subscriptionId);
+		return MessageBuilder.createMessage("", accessor.getMessageHeaders());
+	}
+
+}
@@ -18,6 +18,7 @@ package org.springframework.messaging.simp.stomp;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -53,6 +54,22 @@ public class BufferingStompDecoderTests {
 		assertNull(stompDecoder.getExpectedContentLength());
 	}
 
+	@Test
+	public void messagesInSingleByteChunks() throws InterruptedException {
+		BufferingStompDecoder stompDecoder = new BufferingStompDecoder(STOMP_DECODER, 128);
+		String content = "SEND\na:alpha\n\nMessage body\0SEND\ncontent-length:5\n\nhello\0";
+		List<Message<byte[]>> messages = new ArrayList<>();
+		for (byte b : content.getBytes()) {
+			messages.addAll(stompDecoder.decode(ByteBuffer.wrap(new byte[] {b})));
+		}
+
+		assertEquals(2, messages.size());
+		assertEquals("Message body", new String(messages.get(0).getPayload()));
+		assertEquals("hello", new String(messages.get(1).getPayload()));
+		assertEquals(0, stompDecoder.getBufferSize());
+		assertNull(stompDecoder.getExpectedContentLength());
+	}
+
 	@Test
 	public void oneMessageInTwoChunks() throws InterruptedException {
 		BufferingStompDecoder stompDecoder = new BufferingStompDecoder(STOMP_DECODER, 128);
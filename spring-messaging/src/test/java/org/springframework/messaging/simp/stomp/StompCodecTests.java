@@ -17,6 +17,9 @@
 package org.springframework.messaging.simp.stomp;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -254,6 +257,43 @@ public class StompCodecTests {
 		assertEquals(SimpMessageType.HEARTBEAT, StompHeaderAccessor.wrap(messages.get(0)).getMessageType());
 	}
 
+	@Test
+	public void decodeFrameReusesHeaderStrings() {
+		StompDecoder stompDecoder = new StompDecoder();
+		String frame = "SEND\ndestination:/topic/foo\nack:client-individual\nescaped:a\\cb\n\nbody\0";
+		List<Message<byte[]>> messages = stompDecoder.decode(ByteBuffer.wrap((frame + frame).getBytes()));
+
+		assertEquals(2, messages.size());
+		StompHeaderAccessor headers1 = StompHeaderAccessor.wrap(messages.get(0));
+		StompHeaderAccessor headers2 = StompHeaderAccessor.wrap(messages.get(1));
+		assertEquals(StompCommand.SEND, headers1.getCommand());
+		assertEquals("/topic/foo", headers1.getDestination());
+		assertSame(headers1.getDestination(), headers2.getDestination());
+		assertEquals("client-individual", headers1.getFirstNativeHeader("ack"));
+		assertSame(headers1.getFirstNativeHeader("ack"), headers2.getFirstNativeHeader("ack"));
+		assertEquals("a:b", headers1.getFirstNativeHeader("escaped"));
+		assertEquals("a:b", headers2.getFirstNativeHeader("escaped"));
+	}
+
+	@Test
+	public void decodeFrameFromDirectBuffer() {
+		byte[] bytes = "SEND\r\nd\u00e9stination:/t\u00f6pic\r\n\r\nbody\0".getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+		buffer.put(bytes);
+		buffer.flip();
+		List<Message<byte[]>> messages = new StompDecoder().decode(buffer);
+
+		assertEquals(1, messages.size());
+		StompHeaderAccessor headers = StompHeaderAccessor.wrap(messages.get(0));
+		assertEquals("/t\u00f6pic", headers.getFirstNativeHeader("d\u00e9stination"));
+		assertEquals("body", new String(messages.get(0).getPayload()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void decodeFrameWithUnknownCommand() {
+		new StompDecoder().decode(ByteBuffer.wrap("FOO\n\n\0".getBytes()));
+	}
+
 	@Test
 	public void encodeFrameWithNoHeadersAndNoBody() {
 		StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.DISCONNECT);
@@ -310,6 +350,50 @@ public class StompCodecTests {
 				new Reactor2StompCodec().encoder().apply(frame).asString());
 	}
 
+	@Test
+	public void encodeFrameWithNonAsciiHeaders() {
+		StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.SEND);
+		headers.addNativeHeader("n\u00e4me", "\u20ac \ud83d\ude00 \u00fc");
+		headers.addNativeHeader("malformed", "\ud83d");
+
+		Message<byte[]> frame = MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders());
+
+		assertArrayEquals(("SEND\nn\u00e4me:\u20ac \ud83d\ude00 \u00fc\nmalformed:\ud83d\ncontent-length:0\n\n\0")
+				.getBytes(StandardCharsets.UTF_8), new StompEncoder().encode(frame));
+	}
+
+	@Test
+	public void encodeFrameToByteBuffer() {
+		StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.MESSAGE);
+		headers.setDestination("/topic/a:b");
+		headers.setSubscriptionId("sub1");
+		headers.setMessageId("1");
+		Message<byte[]> frame = MessageBuilder.createMessage("Message body".getBytes(), headers.getMessageHeaders());
+
+		StompEncoder encoder = new StompEncoder();
+		byte[] expected = encoder.encode(frame);
+		int length = encoder.getEncodedLength(frame.getHeaders(), frame.getPayload());
+		assertEquals(expected.length, length);
+
+		ByteBuffer buffer = ByteBuffer.allocate(length + 10);
+		buffer.put((byte) 'x');
+		encoder.encode(frame.getHeaders(), frame.getPayload(), buffer);
+		assertEquals(length + 1, buffer.position());
+		byte[] actual = new byte[length];
+		buffer.flip();
+		buffer.get();
+		buffer.get(actual);
+		assertArrayEquals(expected, actual);
+		assertTrue(new String(actual, StandardCharsets.UTF_8).contains("destination:/topic/a\\cb\n"));
+	}
+
+	@Test(expected = BufferOverflowException.class)
+	public void encodeFrameToByteBufferTooSmall() {
+		StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.SEND);
+		Message<byte[]> frame = MessageBuilder.createMessage("Message body".getBytes(), headers.getMessageHeaders());
+		new StompEncoder().encode(frame.getHeaders(), frame.getPayload(), ByteBuffer.allocate(10));
+	}
+
 	private void assertIncompleteDecode(String partialFrame) {
 		Buffer buffer = Buffer.wrap(partialFrame);
 		assertNull(decode(buffer));
@@ -16,6 +16,16 @@
 
 package org.springframework.messaging.support;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
@@ -24,7 +34,9 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
 import org.springframework.core.task.TaskExecutor;
@@ -32,6 +44,7 @@ import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageDeliveryException;
 import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessagingException;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
@@ -185,6 +198,241 @@ public class ExecutorSubscribableChannelTests {
 		assertTrue(interceptor.wasAfterHandledInvoked());
 	}
 
+	@Test
+	public void sendBatchWithExecutor() throws Exception {
+		BeforeHandleInterceptor interceptor = new BeforeHandleInterceptor();
+		TaskExecutor executor = mock(TaskExecutor.class);
+		ExecutorSubscribableChannel testChannel = new ExecutorSubscribableChannel(executor);
+		testChannel.addInterceptor(interceptor);
+		testChannel.subscribe(this.handler);
+		List<Message<String>> messages = Arrays.asList(MessageBuilder.withPayload("1").build(),
+				MessageBuilder.withPayload("2").build(), MessageBuilder.withPayload("3").build());
+		testChannel.sendBatch(messages, 2);
+		verify(executor, times(2)).execute(this.runnableCaptor.capture());
+		verifyZeroInteractions(this.handler);
+		for (Runnable runnable : this.runnableCaptor.getAllValues()) {
+			runnable.run();
+		}
+		InOrder inOrder = inOrder(this.handler);
+		for (Message<String> message : messages) {
+			inOrder.verify(this.handler).handleMessage(message);
+		}
+		assertEquals(3, interceptor.getCounter().get());
+		assertTrue(interceptor.wasAfterHandledInvoked());
+	}
+
+	@Test
+	public void sendBatchFailureDoesNotStopBatch() throws Exception {
+		Message<String> message1 = MessageBuilder.withPayload("1").build();
+		Message<String> message2 = MessageBuilder.withPayload("2").build();
+		willThrow(new RuntimeException()).given(this.handler).handleMessage(message1);
+		this.channel.subscribe(this.handler);
+		this.channel.sendBatch(Arrays.asList(message1, message2), 10);
+		verify(this.handler).handleMessage(message1);
+		verify(this.handler).handleMessage(message2);
+	}
+
+	@Test
+	public void sendBatchReportsMessagesRejectedByInterceptor() throws Exception {
+		Message<String> message1 = MessageBuilder.withPayload("1").build();
+		Message<String> message2 = MessageBuilder.withPayload("2").build();
+		Message<String> message3 = MessageBuilder.withPayload("3").build();
+		ChannelInterceptor interceptor = mock(ChannelInterceptor.class);
+		given(interceptor.preSend(Mockito.any(Message.class), eq(this.channel))).willAnswer(
+				invocation -> invocation.getArguments()[0]);
+		given(interceptor.preSend(message2, this.channel)).willThrow(new IllegalStateException());
+		this.channel.addInterceptor(interceptor);
+		this.channel.subscribe(this.handler);
+
+		List<MessagingException> failures = this.channel.sendBatch(Arrays.asList(message1, message2, message3), 10);
+		assertEquals(1, failures.size());
+		assertSame(message2, failures.get(0).getFailedMessage());
+		assertThat(failures.get(0).getCause(), instanceOf(IllegalStateException.class));
+		verify(this.handler).handleMessage(message1);
+		verify(this.handler).handleMessage(message3);
+		verifyNoMoreInteractions(this.handler);
+		verify(interceptor).postSend(message1, this.channel, true);
+		verify(interceptor).postSend(message3, this.channel, true);
+		verify(interceptor, never()).postSend(eq(message2), eq(this.channel), Mockito.anyBoolean());
+		verify(interceptor).afterSendCompletion(message1, this.channel, true, null);
+		verify(interceptor, never()).afterSendCompletion(eq(message2), eq(this.channel), Mockito.anyBoolean(),
+				Mockito.any(Exception.class));
+		verify(interceptor).afterSendCompletion(message3, this.channel, true, null);
+	}
+
+	@Test
+	public void sendBatchReportsMessagesRejectedByExecutor() throws Exception {
+		TaskExecutor executor = mock(TaskExecutor.class);
+		RejectedExecutionException rejected = new RejectedExecutionException();
+		willDoNothing().willThrow(rejected).willNothing().given(executor).execute(Mockito.any(Runnable.class));
+		ExecutorSubscribableChannel testChannel = new ExecutorSubscribableChannel(executor);
+		ChannelInterceptor interceptor = mock(ChannelInterceptor.class);
+		given(interceptor.preSend(Mockito.any(Message.class), eq(testChannel))).willAnswer(
+				invocation -> invocation.getArguments()[0]);
+		testChannel.addInterceptor(interceptor);
+		testChannel.subscribe(this.handler);
+		List<Message<String>> messages = Arrays.asList(MessageBuilder.withPayload("1").build(),
+				MessageBuilder.withPayload("2").build(), MessageBuilder.withPayload("3").build(),
+				MessageBuilder.withPayload("4").build());
+
+		List<MessagingException> failures = testChannel.sendBatch(messages, 2);
+		assertEquals(2, failures.size());
+		assertSame(messages.get(2), failures.get(0).getFailedMessage());
+		assertSame(messages.get(3), failures.get(1).getFailedMessage());
+		assertSame(rejected, failures.get(0).getCause());
+		verify(interceptor).postSend(messages.get(0), testChannel, true);
+		verify(interceptor).postSend(messages.get(1), testChannel, true);
+		verify(interceptor, never()).postSend(eq(messages.get(2)), eq(testChannel), Mockito.anyBoolean());
+		verify(interceptor).afterSendCompletion(messages.get(3), testChannel, false, failures.get(1));
+	}
+
+	@Test
+	public void shardedSendWithExecutor() throws Exception {
+		BeforeHandleInterceptor interceptor = new BeforeHandleInterceptor();
+		TaskExecutor executor = mock(TaskExecutor.class);
+		ExecutorSubscribableChannel testChannel = new ExecutorSubscribableChannel(executor);
+		testChannel.setShardHeaderName("sessionId");
+		testChannel.setShardCount(4);
+		testChannel.setShardBatchSize(2);
+		testChannel.addInterceptor(interceptor);
+		testChannel.subscribe(this.handler);
+		List<Message<String>> messages = new ArrayList<Message<String>>();
+		for (int i = 0; i < 3; i++) {
+			Message<String> message = MessageBuilder.withPayload("" + i).setHeader("sessionId", "sess1").build();
+			messages.add(message);
+			testChannel.send(message);
+		}
+		verify(executor).execute(this.runnableCaptor.capture());
+		verifyZeroInteractions(this.handler);
+
+		Runnable shard = this.runnableCaptor.getValue();
+		shard.run();
+		verify(this.handler).handleMessage(messages.get(0));
+		verify(this.handler).handleMessage(messages.get(1));
+		verify(this.handler, never()).handleMessage(messages.get(2));
+		verify(executor, times(2)).execute(shard);
+
+		shard.run();
+		verify(this.handler).handleMessage(messages.get(2));
+		verify(executor, times(2)).execute(shard);
+		assertEquals(3, interceptor.getCounter().get());
+		assertTrue(interceptor.wasAfterHandledInvoked());
+	}
+
+	@Test
+	public void shardedSendRejectedByExecutor() throws Exception {
+		TaskExecutor executor = mock(TaskExecutor.class);
+		willThrow(new RejectedExecutionException()).willNothing().given(executor).execute(Mockito.any(Runnable.class));
+		ExecutorSubscribableChannel testChannel = new ExecutorSubscribableChannel(executor);
+		testChannel.setShardHeaderName("sessionId");
+		testChannel.setShardCount(1);
+		testChannel.subscribe(this.handler);
+		Message<String> message1 = MessageBuilder.withPayload("1").setHeader("sessionId", "sess1").build();
+		Message<String> message2 = MessageBuilder.withPayload("2").setHeader("sessionId", "sess1").build();
+		try {
+			testChannel.send(message1);
+			fail("Expected MessageDeliveryException");
+		}
+		catch (MessageDeliveryException ex) {
+			assertThat(ex.getCause(), instanceOf(RejectedExecutionException.class));
+		}
+		testChannel.send(message2);
+		verify(executor, times(2)).execute(this.runnableCaptor.capture());
+
+		this.runnableCaptor.getValue().run();
+		verify(this.handler, never()).handleMessage(message1);
+		verify(this.handler).handleMessage(message2);
+	}
+
+	@Test
+	public void shardedSendRescheduleRejectedByExecutor() throws Exception {
+		TaskExecutor executor = mock(TaskExecutor.class);
+		willDoNothing().willThrow(new RejectedExecutionException()).given(executor).execute(Mockito.any(Runnable.class));
+		ExecutorSubscribableChannel testChannel = new ExecutorSubscribableChannel(executor);
+		testChannel.setShardHeaderName("sessionId");
+		testChannel.setShardCount(1);
+		testChannel.setShardBatchSize(2);
+		testChannel.subscribe(this.handler);
+		List<Message<String>> messages = new ArrayList<Message<String>>();
+		for (int i = 0; i < 5; i++) {
+			Message<String> message = MessageBuilder.withPayload("" + i).setHeader("sessionId", "sess1").build();
+			messages.add(message);
+			testChannel.send(message);
+		}
+		verify(executor).execute(this.runnableCaptor.capture());
+
+		Runnable shard = this.runnableCaptor.getValue();
+		shard.run();
+		InOrder inOrder = inOrder(this.handler);
+		for (Message<String> message : messages) {
+			inOrder.verify(this.handler).handleMessage(message);
+		}
+		verify(executor, times(3)).execute(shard);
+	}
+
+	@Test
+	public void shardedSendWithoutShardHeader() throws Exception {
+		TaskExecutor executor = mock(TaskExecutor.class);
+		ExecutorSubscribableChannel testChannel = new ExecutorSubscribableChannel(executor);
+		testChannel.setShardHeaderName("sessionId");
+		testChannel.setShardCount(4);
+		testChannel.subscribe(this.handler);
+		testChannel.send(this.message);
+		testChannel.send(this.message);
+		verify(executor, times(2)).execute(this.runnableCaptor.capture());
+		assertThat(this.runnableCaptor.getValue(), instanceOf(MessageHandlingRunnable.class));
+	}
+
+	@Test
+	public void shardedSendPreservesOrderPerSession() throws Exception {
+		int sessions = 20;
+		int messagesPerSession = 500;
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			ExecutorSubscribableChannel testChannel = new ExecutorSubscribableChannel(executor);
+			testChannel.setShardHeaderName("sessionId");
+			testChannel.setShardCount(8);
+			final Map<Object, List<Object>> received = new ConcurrentHashMap<Object, List<Object>>();
+			final CountDownLatch latch = new CountDownLatch(sessions * messagesPerSession);
+			testChannel.subscribe(message -> {
+				Object sessionId = message.getHeaders().get("sessionId");
+				List<Object> payloads = received.computeIfAbsent(sessionId, key -> new ArrayList<Object>());
+				synchronized (payloads) {
+					payloads.add(message.getPayload());
+				}
+				latch.countDown();
+			});
+			List<Message<?>> batch = new ArrayList<Message<?>>();
+			for (int i = 0; i < messagesPerSession; i++) {
+				for (int j = 0; j < sessions; j++) {
+					Message<Integer> message = MessageBuilder.withPayload(i).setHeader("sessionId", "sess" + j).build();
+					if (j % 2 == 0) {
+						testChannel.send(message);
+					}
+					else {
+						batch.add(message);
+					}
+				}
+				if (i % 10 == 9) {
+					testChannel.sendBatch(batch, 5);
+					batch.clear();
+				}
+			}
+			assertTrue(latch.await(10, TimeUnit.SECONDS));
+			assertEquals(sessions, received.size());
+			for (List<Object> payloads : received.values()) {
+				synchronized (payloads) {
+					for (int i = 0; i < messagesPerSession; i++) {
+						assertEquals(i, payloads.get(i));
+					}
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
 
 	private abstract static class AbstractTestInterceptor extends ChannelInterceptorAdapter
 			implements ExecutorChannelInterceptor {
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.tcp.netty;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.NettyStompCodec;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.tcp.FixedIntervalReconnectStrategy;
+import org.springframework.messaging.tcp.TcpConnection;
+import org.springframework.messaging.tcp.TcpConnectionHandler;
+import org.springframework.util.SocketUtils;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link NettyTcpClient} against a local stand-in for a STOMP broker
+ * that echoes back whatever it receives.
+ */
+public class NettyTcpClientTests {
+
+	private final BlockingQueue<Channel> serverChannels = new LinkedBlockingQueue<>();
+
+	private EventLoopGroup serverGroup;
+
+	private int port;
+
+	private NettyTcpClient<byte[]> client;
+
+
+	@Before
+	public void setUp() throws Exception {
+		this.port = SocketUtils.findAvailableTcpPort();
+		this.serverGroup = new NioEventLoopGroup(1);
+		new ServerBootstrap()
+				.group(this.serverGroup)
+				.channel(NioServerSocketChannel.class)
+				.childHandler(new ChannelInitializer<SocketChannel>() {
+					@Override
+					protected void initChannel(SocketChannel channel) {
+						serverChannels.add(channel);
+						channel.pipeline().addLast(new EchoHandler());
+					}
+				})
+				.bind("127.0.0.1", this.port).sync();
+		this.client = new NettyTcpClient<>("127.0.0.1", this.port, new NettyStompCodec());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.client.shutdown().get(5, TimeUnit.SECONDS);
+		this.serverGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS).sync();
+	}
+
+
+	@Test
+	public void sendAndReceive() throws Exception {
+		TestConnectionHandler handler = new TestConnectionHandler();
+		this.client.connect(handler).get(5, TimeUnit.SECONDS);
+		TcpConnection<byte[]> connection = handler.awaitConnection();
+
+		for (int i = 0; i < 100; i++) {
+			connection.send(createMessage("/topic/foo", "payload" + i));
+		}
+
+		for (int i = 0; i < 100; i++) {
+			Message<byte[]> message = handler.messages.poll(5, TimeUnit.SECONDS);
+			assertNotNull("Message " + i + " not received", message);
+			StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+			assertEquals(StompCommand.SEND, accessor.getCommand());
+			assertEquals("/topic/foo", accessor.getDestination());
+			assertEquals("payload" + i, new String(message.getPayload(), StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	public void receiveFrameSplitAcrossReads() throws Exception {
+		TestConnectionHandler handler = new TestConnectionHandler();
+		this.client.connect(handler).get(5, TimeUnit.SECONDS);
+		handler.awaitConnection();
+
+		Channel serverChannel = this.serverChannels.poll(5, TimeUnit.SECONDS);
+		byte[] frame = "MESSAGE\ndestination:/topic/foo\n\nbody\0".getBytes(StandardCharsets.UTF_8);
+		for (byte b : frame) {
+			serverChannel.writeAndFlush(serverChannel.alloc().buffer(1).writeByte(b)).sync();
+		}
+
+		Message<byte[]> message = handler.messages.poll(5, TimeUnit.SECONDS);
+		assertNotNull(message);
+		assertEquals(StompCommand.MESSAGE, StompHeaderAccessor.wrap(message).getCommand());
+		assertEquals("body", new String(message.getPayload(), StandardCharsets.UTF_8));
+		assertTrue(handler.messages.isEmpty());
+	}
+
+	@Test
+	public void readInactivity() throws Exception {
+		TestConnectionHandler handler = new TestConnectionHandler();
+		this.client.connect(handler).get(5, TimeUnit.SECONDS);
+		TcpConnection<byte[]> connection = handler.awaitConnection();
+
+		CountDownLatch latch = new CountDownLatch(1);
+		connection.onReadInactivity(latch::countDown, 100);
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void connectFailure() throws Exception {
+		this.client.shutdown().get(5, TimeUnit.SECONDS);
+		int unusedPort = SocketUtils.findAvailableTcpPort();
+		this.client = new NettyTcpClient<>("127.0.0.1", unusedPort, new NettyStompCodec());
+
+		TestConnectionHandler handler = new TestConnectionHandler();
+		ListenableFuture<Void> future = this.client.connect(handler);
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			fail("Expected connect failure");
+		}
+		catch (ExecutionException ex) {
+			// expected
+		}
+		assertEquals(1, handler.connectFailures.size());
+	}
+
+	@Test
+	public void reconnectAfterConnectionClosed() throws Exception {
+		TestConnectionHandler handler = new TestConnectionHandler();
+		this.client.connect(handler, new FixedIntervalReconnectStrategy(50)).get(5, TimeUnit.SECONDS);
+		handler.awaitConnection();
+
+		this.serverChannels.poll(5, TimeUnit.SECONDS).close();
+
+		TcpConnection<byte[]> connection = handler.awaitConnection();
+		assertEquals(1, handler.closedCount.get());
+		connection.send(createMessage("/topic/foo", "again"));
+		Message<byte[]> message = handler.messages.poll(5, TimeUnit.SECONDS);
+		assertNotNull(message);
+		assertEquals("again", new String(message.getPayload(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void shutdownClosesConnections() throws Exception {
+		TestConnectionHandler handler = new TestConnectionHandler();
+		this.client.connect(handler, new FixedIntervalReconnectStrategy(50)).get(5, TimeUnit.SECONDS);
+		handler.awaitConnection();
+
+		this.client.shutdown().get(5, TimeUnit.SECONDS);
+
+		Channel serverChannel = this.serverChannels.poll(5, TimeUnit.SECONDS);
+		assertTrue(serverChannel.closeFuture().await(5, TimeUnit.SECONDS));
+		assertEquals(1, handler.closedCount.get());
+		assertTrue(handler.connections.isEmpty());
+	}
+
+	@Test
+	public void sendAfterShutdownFails() throws Exception {
+		TestConnectionHandler handler = new TestConnectionHandler();
+		this.client.connect(handler).get(5, TimeUnit.SECONDS);
+		TcpConnection<byte[]> connection = handler.awaitConnection();
+
+		this.client.shutdown().get(5, TimeUnit.SECONDS);
+
+		ListenableFuture<Void> future = connection.send(createMessage("/topic/foo", "late"));
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			fail("Expected send failure");
+		}
+		catch (ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof RejectedExecutionException);
+		}
+		future = connection.send(createMessage("/topic/foo", "later"));
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			fail("Expected send failure");
+		}
+		catch (ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof RejectedExecutionException);
+		}
+	}
+
+
+	private static Message<byte[]> createMessage(String destination, String payload) {
+		StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SEND);
+		accessor.setDestination(destination);
+		return MessageBuilder.createMessage(payload.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+	}
+
+
+	private static class EchoHandler extends ChannelInboundHandlerAdapter {
+
+		@Override
+		public void channelRead(ChannelHandlerContext ctx, Object msg) {
+			ctx.writeAndFlush(msg);
+		}
+	}
+
+
+	private static class TestConnectionHandler implements TcpConnectionHandler<byte[]> {
+
+		private final BlockingQueue<TcpConnection<byte[]>> connections = new LinkedBlockingQueue<>();
+
+		private final BlockingQueue<Message<byte[]>> messages = new LinkedBlockingQueue<>();
+
+		private final List<Throwable> connectFailures = new CopyOnWriteArrayList<>();
+
+		private final AtomicInteger closedCount = new AtomicInteger();
+
+		@Override
+		public void afterConnected(TcpConnection<byte[]> connection) {
+			this.connections.add(connection);
+		}
+
+		@Override
+		public void afterConnectFailure(Throwable ex) {
+			this.connectFailures.add(ex);
+		}
+
+		@Override
+		public void handleMessage(Message<byte[]> message) {
+			this.messages.add(message);
+		}
+
+		@Override
+		public void handleFailure(Throwable ex) {
+		}
+
+		@Override
+		public void afterConnectionClosed() {
+			this.closedCount.incrementAndGet();
+		}
+
+		public TcpConnection<byte[]> awaitConnection() throws InterruptedException {
+			TcpConnection<byte[]> connection = this.connections.poll(5, TimeUnit.SECONDS);
+			assertNotNull("Not connected", connection);
+			return connection;
+		}
+	}
+
+}
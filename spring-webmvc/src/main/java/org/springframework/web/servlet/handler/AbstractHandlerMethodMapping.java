@@ -35,6 +35,7 @@ import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.BeanFactoryUtils;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.MethodIntrospector;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.LinkedMultiValueMap;
@@ -89,6 +90,8 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 	private HandlerMethodMappingNamingStrategy<T> namingStrategy;
 
+	private boolean usePathPatternIndex = false;
+
 	private final MappingRegistry mappingRegistry = new MappingRegistry();
 
 
@@ -115,6 +118,29 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 		this.namingStrategy = namingStrategy;
 	}
 
+	/**
+	 * Whether to maintain an index of the literal leading segments of the
+	 * mapping path patterns, used to narrow down the mappings to check for a
+	 * lookup path that has no direct URL match, instead of checking all of them.
+	 * <p>Default is "false". The index assumes {@link org.springframework.util.AntPathMatcher}
+	 * semantics with "/" as path separator, and is only consulted while such a
+	 * {@link #setPathMatcher PathMatcher} is in use. The matching mappings and
+	 * their order are the same as without the index.
+	 * <p>Switch this flag on before handler methods are detected.
+	 * @since 4.3.4
+	 */
+	public void setUsePathPatternIndex(boolean usePathPatternIndex) {
+		this.usePathPatternIndex = usePathPatternIndex;
+	}
+
+	/**
+	 * Whether the path pattern index is in use.
+	 * @since 4.3.4
+	 */
+	public boolean isUsePathPatternIndex() {
+		return this.usePathPatternIndex;
+	}
+
 	/**
 	 * Return the configured naming strategy or {@code null}.
 	 */
@@ -343,8 +369,14 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			addMatchingMappings(directPathMatches, matches, request);
 		}
 		if (matches.isEmpty()) {
-			// No choice but to go through all mappings...
-			addMatchingMappings(this.mappingRegistry.getMappings().keySet(), matches, request);
+			List<T> candidates = this.mappingRegistry.getMappingsByPattern(lookupPath);
+			if (candidates != null) {
+				addMatchingMappings(candidates, matches, request);
+			}
+			else {
+				// No choice but to go through all mappings...
+				addMatchingMappings(this.mappingRegistry.getMappings().keySet(), matches, request);
+			}
 		}
 
 		if (!matches.isEmpty()) {
@@ -480,6 +512,8 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 		private final MultiValueMap<String, T> urlLookup = new LinkedMultiValueMap<String, T>();
 
+		private final MappingPathIndex<T> patternLookup = new MappingPathIndex<T>();
+
 		private final Map<String, List<HandlerMethod>> nameLookup =
 				new ConcurrentHashMap<String, List<HandlerMethod>>();
 
@@ -504,6 +538,20 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			return this.urlLookup.get(urlPath);
 		}
 
+		/**
+		 * Return the candidate mappings for the given URL path from the path
+		 * pattern index, in registration order, or {@code null} if the index is
+		 * not in use or cannot narrow down the given path. Not thread-safe.
+		 * @see #acquireReadLock()
+		 * @see #setUsePathPatternIndex
+		 */
+		public List<T> getMappingsByPattern(String urlPath) {
+			if (!isUsePathPatternIndex() || !(getPathMatcher() instanceof AntPathMatcher)) {
+				return null;
+			}
+			return this.patternLookup.getCandidates(urlPath);
+		}
+
 		/**
 		 * Return handler methods by mapping name. Thread-safe for concurrent use.
 		 */
@@ -549,6 +597,10 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 					this.urlLookup.add(url, mapping);
 				}
 
+				if (isUsePathPatternIndex()) {
+					this.patternLookup.add(mapping, getMappingPathPatterns(mapping));
+				}
+
 				String name = null;
 				if (getNamingStrategy() != null) {
 					name = getNamingStrategy().getName(handlerMethod, mapping);
@@ -636,6 +688,8 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 					}
 				}
 
+				this.patternLookup.remove(definition.getMapping());
+
 				removeMappingName(definition);
 
 				this.corsLookup.remove(definition.getHandlerMethod());
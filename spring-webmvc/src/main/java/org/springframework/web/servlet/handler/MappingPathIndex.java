@@ -0,0 +1,248 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.handler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A segment trie over the literal leading segments of mapping path patterns,
+ * used by {@link AbstractHandlerMethodMapping} to narrow down the mappings to
+ * check when a lookup path has no direct URL match.
+ *
+ * <p>Each pattern is stored under the node reached by its leading literal
+ * segments, i.e. segments without {@code *}, {@code ?} or <code>{</code>.
+ * The last segment of a pattern is never indexed since it may match through
+ * suffix pattern or trailing slash matching. A lookup collects the mappings
+ * stored along the path of the given lookup path, which yields a superset of
+ * the matching mappings, returned in registration order.
+ *
+ * <p>Keys are compared trimmed and in lower case, so that the index also
+ * stays a superset for a case-insensitive or token-trimming
+ * {@link org.springframework.util.AntPathMatcher}.
+ *
+ * <p>Not thread-safe: access is guarded by the lock of the mapping registry.
+ *
+ * @since 4.3.4
+ * @param <T> the mapping type
+ */
+class MappingPathIndex<T> {
+
+	private static final String PATH_SEPARATOR = "/";
+
+	private static final Comparator<Entry<?>> ORDER_COMPARATOR = new Comparator<Entry<?>>() {
+		@Override
+		public int compare(Entry<?> entry1, Entry<?> entry2) {
+			return (entry1.order < entry2.order ? -1 : (entry1.order > entry2.order ? 1 : 0));
+		}
+	};
+
+
+	private final Node<T> root = new Node<T>();
+
+	private final Map<T, Entry<T>> entries = new HashMap<T, Entry<T>>();
+
+	private long orderCounter;
+
+
+	/**
+	 * Add a mapping under the given path patterns. A mapping without patterns
+	 * is considered a candidate for every lookup path.
+	 */
+	public void add(T mapping, Collection<String> patterns) {
+		Entry<T> entry = this.entries.get(mapping);
+		if (entry != null) {
+			// Re-registration: keep the original registration order
+			remove(mapping, entry.patterns);
+			entry = new Entry<T>(mapping, patterns, entry.order);
+		}
+		else {
+			entry = new Entry<T>(mapping, patterns, this.orderCounter++);
+		}
+		this.entries.put(mapping, entry);
+		if (patterns.isEmpty()) {
+			this.root.entries.add(entry);
+			return;
+		}
+		for (String pattern : patterns) {
+			Node<T> node = this.root;
+			String[] segments = tokenize(pattern);
+			for (int i = 0; i < segments.length - 1; i++) {
+				String key = getLiteralKey(segments[i]);
+				if (key == null) {
+					break;
+				}
+				Node<T> child = node.children.get(key);
+				if (child == null) {
+					child = new Node<T>();
+					node.children.put(key, child);
+				}
+				node = child;
+			}
+			if (!node.entries.contains(entry)) {
+				node.entries.add(entry);
+			}
+		}
+	}
+
+	/**
+	 * Remove a mapping previously added through {@link #add}.
+	 */
+	public void remove(T mapping) {
+		Entry<T> entry = this.entries.remove(mapping);
+		if (entry != null) {
+			remove(mapping, entry.patterns);
+		}
+	}
+
+	private void remove(T mapping, Collection<String> patterns) {
+		if (patterns.isEmpty()) {
+			removeEntry(this.root, mapping);
+			return;
+		}
+		for (String pattern : patterns) {
+			List<Node<T>> visited = new ArrayList<Node<T>>();
+			List<String> keys = new ArrayList<String>();
+			Node<T> node = this.root;
+			String[] segments = tokenize(pattern);
+			for (int i = 0; i < segments.length - 1; i++) {
+				String key = getLiteralKey(segments[i]);
+				Node<T> child = (key != null ? node.children.get(key) : null);
+				if (child == null) {
+					break;
+				}
+				visited.add(node);
+				keys.add(key);
+				node = child;
+			}
+			removeEntry(node, mapping);
+			// Prune empty nodes bottom-up
+			for (int i = visited.size() - 1; i >= 0 && node.isEmpty(); i--) {
+				node = visited.get(i);
+				node.children.remove(keys.get(i));
+			}
+		}
+	}
+
+	private void removeEntry(Node<T> node, T mapping) {
+		for (int i = 0; i < node.entries.size(); i++) {
+			if (node.entries.get(i).mapping.equals(mapping)) {
+				node.entries.remove(i);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Return the candidate mappings for the given lookup path, in registration
+	 * order, or {@code null} if the path cannot be narrowed down and all
+	 * mappings need to be checked.
+	 */
+	public List<T> getCandidates(String lookupPath) {
+		List<Entry<T>> found = new ArrayList<Entry<T>>(this.root.entries);
+		Node<T> node = this.root;
+		for (String segment : tokenize(lookupPath)) {
+			String key = segment.trim();
+			if (key.isEmpty()) {
+				// Segment dropped when trimming tokens: positions cannot be relied on
+				return null;
+			}
+			node = node.children.get(key.toLowerCase(Locale.ENGLISH));
+			if (node == null) {
+				break;
+			}
+			found.addAll(node.entries);
+		}
+		if (found.isEmpty()) {
+			return Collections.emptyList();
+		}
+		Collections.sort(found, ORDER_COMPARATOR);
+		List<T> result = new ArrayList<T>(found.size());
+		Entry<T> previous = null;
+		for (Entry<T> entry : found) {
+			if (entry != previous) {
+				result.add(entry.mapping);
+				previous = entry;
+			}
+		}
+		return result;
+	}
+
+
+	private static String[] tokenize(String path) {
+		List<String> tokens = new ArrayList<String>();
+		int start = 0;
+		while (start <= path.length()) {
+			int end = path.indexOf(PATH_SEPARATOR, start);
+			if (end == -1) {
+				end = path.length();
+			}
+			if (end > start) {
+				tokens.add(path.substring(start, end));
+			}
+			start = end + 1;
+		}
+		return tokens.toArray(new String[tokens.size()]);
+	}
+
+	/**
+	 * Return the index key for a pattern segment, or {@code null} if the
+	 * segment is not a plain literal.
+	 */
+	private static String getLiteralKey(String segment) {
+		String key = segment.trim();
+		if (key.isEmpty() || key.indexOf('*') != -1 || key.indexOf('?') != -1 || key.indexOf('{') != -1) {
+			return null;
+		}
+		return key.toLowerCase(Locale.ENGLISH);
+	}
+
+
+	private static class Node<T> {
+
+		private final Map<String, Node<T>> children = new HashMap<String, Node<T>>(4);
+
+		private final List<Entry<T>> entries = new ArrayList<Entry<T>>(1);
+
+		public boolean isEmpty() {
+			return (this.children.isEmpty() && this.entries.isEmpty());
+		}
+	}
+
+
+	private static class Entry<T> {
+
+		private final T mapping;
+
+		private final Collection<String> patterns;
+
+		private final long order;
+
+		public Entry(T mapping, Collection<String> patterns, long order) {
+			this.mapping = mapping;
+			this.patterns = patterns;
+			this.order = order;
+		}
+	}
+
+}
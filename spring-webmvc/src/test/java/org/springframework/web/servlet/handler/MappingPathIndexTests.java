@@ -0,0 +1,224 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.handler;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+
+import org.springframework.mock.web.test.MockHttpServletRequest;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.util.StopWatch;
+import org.springframework.web.method.HandlerMethod;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link MappingPathIndex} and its use in {@link AbstractHandlerMethodMapping}.
+ */
+public class MappingPathIndexTests {
+
+	private static final String[] PATTERNS = {
+			"/accounts/{id}", "/accounts/{id}/orders", "/accounts/{id}/orders/{orderId}",
+			"/accounts/*/orders/**", "/Accounts/{id}", "/accounts/{id}.json", "/accounts",
+			"/orders/**", "/**/orders/{orderId}", "/users/{id:\\d+}", "/users/me", "/*/me",
+			"/static/css/**", "/static/{file}.js", "/static/js/app*.js", "/st?tic/img/{img}"};
+
+	private static final String[] PATHS = {
+			"/accounts", "/accounts/", "/accounts/42", "/accounts/42/", "/accounts/42.json",
+			"/accounts/42/orders", "/accounts/42/orders/7", "/accounts/42/orders/7/items",
+			"/Accounts/42", "/ACCOUNTS/42", "/orders", "/orders/7", "/customers/1/orders/7",
+			"/users/42", "/users/me", "/users/you", "/admins/me", "/static/css/site.css",
+			"/static/app.js", "/static/js/app-1.js", "/static/img/logo.png", "/", "", "/unknown"};
+
+
+	@Test
+	public void getCandidates() {
+		MappingPathIndex<String> index = new MappingPathIndex<String>();
+		index.add("a", Collections.singleton("/accounts/{id}/orders/{orderId}"));
+		index.add("b", Collections.singleton("/accounts/{id}"));
+		index.add("c", Collections.singleton("/orders/**"));
+		index.add("d", Collections.<String>emptySet());
+		index.add("e", Arrays.asList("/**/orders", "/orders/{id}"));
+
+		assertEquals(Arrays.asList("a", "b", "d", "e"), index.getCandidates("/accounts/42/orders/7"));
+		assertEquals(Arrays.asList("c", "d", "e"), index.getCandidates("/orders/7"));
+		assertEquals(Arrays.asList("d", "e"), index.getCandidates("/users"));
+		assertNull(index.getCandidates("/accounts/ /orders"));
+
+		index.remove("d");
+		index.remove("e");
+		assertEquals(Collections.emptyList(), index.getCandidates("/users"));
+		assertEquals(Arrays.asList("a", "b"), index.getCandidates("/accounts/42"));
+	}
+
+	@Test
+	public void getCandidatesAfterReRegistration() {
+		MappingPathIndex<String> index = new MappingPathIndex<String>();
+		index.add("a", Collections.singleton("/accounts/{id}"));
+		index.add("b", Collections.singleton("/accounts/{id}/orders"));
+		index.add("a", Collections.singleton("/accounts/{id}"));
+
+		assertEquals(Arrays.asList("a", "b"), index.getCandidates("/accounts/42/orders"));
+	}
+
+	@Test
+	public void sameMatchesWithAndWithoutIndex() throws Exception {
+		PatternHandlerMethodMapping plain = createMapping(false, PATTERNS);
+		PatternHandlerMethodMapping indexed = createMapping(true, PATTERNS);
+
+		for (String path : PATHS) {
+			assertEquals("Different match for \"" + path + "\"", lookup(plain, path), lookup(indexed, path));
+		}
+	}
+
+	@Test
+	public void sameMatchesAfterUnregister() throws Exception {
+		PatternHandlerMethodMapping plain = createMapping(false, PATTERNS);
+		PatternHandlerMethodMapping indexed = createMapping(true, PATTERNS);
+		for (String pattern : new String[] {"/accounts/{id}", "/orders/**", "/static/css/**"}) {
+			plain.unregisterMapping(pattern);
+			indexed.unregisterMapping(pattern);
+		}
+
+		for (String path : PATHS) {
+			assertEquals("Different match for \"" + path + "\"", lookup(plain, path), lookup(indexed, path));
+		}
+	}
+
+	@Test
+	public void sameAmbiguityWithAndWithoutIndex() throws Exception {
+		String[] patterns = {"/accounts/{id}/orders", "/accounts/{name}/orders"};
+		PatternHandlerMethodMapping plain = createMapping(false, patterns);
+		PatternHandlerMethodMapping indexed = createMapping(true, patterns);
+
+		assertEquals(lookup(plain, "/accounts/42/orders"), lookup(indexed, "/accounts/42/orders"));
+	}
+
+	@Test
+	public void lookupPerformance() throws Exception {
+		Assume.group(TestGroup.PERFORMANCE);
+		int[] sizes = {100, 500, 2500, 5000};
+		int iterations = 1000;
+		StopWatch sw = new StopWatch("Pattern lookup, " + iterations + " requests per run");
+		for (int size : sizes) {
+			String[] patterns = new String[size];
+			for (int i = 0; i < size; i++) {
+				patterns[i] = "/resource" + i + "/{id}/items/{itemId}";
+			}
+			String path = "/resource" + (size / 2) + "/42/items/7";
+			for (boolean useIndex : new boolean[] {false, true}) {
+				PatternHandlerMethodMapping mapping = createMapping(useIndex, patterns);
+				MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+				mapping.getHandlerInternal(request);
+				sw.start(size + " mappings, index " + (useIndex ? "on" : "off"));
+				for (int i = 0; i < iterations; i++) {
+					assertNotNull(mapping.getHandlerInternal(request));
+				}
+				sw.stop();
+			}
+		}
+		System.out.println(sw.prettyPrint());
+	}
+
+
+	private PatternHandlerMethodMapping createMapping(boolean useIndex, String... patterns) throws Exception {
+		PatternHandlerMethodMapping mapping = new PatternHandlerMethodMapping();
+		mapping.setUsePathPatternIndex(useIndex);
+		Method method = MyHandler.class.getMethod("handle");
+		for (String pattern : patterns) {
+			mapping.registerMapping(pattern, new MyHandler(), method);
+		}
+		return mapping;
+	}
+
+	private String lookup(PatternHandlerMethodMapping mapping, String path) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+		try {
+			HandlerMethod handlerMethod = mapping.getHandlerInternal(request);
+			return (handlerMethod != null ?
+					(String) request.getAttribute(PatternHandlerMethodMapping.MATCHED_PATTERN_ATTRIBUTE) : null);
+		}
+		catch (Exception ex) {
+			return ex.getClass().getName() + ": " + ex.getMessage();
+		}
+	}
+
+
+	private static class PatternHandlerMethodMapping extends AbstractHandlerMethodMapping<String> {
+
+		static final String MATCHED_PATTERN_ATTRIBUTE = PatternHandlerMethodMapping.class.getName() + ".pattern";
+
+		private final PathMatcher pathMatcher = new AntPathMatcher();
+
+		@Override
+		protected boolean isHandler(Class<?> beanType) {
+			return false;
+		}
+
+		@Override
+		protected String getMappingForMethod(Method method, Class<?> handlerType) {
+			return null;
+		}
+
+		@Override
+		protected Set<String> getMappingPathPatterns(String mapping) {
+			return Collections.singleton(mapping);
+		}
+
+		@Override
+		protected String getMatchingMapping(String pattern, HttpServletRequest request) {
+			String lookupPath = getUrlPathHelper().getLookupPathForRequest(request);
+			if (pattern.equals(lookupPath) || this.pathMatcher.match(pattern, lookupPath) ||
+					this.pathMatcher.match(pattern + ".*", lookupPath) ||
+					this.pathMatcher.match(pattern + "/", lookupPath)) {
+				return pattern;
+			}
+			return null;
+		}
+
+		@Override
+		protected Comparator<String> getMappingComparator(HttpServletRequest request) {
+			String lookupPath = getUrlPathHelper().getLookupPathForRequest(request);
+			return this.pathMatcher.getPatternComparator(lookupPath);
+		}
+
+		@Override
+		protected void handleMatch(String mapping, String lookupPath, HttpServletRequest request) {
+			super.handleMatch(mapping, lookupPath, request);
+			request.setAttribute(MATCHED_PATTERN_ATTRIBUTE, mapping);
+		}
+	}
+
+
+	private static class MyHandler {
+
+		@SuppressWarnings("unused")
+		public void handle() {
+		}
+	}
+
+}
@@ -79,6 +79,10 @@ public class WebMvcStompEndpointRegistry implements StompEndpointRegistry {
 		if (transportRegistration.getSendBufferSizeLimit() != null) {
 			this.subProtocolWebSocketHandler.setSendBufferSizeLimit(transportRegistration.getSendBufferSizeLimit());
 		}
+		if (transportRegistration.getSendCoalescingSizeLimit() != null) {
+			this.subProtocolWebSocketHandler.setSendCoalescingSizeLimit(
+					transportRegistration.getSendCoalescingSizeLimit());
+		}
 
 		this.stompHandler = new StompSubProtocolHandler();
 		this.stompHandler.setUserSessionRegistry(userSessionRegistry);
@@ -36,6 +36,8 @@ public class WebSocketTransportRegistration {
 
 	private Integer sendBufferSizeLimit;
 
+	private Integer sendCoalescingSizeLimit;
+
 	private final List<WebSocketHandlerDecoratorFactory> decoratorFactories =
 			new ArrayList<WebSocketHandlerDecoratorFactory>(2);
 
@@ -157,6 +159,29 @@ public class WebSocketTransportRegistration {
 		return this.sendBufferSizeLimit;
 	}
 
+	/**
+	 * Configure the maximum size of a text message assembled from messages
+	 * that are buffered for a WebSocket session while a previous send is in
+	 * progress. Buffered STOMP frames are then written to the session
+	 * together instead of one write per frame. Sessions of other sub-protocols
+	 * are not affected.
+	 * <p>By default this is 0, i.e. messages are not coalesced.
+	 * @param sendCoalescingSizeLimit the maximum number of bytes to combine
+	 * into a single message
+	 * @since 4.3.4
+	 */
+	public WebSocketTransportRegistration setSendCoalescingSizeLimit(int sendCoalescingSizeLimit) {
+		this.sendCoalescingSizeLimit = sendCoalescingSizeLimit;
+		return this;
+	}
+
+	/**
+	 * Protected accessor for internal use.
+	 */
+	protected Integer getSendCoalescingSizeLimit() {
+		return this.sendCoalescingSizeLimit;
+	}
+
 	/**
 	 * Configure one or more factories to decorate the handler used to process
 	 * WebSocket messages. This may be useful in some advanced use cases, for
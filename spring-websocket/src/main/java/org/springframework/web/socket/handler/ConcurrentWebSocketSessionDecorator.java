@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.util.Queue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -27,6 +28,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 
@@ -40,6 +42,13 @@ import org.springframework.web.socket.WebSocketSession;
  * send-time limit will be checked and the session closed if the limits are
  * exceeded.
  *
+ * <p>Optionally, text messages found in the buffer when a flush starts can be
+ * {@link #setCoalescingSizeLimit coalesced} into a single text message, so that
+ * several small messages cost a single write to the underlying session. This is
+ * only appropriate for sub-protocols whose messages are self-delimiting, such as
+ * STOMP where each frame is terminated with a null octet. Over SockJS the merged
+ * message is then sent as a single entry of a SockJS array frame.
+ *
  * @author Rossen Stoyanchev
  * @since 4.0.3
  */
@@ -63,6 +72,12 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 
 	private volatile boolean closeInProgress;
 
+	private volatile int coalescingSizeLimit;
+
+	private final AtomicLong sentMessageCount = new AtomicLong();
+
+	private final AtomicLong writeCount = new AtomicLong();
+
 
 	private final Lock flushLock = new ReentrantLock();
 
@@ -91,6 +106,44 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 		return (start > 0 ? (System.currentTimeMillis() - start) : 0);
 	}
 
+	/**
+	 * Configure the maximum size (in bytes) of a text message assembled from
+	 * buffered text messages. Messages that are already buffered when a flush
+	 * starts are appended to each other up to this size and sent with a single
+	 * write; a message larger than the limit is still sent on its own.
+	 * <p>By default this is 0, i.e. every message is sent individually.
+	 * @since 4.3.4
+	 */
+	public void setCoalescingSizeLimit(int coalescingSizeLimit) {
+		this.coalescingSizeLimit = coalescingSizeLimit;
+	}
+
+	/**
+	 * Return the configured coalescing size limit.
+	 * @since 4.3.4
+	 */
+	public int getCoalescingSizeLimit() {
+		return this.coalescingSizeLimit;
+	}
+
+	/**
+	 * Return the number of messages passed on to the delegate session so far.
+	 * @since 4.3.4
+	 */
+	public long getSentMessageCount() {
+		return this.sentMessageCount.get();
+	}
+
+	/**
+	 * Return the number of writes to the delegate session so far. This is
+	 * lower than the {@link #getSentMessageCount() sent message count} when
+	 * messages have been coalesced.
+	 * @since 4.3.4
+	 */
+	public long getWriteCount() {
+		return this.writeCount.get();
+	}
+
 
 	public void sendMessage(WebSocketMessage<?> message) throws IOException {
 		if (shouldNotSend()) {
@@ -128,9 +181,32 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 						break;
 					}
 					this.bufferSize.addAndGet(message.getPayloadLength() * -1);
+					int count = 1;
+					if (this.coalescingSizeLimit > 0 && isCoalescable(message)) {
+						StringBuilder builder = null;
+						int length = message.getPayloadLength();
+						WebSocketMessage<?> next = this.buffer.peek();
+						while (isCoalescable(next) && length + next.getPayloadLength() <= this.coalescingSizeLimit) {
+							// Single consumer under the flush lock: the peeked message is the polled one
+							this.buffer.poll();
+							this.bufferSize.addAndGet(next.getPayloadLength() * -1);
+							if (builder == null) {
+								builder = new StringBuilder(((TextMessage) message).getPayload());
+							}
+							builder.append(((TextMessage) next).getPayload());
+							length += next.getPayloadLength();
+							count++;
+							next = this.buffer.peek();
+						}
+						if (builder != null) {
+							message = new TextMessage(builder.toString());
+						}
+					}
 					this.sendStartTime = System.currentTimeMillis();
 					getDelegate().sendMessage(message);
 					this.sendStartTime = 0;
+					this.sentMessageCount.addAndGet(count);
+					this.writeCount.incrementAndGet();
 				}
 			}
 			finally {
@@ -142,6 +218,10 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 		return false;
 	}
 
+	private static boolean isCoalescable(WebSocketMessage<?> message) {
+		return (message instanceof TextMessage && message.isLast());
+	}
+
 	private void checkSessionLimits() throws IOException {
 		if (!shouldNotSend() && this.closeLock.tryLock()) {
 			try {
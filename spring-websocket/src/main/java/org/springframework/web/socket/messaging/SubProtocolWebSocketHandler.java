@@ -26,6 +26,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.logging.Log;
@@ -96,6 +97,8 @@ public class SubProtocolWebSocketHandler
 
 	private int sendBufferSizeLimit = 512 * 1024;
 
+	private int sendCoalescingSizeLimit = 0;
+
 	private volatile long lastSessionCheckTime = System.currentTimeMillis();
 
 	private final ReentrantLock sessionCheckLock = new ReentrantLock();
@@ -221,6 +224,27 @@ public class SubProtocolWebSocketHandler
 		return this.sendBufferSizeLimit;
 	}
 
+	/**
+	 * Specify the maximum size (number of bytes) of a text message assembled
+	 * from messages buffered for a session, or 0 to not coalesce messages.
+	 * <p>Only applies to sessions handled by a {@link StompSubProtocolHandler},
+	 * since STOMP frames are self-delimiting. Messages of other sub-protocols are
+	 * always sent individually.
+	 * @since 4.3.4
+	 * @see ConcurrentWebSocketSessionDecorator#setCoalescingSizeLimit
+	 */
+	public void setSendCoalescingSizeLimit(int sendCoalescingSizeLimit) {
+		this.sendCoalescingSizeLimit = sendCoalescingSizeLimit;
+	}
+
+	/**
+	 * Return the coalescing size limit (number of bytes).
+	 * @since 4.3.4
+	 */
+	public int getSendCoalescingSizeLimit() {
+		return this.sendCoalescingSizeLimit;
+	}
+
 	/**
 	 * Return a String describing internal state and counters.
 	 */
@@ -289,9 +313,16 @@ public class SubProtocolWebSocketHandler
 			return;
 		}
 		this.stats.incrementSessionCount(session);
-		session = new ConcurrentWebSocketSessionDecorator(session, getSendTimeLimit(), getSendBufferSizeLimit());
+		SubProtocolHandler protocolHandler = findProtocolHandler(session);
+		ConcurrentWebSocketSessionDecorator decorator =
+				new ConcurrentWebSocketSessionDecorator(session, getSendTimeLimit(), getSendBufferSizeLimit());
+		if (protocolHandler instanceof StompSubProtocolHandler) {
+			// Only STOMP frames are self-delimiting, so that merged messages can be split again
+			decorator.setCoalescingSizeLimit(getSendCoalescingSizeLimit());
+		}
+		session = decorator;
 		this.sessions.put(session.getId(), new WebSocketSessionHolder(session));
-		findProtocolHandler(session).afterSessionStarted(session, this.clientInboundChannel);
+		protocolHandler.afterSessionStarted(session, this.clientInboundChannel);
 	}
 
 	/**
@@ -476,8 +507,10 @@ public class SubProtocolWebSocketHandler
 		if (logger.isDebugEnabled()) {
 			logger.debug("Clearing session " + session.getId());
 		}
-		if (this.sessions.remove(session.getId()) != null) {
+		WebSocketSessionHolder holder = this.sessions.remove(session.getId());
+		if (holder != null) {
 			this.stats.decrementSessionCount(session);
+			this.stats.addSendCounts(holder.getSession());
 		}
 		findProtocolHandler(session).afterSessionEnded(session, closeStatus, this.clientInboundChannel);
 	}
@@ -541,6 +574,10 @@ public class SubProtocolWebSocketHandler
 
 		private final AtomicInteger transportError = new AtomicInteger();
 
+		private final AtomicLong sentMessages = new AtomicLong();
+
+		private final AtomicLong writes = new AtomicLong();
+
 		public void incrementSessionCount(WebSocketSession session) {
 			getCountFor(session).incrementAndGet();
 			this.total.incrementAndGet();
@@ -562,6 +599,14 @@ public class SubProtocolWebSocketHandler
 			this.transportError.incrementAndGet();
 		}
 
+		public void addSendCounts(WebSocketSession session) {
+			if (session instanceof ConcurrentWebSocketSessionDecorator) {
+				ConcurrentWebSocketSessionDecorator decorator = (ConcurrentWebSocketSessionDecorator) session;
+				this.sentMessages.addAndGet(decorator.getSentMessageCount());
+				this.writes.addAndGet(decorator.getWriteCount());
+			}
+		}
+
 		private AtomicInteger getCountFor(WebSocketSession session) {
 			if (session instanceof PollingSockJsSession) {
 				return this.httpPolling;
@@ -583,7 +628,9 @@ public class SubProtocolWebSocketHandler
 					(this.limitExceeded.get() + this.noMessagesReceived.get()) + " closed abnormally (" +
 					this.noMessagesReceived.get() + " connect failure, " +
 					this.limitExceeded.get() + " send limit, " +
-					this.transportError.get() + " transport error)";
+					this.transportError.get() + " transport error)" +
+					(getSendCoalescingSizeLimit() > 0 ? ", " + this.sentMessages.get() +
+							" messages sent in " + this.writes.get() + " writes by closed sessions" : "");
 		}
 	}
 
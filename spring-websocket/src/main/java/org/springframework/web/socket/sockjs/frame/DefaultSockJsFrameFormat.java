@@ -46,4 +46,22 @@ public class DefaultSockJsFrameFormat implements SockJsFrameFormat {
 		return content;
 	}
 
+	/**
+	 * Return the text before and after the frame content as a two-element
+	 * array, allowing the content to be written without formatting it into
+	 * a {@code String} first; or {@code null} if this format pre-processes
+	 * the content or is not a plain template with a single {@code %s}.
+	 * @since 4.3.4
+	 */
+	public String[] getContentAffixes() {
+		if (getClass() != DefaultSockJsFrameFormat.class) {
+			return null;
+		}
+		int index = this.format.indexOf("%s");
+		if (index == -1 || this.format.indexOf('%') != index || this.format.indexOf('%', index + 2) != -1) {
+			return null;
+		}
+		return new String[] {this.format.substring(0, index), this.format.substring(index + 2)};
+	}
+
 }
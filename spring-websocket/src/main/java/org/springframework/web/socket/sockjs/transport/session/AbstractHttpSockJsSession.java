@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -39,8 +40,11 @@ import org.springframework.web.socket.WebSocketExtension;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.sockjs.SockJsException;
 import org.springframework.web.socket.sockjs.SockJsTransportFailureException;
+import org.springframework.web.socket.sockjs.frame.DefaultSockJsFrameFormat;
+import org.springframework.web.socket.sockjs.frame.Jackson2SockJsMessageCodec;
 import org.springframework.web.socket.sockjs.frame.SockJsFrame;
 import org.springframework.web.socket.sockjs.frame.SockJsFrameFormat;
+import org.springframework.web.socket.sockjs.frame.SockJsMessageCodec;
 import org.springframework.web.socket.sockjs.transport.SockJsServiceConfig;
 
 /**
@@ -51,6 +55,12 @@ import org.springframework.web.socket.sockjs.transport.SockJsServiceConfig;
  */
 public abstract class AbstractHttpSockJsSession extends AbstractSockJsSession {
 
+	/**
+	 * The size, in bytes, up to which cached messages are combined into a
+	 * single message frame.
+	 */
+	private static final int MESSAGE_FRAME_SIZE_LIMIT = 64 * 1024;
+
 
 	private volatile URI uri;
 
@@ -79,6 +89,16 @@ public abstract class AbstractHttpSockJsSession extends AbstractSockJsSession {
 
 	private final Queue<String> messageCache;
 
+	private MessageFrameBuffer messageFrameBuffer;
+
+	private volatile long flushPendingSince;
+
+	private volatile long flushCount;
+
+	private volatile long lastFlushLatency;
+
+	private volatile long maxFlushLatency;
+
 
 	public AbstractHttpSockJsSession(String id, SockJsServiceConfig config,
 			WebSocketHandler wsHandler, Map<String, Object> attributes) {
@@ -140,6 +160,32 @@ public abstract class AbstractHttpSockJsSession extends AbstractSockJsSession {
 		return this.messageCache;
 	}
 
+	/**
+	 * Return the number of message frames written so far.
+	 * @since 4.3.4
+	 */
+	public long getFlushCount() {
+		return this.flushCount;
+	}
+
+	/**
+	 * Return how long (in milliseconds) messages waited in the message cache
+	 * before the most recent message frame was written.
+	 * @since 4.3.4
+	 */
+	public long getLastFlushLatency() {
+		return this.lastFlushLatency;
+	}
+
+	/**
+	 * Return the longest time (in milliseconds) messages waited in the
+	 * message cache before a message frame was written.
+	 * @since 4.3.4
+	 */
+	public long getMaxFlushLatency() {
+		return this.maxFlushLatency;
+	}
+
 	@Override
 	public boolean isActive() {
 		ServerHttpAsyncRequestControl control = this.asyncRequestControl;
@@ -291,6 +337,9 @@ public abstract class AbstractHttpSockJsSession extends AbstractSockJsSession {
 	protected final void sendMessageInternal(String message) throws SockJsTransportFailureException {
 		synchronized (this.responseLock) {
 			this.messageCache.add(message);
+			if (this.flushPendingSince == 0) {
+				this.flushPendingSince = System.currentTimeMillis();
+			}
 			if (logger.isTraceEnabled()) {
 				logger.trace(this.messageCache.size() + " message(s) to flush in session " + this.getId());
 			}
@@ -316,6 +365,98 @@ public abstract class AbstractHttpSockJsSession extends AbstractSockJsSession {
 	 */
 	protected abstract void flushCache() throws SockJsTransportFailureException;
 
+	/**
+	 * Write messages from the message cache as a single message frame of up to
+	 * about 64K, leaving any remaining messages in the cache, and flush the
+	 * response. Subclasses should only call this method from a method where the
+	 * "responseLock" is acquired.
+	 * <p>With the default frame formats and message codec the frame is encoded
+	 * straight into a buffer reused by the session, without creating the
+	 * frame content as a {@code String} first.
+	 * @return the number of bytes of frame content written plus one, as counted
+	 * against the {@link SockJsServiceConfig#getStreamBytesLimit() stream bytes limit}
+	 * @since 4.3.4
+	 */
+	protected int writeMessageFrame() throws SockJsTransportFailureException {
+		SockJsFrameFormat frameFormat = this.frameFormat;
+		String[] affixes = (frameFormat instanceof DefaultSockJsFrameFormat ?
+				((DefaultSockJsFrameFormat) frameFormat).getContentAffixes() : null);
+		SockJsMessageCodec messageCodec = getSockJsServiceConfig().getMessageCodec();
+		int byteCount;
+		if (affixes != null && messageCodec.getClass() == Jackson2SockJsMessageCodec.class) {
+			byteCount = writeEncodedMessageFrame(affixes[0], affixes[1]);
+		}
+		else {
+			byteCount = writeFormattedMessageFrame(messageCodec);
+		}
+		updateFlushLatency();
+		return byteCount;
+	}
+
+	private int writeEncodedMessageFrame(String prefix, String suffix) throws SockJsTransportFailureException {
+		if (this.messageFrameBuffer == null) {
+			this.messageFrameBuffer = new MessageFrameBuffer();
+		}
+		MessageFrameBuffer buffer = this.messageFrameBuffer;
+		try {
+			buffer.start(prefix);
+			String message = this.messageCache.peek();
+			while (message != null && (buffer.getMessageCount() == 0 ||
+					buffer.size() + message.length() <= MESSAGE_FRAME_SIZE_LIMIT)) {
+				buffer.addMessage(this.messageCache.poll());
+				message = this.messageCache.peek();
+			}
+			buffer.end(suffix);
+			if (isActive()) {
+				if (logger.isTraceEnabled()) {
+					logger.trace("Writing to HTTP response: " + buffer);
+				}
+				buffer.writeTo(this.response.getBody());
+				this.response.flush();
+			}
+			return buffer.getContentSize() + 1;
+		}
+		catch (Throwable ex) {
+			handleWriteFrameFailure(ex);
+			throw new SockJsTransportFailureException("Failed to write " + buffer, getId(), ex);
+		}
+		finally {
+			buffer.reset();
+		}
+	}
+
+	private int writeFormattedMessageFrame(SockJsMessageCodec messageCodec) throws SockJsTransportFailureException {
+		List<String> messages = new ArrayList<String>();
+		int size = 0;
+		String message = this.messageCache.peek();
+		while (message != null && (messages.isEmpty() || size + message.length() <= MESSAGE_FRAME_SIZE_LIMIT)) {
+			messages.add(this.messageCache.poll());
+			size += message.length();
+			message = this.messageCache.peek();
+		}
+		SockJsFrame frame = SockJsFrame.messageFrame(messageCodec, messages.toArray(new String[messages.size()]));
+		try {
+			writeFrameInternal(frame);
+		}
+		catch (Throwable ex) {
+			handleWriteFrameFailure(ex);
+			throw new SockJsTransportFailureException("Failed to write " + frame, getId(), ex);
+		}
+		return frame.getContentBytes().length + 1;
+	}
+
+	private void updateFlushLatency() {
+		long now = System.currentTimeMillis();
+		long pendingSince = this.flushPendingSince;
+		long latency = (pendingSince > 0 ? now - pendingSince : 0);
+		this.flushPendingSince = (this.messageCache.isEmpty() ? 0 : now);
+		this.lastFlushLatency = latency;
+		if (latency > this.maxFlushLatency) {
+			this.maxFlushLatency = latency;
+		}
+		this.flushCount++;
+	}
+
 
 	/**
 	 * @deprecated as of 4.2 this method is deprecated since the prelude is written
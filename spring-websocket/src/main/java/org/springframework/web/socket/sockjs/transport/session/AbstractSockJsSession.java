@@ -322,24 +322,32 @@ public abstract class AbstractSockJsSession implements SockJsSession {
 			writeFrameInternal(frame);
 		}
 		catch (Throwable ex) {
-			logWriteFrameFailure(ex);
-			try {
-				// Force disconnect (so we won't try to send close frame)
-				disconnect(CloseStatus.SERVER_ERROR);
-			}
-			catch (Throwable disconnectFailure) {
-				// Ignore
-			}
-			try {
-				close(CloseStatus.SERVER_ERROR);
-			}
-			catch (Throwable closeFailure) {
-				// Nothing of consequence, already forced disconnect
-			}
+			handleWriteFrameFailure(ex);
 			throw new SockJsTransportFailureException("Failed to write " + frame, getId(), ex);
 		}
 	}
 
+	/**
+	 * Log a failure to write a frame and disconnect and close the session.
+	 * @since 4.3.4
+	 */
+	protected void handleWriteFrameFailure(Throwable failure) {
+		logWriteFrameFailure(failure);
+		try {
+			// Force disconnect (so we won't try to send close frame)
+			disconnect(CloseStatus.SERVER_ERROR);
+		}
+		catch (Throwable disconnectFailure) {
+			// Ignore
+		}
+		try {
+			close(CloseStatus.SERVER_ERROR);
+		}
+		catch (Throwable closeFailure) {
+			// Nothing of consequence, already forced disconnect
+		}
+	}
+
 	private void logWriteFrameFailure(Throwable failure) {
 		@SuppressWarnings("serial")
 		NestedCheckedException nestedException = new NestedCheckedException("", failure) {};
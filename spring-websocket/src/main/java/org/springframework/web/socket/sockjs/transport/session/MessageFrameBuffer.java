@@ -0,0 +1,236 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.socket.sockjs.transport.session;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A reusable buffer that encodes a SockJS message frame ({@code a[...]})
+ * straight from the messages to UTF-8 bytes, without building the frame as a
+ * {@code String} first.
+ *
+ * <p>Messages are quoted as by
+ * {@link org.springframework.web.socket.sockjs.frame.Jackson2SockJsMessageCodec}:
+ * standard JSON string quoting followed by the escaping of the characters
+ * the SockJS protocol requires to be escaped.
+ *
+ * <p>This class is not thread-safe. Sessions use it with their response lock held.
+ *
+ * @since 4.3.4
+ */
+class MessageFrameBuffer {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+	private static final byte[] UPPER_HEX = "0123456789ABCDEF".getBytes();
+
+	private static final byte[] LOWER_HEX = "0123456789abcdef".getBytes();
+
+
+	private byte[] buffer = new byte[INITIAL_CAPACITY];
+
+	private int count;
+
+	private int contentStart;
+
+	private int contentEnd;
+
+	private int messageCount;
+
+
+	/**
+	 * Start a new frame, discarding any previous content.
+	 * @param prefix the text to write before the frame content
+	 */
+	public void start(String prefix) {
+		this.count = 0;
+		this.messageCount = 0;
+		appendUnescaped(prefix);
+		this.contentStart = this.count;
+		append('a');
+		append('[');
+	}
+
+	/**
+	 * Add a message to the frame.
+	 */
+	public void addMessage(String message) {
+		if (this.messageCount > 0) {
+			append(',');
+		}
+		append('"');
+		int length = message.length();
+		ensureCapacity(length);
+		for (int i = 0; i < length; i++) {
+			char c = message.charAt(i);
+			if (c == '"' || c == '\\') {
+				append('\\');
+				append(c);
+			}
+			else if (c < 0x20) {
+				appendControlChar(c);
+			}
+			else if (isSockJsSpecialChar(c)) {
+				append('\\');
+				append('u');
+				append(LOWER_HEX[(c >> 12) & 0xF]);
+				append(LOWER_HEX[(c >> 8) & 0xF]);
+				append(LOWER_HEX[(c >> 4) & 0xF]);
+				append(LOWER_HEX[c & 0xF]);
+			}
+			else {
+				appendUtf8(c);
+			}
+		}
+		append('"');
+		this.messageCount++;
+	}
+
+	/**
+	 * End the frame.
+	 * @param suffix the text to write after the frame content
+	 */
+	public void end(String suffix) {
+		append(']');
+		this.contentEnd = this.count;
+		appendUnescaped(suffix);
+	}
+
+	/**
+	 * Return the number of messages added to the current frame.
+	 */
+	public int getMessageCount() {
+		return this.messageCount;
+	}
+
+	/**
+	 * Return the number of bytes in the buffer.
+	 */
+	public int size() {
+		return this.count;
+	}
+
+	/**
+	 * Return the number of bytes of the frame content, i.e. without the prefix
+	 * and suffix of the frame format, as in {@code SockJsFrame#getContentBytes()}.
+	 */
+	public int getContentSize() {
+		return this.contentEnd - this.contentStart;
+	}
+
+	/**
+	 * Write the content of the buffer to the given stream.
+	 */
+	public void writeTo(OutputStream outputStream) throws IOException {
+		outputStream.write(this.buffer, 0, this.count);
+	}
+
+	/**
+	 * Discard the content of the buffer, and the buffer itself if it has
+	 * grown beyond the size worth keeping between frames.
+	 */
+	public void reset() {
+		this.count = 0;
+		this.messageCount = 0;
+		if (this.buffer.length > MAX_RETAINED_CAPACITY) {
+			this.buffer = new byte[INITIAL_CAPACITY];
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "MessageFrameBuffer[" + this.messageCount + " messages, " + this.count + " bytes]";
+	}
+
+
+	private void appendControlChar(char c) {
+		append('\\');
+		switch (c) {
+			case '\b':
+				append('b');
+				break;
+			case '\t':
+				append('t');
+				break;
+			case '\n':
+				append('n');
+				break;
+			case '\f':
+				append('f');
+				break;
+			case '\r':
+				append('r');
+				break;
+			default:
+				append('u');
+				append('0');
+				append('0');
+				append(UPPER_HEX[c >> 4]);
+				append(UPPER_HEX[c & 0xF]);
+		}
+	}
+
+	/**
+	 * See `escapable_by_server` variable in the SockJS protocol test suite.
+	 * Surrogates are escaped as well, so no character pairs need to be encoded.
+	 */
+	private static boolean isSockJsSpecialChar(char ch) {
+		return (ch >= '\u200C' && ch <= '\u200F') || (ch >= '\u2028' && ch <= '\u202F') ||
+				(ch >= '\u2060' && ch <= '\u206F') || (ch >= '\uFFF0') || (ch >= '\uD800' && ch <= '\uDFFF');
+	}
+
+	private void appendUnescaped(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			appendUtf8(text.charAt(i));
+		}
+	}
+
+	private void appendUtf8(char c) {
+		if (c < 0x80) {
+			append(c);
+		}
+		else if (c < 0x800) {
+			append(0xC0 | (c >> 6));
+			append(0x80 | (c & 0x3F));
+		}
+		else {
+			append(0xE0 | (c >> 12));
+			append(0x80 | ((c >> 6) & 0x3F));
+			append(0x80 | (c & 0x3F));
+		}
+	}
+
+	private void append(int b) {
+		if (this.count == this.buffer.length) {
+			ensureCapacity(1);
+		}
+		this.buffer[this.count++] = (byte) b;
+	}
+
+	private void ensureCapacity(int additional) {
+		int required = this.count + additional;
+		if (required > this.buffer.length) {
+			byte[] newBuffer = new byte[Math.max(required, this.buffer.length * 2)];
+			System.arraycopy(this.buffer, 0, newBuffer, 0, this.count);
+			this.buffer = newBuffer;
+		}
+	}
+
+}
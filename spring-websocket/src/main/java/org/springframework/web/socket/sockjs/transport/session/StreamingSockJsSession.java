@@ -25,7 +25,6 @@ import org.springframework.util.Assert;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.sockjs.SockJsTransportFailureException;
 import org.springframework.web.socket.sockjs.frame.SockJsFrame;
-import org.springframework.web.socket.sockjs.frame.SockJsMessageCodec;
 import org.springframework.web.socket.sockjs.transport.SockJsServiceConfig;
 
 /**
@@ -80,12 +79,7 @@ public abstract class StreamingSockJsSession extends AbstractHttpSockJsSession {
 	@Override
 	protected void flushCache() throws SockJsTransportFailureException {
 		while (!getMessageCache().isEmpty()) {
-			String message = getMessageCache().poll();
-			SockJsMessageCodec messageCodec = getSockJsServiceConfig().getMessageCodec();
-			SockJsFrame frame = SockJsFrame.messageFrame(messageCodec, message);
-			writeFrame(frame);
-
-			this.byteCount += (frame.getContentBytes().length + 1);
+			this.byteCount += writeMessageFrame();
 			if (logger.isTraceEnabled()) {
 				logger.trace(this.byteCount + " bytes written so far, " +
 						getMessageCache().size() + " more messages not flushed");
@@ -237,6 +237,58 @@ public class ConcurrentWebSocketSessionDecoratorTests {
 				CloseStatus.SESSION_NOT_RELIABLE, blockingSession.getCloseStatus());
 	}
 
+	@Test
+	public void sendCoalescesBufferedTextMessages() throws Exception {
+
+		BlockingSession blockingSession = new BlockingSession();
+		blockingSession.setOpen(true);
+		CountDownLatch sentMessageLatch = blockingSession.getSentMessageLatch();
+
+		final ConcurrentWebSocketSessionDecorator concurrentSession =
+				new ConcurrentWebSocketSessionDecorator(blockingSession, 10 * 1000, 1024);
+		concurrentSession.setCoalescingSizeLimit(30);
+
+		Executors.newSingleThreadExecutor().submit((Runnable) () -> {
+			TextMessage message = new TextMessage("slow message");
+			try {
+				concurrentSession.sendMessage(message);
+			}
+			catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+
+		assertTrue(sentMessageLatch.await(5, TimeUnit.SECONDS));
+
+		TextMessage payload = new TextMessage("payload");
+		for (int i = 0; i < 5; i++) {
+			concurrentSession.sendMessage(payload);
+		}
+		assertEquals(5 * payload.getPayloadLength(), concurrentSession.getBufferSize());
+
+		sentMessageLatch = blockingSession.getSentMessageLatch();
+		blockingSession.release();
+		assertTrue(sentMessageLatch.await(5, TimeUnit.SECONDS));
+
+		assertEquals(2, blockingSession.getSentMessages().size());
+		assertEquals(new TextMessage("payloadpayloadpayloadpayload"), blockingSession.getSentMessages().get(1));
+		assertEquals(payload.getPayloadLength(), concurrentSession.getBufferSize());
+		assertEquals(1, concurrentSession.getSentMessageCount());
+		assertEquals(1, concurrentSession.getWriteCount());
+
+		sentMessageLatch = blockingSession.getSentMessageLatch();
+		blockingSession.release();
+		assertTrue(sentMessageLatch.await(5, TimeUnit.SECONDS));
+
+		assertEquals(3, blockingSession.getSentMessages().size());
+		assertEquals(payload, blockingSession.getSentMessages().get(2));
+		assertEquals(0, concurrentSession.getBufferSize());
+		assertEquals(5, concurrentSession.getSentMessageCount());
+		assertEquals(2, concurrentSession.getWriteCount());
+
+		blockingSession.release();
+	}
+
 
 
 	private static class BlockingSession extends TestWebSocketSession {
@@ -251,19 +303,27 @@ public class ConcurrentWebSocketSessionDecoratorTests {
 			return this.nextMessageLatch.get();
 		}
 
+		public void release() {
+			CountDownLatch latch = this.releaseLatch.get();
+			if (latch != null) {
+				latch.countDown();
+			}
+		}
+
 		@Override
 		public void sendMessage(WebSocketMessage<?> message) throws IOException {
+			CountDownLatch latch = new CountDownLatch(1);
+			this.releaseLatch.set(latch);
 			super.sendMessage(message);
 			if (this.nextMessageLatch != null) {
 				this.nextMessageLatch.get().countDown();
 			}
-			block();
+			block(latch);
 		}
 
-		private void block() {
+		private void block(CountDownLatch latch) {
 			try {
-				this.releaseLatch.set(new CountDownLatch(1));
-				this.releaseLatch.get().await();
+				latch.await();
 			}
 			catch (InterruptedException e) {
 				e.printStackTrace();
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -81,6 +81,23 @@ public class SubProtocolWebSocketHandlerTests {
 		verify(this.mqttHandler, times(0)).afterSessionStarted(session, this.inClientChannel);
 	}
 
+	@Test
+	public void coalescingForStompOnly() throws Exception {
+		StompSubProtocolHandler stompProtocolHandler = new StompSubProtocolHandler();
+		this.webSocketHandler.setProtocolHandlers(Arrays.asList(stompProtocolHandler, mqttHandler));
+		this.webSocketHandler.setSendCoalescingSizeLimit(1024);
+		this.session.setAcceptedProtocol("v12.stomp");
+		this.webSocketHandler.afterConnectionEstablished(session);
+
+		TestWebSocketSession mqttSession = new TestWebSocketSession("2");
+		mqttSession.setOpen(true);
+		mqttSession.setAcceptedProtocol("MQTT");
+		this.webSocketHandler.afterConnectionEstablished(mqttSession);
+
+		assertEquals(1024, getDecorator("1").getCoalescingSizeLimit());
+		assertEquals(0, getDecorator("2").getCoalescingSizeLimit());
+	}
+
 	@Test
 	public void subProtocolDefaultHandlerOnly() throws Exception {
 		this.webSocketHandler.setDefaultProtocolHandler(stompHandler);
@@ -181,4 +198,11 @@ public class SubProtocolWebSocketHandlerTests {
 				handlerAccessor.getPropertyValue("lastSessionCheckTime"));
 	}
 
+	@SuppressWarnings("unchecked")
+	private ConcurrentWebSocketSessionDecorator getDecorator(String sessionId) {
+		DirectFieldAccessor handlerAccessor = new DirectFieldAccessor(this.webSocketHandler);
+		Map<String, ?> map = (Map<String, ?>) handlerAccessor.getPropertyValue("sessions");
+		return (ConcurrentWebSocketSessionDecorator) new DirectFieldAccessor(map.get(sessionId)).getPropertyValue("session");
+	}
+
 }
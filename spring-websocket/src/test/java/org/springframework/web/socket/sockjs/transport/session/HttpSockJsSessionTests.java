@@ -17,6 +17,7 @@
 package org.springframework.web.socket.sockjs.transport.session;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Map;
 
 import org.junit.Before;
@@ -28,8 +29,11 @@ import org.springframework.http.server.ServletServerHttpRequest;
 import org.springframework.http.server.ServletServerHttpResponse;
 import org.springframework.mock.web.test.MockHttpServletRequest;
 import org.springframework.mock.web.test.MockHttpServletResponse;
+import org.springframework.util.StringUtils;
+import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.sockjs.frame.DefaultSockJsFrameFormat;
+import org.springframework.web.socket.sockjs.frame.Jackson2SockJsMessageCodec;
 import org.springframework.web.socket.sockjs.frame.SockJsFrame;
 import org.springframework.web.socket.sockjs.frame.SockJsFrameFormat;
 import org.springframework.web.socket.sockjs.transport.SockJsServiceConfig;
@@ -101,6 +105,77 @@ public class HttpSockJsSessionTests extends AbstractSockJsSessionTests<TestAbstr
 		verifyNoMoreInteractions(this.webSocketHandler);
 	}
 
+	@Test
+	public void flushCacheWritesMessageFrame() throws Exception {
+		StreamingSockJsSession session = new NoPreludeStreamingSockJsSession(this.sockJsConfig, this.webSocketHandler);
+		session.handleInitialRequest(this.request, this.response, new DefaultSockJsFrameFormat("%s\n"));
+
+		String[] messages = {"plain", "quote\" and \\ backslash", "line\nbreak\u0001\t", "caf\u00e9 \u4e2d",
+				"separator\u2028 and pair \ud83d\ude00", "\uffff"};
+		for (int i = 0; i < messages.length - 1; i++) {
+			session.getMessageCache().add(messages[i]);
+		}
+		session.sendMessage(new TextMessage(messages[messages.length - 1]));
+
+		String expected = "o\n" + this.sockJsConfig.getMessageCodec().encode(messages) + "\n";
+		assertEquals(expected, new String(this.servletResponse.getContentAsByteArray(), "UTF-8"));
+		assertTrue(session.getMessageCache().isEmpty());
+		assertEquals(1, session.getFlushCount());
+	}
+
+	@Test
+	public void flushCacheLimitsMessageFrameSize() throws Exception {
+		StreamingSockJsSession session = new NoPreludeStreamingSockJsSession(this.sockJsConfig, this.webSocketHandler);
+		session.handleInitialRequest(this.request, this.response, new DefaultSockJsFrameFormat("%s\n"));
+
+		char[] chars = new char[30 * 1024];
+		Arrays.fill(chars, 'x');
+		String message = new String(chars);
+		for (int i = 0; i < 3; i++) {
+			session.getMessageCache().add(message);
+		}
+		session.sendMessage(new TextMessage(message));
+
+		String content = this.servletResponse.getContentAsString();
+		assertEquals(2, StringUtils.countOccurrencesOf(content, "a["));
+		assertEquals(4, StringUtils.countOccurrencesOf(content, "\"" + message + "\""));
+		assertEquals(2, session.getFlushCount());
+	}
+
+
+	@Test
+	public void writeMessageFrameReturnsSameByteCountForEitherEncoding() throws Exception {
+		String[] messages = {"plain", "quote\" and \\ backslash", "caf\u00e9 \u4e2d", "separator\u2028"};
+		int expected = this.sockJsConfig.getMessageCodec().encode(messages).getBytes("UTF-8").length + 1;
+		assertEquals(expected, writeMessageFrame(messages));
+
+		this.sockJsConfig.setMessageCodec(new Jackson2SockJsMessageCodec() {});
+		assertEquals(expected, writeMessageFrame(messages));
+	}
+
+	private int writeMessageFrame(String... messages) throws Exception {
+		MockHttpServletRequest servletRequest = new MockHttpServletRequest();
+		servletRequest.setAsyncSupported(true);
+		StreamingSockJsSession session = new NoPreludeStreamingSockJsSession(this.sockJsConfig, this.webSocketHandler);
+		session.handleInitialRequest(new ServletServerHttpRequest(servletRequest),
+				new ServletServerHttpResponse(new MockHttpServletResponse()),
+				new DefaultSockJsFrameFormat("data: %s\r\n\r\n"));
+		session.getMessageCache().addAll(Arrays.asList(messages));
+		return session.writeMessageFrame();
+	}
+
+	private static class NoPreludeStreamingSockJsSession extends StreamingSockJsSession {
+
+		public NoPreludeStreamingSockJsSession(SockJsServiceConfig config, WebSocketHandler handler) {
+			super("1", config, handler, null);
+		}
+
+		@Override
+		protected byte[] getPrelude(ServerHttpRequest request) {
+			return new byte[0];
+		}
+	}
+
 
 	static class TestAbstractHttpSockJsSession extends StreamingSockJsSession {
 